@@ -0,0 +1,17 @@
+package be.raildelays.batch;
+
+import com.excilys.ebi.spring.dbunit.config.DBOperation;
+import com.excilys.ebi.spring.dbunit.test.DataSet;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Same job reading the delays of each station slice by slice instead of the pairs of stops.
+ *
+ * @author Almex
+ */
+@TestPropertySource(properties = "generate.excel.files.source=stations")
+@DataSet(value = "classpath:GenerateExcelFilesIT.xml",
+        tearDownOperation = DBOperation.DELETE_ALL,
+        dataSourceSpringName = "dataSource")
+public class GenerateExcelFilesJobFromStationsIT extends GenerateExcelFilesJobIT {
+}
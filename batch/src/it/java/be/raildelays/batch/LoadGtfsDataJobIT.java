@@ -70,4 +70,17 @@ public class LoadGtfsDataJobIT extends AbstractContextIT {
 
 
     }
+
+    @Test
+    public void testLoadDateRangeFromGtfs() throws Exception {
+        Map<String, JobParameter> parameters = new HashMap<>();
+
+        parameters.put("date", new JobParameter(new SimpleDateFormat("yyyyMMdd").parse("20150101")));
+        parameters.put("endDate", new JobParameter(new SimpleDateFormat("yyyyMMdd").parse("20150107")));
+        parameters.put("language", new JobParameter(Language.FR.name()));
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(new JobParameters(parameters));
+
+        Assert.assertFalse(jobExecution.getStatus().isUnsuccessful());
+    }
 }
@@ -0,0 +1,129 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.StopTime;
+import be.raildelays.batch.gtfs.StopTimesFieldSetMapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.ZipEntryResource;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compare the number of rows per second read from a synthetic stop_times.txt, stored in a zip archive as done
+ * by the GTFS feed, by the {@link FlatFileItemReader} we used to have and by the
+ * {@link GtfsMappedFileItemReader}. Both read the entry via a {@link ZipEntryResource}, so the time spent by
+ * the latter to extract the entry before mapping it is measured too.
+ *
+ * @author Almex
+ */
+public class GtfsMappedFileItemReaderBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsMappedFileItemReaderBenchmarkIT.class);
+
+    private static final int ROWS = 1_000_000;
+    private static final String NAMES = "trip_id,arrival_time,departure_time,stop_id,stop_sequence";
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("nmbs", ".zip");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8))) {
+            zip.putNextEntry(new ZipEntry("stop_times.txt"));
+            writer.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence,stop_headsign,pickup_type," +
+                    "drop_off_type,shape_dist_traveled,timepoint\n");
+
+            for (int i = 0; i < ROWS; i++) {
+                int minutes = i % (24 * 60);
+
+                writer.write(String.format("IC%d,%02d:%02d:00,%02d:%02d:00,stops:00%07d:0,%d,,0,0,,1%n",
+                        i / 20, minutes / 60, minutes % 60, minutes / 60, minutes % 60, i % 600, i % 20 + 1));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRowsPerSecond() throws Exception {
+        // Warm-up
+        read(createFlatFileItemReader());
+        read(createMappedItemReader());
+
+        double flatFile = read(createFlatFileItemReader());
+        double mapped = read(createMappedItemReader());
+
+        LOGGER.info("FlatFileItemReader: {} rows/s", (long) flatFile);
+        LOGGER.info("GtfsMappedFileItemReader: {} rows/s ({}x)", (long) mapped, String.format("%.2f", mapped / flatFile));
+    }
+
+    private double read(ItemStreamReader<StopTime> reader) throws Exception {
+        long count = 0;
+        long start = System.nanoTime();
+
+        reader.open(new ExecutionContext());
+
+        try {
+            for (StopTime stopTime = reader.read(); stopTime != null; stopTime = reader.read()) {
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+
+        Assert.assertEquals(ROWS, count);
+
+        return count * 1e9 / (System.nanoTime() - start);
+    }
+
+    private ItemStreamReader<StopTime> createFlatFileItemReader() throws Exception {
+        FlatFileItemReader<StopTime> result = new FlatFileItemReader<>();
+        DefaultLineMapper<StopTime> lineMapper = new DefaultLineMapper<>();
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+
+        tokenizer.setNames((NAMES + ",stop_headsign,pickup_type,drop_off_type,shape_dist_traveled,timepoint")
+                .split(","));
+        tokenizer.setStrict(false);
+        lineMapper.setLineTokenizer(tokenizer);
+        lineMapper.setFieldSetMapper(new StopTimesFieldSetMapper());
+        result.setResource(new ZipEntryResource(new FileSystemResource(file.toFile()), "stop_times.txt"));
+        result.setLineMapper(lineMapper);
+        result.setLinesToSkip(1);
+        result.setEncoding("UTF-8");
+        result.afterPropertiesSet();
+
+        return result;
+    }
+
+    private ItemStreamReader<StopTime> createMappedItemReader() throws Exception {
+        GtfsMappedFileItemReader<StopTime> result = new GtfsMappedFileItemReader<>();
+
+        result.setResource(new ZipEntryResource(new FileSystemResource(file.toFile()), "stop_times.txt"));
+        result.setNames(NAMES.split(","));
+        result.setFieldSetMapper(new StopTimesFieldSetMapper());
+        result.afterPropertiesSet();
+
+        return result;
+    }
+}
@@ -0,0 +1,299 @@
+package be.raildelays.batch.writer;
+
+import be.raildelays.batch.AbstractContextIT;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import be.raildelays.repository.StationDao;
+import be.raildelays.repository.TrainLineDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.data.RepositoryItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Write {@link LineStop} chains into the embedded database and compare the number of rows per second inserted by the
+ * {@link RepositoryItemWriter} we used to have and by the {@link LineStopJdbcBatchItemWriter}.
+ *
+ * @author Almex
+ */
+@ContextConfiguration(locations = {"/jobs/steps/load-gtfs-into-database-job-context.xml"})
+public class LineStopJdbcBatchItemWriterIT extends AbstractContextIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LineStopJdbcBatchItemWriterIT.class);
+
+    private static final int STOPS = 10;
+    private static final int COMMIT_INTERVAL = 10;
+
+    @Autowired
+    @Qualifier("dataSource")
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    @Qualifier("batchTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LineStopDao lineStopDao;
+
+    @Autowired
+    private StationDao stationDao;
+
+    @Autowired
+    private TrainLineDao trainLineDao;
+
+    private LineStopJdbcBatchItemWriter writer;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Station> stations;
+
+    @Before
+    public void setUp() throws Exception {
+        writer = new LineStopJdbcBatchItemWriter();
+        writer.setDataSource(dataSource);
+        writer.setEntityManagerFactory(entityManagerFactory);
+        writer.afterPropertiesSet();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        stations = transactionTemplate.execute(status -> {
+            List<Station> result = new ArrayList<>();
+
+            for (int i = 0; i < STOPS; i++) {
+                String name = "LineStopJdbcBatchItemWriterIT-" + i;
+                Station station = stationDao.findByEnglishName(name);
+
+                result.add(station != null ? station : stationDao.save(new Station(name)));
+            }
+
+            return result;
+        });
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        TrainLine trainLine = createTrainLine(990001L);
+        LocalDate date = LocalDate.of(2001, 1, 1);
+
+        write(writer, () -> Arrays.asList(createChain(trainLine, date), createChain(trainLine, date.plusDays(1))));
+
+        transactionTemplate.execute(status -> {
+            LineStop first = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(0));
+            LineStop last = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(STOPS - 1));
+
+            Assert.assertEquals(STOPS, lineStopDao.findByTrainLineAndDate(trainLine, date).size());
+            Assert.assertNull(first.getPrevious());
+            Assert.assertEquals(stations.get(1), first.getNext().getStation());
+            Assert.assertEquals(stations.get(STOPS - 2), last.getPrevious().getStation());
+            Assert.assertNull(last.getNext());
+            Assert.assertEquals(5L, first.getDepartureTime().getDelay());
+
+            return null;
+        });
+    }
+
+    /**
+     * We expect existing line stops to be updated without any unique key violation.
+     */
+    @Test
+    public void testWriteExisting() throws Exception {
+        TrainLine trainLine = createTrainLine(990002L);
+        LocalDate date = LocalDate.of(2001, 2, 1);
+
+        write(writer, () -> Collections.singletonList(createChain(trainLine, date)));
+        write(writer, () -> Arrays.asList(createChain(trainLine, date.plusDays(1)), createChain(trainLine, date, 10L)));
+
+        transactionTemplate.execute(status -> {
+            LineStop first = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(0));
+
+            Assert.assertEquals(STOPS, lineStopDao.findByTrainLineAndDate(trainLine, date).size());
+            Assert.assertEquals(STOPS, lineStopDao.findByTrainLineAndDate(trainLine, date.plusDays(1)).size());
+            Assert.assertEquals(10L, first.getDepartureTime().getDelay());
+            Assert.assertEquals(stations.get(1), first.getNext().getStation());
+
+            return null;
+        });
+        Assert.assertEquals(0, writer.getRollbackCount());
+    }
+
+    /**
+     * We expect the last line stop of a chunk to win over a former one having the same business key.
+     */
+    @Test
+    public void testWriteDuplicateWithinChunk() throws Exception {
+        TrainLine trainLine = createTrainLine(990007L);
+        LocalDate date = LocalDate.of(2001, 3, 1);
+
+        write(writer, () -> Arrays.asList(createChain(trainLine, date), createChain(trainLine, date, 10L)));
+
+        transactionTemplate.execute(status -> {
+            LineStop first = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(0));
+
+            Assert.assertEquals(STOPS, lineStopDao.findByTrainLineAndDate(trainLine, date).size());
+            Assert.assertEquals(10L, first.getDepartureTime().getDelay());
+            Assert.assertEquals(stations.get(1), first.getNext().getStation());
+
+            return null;
+        });
+        Assert.assertEquals(0, writer.getRollbackCount());
+    }
+
+    /**
+     * We expect the second visit of a station by the same chain to be skipped instead of linking a row to itself.
+     */
+    @Test
+    public void testWriteStationVisitedTwice() throws Exception {
+        TrainLine trainLine = createTrainLine(990008L);
+        LocalDate date = LocalDate.of(2001, 4, 1);
+
+        write(writer, () -> Collections.singletonList(createChain(trainLine, date, 5L, 0, 1, 2, 1, 3)));
+
+        transactionTemplate.execute(status -> {
+            LineStop first = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(0));
+            LineStop visitedTwice = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(1));
+            LineStop last = lineStopDao.findByTrainLineAndDateAndStation(trainLine, date, stations.get(3));
+
+            Assert.assertEquals(4, lineStopDao.findByTrainLineAndDate(trainLine, date).size());
+            Assert.assertEquals(stations.get(1), first.getNext().getStation());
+            Assert.assertEquals(stations.get(0), visitedTwice.getPrevious().getStation());
+            Assert.assertEquals(stations.get(2), visitedTwice.getNext().getStation());
+            Assert.assertEquals(stations.get(3), visitedTwice.getNext().getNext().getStation());
+            Assert.assertEquals(stations.get(2), last.getPrevious().getStation());
+            Assert.assertNull(last.getNext());
+
+            return null;
+        });
+        Assert.assertEquals(0, writer.getRollbackCount());
+    }
+
+    @Test
+    public void testInsertsPerSecond() throws Exception {
+        final int chains = 300;
+        RepositoryItemWriter<LineStop> repositoryItemWriter = new RepositoryItemWriter<>();
+
+        repositoryItemWriter.setRepository(lineStopDao);
+        repositoryItemWriter.setMethodName("saveAndFlush");
+        repositoryItemWriter.afterPropertiesSet();
+
+        // Warm-up
+        insert(repositoryItemWriter, createTrainLine(990003L), LocalDate.of(2002, 1, 1), COMMIT_INTERVAL);
+        insert(writer, createTrainLine(990004L), LocalDate.of(2002, 1, 1), COMMIT_INTERVAL);
+
+        double repository = insert(repositoryItemWriter, createTrainLine(990005L), LocalDate.of(2003, 1, 1), chains);
+        double jdbc = insert(writer, createTrainLine(990006L), LocalDate.of(2003, 1, 1), chains);
+
+        LOGGER.info("RepositoryItemWriter: {} inserts/s", (long) repository);
+        LOGGER.info("LineStopJdbcBatchItemWriter: {} inserts/s ({}x)", (long) jdbc,
+                String.format("%.2f", jdbc / repository));
+
+        Assert.assertEquals(STOPS, lineStopDao.findByTrainLineAndDate(
+                trainLineDao.findByRouteId(990006L), LocalDate.of(2003, 1, 1).plusDays(chains - 1)).size());
+    }
+
+    private double insert(ItemWriter<LineStop> itemWriter, TrainLine trainLine, LocalDate from, int chains)
+            throws Exception {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < chains; i += COMMIT_INTERVAL) {
+            final int offset = i;
+
+            write(itemWriter, () -> {
+                List<LineStop> items = new ArrayList<>();
+
+                for (int j = offset; j < Math.min(offset + COMMIT_INTERVAL, chains); j++) {
+                    items.add(createChain(trainLine, from.plusDays(j)));
+                }
+
+                return items;
+            });
+        }
+
+        return chains * STOPS / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    /**
+     * Like within a step, items are built within the transaction of the chunk.
+     */
+    private void write(ItemWriter<LineStop> itemWriter, Supplier<List<LineStop>> items) {
+        transactionTemplate.execute(status -> {
+            try {
+                itemWriter.write(items.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+
+            return null;
+        });
+    }
+
+    private TrainLine createTrainLine(Long routeId) {
+        return transactionTemplate.execute(status -> {
+            TrainLine trainLine = trainLineDao.findByRouteId(routeId);
+
+            return trainLine != null ? trainLine : trainLineDao.save(new TrainLine.Builder(routeId).build(false));
+        });
+    }
+
+    private LineStop createChain(TrainLine trainLine, LocalDate date) {
+        return createChain(trainLine, date, 5L);
+    }
+
+    private LineStop createChain(TrainLine trainLine, LocalDate date, Long delay) {
+        int[] stationIndexes = new int[STOPS];
+
+        for (int i = 0; i < STOPS; i++) {
+            stationIndexes[i] = i;
+        }
+
+        return createChain(trainLine, date, delay, stationIndexes);
+    }
+
+    /**
+     * @param stationIndexes indexes, within {@code stations}, of the stations visited one after the other
+     */
+    private LineStop createChain(TrainLine trainLine, LocalDate date, Long delay, int... stationIndexes) {
+        LineStop.Builder head = null;
+        // References attached to the current transaction, as done by the AggregateLineStopProcessor
+        TrainLine reference = trainLineDao.getOne(trainLine.getId());
+        int last = stationIndexes.length - 1;
+
+        for (int i = 0; i <= last; i++) {
+            LineStop.Builder builder = new LineStop.Builder()
+                    .date(date)
+                    .trainLine(reference)
+                    .station(stationDao.getOne(stations.get(stationIndexes[i]).getId()))
+                    .arrivalTime(i > 0 ? TimeDelay.of(LocalTime.of(8, i), delay) : null)
+                    .departureTime(i < last ? TimeDelay.of(LocalTime.of(8, i, 30), delay) : null);
+
+            if (head == null) {
+                head = builder;
+            } else {
+                head.addNext(builder);
+            }
+        }
+
+        return head != null ? head.build(false) : null;
+    }
+}
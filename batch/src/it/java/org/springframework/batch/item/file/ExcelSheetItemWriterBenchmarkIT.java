@@ -0,0 +1,224 @@
+package org.springframework.batch.item.file;
+
+import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.domain.Sens;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.domain.xls.ExcelRow;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compare the time spent by the {@link ExcelSheetItemWriter} to write a sheet when it writes the file after each row
+ * and when it writes it once per chunk, then the heap it retains with and without streaming an OOXML file.
+ * <p>
+ * Our {@link be.raildelays.batch.writer.ExcelRowAggregator} only fills the rows prepared by the template, so we use
+ * an aggregator creating its rows to really get 10,000 rows.
+ * </p>
+ *
+ * @author Almex
+ */
+public class ExcelSheetItemWriterBenchmarkIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExcelSheetItemWriterBenchmarkIT.class);
+
+    private static final int CHUNK_SIZE = 10;
+    private static final int LARGE_CHUNK_SIZE = 10_000;
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("excel");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.list(directory).forEach(path -> path.toFile().delete());
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * One sheet of our template: 40 rows after the 21 rows of the header.
+     */
+    @Test
+    public void testTemplateSheet() throws Exception {
+        compare(40);
+    }
+
+    @Test
+    public void testLargeSheet() throws Exception {
+        compare(10_000);
+    }
+
+    @Test
+    public void testHeapUsage() throws Exception {
+        List<ExcelRow> items = createItems(100_000);
+
+        long streamed = retainedHeap(newWriter("template.xlsx", "streamed.xlsx", true, ROW_ACCESS_WINDOW_SIZE), items);
+        long inMemory = retainedHeap(newWriter("template.xlsx", "in-memory.xlsx", true, 0), items);
+
+        Assert.assertTrue(streamed < inMemory);
+
+        LOGGER.info("{} rows: {} MB retained in memory, {} MB retained with a window of {} rows", items.size(),
+                inMemory / 1024 / 1024, streamed / 1024 / 1024, ROW_ACCESS_WINDOW_SIZE);
+    }
+
+    private void compare(int rows) throws Exception {
+        List<ExcelRow> items = createItems(rows);
+
+        // Warm-up
+        write(items, true, "warm-up.xls");
+
+        long perChunk = write(items, true, "per-chunk.xls");
+        long perRow = write(items, false, "per-row.xls");
+
+        Assert.assertEquals(Files.size(directory.resolve("per-row.xls")), Files.size(directory.resolve("per-chunk.xls")));
+
+        LOGGER.info("{} rows: written after each row in {} ms, once per chunk of {} in {} ms ({}x)", rows,
+                perRow, CHUNK_SIZE, perChunk, String.format("%.1f", (double) perRow / perChunk));
+    }
+
+    private long write(List<ExcelRow> items, boolean writeBehind, String fileName) throws Exception {
+        ExcelSheetItemWriter<ExcelRow> writer = newWriter("template.xls", fileName, writeBehind, 0);
+        ExecutionContext executionContext = new ExecutionContext();
+        long start = System.nanoTime();
+
+        writer.open(executionContext);
+
+        try {
+            for (int i = 0; i < items.size(); i += CHUNK_SIZE) {
+                writer.write(items.subList(i, Math.min(i + CHUNK_SIZE, items.size())));
+                writer.update(executionContext);
+            }
+        } finally {
+            writer.close();
+        }
+
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * We use large chunks as, without streaming, the whole workbook is written at the end of each chunk.
+     *
+     * @return the heap used after having written all items minus the one used before opening the writer
+     */
+    private long retainedHeap(ExcelSheetItemWriter<ExcelRow> writer, List<ExcelRow> items) throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        long before = usedHeap();
+        long result;
+
+        writer.open(executionContext);
+
+        try {
+            for (int i = 0; i < items.size(); i += LARGE_CHUNK_SIZE) {
+                writer.write(items.subList(i, Math.min(i + LARGE_CHUNK_SIZE, items.size())));
+                writer.update(executionContext);
+            }
+
+            result = usedHeap() - before;
+        } finally {
+            writer.close();
+        }
+
+        return result;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private ExcelSheetItemWriter<ExcelRow> newWriter(String template, String fileName, boolean writeBehind,
+                                                     int rowAccessWindowSize) throws Exception {
+        ExcelSheetItemWriter<ExcelRow> result = new ExcelSheetItemWriter<>();
+
+        result.setTemplate(new ClassPathResource(template));
+        result.setResource(new FileSystemResource(directory.resolve(fileName).toFile()));
+        result.setRowAggregator(ExcelSheetItemWriterBenchmarkIT::aggregate);
+        result.setName("benchmark");
+        result.setRowsToSkip(21);
+        result.setWriteBehind(writeBehind);
+        result.setRowAccessWindowSize(rowAccessWindowSize);
+        result.afterPropertiesSet();
+
+        return result;
+    }
+
+    private static ExcelRow aggregate(ExcelRow item, Workbook workbook, int sheetIndex, int rowIndex) {
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+        Row row = sheet.getRow(rowIndex);
+
+        if (row == null) {
+            row = sheet.createRow(rowIndex);
+        }
+
+        cell(row, 2).setCellValue(Date.from(item.getDate().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        cell(row, 12).setCellValue(item.getDepartureStation().getName());
+        cell(row, 18).setCellValue(item.getArrivalStation().getName());
+        cell(row, 30).setCellValue(item.getExpectedDepartureTime().getHour());
+        cell(row, 32).setCellValue(item.getExpectedDepartureTime().getMinute());
+        cell(row, 33).setCellValue(item.getExpectedArrivalTime().getHour());
+        cell(row, 35).setCellValue(item.getExpectedArrivalTime().getMinute());
+        cell(row, 36).setCellValue(item.getExpectedTrainLine1().getName());
+        cell(row, 42).setCellValue(item.getEffectiveDepartureTime().getHour());
+        cell(row, 44).setCellValue(item.getEffectiveDepartureTime().getMinute());
+        cell(row, 45).setCellValue(item.getEffectiveArrivalTime().getHour());
+        cell(row, 47).setCellValue(item.getEffectiveArrivalTime().getMinute());
+        cell(row, 48).setCellValue(item.getEffectiveTrainLine1().getName());
+
+        return null;
+    }
+
+    private static Cell cell(Row row, int cellIndex) {
+        Cell result = row.getCell(cellIndex);
+
+        return result != null ? result : row.createCell(cellIndex);
+    }
+
+    private static List<ExcelRow> createItems(int rows) {
+        List<ExcelRow> result = new ArrayList<>(rows);
+        LocalDate date = LocalDate.of(2000, 1, 1);
+
+        for (int i = 0; i < rows; i++) {
+            result.add(new BatchExcelRow.Builder(date.plusDays(i / 2), i % 2 == 0 ? Sens.DEPARTURE : Sens.ARRIVAL)
+                    .departureStation(new Station("Liège-Guillemins"))
+                    .arrivalStation(new Station("Bruxelles-central"))
+                    .expectedDepartureTime(LocalTime.parse("08:00"))
+                    .expectedArrivalTime(LocalTime.parse("09:00"))
+                    .expectedTrain1(new TrainLine.Builder(466L).build())
+                    .effectiveDepartureTime(LocalTime.parse("08:05"))
+                    .effectiveArrivalTime(LocalTime.parse("09:15"))
+                    .effectiveTrain1(new TrainLine.Builder(466L).build())
+                    .build());
+        }
+
+        return result;
+    }
+}
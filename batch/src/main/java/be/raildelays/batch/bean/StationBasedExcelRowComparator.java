@@ -60,22 +60,30 @@ public class StationBasedExcelRowComparator<T extends ExcelRow> extends Abstract
     }
 
     protected Function<T, String> getStationName(Function<T, Station> keyExtractor) {
-        return excelRow -> {
-            Station station = keyExtractor.apply(excelRow);
-            String result = null;
+        return excelRow -> normalize(keyExtractor.apply(excelRow), language);
+    }
+
+    /**
+     * Give the name of a station as compared by this comparator: without accents and in upper case.
+     *
+     * @param station  the station, can be {@code null}
+     * @param language to choose the name of the station
+     * @return the normalized name or {@code null} if there is no station or if its name is empty
+     */
+    public static String normalize(Station station, Language language) {
+        String result = null;
 
-            if (station != null) {
-                String stationName = station.getName(language);
+        if (station != null) {
+            String stationName = station.getName(language);
 
-                if (!"".equals(stationName)) {
-                    result = Normalizer
-                            .normalize(stationName, Normalizer.Form.NFD)
-                            .replaceAll("[^\\p{ASCII}]", "")
-                            .toUpperCase(Locale.ENGLISH);
-                }
+            if (!"".equals(stationName)) {
+                result = Normalizer
+                        .normalize(stationName, Normalizer.Form.NFD)
+                        .replaceAll("[^\\p{ASCII}]", "")
+                        .toUpperCase(Locale.ENGLISH);
             }
+        }
 
-            return result;
-        };
+        return result;
     }
 }
@@ -0,0 +1,69 @@
+package be.raildelays.batch.decider;
+
+import be.raildelays.batch.gtfs.GtfsFeedFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.file.HttpDownloadFileTasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Check that every date from {@code startDate} to {@code endDate} (inclusive) has already been loaded from the
+ * GTFS feed (see {@link GtfsFeedFingerprint}). If so, we return the status
+ * {@link HttpDownloadFileTasklet#UNCHANGED} on which you can end the job: an unchanged feed has nothing new
+ * to give for those dates. Otherwise, we return {@link ExitStatus#COMPLETED}.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class LoadedDatesDecider extends AbstractJobExecutionDeciderTasklet implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadedDatesDecider.class);
+
+    private Resource fingerprintResource;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(fingerprintResource, "The 'fingerprintResource' property must be provided");
+        Assert.notNull(startDate, "The 'startDate' property must be provided");
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Set<LocalDate> loadedDates = GtfsFeedFingerprint.load(fingerprintResource.getFile().toPath()).getDates();
+        LocalDate lastDate = endDate != null ? endDate : startDate;
+        boolean loaded = true;
+
+        for (LocalDate date = startDate; loaded && !date.isAfter(lastDate); date = date.plusDays(1)) {
+            loaded = loadedDates.contains(date);
+        }
+
+        LOGGER.info("Dates from {} to {} already loaded: {}", startDate, lastDate, loaded);
+
+        contribution.setExitStatus(loaded ? HttpDownloadFileTasklet.UNCHANGED : ExitStatus.COMPLETED);
+
+        return RepeatStatus.FINISHED;
+    }
+
+    public void setFingerprintResource(Resource fingerprintResource) {
+        this.fingerprintResource = fingerprintResource;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+}
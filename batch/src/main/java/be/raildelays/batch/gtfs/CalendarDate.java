@@ -51,6 +51,10 @@ public class CalendarDate {
         return date;
     }
 
+    public ExceptionType getExceptionType() {
+        return exceptionType;
+    }
+
     public void setExceptionType(ExceptionType exceptionType) {
         this.exceptionType = exceptionType;
     }
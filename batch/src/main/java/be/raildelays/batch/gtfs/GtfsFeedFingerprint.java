@@ -0,0 +1,190 @@
+package be.raildelays.batch.gtfs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fingerprints of the {@link Trip}s loaded into the database, per service day.
+ * <p>
+ * The fingerprint of a {@link Trip} is a hash of everything used to build its chain of
+ * {@link be.raildelays.domain.entities.LineStop}: its route, its service, its {@link StopTime}s and the name
+ * and type of each {@link Stop}. Comparing it with the one of the previous load tells if the trip is added,
+ * changed or unchanged for a given date. A trip of the previous load that we do not meet anymore for that
+ * date has been removed from the feed (or its service does not run anymore at that date).
+ * </p>
+ * <p>
+ * Fingerprints are persisted as a plain text file: one line {@code date,trip_id,fingerprint} per trip. A date
+ * loaded without any trip is kept as a line only made of this date.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsFeedFingerprint {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsFeedFingerprint.class);
+
+    private static final char SEPARATOR = ',';
+
+    private final Map<LocalDate, Map<String, String>> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Compute the fingerprint of a {@link Trip} which has its {@link StopTime}s attached.
+     *
+     * @param trip      the trip to fingerprint
+     * @param feedIndex to resolve the {@link Stop}s of the trip
+     * @return an hexadecimal SHA-1 hash
+     */
+    public static String of(Trip trip, GtfsFeedIndex feedIndex) {
+        StringBuilder builder = new StringBuilder(1024);
+
+        builder.append(trip.getRouteId()).append(SEPARATOR).append(trip.getServiceId());
+
+        if (trip.getStopTimes() != null) {
+            for (StopTime stopTime : trip.getStopTimes()) {
+                Stop stop = feedIndex.findStop(stopTime.getStopId());
+
+                builder.append('\n')
+                        .append(stopTime.getStopSequence()).append(SEPARATOR)
+                        .append(stopTime.getStopId()).append(SEPARATOR)
+                        .append(stopTime.getArrivalTime()).append(SEPARATOR)
+                        .append(stopTime.getDepartureTime());
+
+                if (stop != null) {
+                    builder.append(SEPARATOR).append(stop.getStopName())
+                            .append(SEPARATOR).append(stop.getLocationType());
+                }
+            }
+        }
+
+        return hash(builder.toString());
+    }
+
+    /**
+     * Read the fingerprints from a file. A missing file gives an empty instance.
+     *
+     * @param path the file to read
+     * @return a new instance
+     * @throws IOException in case of error while reading
+     */
+    public static GtfsFeedFingerprint load(Path path) throws IOException {
+        GtfsFeedFingerprint result = new GtfsFeedFingerprint();
+
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    int first = line.indexOf(SEPARATOR);
+                    int last = line.lastIndexOf(SEPARATOR);
+
+                    // A trip_id may contain the separator, so we split on the first and the last one
+                    if (first > 0 && last > first) {
+                        result.put(LocalDate.parse(line.substring(0, first)), line.substring(first + 1, last),
+                                line.substring(last + 1));
+                    } else if (first < 0 && !line.isEmpty()) {
+                        result.fingerprints.putIfAbsent(LocalDate.parse(line), new ConcurrentHashMap<>());
+                    } else if (!line.isEmpty()) {
+                        LOGGER.warn("Malformed fingerprint line ignored: {}", line);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the fingerprints into a temporary file which then replace atomically the given one.
+     *
+     * @param path the file to write
+     * @throws IOException in case of error while writing
+     */
+    public void store(Path path) throws IOException {
+        Path temporaryFile = path.resolveSibling(path.getFileName() + ".tmp");
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<LocalDate, Map<String, String>> date : new TreeMap<>(fingerprints).entrySet()) {
+                if (date.getValue().isEmpty()) {
+                    writer.append(date.getKey().toString());
+                    writer.newLine();
+                }
+
+                for (Map.Entry<String, String> trip : new TreeMap<>(date.getValue()).entrySet()) {
+                    writer.append(date.getKey().toString()).append(SEPARATOR)
+                            .append(trip.getKey()).append(SEPARATOR)
+                            .append(trip.getValue());
+                    writer.newLine();
+                }
+            }
+        }
+
+        Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the fingerprint of a trip for a given date or {@code null} if this trip was not loaded for that date
+     */
+    public String get(LocalDate date, String tripId) {
+        return fingerprints.getOrDefault(date, Collections.emptyMap()).get(tripId);
+    }
+
+    public void put(LocalDate date, String tripId, String fingerprint) {
+        fingerprints.computeIfAbsent(date, key -> new ConcurrentHashMap<>()).put(tripId, fingerprint);
+    }
+
+    /**
+     * @return all trips loaded for a given date
+     */
+    public Set<String> getTripIds(LocalDate date) {
+        return Collections.unmodifiableSet(fingerprints.getOrDefault(date, Collections.emptyMap()).keySet());
+    }
+
+    /**
+     * @return all dates which have been loaded, with or without trips
+     */
+    public Set<LocalDate> getDates() {
+        return Collections.unmodifiableSet(fingerprints.keySet());
+    }
+
+    /**
+     * Replace all fingerprints of a given date by those of another instance. The date is then considered as
+     * loaded, even if the other instance has no trip for it.
+     */
+    public void replace(LocalDate date, GtfsFeedFingerprint other) {
+        fingerprints.put(date, new ConcurrentHashMap<>(other.fingerprints.getOrDefault(date, Collections.emptyMap())));
+    }
+
+    /**
+     * Forget the fingerprints of all dates before the given one.
+     */
+    public void removeBefore(LocalDate date) {
+        fingerprints.keySet().removeIf(key -> key.isBefore(date));
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            return String.format("%040x", new BigInteger(1, digest.digest(value.getBytes(StandardCharsets.UTF_8))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package be.raildelays.batch.gtfs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * In-memory model of a GTFS feed indexed by the keys used by the processors of the
+ * {@code loadGtfsIntoDatabaseJob}: {@code trip_id}, {@code stop_id} and {@code service_id}.
+ * <p>
+ * Each GTFS file is read only once and then every look-up is done in constant time instead of
+ * scanning the whole content of the file for every {@link Trip}.
+ * </p>
+ * <p>
+ * When registered as a {@link StepExecutionListener}, the index is built before the step starts and the
+ * time spent and the memory consumed to build it are stored into the {@link ExecutionContext} of the step
+ * under the keys {@link #BUILD_TIME_KEY} and {@link #USED_MEMORY_KEY}. The index is then released after
+ * the step, so that the next execution reads again the feed. Otherwise, it is built lazily on the first look-up.
+ * </p>
+ * <p>
+ * The {@code stopTimesReader} is optional: when the {@link StopTime}s are already attached to each {@link Trip}
+ * by the reader of the step (e.g.: from the {@link StopTimeTable} of a {@link GtfsFeedSnapshot}), there is no need
+ * to keep the biggest file of the feed in memory twice. Otherwise, they are kept into a {@link StopTimeTable} made
+ * of primitive arrays rather than one object per row.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsFeedIndex implements StepExecutionListener, InitializingBean {
+
+    public static final String BUILD_TIME_KEY = "gtfs.index.build.time";
+    public static final String USED_MEMORY_KEY = "gtfs.index.used.memory";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsFeedIndex.class);
+
+    private ItemStreamReader<StopTime> stopTimesReader;
+    private ItemStreamReader<Stop> stopsReader;
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
+
+    private volatile boolean built = false;
+    private long buildTime;
+    private long usedMemory;
+    private StopTimeTable stopTimeTable = new StopTimeTable.Builder().build();
+    private Map<String, Stop> stopsByStopId = Collections.emptyMap();
+    private Map<String, List<CalendarDate>> calendarDatesByServiceId = Collections.emptyMap();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(stopsReader, "The property 'stopsReader' is mandatory");
+        Assert.notNull(calendarDatesReader, "The property 'calendarDatesReader' is mandatory");
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        build();
+
+        stepExecution.getExecutionContext().putLong(BUILD_TIME_KEY, buildTime);
+        stepExecution.getExecutionContext().putLong(USED_MEMORY_KEY, usedMemory);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        release();
+
+        return null;
+    }
+
+    /**
+     * Read all GTFS files and build the indexes. Calling this method more than once has no effect.
+     */
+    public synchronized void build() {
+        if (!built) {
+            Runtime runtime = Runtime.getRuntime();
+            long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.currentTimeMillis();
+
+            if (stopTimesReader != null) {
+                stopTimeTable = indexStopTimes(stopTimesReader);
+            }
+            stopsByStopId = indexStops(stopsReader);
+            calendarDatesByServiceId = indexCalendarDates(calendarDatesReader);
+
+            buildTime = System.currentTimeMillis() - start;
+            usedMemory = Math.max(0, runtime.totalMemory() - runtime.freeMemory() - memoryBefore);
+            built = true;
+
+            LOGGER.info("GTFS feed index built in {} ms using approximately {} KB: trips={} stops={} services={}",
+                    buildTime, usedMemory / 1024, stopTimeTable.getTripCount(), stopsByStopId.size(),
+                    calendarDatesByServiceId.size());
+            LOGGER.info("GTFS stop times table: rows={} retained={} KB", stopTimeTable.size(),
+                    stopTimeTable.getRetainedSize() / 1024);
+        }
+    }
+
+    /**
+     * Free the memory retained by the indexes. The next look-up will build them again.
+     */
+    public synchronized void release() {
+        stopTimeTable = new StopTimeTable.Builder().build();
+        stopsByStopId = Collections.emptyMap();
+        calendarDatesByServiceId = Collections.emptyMap();
+        built = false;
+    }
+
+    /**
+     * @param tripId identifier of a {@link Trip}
+     * @return all {@link StopTime} of this trip ordered by {@code stop_sequence} or an empty list if none. Each
+     * {@link StopTime} is created on access from the {@link StopTimeTable}.
+     */
+    public List<StopTime> findStopTimes(String tripId) {
+        List<StopTime> result = Collections.emptyList();
+
+        if (tripId != null) {
+            build();
+            result = stopTimeTable.findStopTimes(tripId);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param stopId identifier of a {@link Stop}
+     * @return the corresponding {@link Stop} or {@code null} if none
+     */
+    public Stop findStop(String stopId) {
+        Stop result = null;
+
+        if (stopId != null) {
+            build();
+            result = stopsByStopId.get(stopId);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param serviceId identifier of a service
+     * @return all {@link CalendarDate} of this service or an empty list if none
+     */
+    public List<CalendarDate> findCalendarDates(String serviceId) {
+        List<CalendarDate> result = Collections.emptyList();
+
+        if (serviceId != null) {
+            build();
+            result = calendarDatesByServiceId.getOrDefault(serviceId, Collections.emptyList());
+        }
+
+        return result;
+    }
+
+    /**
+     * @param serviceId identifier of a service
+     * @param date      the date to check
+     * @return {@code true} if this service runs at that date, {@code false} otherwise
+     */
+    public boolean isScheduled(String serviceId, LocalDate date) {
+        return findCalendarDates(serviceId)
+                .stream()
+                .anyMatch(calendarDate -> calendarDate.isIncluded(date));
+    }
+
+    private static StopTimeTable indexStopTimes(ItemStreamReader<StopTime> reader) {
+        StopTimeTable.Builder builder = new StopTimeTable.Builder();
+
+        readAll(reader, builder::add);
+
+        return builder.build();
+    }
+
+    private static Map<String, Stop> indexStops(ItemStreamReader<Stop> reader) {
+        Map<String, Stop> result = new HashMap<>();
+
+        readAll(reader, stop -> {
+            if (stop.getStopId() != null) {
+                result.putIfAbsent(stop.getStopId(), stop);
+            }
+        });
+
+        return result;
+    }
+
+    private static Map<String, List<CalendarDate>> indexCalendarDates(ItemStreamReader<CalendarDate> reader) {
+        Map<String, List<CalendarDate>> result = new HashMap<>();
+
+        readAll(reader, calendarDate -> {
+            if (calendarDate.getServiceId() != null) {
+                result.computeIfAbsent(calendarDate.getServiceId(), key -> new ArrayList<>()).add(calendarDate);
+            }
+        });
+
+        return result;
+    }
+
+    private static <T> void readAll(ItemStreamReader<T> reader, Consumer<T> consumer) {
+        reader.open(new ExecutionContext());
+
+        try {
+            for (T actual = reader.read(); actual != null; actual = reader.read()) {
+                consumer.accept(actual);
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Exception occurred when reading from a GTFS file", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return the {@link StopTime}s of the feed, empty if no {@code stopTimesReader} is set
+     */
+    public StopTimeTable getStopTimeTable() {
+        build();
+
+        return stopTimeTable;
+    }
+
+    public void setStopTimesReader(ItemStreamReader<StopTime> stopTimesReader) {
+        this.stopTimesReader = stopTimesReader;
+    }
+
+    public void setStopsReader(ItemStreamReader<Stop> stopsReader) {
+        this.stopsReader = stopsReader;
+    }
+
+    public void setCalendarDatesReader(ItemStreamReader<CalendarDate> calendarDatesReader) {
+        this.calendarDatesReader = calendarDatesReader;
+    }
+}
@@ -0,0 +1,403 @@
+package be.raildelays.batch.gtfs;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Compact binary snapshot of a parsed GTFS feed: {@link Trip}s with their {@link StopTime}s, {@link Stop}s and
+ * {@link CalendarDate}s. Only the fields mapped by our {@code FieldSetMapper}s are kept.
+ * <p>
+ * Every string is interned into a table stored at the end of the file, so that each field is a primitive
+ * {@code int} (an index within this table, a number of seconds, an epoch day or an ordinal, {@code -1} meaning
+ * {@code null}). The file is read back by memory-mapping it: the string table is decoded once and
+ * {@link Trip}s are then decoded one by one while iterating.
+ * </p>
+ * <p>
+ * On opening, the stop times of all trips are loaded into a {@link StopTimeTable} made of primitive arrays: the
+ * {@link StopTime}s attached to each {@link Trip} are a view creating each row on access. Times past
+ * {@code 24:00:00}, wrapped by the parsing of stop_times.txt into a {@link LocalTime}, are restored by this table.
+ * </p>
+ * <p>
+ * Layout (big-endian): {@code magic, version, stringTableOffset (long), tripCount, feedHash (UTF)}, then stops,
+ * calendar dates, trips (each one followed by its stop times) and finally the string table.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsFeedSnapshot {
+
+    /**
+     * Increase it each time the layout change: a snapshot of another version is ignored.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47544653; // "GTFS"
+    private static final int STRING_TABLE_OFFSET_POSITION = 8;
+    private static final int TRIP_COUNT_POSITION = 16;
+    private static final int NULL = -1;
+    private static final int STOP_TIME_SIZE = 4 * 4;
+
+    private final String feedHash;
+    private final String[] strings;
+    private final List<Stop> stops;
+    private final List<CalendarDate> calendarDates;
+    private final int tripCount;
+    private final ByteBuffer trips;
+    private final StopTimeTable stopTimeTable;
+
+    private GtfsFeedSnapshot(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a GTFS snapshot");
+        }
+
+        if (buffer.getInt() != VERSION) {
+            throw new IOException("Unsupported version of GTFS snapshot");
+        }
+
+        long stringTableOffset = buffer.getLong();
+
+        tripCount = buffer.getInt();
+        feedHash = readUtf(buffer);
+        strings = readStringTable((ByteBuffer) buffer.duplicate().position((int) stringTableOffset));
+        stops = readStops(buffer);
+        calendarDates = readCalendarDates(buffer);
+        trips = buffer.slice();
+        stopTimeTable = readStopTimes(trips.duplicate());
+    }
+
+    /**
+     * Memory-map a snapshot.
+     *
+     * @param path the snapshot file
+     * @return the snapshot with its stops and calendar dates already decoded
+     * @throws IOException if the file cannot be read or is not a snapshot of the current {@link #VERSION}
+     */
+    public static GtfsFeedSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("GTFS snapshot too big to be mapped: " + path);
+            }
+
+            return new GtfsFeedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the hash of the GTFS feed from which this snapshot has been made
+     */
+    public String getFeedHash() {
+        return feedHash;
+    }
+
+    public List<Stop> getStops() {
+        return stops;
+    }
+
+    public List<CalendarDate> getCalendarDates() {
+        return calendarDates;
+    }
+
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * @return the stop times of all trips, through which a {@link StopTimeTable.Cursor} can iterate without any
+     * allocation
+     */
+    public StopTimeTable getStopTimeTable() {
+        return stopTimeTable;
+    }
+
+    /**
+     * @return a new iterator over all {@link Trip}s, each one with its {@link StopTime}s attached. Several
+     * iterators can be used at the same time.
+     */
+    public Iterator<Trip> trips() {
+        return trips((routeId, tripId) -> true);
+    }
+
+    /**
+     * @param filter predicate on the {@code route_id} and the {@code trip_id}. The {@link StopTime}s of a
+     *               {@link Trip} which is not accepted are skipped without being decoded.
+     * @return a new iterator over the accepted {@link Trip}s, each one with its {@link StopTime}s attached
+     */
+    public Iterator<Trip> trips(BiPredicate<String, String> filter) {
+        ByteBuffer buffer = trips.duplicate();
+
+        return new Iterator<Trip>() {
+            private int remaining = tripCount;
+            private Trip next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Trip next() {
+                Trip result = next;
+
+                if (result == null) {
+                    throw new NoSuchElementException();
+                }
+
+                next = advance();
+
+                return result;
+            }
+
+            private Trip advance() {
+                Trip result = null;
+
+                while (result == null && remaining > 0) {
+                    int position = buffer.position();
+                    String routeId = string(buffer.getInt());
+                    String tripId = string(buffer.getInt(position + 8));
+
+                    remaining--;
+
+                    if (filter.test(routeId, tripId)) {
+                        buffer.position(position);
+                        result = readTrip(buffer);
+                    } else {
+                        // Skip the stop times
+                        int count = buffer.getInt(position + 12);
+
+                        buffer.position(position + 16 + count * STOP_TIME_SIZE);
+                    }
+                }
+
+                return result;
+            }
+        };
+    }
+
+    private List<Stop> readStops(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Stop> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Stop stop = new Stop();
+
+            stop.setStopId(string(buffer.getInt()));
+            stop.setStopName(string(buffer.getInt()));
+            stop.setStopLat(string(buffer.getInt()));
+            stop.setStopLon(string(buffer.getInt()));
+            stop.setStopCode(string(buffer.getInt()));
+            stop.setParentStation(string(buffer.getInt()));
+            stop.setLocationType(Stop.LocationType.valueOfIndex(buffer.getInt()));
+            result.add(stop);
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    private List<CalendarDate> readCalendarDates(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<CalendarDate> result = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            CalendarDate calendarDate = new CalendarDate();
+            int epochDay = buffer.getInt();
+            int exceptionType = buffer.getInt();
+
+            calendarDate.setServiceId(string(buffer.getInt()));
+            calendarDate.setDate(epochDay != Integer.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null);
+            calendarDate.setExceptionType(exceptionType != NULL ? CalendarDate.ExceptionType.values()[exceptionType] : null);
+            result.add(calendarDate);
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    private Trip readTrip(ByteBuffer buffer) {
+        Trip result = new Trip();
+        int count;
+
+        result.setRouteId(string(buffer.getInt()));
+        result.setServiceId(string(buffer.getInt()));
+        result.setTripId(string(buffer.getInt()));
+        count = buffer.getInt();
+        buffer.position(buffer.position() + count * STOP_TIME_SIZE); // Already within the table
+        result.setStopTimes(stopTimeTable.findStopTimes(result.getTripId()));
+
+        return result;
+    }
+
+    private StopTimeTable readStopTimes(ByteBuffer buffer) {
+        StopTimeTable.Builder builder = new StopTimeTable.Builder();
+
+        for (int i = 0; i < tripCount; i++) {
+            String tripId;
+            int count;
+
+            buffer.position(buffer.position() + 8); // route_id and service_id
+            tripId = string(buffer.getInt());
+            count = buffer.getInt();
+
+            for (int j = 0; j < count; j++) {
+                builder.add(tripId, buffer.getInt(), buffer.getInt(), string(buffer.getInt()), buffer.getInt());
+            }
+        }
+
+        return builder.build();
+    }
+
+    private String string(int index) {
+        return index != NULL ? strings[index] : null;
+    }
+
+    private static String[] readStringTable(ByteBuffer buffer) {
+        String[] result = new String[buffer.getInt()];
+        byte[] bytes = new byte[256];
+
+        for (int i = 0; i < result.length; i++) {
+            int length = buffer.getInt();
+
+            if (length > bytes.length) {
+                bytes = new byte[length * 2];
+            }
+
+            buffer.get(bytes, 0, length);
+            result[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        return result;
+    }
+
+    private static String readUtf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a snapshot in a streaming way: first the stops, then the calendar dates and finally the trips one by
+     * one. The string table and the header are completed by {@link #close()}.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path path;
+        private final DataOutputStream output;
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int tripCount = 0;
+        private boolean closed = false;
+
+        /**
+         * @param path     the file to create or overwrite
+         * @param feedHash the hash of the GTFS feed
+         * @throws IOException in case of error while writing
+         */
+        public Writer(Path path, String feedHash) throws IOException {
+            this.path = path;
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(0L); // String table offset, patched by close()
+            output.writeInt(0); // Trip count, patched by close()
+            output.writeUTF(feedHash);
+        }
+
+        public void writeStops(Collection<Stop> stops) throws IOException {
+            output.writeInt(stops.size());
+
+            for (Stop stop : stops) {
+                output.writeInt(index(stop.getStopId()));
+                output.writeInt(index(stop.getStopName()));
+                output.writeInt(index(stop.getStopLat()));
+                output.writeInt(index(stop.getStopLon()));
+                output.writeInt(index(stop.getStopCode()));
+                output.writeInt(index(stop.getParentStation()));
+                output.writeInt(stop.getLocationType() != null ? stop.getLocationType().ordinal() : NULL);
+            }
+        }
+
+        public void writeCalendarDates(Collection<CalendarDate> calendarDates) throws IOException {
+            output.writeInt(calendarDates.size());
+
+            for (CalendarDate calendarDate : calendarDates) {
+                output.writeInt(calendarDate.getDate() != null ?
+                        (int) calendarDate.getDate().toEpochDay() : Integer.MIN_VALUE);
+                output.writeInt(calendarDate.getExceptionType() != null ?
+                        calendarDate.getExceptionType().ordinal() : NULL);
+                output.writeInt(index(calendarDate.getServiceId()));
+            }
+        }
+
+        public void writeTrip(Trip trip) throws IOException {
+            List<StopTime> stopTimes = trip.getStopTimes() != null ? trip.getStopTimes() : Collections.emptyList();
+
+            output.writeInt(index(trip.getRouteId()));
+            output.writeInt(index(trip.getServiceId()));
+            output.writeInt(index(trip.getTripId()));
+            output.writeInt(stopTimes.size());
+
+            for (StopTime stopTime : stopTimes) {
+                output.writeInt(seconds(stopTime.getArrivalTime()));
+                output.writeInt(seconds(stopTime.getDepartureTime()));
+                output.writeInt(index(stopTime.getStopId()));
+                output.writeInt(stopTime.getStopSequence() != null ? stopTime.getStopSequence() : NULL);
+            }
+
+            tripCount++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+
+                long stringTableOffset = output.size();
+
+                output.writeInt(strings.size());
+
+                for (String value : strings) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+
+                output.close();
+
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.write((ByteBuffer) ByteBuffer.allocate(8).putLong(stringTableOffset).flip(),
+                            STRING_TABLE_OFFSET_POSITION);
+                    channel.write((ByteBuffer) ByteBuffer.allocate(4).putInt(tripCount).flip(), TRIP_COUNT_POSITION);
+                }
+            }
+        }
+
+        private int index(String value) {
+            int result = NULL;
+
+            if (value != null) {
+                result = indexes.computeIfAbsent(value, key -> {
+                    strings.add(key);
+
+                    return strings.size() - 1;
+                });
+            }
+
+            return result;
+        }
+
+        private static int seconds(LocalTime time) {
+            return time != null ? time.toSecondOfDay() : NULL;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package be.raildelays.batch.gtfs;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+
+/**
+ * Give access to one {@link GtfsFeedSnapshot} opened once, on first use, and shared by all its callers.
+ * <p>
+ * Declared within the job scope, the snapshot is memory-mapped and its string table decoded once per job
+ * execution, whatever the number of readers (e.g.: one per partition) using it. This is thread-safe, as a
+ * {@link GtfsFeedSnapshot} is read-only.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsFeedSnapshotHolder implements InitializingBean {
+
+    private Resource resource;
+
+    private volatile GtfsFeedSnapshot snapshot;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(resource, "The property 'resource' is mandatory");
+    }
+
+    /**
+     * @return the snapshot, opened by the first call
+     * @throws IOException if the snapshot cannot be opened
+     */
+    public GtfsFeedSnapshot getSnapshot() throws IOException {
+        GtfsFeedSnapshot result = snapshot;
+
+        if (result == null) {
+            synchronized (this) {
+                result = snapshot;
+
+                if (result == null) {
+                    result = GtfsFeedSnapshot.open(resource.getFile().toPath());
+                    snapshot = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param resource the snapshot file written by the {@link be.raildelays.batch.tasklet.GtfsSnapshotTasklet}
+     */
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+}
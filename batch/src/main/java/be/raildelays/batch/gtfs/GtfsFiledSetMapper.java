@@ -23,6 +23,9 @@ public interface GtfsFiledSetMapper<T> extends FieldSetMapper<T> {
 
     String TIME_FORMAT = "HH:mm:ss";
     String DATE_FORMAT = "yyyyMMdd";
+    DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern(TIME_FORMAT, Locale.ENGLISH)
+            .withChronology(IsoChronology.INSTANCE)
+            .withResolverStyle(ResolverStyle.LENIENT); // We should be able to parse 25:00:01
 
     static Long parseRouteId(String shortName) {
         StringBuilder builder = new StringBuilder();
@@ -46,12 +49,9 @@ public interface GtfsFiledSetMapper<T> extends FieldSetMapper<T> {
     }
 
     static LocalTime readTime(FieldSet fieldSet, String name) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(TIME_FORMAT, Locale.ENGLISH)
-                .withChronology(IsoChronology.INSTANCE)
-                .withResolverStyle(ResolverStyle.LENIENT); // We should be able to parse 25:00:01
         String value = fieldSet.readString(name);
 
-        return LocalTime.parse(value, formatter);
+        return LocalTime.parse(value, TIME_FORMATTER);
     }
 
     static LocalDate readDate(FieldSet fieldSet, String name) {
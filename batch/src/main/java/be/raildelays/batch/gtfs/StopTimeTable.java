@@ -0,0 +1,375 @@
+package be.raildelays.batch.gtfs;
+
+import org.springframework.util.Assert;
+
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Primitive, column-oriented storage of GTFS {@link StopTime}s grouped by {@code trip_id} and ordered by
+ * {@code stop_sequence}.
+ * <p>
+ * Instead of one object per row (two {@link LocalTime}s, two {@link String}s and an {@link Integer}), each column is
+ * a primitive array: times are seconds of the service day as {@code int} (GTFS allows values past {@code 24:00:00}),
+ * {@code stop_id}s are indexes within a table of interned strings and sequences are {@code short}. A row costs then
+ * 14 bytes instead of roughly 150 and the whole table is made of a handful of objects, whatever its size.
+ * </p>
+ * <p>
+ * Rows are exposed either through a {@link Cursor} (a flyweight moving over the rows of a trip, without any
+ * allocation) or through {@link #findStopTimes(String)} which returns a lightweight view creating each
+ * {@link StopTime} on demand.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class StopTimeTable {
+
+    /**
+     * Value of a column meaning {@code null}.
+     */
+    public static final int NULL = -1;
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final Map<String, Integer> tripIndexes;
+    private final String[] tripIds;
+    private final int[] tripOffsets;
+    private final String[] stopIds;
+    private final int[] stopIdColumn;
+    private final int[] arrivalColumn;
+    private final int[] departureColumn;
+    private final short[] sequenceColumn;
+
+    private StopTimeTable(Map<String, Integer> tripIndexes, String[] tripIds, int[] tripOffsets, String[] stopIds,
+                          int[] stopIdColumn, int[] arrivalColumn, int[] departureColumn, short[] sequenceColumn) {
+        this.tripIndexes = tripIndexes;
+        this.tripIds = tripIds;
+        this.tripOffsets = tripOffsets;
+        this.stopIds = stopIds;
+        this.stopIdColumn = stopIdColumn;
+        this.arrivalColumn = arrivalColumn;
+        this.departureColumn = departureColumn;
+        this.sequenceColumn = sequenceColumn;
+    }
+
+    /**
+     * Parse a GTFS time ({@code H:mm:ss} or {@code HH:mm:ss}) into a number of seconds since the beginning of the
+     * service day. Contrary to {@link GtfsFiledSetMapper#readTime}, hours past 23 are kept as such.
+     *
+     * @param value the time to parse
+     * @return the number of seconds or {@link #NULL} if the value is empty
+     * @throws IllegalArgumentException if the value is not a GTFS time
+     */
+    public static int parseSeconds(String value) {
+        int result = NULL;
+
+        if (value != null && !value.trim().isEmpty()) {
+            String[] fields = value.trim().split(":");
+
+            Assert.isTrue(fields.length == 3, "Invalid GTFS time: " + value);
+
+            try {
+                result = Integer.parseInt(fields[0]) * 3600 + Integer.parseInt(fields[1]) * 60
+                        + Integer.parseInt(fields[2]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid GTFS time: " + value, e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param seconds number of seconds since the beginning of the service day, possibly past {@code 24:00:00}
+     * @return the corresponding time of the day or {@code null} for {@link #NULL}
+     */
+    public static LocalTime toLocalTime(int seconds) {
+        return seconds != NULL ? LocalTime.ofSecondOfDay(seconds % SECONDS_PER_DAY) : null;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return stopIdColumn.length;
+    }
+
+    /**
+     * @return the number of trips
+     */
+    public int getTripCount() {
+        return tripIds.length;
+    }
+
+    /**
+     * @return an approximation of the number of bytes retained by this table, strings excluded
+     */
+    public long getRetainedSize() {
+        return 4L * (tripOffsets.length + stopIdColumn.length + arrivalColumn.length + departureColumn.length)
+                + 2L * sequenceColumn.length + 8L * (tripIds.length + stopIds.length) + 48L * tripIndexes.size();
+    }
+
+    /**
+     * @param tripId identifier of a {@link Trip}
+     * @return a new {@link Cursor} positioned before the first row of this trip. It has no row if the trip is unknown.
+     */
+    public Cursor cursor(String tripId) {
+        Integer tripIndex = tripId != null ? tripIndexes.get(tripId) : null;
+
+        return tripIndex != null ? new Cursor(tripOffsets[tripIndex], tripOffsets[tripIndex + 1]) : new Cursor(0, 0);
+    }
+
+    /**
+     * @param tripId identifier of a {@link Trip}
+     * @return an unmodifiable view of all {@link StopTime}s of this trip ordered by {@code stop_sequence} or an empty
+     * list if none. Each element is created on access and is not retained by the table.
+     */
+    public List<StopTime> findStopTimes(String tripId) {
+        Integer tripIndex = tripId != null ? tripIndexes.get(tripId) : null;
+        List<StopTime> result = Collections.emptyList();
+
+        if (tripIndex != null) {
+            int from = tripOffsets[tripIndex];
+            int to = tripOffsets[tripIndex + 1];
+
+            result = new AbstractList<StopTime>() {
+                @Override
+                public StopTime get(int index) {
+                    if (index < 0 || index >= to - from) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                    }
+
+                    return toStopTime(tripId, from + index);
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+
+        return result;
+    }
+
+    private StopTime toStopTime(String tripId, int row) {
+        StopTime result = new StopTime();
+
+        result.setTripId(tripId);
+        result.setArrivalTime(toLocalTime(arrivalColumn[row]));
+        result.setDepartureTime(toLocalTime(departureColumn[row]));
+        result.setStopId(stopIdColumn[row] != NULL ? stopIds[stopIdColumn[row]] : null);
+        result.setStopSequence(sequenceColumn[row] != NULL ? (int) sequenceColumn[row] : null);
+
+        return result;
+    }
+
+    /**
+     * Flyweight iterating over the rows of one trip. Accessors give the values of the current row.
+     */
+    public class Cursor {
+
+        private final int to;
+        private int row;
+
+        private Cursor(int from, int to) {
+            this.row = from - 1;
+            this.to = to;
+        }
+
+        /**
+         * @return {@code true} if the cursor has moved to the next row, {@code false} if there is no more row
+         */
+        public boolean next() {
+            row = Math.min(row + 1, to);
+
+            return row < to;
+        }
+
+        public String getStopId() {
+            return stopIdColumn[row] != NULL ? stopIds[stopIdColumn[row]] : null;
+        }
+
+        /**
+         * @return seconds since the beginning of the service day, possibly past {@code 24:00:00}, or {@link #NULL}
+         */
+        public int getArrivalSeconds() {
+            return arrivalColumn[row];
+        }
+
+        /**
+         * @return seconds since the beginning of the service day, possibly past {@code 24:00:00}, or {@link #NULL}
+         */
+        public int getDepartureSeconds() {
+            return departureColumn[row];
+        }
+
+        /**
+         * @return the {@code stop_sequence} or {@link #NULL}
+         */
+        public int getStopSequence() {
+            return sequenceColumn[row];
+        }
+    }
+
+    /**
+     * Collect rows in any order and build a {@link StopTimeTable}.
+     * <p>
+     * When a time is given as a {@link LocalTime}, values past {@code 24:00:00} have been wrapped around by the
+     * parsing: within a trip, a time earlier than the previous one is then moved to the next day. Only a trip
+     * whose first stop is already past {@code 24:00:00} cannot be restored this way: its seconds must then be given
+     * as parsed by {@link StopTimeTable#parseSeconds(String)}.
+     * </p>
+     */
+    public static class Builder {
+
+        private final Map<String, Integer> tripIndexes = new HashMap<>();
+        private final List<String> tripIds = new ArrayList<>();
+        private final Map<String, Integer> stopIndexes = new HashMap<>();
+        private final List<String> stopIds = new ArrayList<>();
+        private int size = 0;
+        private int[] tripIdColumn = new int[1024];
+        private int[] stopIdColumn = new int[1024];
+        private int[] arrivalColumn = new int[1024];
+        private int[] departureColumn = new int[1024];
+        private short[] sequenceColumn = new short[1024];
+
+        public Builder add(StopTime stopTime) {
+            return add(stopTime.getTripId(), seconds(stopTime.getArrivalTime()),
+                    seconds(stopTime.getDepartureTime()), stopTime.getStopId(),
+                    stopTime.getStopSequence() != null ? stopTime.getStopSequence() : NULL);
+        }
+
+        /**
+         * @param tripId           identifier of the trip, rows without one are ignored
+         * @param arrivalSeconds   see {@link StopTimeTable#parseSeconds(String)}
+         * @param departureSeconds see {@link StopTimeTable#parseSeconds(String)}
+         * @param stopId           identifier of the stop
+         * @param stopSequence     order of the stop within the trip or {@link #NULL}
+         * @return this builder
+         * @throws IllegalArgumentException if the {@code stop_sequence} does not fit into a {@code short}
+         */
+        public Builder add(String tripId, int arrivalSeconds, int departureSeconds, String stopId, int stopSequence) {
+            Assert.isTrue(stopSequence >= NULL && stopSequence <= Short.MAX_VALUE,
+                    "The stop_sequence is out of range: " + stopSequence);
+
+            if (tripId != null) {
+                if (size == stopIdColumn.length) {
+                    int capacity = size * 2;
+
+                    tripIdColumn = Arrays.copyOf(tripIdColumn, capacity);
+                    stopIdColumn = Arrays.copyOf(stopIdColumn, capacity);
+                    arrivalColumn = Arrays.copyOf(arrivalColumn, capacity);
+                    departureColumn = Arrays.copyOf(departureColumn, capacity);
+                    sequenceColumn = Arrays.copyOf(sequenceColumn, capacity);
+                }
+
+                tripIdColumn[size] = intern(tripId, tripIndexes, tripIds);
+                stopIdColumn[size] = stopId != null ? intern(stopId, stopIndexes, stopIds) : NULL;
+                arrivalColumn[size] = arrivalSeconds;
+                departureColumn[size] = departureSeconds;
+                sequenceColumn[size] = (short) stopSequence;
+                size++;
+            }
+
+            return this;
+        }
+
+        /**
+         * @return a new table. The builder must not be used anymore.
+         */
+        public StopTimeTable build() {
+            int tripCount = tripIds.size();
+            int[] tripOffsets = new int[tripCount + 1];
+            int[] positions;
+            int[] rows = new int[size];
+
+            // Counting sort by trip: each trip gets a contiguous range of rows
+            for (int row = 0; row < size; row++) {
+                tripOffsets[tripIdColumn[row] + 1]++;
+            }
+
+            for (int trip = 0; trip < tripCount; trip++) {
+                tripOffsets[trip + 1] += tripOffsets[trip];
+            }
+
+            positions = Arrays.copyOf(tripOffsets, tripCount);
+
+            for (int row = 0; row < size; row++) {
+                rows[positions[tripIdColumn[row]]++] = row;
+            }
+
+            // A trip has a few dozens of stops: an insertion sort by stop_sequence is enough
+            for (int trip = 0; trip < tripCount; trip++) {
+                for (int i = tripOffsets[trip] + 1; i < tripOffsets[trip + 1]; i++) {
+                    int row = rows[i];
+                    int j = i - 1;
+
+                    for (; j >= tripOffsets[trip] && compareSequence(rows[j], row) > 0; j--) {
+                        rows[j + 1] = rows[j];
+                    }
+
+                    rows[j + 1] = row;
+                }
+            }
+
+            int[] sortedStopIds = new int[size];
+            int[] sortedArrivals = new int[size];
+            int[] sortedDepartures = new int[size];
+            short[] sortedSequences = new short[size];
+
+            for (int i = 0; i < size; i++) {
+                sortedStopIds[i] = stopIdColumn[rows[i]];
+                sortedArrivals[i] = arrivalColumn[rows[i]];
+                sortedDepartures[i] = departureColumn[rows[i]];
+                sortedSequences[i] = sequenceColumn[rows[i]];
+            }
+
+            for (int trip = 0; trip < tripCount; trip++) {
+                unwrapMidnight(sortedArrivals, sortedDepartures, tripOffsets[trip], tripOffsets[trip + 1]);
+            }
+
+            return new StopTimeTable(new HashMap<>(tripIndexes), tripIds.toArray(new String[tripCount]),
+                    tripOffsets, stopIds.toArray(new String[stopIds.size()]), sortedStopIds, sortedArrivals,
+                    sortedDepartures, sortedSequences);
+        }
+
+        private int compareSequence(int left, int right) {
+            // NULL (-1) goes last
+            return Integer.compare(sequenceColumn[left] & 0xFFFF, sequenceColumn[right] & 0xFFFF);
+        }
+
+        private static void unwrapMidnight(int[] arrivals, int[] departures, int from, int to) {
+            int[] state = {0, NULL}; // Offset to add and previous time
+
+            for (int row = from; row < to; row++) {
+                unwrapMidnight(arrivals, row, state);
+                unwrapMidnight(departures, row, state);
+            }
+        }
+
+        private static void unwrapMidnight(int[] column, int row, int[] state) {
+            if (column[row] != NULL) {
+                if (column[row] + state[0] < state[1] && column[row] < SECONDS_PER_DAY) {
+                    state[0] += SECONDS_PER_DAY;
+                }
+
+                column[row] += state[0];
+                state[1] = column[row];
+            }
+        }
+
+        private static int intern(String value, Map<String, Integer> indexes, List<String> values) {
+            return indexes.computeIfAbsent(value, key -> {
+                values.add(key);
+
+                return values.size() - 1;
+            });
+        }
+
+        private static int seconds(LocalTime time) {
+            return time != null ? time.toSecondOfDay() : NULL;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package be.raildelays.batch.gtfs;
 
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 
@@ -22,6 +23,7 @@ public class Trip {
     private Accessibility wheelchairAccessible;
     private Accessibility bikesAllowed;
     private List<StopTime> stopTimes;
+    private LocalDate serviceDate;
 
     /**
      * Default constructor.
@@ -30,6 +32,27 @@ public class Trip {
         stopTimes = Collections.emptyList();
     }
 
+    /**
+     * Copy constructor. The list of {@link StopTime} is shared with the original.
+     *
+     * @param trip        the trip to copy
+     * @param serviceDate the date at which the copy runs
+     */
+    public Trip(Trip trip, LocalDate serviceDate) {
+        this.routeId = trip.routeId;
+        this.serviceId = trip.serviceId;
+        this.tripId = trip.tripId;
+        this.tripHeadsign = trip.tripHeadsign;
+        this.tripShortName = trip.tripShortName;
+        this.directionId = trip.directionId;
+        this.blockId = trip.blockId;
+        this.shapeId = trip.shapeId;
+        this.wheelchairAccessible = trip.wheelchairAccessible;
+        this.bikesAllowed = trip.bikesAllowed;
+        this.stopTimes = trip.stopTimes;
+        this.serviceDate = serviceDate;
+    }
+
     public enum Accessibility {
         ALLOWED, NOT_ALLOWED;
 
@@ -133,5 +156,18 @@ public class Trip {
     public void setStopTimes(List<StopTime> stopTimes) {
         this.stopTimes = stopTimes;
     }
+
+    /**
+     * Not part of GTFS.
+     *
+     * @return the date at which this trip runs, when it has been evaluated against a set of dates
+     */
+    public LocalDate getServiceDate() {
+        return serviceDate;
+    }
+
+    public void setServiceDate(LocalDate serviceDate) {
+        this.serviceDate = serviceDate;
+    }
 }
 
@@ -0,0 +1,96 @@
+package be.raildelays.batch.listener;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Log, at the end of each step, the hits, misses and puts of each second-level cache region during this step. The
+ * results of the query cache are held by the region {@link org.hibernate.cache.internal.StandardQueryCache}.
+ * <p>
+ * As for {@link QueryCountJobListener}, those counts come from the Hibernate {@link Statistics} of the whole
+ * {@link EntityManagerFactory}: steps running concurrently count each other cache accesses.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class CacheStatisticsStepListener implements StepExecutionListener, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheStatisticsStepListener.class);
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Long, Map<String, long[]>> initialCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(entityManagerFactory, "The property 'entityManagerFactory' is mandatory");
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        Statistics statistics = getStatistics();
+
+        statistics.setStatisticsEnabled(true);
+        initialCounts.put(stepExecution.getId(), snapshot(statistics));
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        Map<String, long[]> initial = initialCounts.remove(stepExecution.getId());
+
+        if (initial != null) {
+            snapshot(getStatistics()).forEach((name, counts) -> {
+                long[] before = initial.getOrDefault(name, new long[counts.length]);
+                long hits = counts[0] - before[0];
+                long misses = counts[1] - before[1];
+                long puts = counts[2] - before[2];
+
+                if (hits + misses + puts > 0) {
+                    LOGGER.info("{} of the step {}: {} hits, {} misses, {} puts", name,
+                            stepExecution.getStepName(), hits, misses, puts);
+                }
+            });
+        }
+
+        return null;
+    }
+
+    private static Map<String, long[]> snapshot(Statistics statistics) {
+        Map<String, long[]> result = new HashMap<>();
+
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(regionName);
+
+            if (region != null) {
+                result.put(regionName, new long[]{region.getHitCount(), region.getMissCount(), region.getPutCount()});
+            }
+        }
+
+        return result;
+    }
+
+    private Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @param entityManagerFactory of the database for which we follow the cache
+     */
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
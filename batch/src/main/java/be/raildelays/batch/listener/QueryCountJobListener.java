@@ -0,0 +1,73 @@
+package be.raildelays.batch.listener;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Count the SQL statements sent to our database during a job and store it into the
+ * {@link org.springframework.batch.item.ExecutionContext} of the job under the key {@link #QUERY_COUNT_KEY}.
+ * <p>
+ * The count comes from the Hibernate {@link Statistics} enabled before the first job. Those statistics are shared by
+ * the whole {@link EntityManagerFactory}: jobs running concurrently count each other statements.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class QueryCountJobListener implements JobExecutionListener, InitializingBean {
+
+    public static final String QUERY_COUNT_KEY = "query.count";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCountJobListener.class);
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private final Map<Long, Long> initialCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(entityManagerFactory, "The property 'entityManagerFactory' is mandatory");
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        Statistics statistics = getStatistics();
+
+        statistics.setStatisticsEnabled(true);
+        initialCounts.put(jobExecution.getId(), statistics.getPrepareStatementCount());
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        Long initialCount = initialCounts.remove(jobExecution.getId());
+
+        if (initialCount != null) {
+            long count = getStatistics().getPrepareStatementCount() - initialCount;
+
+            jobExecution.getExecutionContext().putLong(QUERY_COUNT_KEY, count);
+
+            LOGGER.info("{} SQL statements executed by the job {}", count, jobExecution.getJobInstance().getJobName());
+        }
+    }
+
+    private Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @param entityManagerFactory of the database for which we count statements
+     */
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+}
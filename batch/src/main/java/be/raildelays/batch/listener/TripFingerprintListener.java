@@ -0,0 +1,84 @@
+package be.raildelays.batch.listener;
+
+import be.raildelays.batch.gtfs.Trip;
+import be.raildelays.batch.processor.FilterUnchangedTripProcessor;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tell the {@link FilterUnchangedTripProcessor} which {@link Trip}s have been written, so that only their
+ * fingerprints are kept. A trip filtered by the chain of processors is recorded as well: there is nothing to
+ * write for it.
+ * <p>
+ * The output of the chain of processors is linked to its {@link Trip} by identity until it is written. An output
+ * skipped, or which failed to be written, is never given to {@link #afterWrite(List)} and so never recorded.
+ * </p>
+ * <p>
+ * This listener is not thread-safe: it must be registered, within the step scope, on the step holding the chunk.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class TripFingerprintListener implements ItemProcessListener<Trip, Object>, ItemWriteListener<Object>,
+        InitializingBean {
+
+    private FilterUnchangedTripProcessor filterProcessor;
+
+    private final Map<Object, Trip> pending = new IdentityHashMap<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(filterProcessor, "The property 'filterProcessor' is mandatory");
+    }
+
+    @Override
+    public void beforeProcess(Trip item) {
+        // Nothing to do
+    }
+
+    @Override
+    public void afterProcess(Trip item, Object result) {
+        if (result == null) {
+            filterProcessor.record(item);
+        } else {
+            pending.put(result, item);
+        }
+    }
+
+    @Override
+    public void onProcessError(Trip item, Exception e) {
+        // Nothing to do: this trip is not recorded
+    }
+
+    @Override
+    public void beforeWrite(List<?> items) {
+        // Nothing to do
+    }
+
+    @Override
+    public void afterWrite(List<?> items) {
+        for (Object item : items) {
+            Trip trip = pending.remove(item);
+
+            if (trip != null) {
+                filterProcessor.record(trip);
+            }
+        }
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<?> items) {
+        // Nothing to do: items are written again one by one when one of them is skipped
+    }
+
+    public void setFilterProcessor(FilterUnchangedTripProcessor filterProcessor) {
+        this.filterProcessor = filterProcessor;
+    }
+}
@@ -1,20 +1,41 @@
 package be.raildelays.batch.processor;
 
+import be.raildelays.batch.support.ReferenceDataCache;
+import be.raildelays.domain.entities.AbstractEntity;
 import be.raildelays.domain.entities.LineStop;
 import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
 import be.raildelays.logging.Logger;
 import be.raildelays.logging.LoggerFactory;
-import be.raildelays.repository.LineStopDao;
 import be.raildelays.repository.StationDao;
 import be.raildelays.repository.TrainLineDao;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Make sure to not create duplication in our database when retrieving data from GTFS.
+ * <p>
+ * When a {@code transactionManager} is given, a missing {@link Station} or {@link TrainLine} is created within its
+ * own transaction, one creation at a time for all instances of this processor. Then, concurrent steps (e.g.:
+ * partitions of the same step) cannot both create the same one: the second one finds the first one already
+ * committed. Otherwise, it is created within the transaction of the chunk.
+ * </p>
+ * <p>
+ * When a {@link ReferenceDataCache} is given, {@link Station}s and {@link TrainLine}s are looked up into it instead
+ * of querying the database for each stop, and attached to the transaction of the chunk by their identifier.
+ * A {@code transactionManager} is then mandatory: the cache must only contain committed entities.
+ * </p>
+ * <p>
+ * Whether a {@link LineStop} already exists is not checked here, one query per stop, but by the
+ * {@link be.raildelays.batch.writer.LineStopJdbcBatchItemWriter} with one query per chunk.
+ * </p>
  *
  * @author Almex
  * @since 2.0
@@ -22,25 +43,28 @@ import java.util.function.Function;
 public class AggregateLineStopProcessor extends AbstractGtfsDataProcessor<LineStop, LineStop> implements InitializingBean {
 
     private TrainLineDao trainLineDao;
-    private LineStopDao lineStopDao;
     private StationDao stationDao;
+    private TransactionTemplate requiresNewTemplate;
+    private ReferenceDataCache referenceDataCache;
+
+    /**
+     * Shared by all instances: each partition of a step has its own processor.
+     */
+    private static final Object CREATION_LOCK = new Object();
 
     private static final Logger LOGGER = LoggerFactory.getLogger("Agg", AggregateLineStopProcessor.class);
 
     @Override
     public void afterPropertiesSet() throws Exception {
         Assert.notNull(trainLineDao, "The property 'trainLineDao' is mandatory");
-        Assert.notNull(lineStopDao, "The property 'lineStopDao' is mandatory");
         Assert.notNull(stationDao, "The property 'stationDao' is mandatory");
+        Assert.isTrue(referenceDataCache == null || requiresNewTemplate != null,
+                "The property 'transactionManager' is mandatory when using a 'referenceDataCache'");
     }
 
     @Override
     public LineStop process(LineStop item) throws Exception {
-        LineStop result = passThrough(item, this::merge);
-
-        if (result == null) {
-            result = passThrough(item, this::aggregate);
-        }
+        LineStop result = passThrough(item, this::aggregate);
 
         LOGGER.debug("result", result);
 
@@ -77,49 +101,83 @@ public class AggregateLineStopProcessor extends AbstractGtfsDataProcessor<LineSt
 
     private LineStop.Builder aggregate(LineStop item) {
         LineStop.Builder result = new LineStop.Builder(item, false, false);
-        Station station = findStation(item.getStation());
-        TrainLine trainLine = trainLineDao.findByRouteId(item.getTrainLine().getRouteId());
 
-        if (station != null) {
-            result.station(station);
-        } else {
-            result.station(stationDao.save(item.getStation()));
-        }
+        if (referenceDataCache != null) {
+            Long stationId = referenceDataCache.getStationId(item.getStation(), () -> findOrCreate(
+                    () -> findStation(item.getStation()), () -> stationDao.save(item.getStation())));
+            Long trainLineId = referenceDataCache.getTrainLineId(item.getTrainLine(), () -> findOrCreate(
+                    () -> trainLineDao.findByRouteId(item.getTrainLine().getRouteId()),
+                    () -> trainLineDao.save(item.getTrainLine())));
 
-        if (trainLine != null) {
-            result.trainLine(trainLine);
+            // References attached to the transaction of the chunk without any query
+            result.station(stationDao.getOne(stationId));
+            result.trainLine(trainLineDao.getOne(trainLineId));
         } else {
-            result.trainLine(trainLineDao.save(item.getTrainLine()));
+            Station station = findStation(item.getStation());
+            TrainLine trainLine = trainLineDao.findByRouteId(item.getTrainLine().getRouteId());
+
+            if (station != null) {
+                result.station(station);
+            } else {
+                result.station(create(() -> findStation(item.getStation()),
+                        () -> stationDao.save(item.getStation()), stationDao));
+            }
+
+            if (trainLine != null) {
+                result.trainLine(trainLine);
+            } else {
+                result.trainLine(create(() -> trainLineDao.findByRouteId(item.getTrainLine().getRouteId()),
+                        () -> trainLineDao.save(item.getTrainLine()), trainLineDao));
+            }
         }
 
         return result;
     }
 
-    private LineStop.Builder merge(LineStop item) {
-        LineStop.Builder result = null; // If we don't find any existing data we return null
-        LineStop actual = lineStopDao.findByTrainLineAndDateAndStation(
-                item.getTrainLine(), item.getDate(), item.getStation()
-        );
-
-        if (actual != null) {
-            result = new LineStop.Builder(item, false, false)
-                    .id(actual.getId())
-                    .station(actual.getStation())
-                    .trainLine(actual.getTrainLine());
+    private <T extends AbstractEntity> T create(Supplier<T> finder, Supplier<T> creator, JpaRepository<T, Long> dao) {
+        T result;
+
+        if (requiresNewTemplate != null) {
+            // Attach the committed entity to the transaction of the chunk
+            result = dao.findOne(findOrCreate(finder, creator).getId());
+        } else {
+            result = creator.get();
         }
 
         return result;
     }
 
-    public void setTrainLineDao(TrainLineDao trainLineDao) {
-        this.trainLineDao = trainLineDao;
+    private <T extends AbstractEntity> T findOrCreate(Supplier<T> finder, Supplier<T> creator) {
+        synchronized (CREATION_LOCK) {
+            return requiresNewTemplate.execute(status -> {
+                T existing = finder.get();
+
+                return existing != null && existing.getId() != null ? existing : creator.get();
+            });
+        }
     }
 
-    public void setLineStopDao(LineStopDao lineStopDao) {
-        this.lineStopDao = lineStopDao;
+    public void setTrainLineDao(TrainLineDao trainLineDao) {
+        this.trainLineDao = trainLineDao;
     }
 
     public void setStationDao(StationDao stationDao) {
         this.stationDao = stationDao;
     }
+
+    /**
+     * @param transactionManager used to create missing {@link Station}s and {@link TrainLine}s within their own
+     *                           transaction. Needed when several steps run this processor concurrently.
+     */
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * @param referenceDataCache shared cache of {@link Station}s and {@link TrainLine}s. By default, none.
+     */
+    public void setReferenceDataCache(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
 }
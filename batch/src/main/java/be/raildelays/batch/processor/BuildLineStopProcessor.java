@@ -1,5 +1,6 @@
 package be.raildelays.batch.processor;
 
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
 import be.raildelays.batch.gtfs.GtfsFiledSetMapper;
 import be.raildelays.batch.gtfs.Stop;
 import be.raildelays.batch.gtfs.StopTime;
@@ -11,21 +12,21 @@ import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
 import be.raildelays.logging.Logger;
 import be.raildelays.logging.LoggerFactory;
-import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
 
 import java.time.LocalDate;
 
 /**
- * Build a {@link LineStop} based on a {@link Trip} retrieved from GTFS data.
+ * Build a {@link LineStop} based on a {@link Trip} retrieved from GTFS data. The {@link Trip#getServiceDate() service
+ * date} of the trip, if any, takes precedence over our {@code date}.
  *
  * @author Almex
  * @since 2.0
  */
 public class BuildLineStopProcessor extends AbstractGtfsDataProcessor<Trip, LineStop> implements InitializingBean {
 
-    private ItemStreamReader<Stop> stopsReader;
+    private GtfsFeedIndex feedIndex;
     private Language lang;
     private LocalDate date;
 
@@ -36,7 +37,7 @@ public class BuildLineStopProcessor extends AbstractGtfsDataProcessor<Trip, Line
     public void afterPropertiesSet() throws Exception {
         Assert.notNull(lang, "The property 'lang' is mandatory");
         Assert.notNull(date, "The property 'date' is mandatory");
-        Assert.notNull(stopsReader, "The property 'stopsReader' is mandatory");
+        Assert.notNull(feedIndex, "The property 'feedIndex' is mandatory");
     }
 
     @Override
@@ -55,7 +56,7 @@ public class BuildLineStopProcessor extends AbstractGtfsDataProcessor<Trip, Line
         LineStop.Builder result = null;
 
         for (StopTime stopTime : item.getStopTimes()) {
-            Stop stop = findStop(stopTime.getStopId());
+            Stop stop = feedIndex.findStop(stopTime.getStopId());
 
             if (stop != null && stop.getLocationType().equals(Stop.LocationType.NOT_PHYSICAL)) {
                 LineStop.Builder current = new LineStop.Builder()
@@ -64,7 +65,7 @@ public class BuildLineStopProcessor extends AbstractGtfsDataProcessor<Trip, Line
                         .arrivalTime(TimeDelay.of(stopTime.getArrivalTime()))
                         .departureTime(TimeDelay.of(stopTime.getDepartureTime()))
                         .station(getStation(stop))
-                        .date(date);
+                        .date(item.getServiceDate() != null ? item.getServiceDate() : date);
 
                 if (result == null) {
                     result = current;
@@ -107,22 +108,8 @@ public class BuildLineStopProcessor extends AbstractGtfsDataProcessor<Trip, Line
         return result;
     }
 
-    private Stop findStop(String stopId) {
-        Stop result = null;
-
-        if (stopId != null) {
-            result = readAll(stopsReader)
-                    .parallelStream()
-                    .filter(stop -> stopId.equals(stop.getStopId()))
-                    .findFirst()
-                    .orElse(null);
-        }
-
-        return result;
-    }
-
-    public void setStopsReader(ItemStreamReader<Stop> stopsReader) {
-        this.stopsReader = stopsReader;
+    public void setFeedIndex(GtfsFeedIndex feedIndex) {
+        this.feedIndex = feedIndex;
     }
 
     public void setLang(Language lang) {
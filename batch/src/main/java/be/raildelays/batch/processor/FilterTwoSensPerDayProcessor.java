@@ -26,31 +26,62 @@ package be.raildelays.batch.processor;
 
 import be.raildelays.batch.bean.BatchExcelRow;
 import be.raildelays.batch.bean.StationBasedExcelRowComparator;
+import be.raildelays.batch.support.ExcelRowIndex;
 import be.raildelays.domain.Language;
+import be.raildelays.domain.xls.ExcelRow;
 import be.raildelays.logging.Logger;
 import be.raildelays.logging.LoggerFactory;
 import org.apache.commons.lang.Validate;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.IteratorItemReader;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Filter items to get only two. One for departure and the other one for arrival.
  * The only remaining items are those which have the maximum delay for a given sens.
+ * <p>
+ * The rows of the Excel files are loaded once per step into a map keyed by date, departure and arrival station names
+ * (compared as {@link StationBasedExcelRowComparator} does). Each item is then matched with a single lookup.
+ * </p>
+ * <p>
+ * If an {@link ExcelRowIndex} is set, the map is built from its rows and kept in sync through its
+ * {@link ExcelRowIndex.Listener} each time it records what has been written. Otherwise, the map is built by reading
+ * all Excel files through the {@code outputReader} and dropped at the end of the transaction of the chunk, whatever
+ * the listeners of the step. Out of a transaction, the Excel files are read again for each item.
+ * </p>
+ * <p>
+ * Several files can hold a row with the same key: the map keeps all of them, in the order they were read, and the
+ * first one is matched.
+ * </p>
  *
  * @author Almex
  * @since 1.0
  */
-public class FilterTwoSensPerDayProcessor implements ItemProcessor<BatchExcelRow, BatchExcelRow>, InitializingBean {
+public class FilterTwoSensPerDayProcessor implements ItemProcessor<BatchExcelRow, BatchExcelRow>,
+        ExcelRowIndex.Listener, InitializingBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("2Ss", AggregateExpectedTimeProcessor.class);
     private ItemStreamReader<BatchExcelRow> outputReader;
+    private ExcelRowIndex rowIndex;
     private ExecutionContext executionContext;
     private String language = Language.EN.name();
+    private Map<RowKey, List<BatchExcelRow>> rows;
+    private boolean emptyRowFound;
 
     private static boolean isEmpty(Object object) {
         return object == null;
@@ -58,98 +89,170 @@ public class FilterTwoSensPerDayProcessor implements ItemProcessor<BatchExcelRow
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        Validate.notNull(outputReader, "outputReader is mandatory");
+        Validate.isTrue(outputReader != null || rowIndex != null, "outputReader or rowIndex is mandatory");
         this.executionContext = new ExecutionContext();
     }
 
     @Override
     public BatchExcelRow process(final BatchExcelRow item) throws Exception {
-        /*
-         * By default we return the item itself
-         */
         BatchExcelRow result = item;
-        Language lang = Language.valueOf(language.toUpperCase(Locale.US));
-        StationBasedExcelRowComparator comparator = new StationBasedExcelRowComparator(lang);
 
         LOGGER.trace("item", item);
 
-        try {
-            outputReader.open(executionContext);
+        Map<RowKey, List<BatchExcelRow>> allRows = getRows();
 
-            try {
+        if (allRows != null) {
+            List<BatchExcelRow> matchingExcelRows = allRows.get(new RowKey(item, getLanguage()));
+            BatchExcelRow matchingExcelRow = matchingExcelRows != null ? matchingExcelRows.get(0) : null;
+
+            if (matchingExcelRow != null) {
                 /*
-                 * If we reach the End Of File we still return the item (The Writer should append a new line).
+                 * Here we know that we have a collision: we match the same date and the same sens.
+                 * If the delay of the item is not greater than the one in the Excel sheet then we skip it.
                  */
-                for (BatchExcelRow matchingExcelRow = outputReader.read(); matchingExcelRow != null; matchingExcelRow = outputReader.read()) {
-                    if (!isEmpty(matchingExcelRow)) {
-                        if (comparator.compare(item, matchingExcelRow) == 0) {
-                            /*
-                             * Here we know that we have a collision: we match the same date and the same sens.
-                             * If the delay of the item is not greater than the one in the Excel sheet then we skip it.
-                             */
-                            if (item.getDelay() > matchingExcelRow.getDelay()) {
-                                result = item;
-
-                                if (matchingExcelRow.getIndex() != null) {
-                                    result.setIndex(matchingExcelRow.getIndex());
-
-                                    /*
-                                     * Here, the delay of the item is greater than the matching Excel row.
-                                     * We must replace the row currently in the Excel sheet with our item.
-                                     */
-                                    LOGGER.trace("replace_matching", matchingExcelRow);
-                                } else {
-                                    throw new IllegalArgumentException("We don't know the current index of this Excel row. We cannot replace it!");
-                                }
-                            } else {
-                                result = null;
-
-                                LOGGER.trace("not_replace_matching", matchingExcelRow);
-                            }
-
-                            /*
-                             * We stop searching here. Either the result is found or we have to skip this item.
-                             */
-                            LOGGER.debug("stop_searching", result);
-
-                            break;
-                        } else if (item.getDate().isBefore(matchingExcelRow.getDate())) {
-                            result = item;
-
-                            /*
-                             * We stop searching. We expect that the content of the Excel file is sorted by date.
-                             * This clause should never happen if the data read are also sorted by date.
-                             */
-                            LOGGER.debug("item_before_matching", matchingExcelRow);
-
-                            break;
-                        }
-                    } else {
-                        result = item;
-                        result.setIndex(null);
+                if (item.getDelay() > matchingExcelRow.getDelay()) {
+                    if (matchingExcelRow.getIndex() != null) {
+                        result.setIndex(matchingExcelRow.getIndex());
 
                         /*
-                         * In that case we reach the first empty row without matching any previous data.
-                         * So, we have to add a new row to the Excel sheet.
+                         * Here, the delay of the item is greater than the matching Excel row.
+                         * We must replace the row currently in the Excel sheet with our item.
                          */
-                        LOGGER.debug("first_empty_row", item);
-
-                        break;
+                        LOGGER.trace("replace_matching", matchingExcelRow);
+                    } else {
+                        throw new IllegalArgumentException("We don't know the current index of this Excel row. We cannot replace it!");
                     }
+                } else {
+                    result = null;
+
+                    LOGGER.trace("not_replace_matching", matchingExcelRow);
                 }
+            } else if (hasEmptyRow()) {
+                result.setIndex(null);
+
+                /*
+                 * In that case we have no previous data for this date and sens.
+                 * So, we have to add a new row to the Excel sheet.
+                 */
+                LOGGER.debug("first_empty_row", item);
+            }
+        }
+
+        LOGGER.trace("result", result);
+
+        return result;
+    }
+
+    private Map<RowKey, List<BatchExcelRow>> getRows() throws Exception {
+        Map<RowKey, List<BatchExcelRow>> result = rows;
+
+        if (result == null) {
+            if (rowIndex != null) {
+                result = indexRows(new IteratorItemReader<>(rowIndex.getRows()));
+                rows = result;
+                rowIndex.addListener(this);
+            } else {
+                result = readRows();
+
+                if (result != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                    rows = result;
+
+                    /*
+                     * Rows are sorted and indexed again by the Writer, we cannot guess their new index.
+                     * Once the chunk is written, we read them again.
+                     */
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            rows = null;
+                        }
+                    });
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Map<RowKey, List<BatchExcelRow>> readRows() throws Exception {
+        Map<RowKey, List<BatchExcelRow>> result = null;
+
+        try {
+            outputReader.open(executionContext);
+
+            try {
+                result = indexRows(outputReader);
             } finally {
                 outputReader.close();
             }
         } catch (ItemStreamException e) {
             LOGGER.warn("Error when opening ResourceAwareItemReaderItemStream. Maybe the resource is not available yet.", e);
-            result = item;
         }
 
-        LOGGER.trace("result", result);
+        return result;
+    }
+
+    private Map<RowKey, List<BatchExcelRow>> indexRows(ItemReader<BatchExcelRow> reader) throws Exception {
+        Map<RowKey, List<BatchExcelRow>> result = new HashMap<>();
+        Language lang = getLanguage();
+
+        emptyRowFound = false;
+
+        for (BatchExcelRow row = reader.read(); row != null; row = reader.read()) {
+            if (isEmpty(row)) {
+                /*
+                 * We stop at the first empty row, like the Writer which will append a new line there.
+                 */
+                emptyRowFound = true;
+                break;
+            }
+
+            result.computeIfAbsent(new RowKey(row, lang), key -> new ArrayList<>()).add(row);
+        }
+
+        LOGGER.debug("Loaded {} rows to search for duplicates", result.size());
 
         return result;
     }
 
+    private boolean hasEmptyRow() {
+        return rowIndex != null ? rowIndex.findFirstEmptySlot() != null : emptyRowFound;
+    }
+
+    /**
+     * Replace the rows of one file. Other files can hold rows with the same key: we only remove, for each previous
+     * row, one row of the same key having the same index and the same delay.
+     */
+    @Override
+    public void onChange(List<BatchExcelRow> previousRows, List<BatchExcelRow> rows) {
+        if (this.rows != null) {
+            Language lang = getLanguage();
+
+            previousRows.forEach(row -> remove(new RowKey(row, lang), row));
+            rows.forEach(row -> this.rows.computeIfAbsent(new RowKey(row, lang), key -> new ArrayList<>()).add(row));
+        }
+    }
+
+    private void remove(RowKey key, BatchExcelRow row) {
+        List<BatchExcelRow> sameKeyRows = rows.get(key);
+
+        if (sameKeyRows != null) {
+            for (Iterator<BatchExcelRow> iterator = sameKeyRows.iterator(); iterator.hasNext(); ) {
+                BatchExcelRow sameKeyRow = iterator.next();
+
+                if (Objects.equals(sameKeyRow.getIndex(), row.getIndex()) &&
+                        Objects.equals(sameKeyRow.getDelay(), row.getDelay())) {
+                    iterator.remove();
+                    break;
+                }
+            }
+
+            if (sameKeyRows.isEmpty()) {
+                rows.remove(key);
+            }
+        }
+    }
+
     private boolean isEmpty(BatchExcelRow row) {
         boolean result = true;
 
@@ -164,6 +267,10 @@ public class FilterTwoSensPerDayProcessor implements ItemProcessor<BatchExcelRow
         return result;
     }
 
+    private Language getLanguage() {
+        return Language.valueOf(language.toUpperCase(Locale.US));
+    }
+
     public void setLanguage(String language) {
         this.language = language;
     }
@@ -171,4 +278,50 @@ public class FilterTwoSensPerDayProcessor implements ItemProcessor<BatchExcelRow
     public void setOutputReader(ItemStreamReader<BatchExcelRow> outputReader) {
         this.outputReader = outputReader;
     }
+
+    /**
+     * @param rowIndex if set, we build our map from this index instead of reading Excel files with the
+     *                 {@code outputReader}
+     */
+    public void setRowIndex(ExcelRowIndex rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
+    /**
+     * Key of a row as compared by {@link StationBasedExcelRowComparator}.
+     */
+    private static final class RowKey {
+
+        private final LocalDate date;
+        private final String departure;
+        private final String arrival;
+
+        RowKey(ExcelRow<?> row, Language language) {
+            this.date = row.getDate();
+            this.departure = StationBasedExcelRowComparator.normalize(row.getDepartureStation(), language);
+            this.arrival = StationBasedExcelRowComparator.normalize(row.getArrivalStation(), language);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            boolean result = false;
+
+            if (this == o) {
+                result = true;
+            } else if (o instanceof RowKey) {
+                RowKey that = (RowKey) o;
+
+                result = Objects.equals(date, that.date)
+                        && Objects.equals(departure, that.departure)
+                        && Objects.equals(arrival, that.arrival);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, departure, arrival);
+        }
+    }
 }
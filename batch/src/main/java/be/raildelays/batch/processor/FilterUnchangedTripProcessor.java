@@ -0,0 +1,243 @@
+package be.raildelays.batch.processor;
+
+import be.raildelays.batch.gtfs.GtfsFeedFingerprint;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Trip;
+import be.raildelays.logging.Logger;
+import be.raildelays.logging.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filter any {@link Trip} which has already been loaded, unchanged, for the same date.
+ * <p>
+ * Before the step, we read the fingerprints of the previous load (see {@link GtfsFeedFingerprint}). Each
+ * {@link Trip} is then classified as added, changed or unchanged for our date and only the first two are
+ * returned. After a successful step, trips of the previous load not met anymore are counted as removed and
+ * the fingerprints of our dates are replaced by those of this load. The four counters are stored into the
+ * {@link org.springframework.batch.item.ExecutionContext} of the step.
+ * </p>
+ * <p>
+ * The fingerprint of an unchanged trip is kept as is. The one of an added or changed trip is only kept once
+ * the trip has been written (see {@link #record(Trip)} and
+ * {@link be.raildelays.batch.listener.TripFingerprintListener}): a trip skipped or rolled back is then
+ * loaded again by the next load.
+ * </p>
+ * <p>
+ * Our dates go from {@code date} to {@code endDate} (inclusive). The {@link Trip#getServiceDate() service date}
+ * of a trip, if any, takes precedence over our {@code date}.
+ * </p>
+ * <p>
+ * Removed trips are only reported: the {@link be.raildelays.domain.entities.LineStop}s already in the database
+ * may have collected delays and are kept.
+ * </p>
+ * <p>
+ * This processor must be registered as a listener of the step. For a partitioned step, a single instance must be
+ * shared by all partitions (e.g.: within the job scope) and registered as a listener of the partitioned step itself,
+ * {@link #process(Trip)} being thread-safe. If a partitioned step is restarted, only the trips of the restarted
+ * partitions are fingerprinted: the others are compared again by the next load. Its
+ * {@link be.raildelays.batch.listener.TripFingerprintListener} must be registered on the step holding the chunk
+ * (i.e.: each partition).
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class FilterUnchangedTripProcessor extends AbstractGtfsDataProcessor<Trip, Trip>
+        implements StepExecutionListener, InitializingBean {
+
+    public static final String ADDED_KEY = "gtfs.diff.added";
+    public static final String CHANGED_KEY = "gtfs.diff.changed";
+    public static final String UNCHANGED_KEY = "gtfs.diff.unchanged";
+    public static final String REMOVED_KEY = "gtfs.diff.removed";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("Dif", FilterUnchangedTripProcessor.class);
+
+    private GtfsFeedIndex feedIndex;
+    private LocalDate date;
+    private LocalDate endDate;
+    private Resource fingerprintResource;
+    private boolean force = false;
+    private int retentionDays = 31;
+
+    private GtfsFeedFingerprint previous = new GtfsFeedFingerprint();
+    private GtfsFeedFingerprint processed = new GtfsFeedFingerprint(); // Every trip met, to count the diff
+    private GtfsFeedFingerprint loaded = new GtfsFeedFingerprint(); // Trips now in the database, to store
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(feedIndex, "The property 'feedIndex' is mandatory");
+        Assert.notNull(date, "The property 'date' is mandatory");
+        Assert.notNull(fingerprintResource, "The property 'fingerprintResource' is mandatory");
+        Assert.isTrue(endDate == null || !endDate.isBefore(date), "The property 'endDate' must not be before 'date'");
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        try {
+            previous = GtfsFeedFingerprint.load(getPath());
+            processed = new GtfsFeedFingerprint();
+            loaded = new GtfsFeedFingerprint();
+        } catch (IOException e) {
+            throw new ItemStreamException("Cannot read fingerprints from " + fingerprintResource, e);
+        }
+
+        if (force) {
+            LOGGER.info("Every scheduled trip is loaded for {}: fingerprints are ignored", date);
+        }
+    }
+
+    @Override
+    public Trip process(Trip item) throws Exception {
+        Trip result = item;
+        LocalDate serviceDate = item.getServiceDate() != null ? item.getServiceDate() : date;
+        String fingerprint = GtfsFeedFingerprint.of(item, feedIndex);
+
+        processed.put(serviceDate, item.getTripId(), fingerprint);
+
+        if (!force && fingerprint.equals(previous.get(serviceDate, item.getTripId()))) {
+            loaded.put(serviceDate, item.getTripId(), fingerprint);
+            result = null;
+        }
+
+        LOGGER.trace("result", result);
+
+        return result;
+    }
+
+    /**
+     * Keep the fingerprint of a {@link Trip}, already given to {@link #process(Trip)}, as it has been written
+     * or deliberately filtered by a following processor.
+     *
+     * @param item the trip as given to {@link #process(Trip)}
+     */
+    public void record(Trip item) {
+        LocalDate serviceDate = item.getServiceDate() != null ? item.getServiceDate() : date;
+        String fingerprint = processed.get(serviceDate, item.getTripId());
+
+        if (fingerprint != null) {
+            loaded.put(serviceDate, item.getTripId(), fingerprint);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        int added = 0;
+        int changed = 0;
+        int unchanged = 0;
+        int removed = 0;
+
+        for (LocalDate serviceDate : getDates()) {
+            Set<String> removedTripIds = new HashSet<>(previous.getTripIds(serviceDate));
+
+            removedTripIds.removeAll(processed.getTripIds(serviceDate));
+            removed += removedTripIds.size();
+
+            // Counted once per trip, even if a chunk has been processed more than once (retry or skip)
+            for (String tripId : processed.getTripIds(serviceDate)) {
+                String previousFingerprint = force ? null : previous.get(serviceDate, tripId);
+
+                if (previousFingerprint == null) {
+                    added++;
+                } else if (!previousFingerprint.equals(processed.get(serviceDate, tripId))) {
+                    changed++;
+                } else {
+                    unchanged++;
+                }
+            }
+
+            LOGGER.debug("Removed trips for {}: {}", serviceDate, removedTripIds);
+        }
+
+        stepExecution.getExecutionContext().putInt(ADDED_KEY, added);
+        stepExecution.getExecutionContext().putInt(CHANGED_KEY, changed);
+        stepExecution.getExecutionContext().putInt(UNCHANGED_KEY, unchanged);
+        stepExecution.getExecutionContext().putInt(REMOVED_KEY, removed);
+
+        LOGGER.info("GTFS diff from {} to {}: added={} changed={} unchanged={} removed={}",
+                date, getEndDate(), added, changed, unchanged, removed);
+
+        if (ExitStatus.COMPLETED.getExitCode().equals(stepExecution.getExitStatus().getExitCode())) {
+            try {
+                for (LocalDate serviceDate : getDates()) {
+                    previous.replace(serviceDate, loaded);
+                }
+
+                previous.removeBefore(date.minusDays(retentionDays));
+                previous.store(getPath());
+            } catch (IOException e) {
+                LOGGER.error("Cannot write fingerprints into {}", fingerprintResource, e);
+            }
+        }
+
+        return null;
+    }
+
+    private LocalDate getEndDate() {
+        return endDate != null ? endDate : date;
+    }
+
+    private List<LocalDate> getDates() {
+        List<LocalDate> result = new ArrayList<>();
+
+        for (LocalDate serviceDate = date; !serviceDate.isAfter(getEndDate()); serviceDate = serviceDate.plusDays(1)) {
+            result.add(serviceDate);
+        }
+
+        return result;
+    }
+
+    private Path getPath() throws IOException {
+        return fingerprintResource.getFile().toPath();
+    }
+
+    public void setFeedIndex(GtfsFeedIndex feedIndex) {
+        this.feedIndex = feedIndex;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * @param endDate last date (inclusive) of this load. By default, this load is only made of {@code date}.
+     */
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    /**
+     * @param fingerprintResource file where fingerprints of loaded trips are kept between two executions
+     */
+    public void setFingerprintResource(Resource fingerprintResource) {
+        this.fingerprintResource = fingerprintResource;
+    }
+
+    /**
+     * @param force if {@code true} every trip is considered as added, but fingerprints are still recorded.
+     *              By default, it's {@code false}.
+     */
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    /**
+     * @param retentionDays number of days before our date for which we keep fingerprints. By default, 31.
+     */
+    public void setRetentionDays(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+}
@@ -1,31 +1,31 @@
 package be.raildelays.batch.processor;
 
-import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
 import be.raildelays.batch.gtfs.Trip;
 import be.raildelays.logging.Logger;
 import be.raildelays.logging.LoggerFactory;
-import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.util.Assert;
 
 import java.time.LocalDate;
 
 /**
- * Filter any unscheduled {@link Trip}.
+ * Filter any unscheduled {@link Trip}. The {@link Trip#getServiceDate() service date} of the trip, if any, takes
+ * precedence over our {@code date}.
  *
  * @author Almex
  * @since 2.0
  */
 public class FilterUnscheduledTripProcessor extends AbstractGtfsDataProcessor<Trip, Trip> implements InitializingBean {
 
-    private ItemStreamReader<CalendarDate> calendarDatesReader;
+    private GtfsFeedIndex feedIndex;
     private LocalDate date;
 
     private static final Logger LOGGER = LoggerFactory.getLogger("Uns", FilterUnscheduledTripProcessor.class);
 
     @Override
     public void afterPropertiesSet() throws Exception {
-        Assert.notNull(calendarDatesReader, "The property 'calendarDatesReader' is mandatory");
+        Assert.notNull(feedIndex, "The property 'feedIndex' is mandatory");
         Assert.notNull(date, "The property 'date' is mandatory");
     }
 
@@ -33,7 +33,7 @@ public class FilterUnscheduledTripProcessor extends AbstractGtfsDataProcessor<Tr
     public Trip process(Trip item) throws Exception {
         Trip result = null;
 
-        if (isScheduled(item.getServiceId())) {
+        if (feedIndex.isScheduled(item.getServiceId(), getDate(item))) {
             result = item;
         }
 
@@ -42,21 +42,12 @@ public class FilterUnscheduledTripProcessor extends AbstractGtfsDataProcessor<Tr
         return result;
     }
 
-    private boolean isScheduled(String serviceId) {
-        boolean result = false;
-
-        if (serviceId != null) {
-            result = readAll(calendarDatesReader)
-                    .parallelStream()
-                    .filter(calendarDate -> serviceId.equals(calendarDate.getServiceId()))
-                    .anyMatch(calendarDate -> calendarDate.isIncluded(this.date));
-        }
-
-        return result;
+    private LocalDate getDate(Trip item) {
+        return item.getServiceDate() != null ? item.getServiceDate() : date;
     }
 
-    public void setCalendarDatesReader(ItemStreamReader<CalendarDate> calendarDatesReader) {
-        this.calendarDatesReader = calendarDatesReader;
+    public void setFeedIndex(GtfsFeedIndex feedIndex) {
+        this.feedIndex = feedIndex;
     }
 
     public void setDate(LocalDate date) {
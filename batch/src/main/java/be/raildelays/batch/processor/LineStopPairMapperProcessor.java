@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package be.raildelays.batch.processor;
+
+import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.batch.bean.BatchExcelRow.Builder;
+import be.raildelays.delays.Delays;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.Language;
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.Sens;
+import be.raildelays.logging.Logger;
+import be.raildelays.logging.LoggerFactory;
+import org.apache.commons.lang.Validate;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.time.LocalTime;
+
+/**
+ * Map a {@link LineStopPair} to a {@link BatchExcelRow}, the same way {@link BatchExcelRowMapperProcessor} does for a
+ * {@link be.raildelays.domain.entities.LineStop} but without walking through any route.
+ * <p>
+ * The sens is deduced from the name of the departure station in the given language, the same way the stations are
+ * matched by the query.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class LineStopPairMapperProcessor implements ItemProcessor<LineStopPair, BatchExcelRow>, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("Xls", LineStopPairMapperProcessor.class);
+
+    private String stationAName;
+
+    private String stationBName;
+
+    private String language = Language.EN.name();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Validate.notNull(stationAName, "Station A name is mandatory");
+        Validate.notNull(stationBName, "Station B name is mandatory");
+        Validate.notNull(language, "language is mandatory");
+    }
+
+    @Override
+    public BatchExcelRow process(final LineStopPair item) throws Exception {
+        Language lang = Language.valueOf(language.toUpperCase());
+        String departureName = item.getDepartureStation().getName(lang);
+        Sens sens = null;
+
+        LOGGER.trace("item", item);
+
+        if (stationAName.equalsIgnoreCase(departureName)) {
+            sens = Sens.DEPARTURE;
+        } else if (stationBName.equalsIgnoreCase(departureName)) {
+            sens = Sens.ARRIVAL;
+        }
+
+        BatchExcelRow result = new Builder(item.getDate(), sens)
+                .departureStation(item.getDepartureStation())
+                .arrivalStation(item.getArrivalStation())
+                .expectedDepartureTime(item.getDepartureTime().getExpectedTime())
+                .expectedArrivalTime(item.getArrivalTime().getExpectedTime())
+                .expectedTrain1(item.getTrainLine())
+                .effectiveDepartureTime(effectiveTime(item.getDepartureTime()))
+                .effectiveArrivalTime(effectiveTime(item.getArrivalTime()))
+                .effectiveTrain1(item.getTrainLine())
+                .delay(Delays.toMinutes(item.getArrivalTime().getDelay()))
+                .canceled(item.isDepartureCanceled() || item.isArrivalCanceled())
+                .build(false);
+
+        LOGGER.trace("result", result);
+
+        return result;
+    }
+
+    private static LocalTime effectiveTime(TimeDelay timeDelay) {
+        return timeDelay != null ? timeDelay.getEffectiveTime() : null;
+    }
+
+    public void setStationAName(String stationAName) {
+        this.stationAName = stationAName;
+    }
+
+    public void setStationBName(String stationBName) {
+        this.stationBName = stationBName;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+}
@@ -0,0 +1,119 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.repository.LineStopDao;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Read delayed or canceled {@link LineStop}s of a station for a certain day, one slice at a time.
+ * <p>
+ * Each slice is searched from the last {@link LineStop} read (see
+ * {@link be.raildelays.repository.LineStopDaoCustom#findArrivalDelaysAfter(LocalDate, Station, long, LineStop, int)})
+ * instead of an offset and without any count query: the last slice costs the same as the first one, whatever the
+ * page size.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class DelaysItemReader extends AbstractItemCountingItemStreamItemReader<LineStop> implements InitializingBean {
+
+    private LineStopDao lineStopDao;
+    private LocalDate date;
+    private Station station;
+    private Long delayThreshold;
+    private int pageSize = 10;
+    private boolean departure;
+
+    private Deque<LineStop> pending;
+    private LineStop lastSeen;
+    private boolean hasNext;
+
+    public DelaysItemReader() {
+        setName(ClassUtils.getShortName(DelaysItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(lineStopDao, "The property 'lineStopDao' is mandatory");
+        Assert.notNull(date, "The property 'date' is mandatory");
+        Assert.notNull(station, "The property 'station' is mandatory");
+        Assert.notNull(delayThreshold, "The property 'delayThreshold' is mandatory");
+        Assert.isTrue(pageSize > 0, "The property 'pageSize' must be greater than zero");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        pending = new ArrayDeque<>();
+        lastSeen = null;
+        hasNext = true;
+    }
+
+    @Override
+    protected LineStop doRead() throws Exception {
+        if (pending.isEmpty() && hasNext) {
+            Slice<LineStop> slice = departure ?
+                    lineStopDao.findDepartureDelaysAfter(date, station, delayThreshold, lastSeen, pageSize) :
+                    lineStopDao.findArrivalDelaysAfter(date, station, delayThreshold, lastSeen, pageSize);
+
+            pending.addAll(slice.getContent());
+            hasNext = slice.hasNext();
+        }
+
+        LineStop result = pending.poll();
+
+        if (result != null) {
+            lastSeen = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        pending = null;
+        lastSeen = null;
+    }
+
+    public void setLineStopDao(LineStopDao lineStopDao) {
+        this.lineStopDao = lineStopDao;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public void setStation(Station station) {
+        this.station = station;
+    }
+
+    /**
+     * @param delayThreshold minimum delay (in milliseconds)
+     */
+    public void setDelayThreshold(Long delayThreshold) {
+        this.delayThreshold = delayThreshold;
+    }
+
+    /**
+     * @param pageSize maximum number of line stops per query (default: 10)
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @param departure {@code true} to search departure delays, by default we search arrival delays
+     */
+    public void setDeparture(boolean departure) {
+        this.departure = departure;
+    }
+}
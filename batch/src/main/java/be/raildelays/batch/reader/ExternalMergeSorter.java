@@ -0,0 +1,213 @@
+package be.raildelays.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemReader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * External merge sort of the items of a GTFS file.
+ * <p>
+ * Items are read by chunk of {@code chunkSize}, each chunk is sorted in memory and written into a temporary
+ * run file. Then {@link #read()} merges all runs with a priority queue, so that only one item per run is kept
+ * in memory. Sub-classes define how one item is written into and read from a run file.
+ * </p>
+ *
+ * @param <T> type of the sorted items
+ * @author Almex
+ * @since 2.0
+ */
+abstract class ExternalMergeSorter<T> implements ItemReader<T>, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalMergeSorter.class);
+
+    private final Comparator<T> comparator;
+    private final int chunkSize;
+    private final Path directory;
+    private final String prefix;
+    private final List<Run> runs = new ArrayList<>();
+    private final PriorityQueue<Run> queue;
+
+    /**
+     * @param comparator order of the items returned by {@link #read()}
+     * @param chunkSize  maximum number of items kept in memory at once
+     * @param directory  where to create the temporary run files
+     * @param prefix     prefix of the temporary run files
+     */
+    protected ExternalMergeSorter(Comparator<T> comparator, int chunkSize, Path directory, String prefix) {
+        this.comparator = comparator;
+        this.chunkSize = chunkSize;
+        this.directory = directory;
+        this.prefix = prefix;
+        this.queue = new PriorityQueue<>((run1, run2) -> comparator.compare(run1.current, run2.current));
+    }
+
+    /**
+     * Sort everything coming from the {@code reader} into temporary runs.
+     *
+     * @param reader an already opened reader
+     * @throws Exception in case of error during reading or writing
+     */
+    void sort(ItemReader<T> reader) throws Exception {
+        List<T> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            for (T item = reader.read(); item != null; item = reader.read()) {
+                chunk.add(item);
+
+                if (chunk.size() >= chunkSize) {
+                    writeRun(chunk);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                writeRun(chunk);
+            }
+
+            for (Run run : runs) {
+                run.open();
+
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+
+        LOGGER.info("{} sorted into {} run(s)", prefix, runs.size());
+    }
+
+    @Override
+    public T read() throws IOException {
+        T result = null;
+        Run run = queue.poll();
+
+        if (run != null) {
+            result = run.current;
+
+            if (run.advance()) {
+                queue.add(run);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void close() {
+        queue.clear();
+
+        for (Run run : runs) {
+            run.delete();
+        }
+
+        runs.clear();
+    }
+
+    /**
+     * Write one item into a run file.
+     */
+    protected abstract void writeItem(DataOutputStream output, T item) throws IOException;
+
+    /**
+     * Read one item, written by {@link #writeItem(DataOutputStream, Object)}, from a run file.
+     */
+    protected abstract T readItem(DataInputStream input) throws IOException;
+
+    protected static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    protected static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private void writeRun(List<T> chunk) throws IOException {
+        Run run = new Run(Files.createTempFile(directory, prefix, ".run"));
+
+        runs.add(run);
+        chunk.sort(comparator);
+
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run.path)))) {
+            output.writeInt(chunk.size());
+
+            for (T item : chunk) {
+                writeItem(output, item);
+            }
+        }
+
+        LOGGER.debug("Run of {} {} written into {}", chunk.size(), prefix, run.path);
+
+        chunk.clear();
+    }
+
+    /**
+     * One sorted temporary file and a cursor on its current item.
+     */
+    private class Run {
+
+        private final Path path;
+        private DataInputStream input;
+        private int remaining;
+        private T current;
+
+        Run(Path path) {
+            this.path = path;
+        }
+
+        void open() throws IOException {
+            input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+            remaining = input.readInt();
+        }
+
+        boolean advance() throws IOException {
+            boolean result = remaining > 0;
+
+            if (result) {
+                current = readItem(input);
+                remaining--;
+            } else {
+                current = null;
+                closeQuietly();
+            }
+
+            return result;
+        }
+
+        void delete() {
+            closeQuietly();
+
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete temporary file {}", path);
+            }
+        }
+
+        private void closeQuietly() {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    LOGGER.debug("Cannot close {}", path);
+                } finally {
+                    input = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package be.raildelays.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.DefaultFieldSet;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Allocation-light reader of a GTFS (comma separated) file.
+ * <p>
+ * The file is memory-mapped via NIO (by windows of {@code windowSize} bytes) and each line is split in place
+ * over the byte buffer. Only the columns listed in {@code names} are decoded into a {@link String}, the others
+ * are only skipped. Then the {@link FieldSetMapper} receive a {@link DefaultFieldSet} containing only those
+ * columns.
+ * </p>
+ * <p>
+ * Columns are located by the header of the file (first line) instead of by their position, as the GTFS
+ * specification allows optional columns. A column listed in {@code names} but absent from the header is
+ * given as {@code null}. Quoted fields (with {@code ""} as escaped quote) are supported.
+ * </p>
+ * <p>
+ * A {@link Resource} which is not available as a {@link File} (e.g. an entry of a zip archive, see
+ * {@link org.springframework.batch.item.file.ZipEntryResource}) cannot be memory-mapped as is. It is first
+ * extracted, in one sequential pass, into a temporary file of {@code tempDirectory} which is then memory-mapped
+ * and deleted when the reader is closed.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsMappedFileItemReader<T> extends AbstractItemCountingItemStreamItemReader<T>
+        implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsMappedFileItemReader.class);
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private Resource resource;
+    private FieldSetMapper<T> fieldSetMapper;
+    private String[] names;
+    private Charset encoding = StandardCharsets.UTF_8;
+    private boolean strict = true;
+    private int windowSize = 64 * 1024 * 1024;
+    private Resource tempDirectory = new FileSystemResource(System.getProperty("java.io.tmpdir"));
+
+    private MappedByteSource source;
+    private Path extractedFile;
+    private long position;
+    private int[] columns; // For each column of the file, its index within 'names' or -1 to skip it
+    private String[] columnNames;
+    private byte[] scratch = new byte[256];
+
+    public GtfsMappedFileItemReader() {
+        setName(ClassUtils.getShortName(GtfsMappedFileItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(resource, "The property 'resource' is mandatory");
+        Assert.notNull(fieldSetMapper, "The property 'fieldSetMapper' is mandatory");
+        Assert.isTrue(windowSize > 0, "The property 'windowSize' must be positive");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        if (!resource.exists()) {
+            if (strict) {
+                throw new IllegalStateException("Input resource must exist (reader is in 'strict' mode): "
+                        + resource);
+            }
+
+            LOGGER.warn("Input resource does not exist {}", resource);
+            source = new MappedByteSource(null);
+            columns = new int[0];
+            return;
+        }
+
+        File file = getFile();
+
+        if (file == null) {
+            file = extract();
+        }
+
+        source = new MappedByteSource(file);
+        position = 0;
+
+        skipBom();
+        readHeader();
+    }
+
+    @Override
+    protected T doRead() throws Exception {
+        T result = null;
+
+        skipEndOfLines();
+
+        if (source.has(position)) {
+            String[] values = new String[columnNames.length];
+
+            readRecord(values, null);
+            result = fieldSetMapper.mapFieldSet(new DefaultFieldSet(values, columnNames));
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            if (source != null) {
+                source.close();
+            }
+        } finally {
+            source = null;
+
+            if (extractedFile != null) {
+                Files.deleteIfExists(extractedFile);
+                extractedFile = null;
+            }
+        }
+    }
+
+    private File getFile() {
+        File result = null;
+
+        try {
+            result = resource.getFile();
+        } catch (IOException e) {
+            LOGGER.debug("{} is not a file, it will be extracted before being mapped", resource);
+        }
+
+        return result;
+    }
+
+    private File extract() throws IOException {
+        extractedFile = Files.createTempFile(tempDirectory.getFile().toPath(), "gtfs", ".txt");
+
+        try (InputStream input = resource.getInputStream()) {
+            Files.copy(input, extractedFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        LOGGER.debug("{} extracted into {}", resource, extractedFile);
+
+        return extractedFile.toFile();
+    }
+
+    private void skipBom() {
+        boolean bom = source.has(BOM.length - 1);
+
+        for (int i = 0; bom && i < BOM.length; i++) {
+            bom = byteAt(i) == BOM[i];
+        }
+
+        if (bom) {
+            position = BOM.length;
+        }
+    }
+
+    private void readHeader() {
+        List<String> header = new ArrayList<>();
+
+        skipEndOfLines();
+
+        if (source.has(position)) {
+            readRecord(null, header);
+        }
+
+        columnNames = names != null ? names : header.toArray(new String[header.size()]);
+        columns = new int[header.size()];
+
+        Arrays.fill(columns, -1);
+
+        for (int i = 0; i < columnNames.length; i++) {
+            int column = header.indexOf(columnNames[i]);
+
+            if (column > -1) {
+                columns[column] = i;
+            } else {
+                LOGGER.debug("Column '{}' not found in {}", columnNames[i], resource);
+            }
+        }
+    }
+
+    /**
+     * Split one line in place. Either fill {@code values} with the requested columns or {@code all} with
+     * every column.
+     */
+    private void readRecord(String[] values, List<String> all) {
+        boolean endOfLine = false;
+
+        for (int column = 0; !endOfLine; column++) {
+            long start = position;
+            long end = -1;
+            boolean quoted = source.has(position) && byteAt(position) == QUOTE;
+
+            if (quoted) {
+                start = ++position;
+                position = skipQuoted(position);
+                end = position - 1; // Exclude closing quote
+            }
+
+            while (source.has(position)) {
+                byte current = byteAt(position);
+
+                if (current == DELIMITER || current == LF || current == CR) {
+                    break;
+                }
+
+                position++;
+            }
+
+            if (!quoted) {
+                end = position;
+            }
+
+            if (all != null) {
+                all.add(decode(start, end, quoted));
+            } else if (column < columns.length && columns[column] > -1) {
+                values[columns[column]] = decode(start, end, quoted);
+            }
+
+            endOfLine = !source.has(position) || byteAt(position) != DELIMITER;
+
+            if (!endOfLine) {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * @return the position following the closing quote
+     */
+    private long skipQuoted(long from) {
+        long result = from;
+
+        while (source.has(result)) {
+            if (byteAt(result) == QUOTE) {
+                if (source.has(result + 1) && byteAt(result + 1) == QUOTE) {
+                    result += 2;
+                } else {
+                    return result + 1;
+                }
+            } else {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    private void skipEndOfLines() {
+        while (source.has(position)) {
+            byte current = byteAt(position);
+
+            if (current != LF && current != CR) {
+                break;
+            }
+
+            position++;
+        }
+    }
+
+    private String decode(long start, long end, boolean quoted) {
+        int length = 0;
+
+        if (end - start > scratch.length) {
+            scratch = new byte[(int) (end - start) * 2];
+        }
+
+        for (long i = start; i < end; i++) {
+            byte current = byteAt(i);
+
+            if (quoted && current == QUOTE && i + 1 < end && byteAt(i + 1) == QUOTE) {
+                i++;
+            }
+
+            scratch[length++] = current;
+        }
+
+        return new String(scratch, 0, length, encoding);
+    }
+
+    private byte byteAt(long offset) {
+        return source.get(offset);
+    }
+
+    public void setResource(Resource resource) {
+        this.resource = resource;
+    }
+
+    public void setFieldSetMapper(FieldSetMapper<T> fieldSetMapper) {
+        this.fieldSetMapper = fieldSetMapper;
+    }
+
+    /**
+     * @param names the columns to decode and to give to the {@link FieldSetMapper}. By default, all columns
+     *              found in the header of the file.
+     */
+    public void setNames(String[] names) {
+        this.names = names;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = Charset.forName(encoding);
+    }
+
+    /**
+     * @param strict if {@code true} (default) the resource must exist, otherwise we log a warning and return
+     *               no item.
+     */
+    public void setStrict(boolean strict) {
+        this.strict = strict;
+    }
+
+    /**
+     * @param windowSize size in bytes of the memory-mapped region of the file. By default, we use 64 MB.
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @param tempDirectory where a resource which is not a file is extracted before being memory-mapped.
+     *                      By default, we use {@code java.io.tmpdir}.
+     */
+    public void setTempDirectory(Resource tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Memory-mapped file by windows of {@code windowSize} bytes. Before calling {@link #get(long)}, the caller
+     * must check with {@link #has(long)} that the offset is not beyond the end of the file.
+     */
+    private class MappedByteSource {
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        /**
+         * @param file the file to map or {@code null} to get an empty source
+         */
+        MappedByteSource(File file) throws IOException {
+            channel = file != null ? FileChannel.open(file.toPath(), StandardOpenOption.READ) : null;
+            size = channel != null ? channel.size() : 0;
+        }
+
+        boolean has(long offset) {
+            return offset < size;
+        }
+
+        byte get(long offset) {
+            if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+                map(offset);
+            }
+
+            return window.get((int) (offset - windowStart));
+        }
+
+        void close() throws IOException {
+            window = null;
+
+            if (channel != null) {
+                channel.close();
+            }
+        }
+
+        private void map(long offset) {
+            try {
+                windowStart = offset;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+            } catch (IOException e) {
+                throw new ItemStreamException("Cannot map " + resource + " at position " + offset, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedSnapshot;
+import be.raildelays.batch.gtfs.GtfsFeedSnapshotHolder;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.Trip;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.util.Iterator;
+
+/**
+ * Read one part of a {@link GtfsFeedSnapshot} instead of parsing the CSV files of the GTFS feed.
+ * <p>
+ * With {@link Content#TRIPS}, each {@link Trip} is returned with all its
+ * {@link be.raildelays.batch.gtfs.StopTime}s attached, as done by {@link TripStopTimesJoinItemReader}. Within a
+ * partitioned step, only the {@link Trip}s of our partition are returned (see {@link GtfsTripPartitioner}).
+ * </p>
+ * <p>
+ * The snapshot itself is given by a {@link GtfsFeedSnapshotHolder}, so that all readers of a job share the same
+ * decoded snapshot instead of opening it one more time per reader.
+ * </p>
+ *
+ * @param <T> {@link Trip}, {@link Stop} or {@link CalendarDate} depending on the {@link Content}
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsSnapshotItemReader<T> extends AbstractItemCountingItemStreamItemReader<T>
+        implements InitializingBean {
+
+    private GtfsFeedSnapshotHolder snapshotHolder;
+    private Content content;
+    private int partitionIndex = 0;
+    private int partitionCount = 1;
+    private GtfsTripPartitioner.Key partitionKey = GtfsTripPartitioner.Key.ROUTE_ID;
+
+    private Iterator<?> iterator;
+
+    /**
+     * Part of the snapshot to read.
+     */
+    public enum Content {
+        TRIPS, STOPS, CALENDAR_DATES
+    }
+
+    public GtfsSnapshotItemReader() {
+        setName(ClassUtils.getShortName(GtfsSnapshotItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(snapshotHolder, "The property 'snapshotHolder' is mandatory");
+        Assert.notNull(content, "The property 'content' is mandatory");
+        Assert.notNull(partitionKey, "The property 'partitionKey' is mandatory");
+        Assert.isTrue(partitionIndex >= 0 && partitionIndex < partitionCount,
+                "The property 'partitionIndex' must be between 0 and 'partitionCount' (exclusive)");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        GtfsFeedSnapshot snapshot = snapshotHolder.getSnapshot();
+
+        switch (content) {
+            case TRIPS:
+                iterator = snapshot.trips((routeId, tripId) -> GtfsTripPartitioner.isInPartition(routeId, tripId,
+                        partitionKey, partitionIndex, partitionCount));
+                break;
+            case STOPS:
+                iterator = snapshot.getStops().iterator();
+                break;
+            case CALENDAR_DATES:
+            default:
+                iterator = snapshot.getCalendarDates().iterator();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // The type is given by the content
+    protected T doRead() throws Exception {
+        return iterator.hasNext() ? (T) iterator.next() : null;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        iterator = null;
+    }
+
+    public void setSnapshotHolder(GtfsFeedSnapshotHolder snapshotHolder) {
+        this.snapshotHolder = snapshotHolder;
+    }
+
+    public void setContent(Content content) {
+        this.content = content;
+    }
+
+    /**
+     * @param partitionIndex zero-based index of our partition. By default, 0.
+     */
+    public void setPartitionIndex(int partitionIndex) {
+        this.partitionIndex = partitionIndex;
+    }
+
+    /**
+     * @param partitionCount number of partitions. By default, 1: every {@link Trip} is returned.
+     */
+    public void setPartitionCount(int partitionCount) {
+        this.partitionCount = partitionCount;
+    }
+
+    /**
+     * @param partitionKey field on which {@link Trip}s are partitioned. By default, {@code ROUTE_ID}.
+     */
+    public void setPartitionKey(GtfsTripPartitioner.Key partitionKey) {
+        this.partitionKey = partitionKey;
+    }
+}
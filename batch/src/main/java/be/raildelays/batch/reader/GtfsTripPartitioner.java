@@ -0,0 +1,100 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.Trip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This {@link Partitioner} split the {@link Trip}s of a GTFS feed into {@code gridSize} partitions by hashing
+ * their {@code route_id} (by default) or their {@code trip_id}.
+ * <p>
+ * The {@link ExecutionContext} of each partition contains the keys {@link #INDEX_KEY}, {@link #COUNT_KEY} and
+ * {@link #KEY_KEY} to be given to a {@link GtfsSnapshotItemReader}, which only returns the {@link Trip}s of its
+ * partition (see {@link #isInPartition(Trip, Key, int, int)}). The name of the partition is 'partitionX' where 'X'
+ * is the zero-based index of the partition.
+ * </p>
+ * <p>
+ * Partitioning by {@code route_id} keeps all trips of a {@link be.raildelays.domain.entities.TrainLine} within the
+ * same partition.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ * @see org.springframework.core.task.TaskExecutor
+ */
+public class GtfsTripPartitioner implements Partitioner, InitializingBean {
+
+    public static final String INDEX_KEY = "partition.index";
+    public static final String COUNT_KEY = "partition.count";
+    public static final String KEY_KEY = "partition.key";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsTripPartitioner.class);
+
+    private Key key = Key.ROUTE_ID;
+
+    /**
+     * Field of a {@link Trip} on which we partition.
+     */
+    public enum Key {
+        ROUTE_ID, TRIP_ID
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(key, "The property 'key' must be provided");
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(final int gridSize) {
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        int count = Math.max(1, gridSize);
+
+        for (int index = 0; index < count; index++) {
+            ExecutionContext executionContext = new ExecutionContext();
+
+            executionContext.putInt(INDEX_KEY, index);
+            executionContext.putInt(COUNT_KEY, count);
+            executionContext.putString(KEY_KEY, key.name());
+            partitions.put("partition" + index, executionContext);
+        }
+
+        LOGGER.debug("{} partitions created by {}", count, key);
+
+        return partitions;
+    }
+
+    /**
+     * @param routeId identifier of the route of a {@link Trip}
+     * @param tripId  identifier of a {@link Trip}
+     * @param key     field on which we partition
+     * @param index   zero-based index of the partition
+     * @param count   number of partitions
+     * @return {@code true} if the {@link Trip} belongs to this partition, {@code false} otherwise
+     */
+    public static boolean isInPartition(String routeId, String tripId, Key key, int index, int count) {
+        String value = key == Key.ROUTE_ID ? routeId : tripId;
+
+        return count <= 1 || Math.floorMod(value != null ? value.hashCode() : 0, count) == index;
+    }
+
+    /**
+     * @see #isInPartition(String, String, Key, int, int)
+     */
+    public static boolean isInPartition(Trip trip, Key key, int index, int count) {
+        return isInPartition(trip.getRouteId(), trip.getTripId(), key, index, count);
+    }
+
+    /**
+     * @param key field on which we partition. By default, {@link Key#ROUTE_ID}.
+     */
+    public void setKey(Key key) {
+        this.key = key;
+    }
+}
@@ -0,0 +1,86 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.repository.LineStopDao;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+
+/**
+ * Read the delayed trips of a day between two stations as flat {@link LineStopPair}s (see
+ * {@link be.raildelays.repository.LineStopDaoCustom#findDelayedPairs(LocalDate, Station, Station, long)}).
+ * <p>
+ * All pairs of the day come from one query when the stream is opened: no entity, no route and no persistence context
+ * is kept while they are processed.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class LineStopPairItemReader extends AbstractItemCountingItemStreamItemReader<LineStopPair>
+        implements InitializingBean {
+
+    private LineStopDao lineStopDao;
+    private LocalDate date;
+    private Station stationA;
+    private Station stationB;
+    private Long delayThreshold;
+
+    private Iterator<LineStopPair> iterator;
+
+    public LineStopPairItemReader() {
+        setName(ClassUtils.getShortName(LineStopPairItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(lineStopDao, "The property 'lineStopDao' is mandatory");
+        Assert.notNull(date, "The property 'date' is mandatory");
+        Assert.notNull(stationA, "The property 'stationA' is mandatory");
+        Assert.notNull(stationB, "The property 'stationB' is mandatory");
+        Assert.notNull(delayThreshold, "The property 'delayThreshold' is mandatory");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        iterator = lineStopDao.findDelayedPairs(date, stationA, stationB, delayThreshold).iterator();
+    }
+
+    @Override
+    protected LineStopPair doRead() throws Exception {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        iterator = null;
+    }
+
+    public void setLineStopDao(LineStopDao lineStopDao) {
+        this.lineStopDao = lineStopDao;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public void setStationA(Station stationA) {
+        this.stationA = stationA;
+    }
+
+    public void setStationB(Station stationB) {
+        this.stationB = stationB;
+    }
+
+    /**
+     * @param delayThreshold minimum delay (in milliseconds)
+     */
+    public void setDelayThreshold(Long delayThreshold) {
+        this.delayThreshold = delayThreshold;
+    }
+}
@@ -0,0 +1,117 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Trip;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Evaluate each {@link Trip} against a range of dates and return one copy of it per date at which it runs.
+ * <p>
+ * The GTFS feed is then parsed only once for the whole range: each copy shares the {@link
+ * be.raildelays.batch.gtfs.StopTime}s of the original and only differs by its
+ * {@link Trip#getServiceDate() service date}, which is used instead of the {@code date} of the processors.
+ * A {@link Trip} which does not run at any date of the range is not returned.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class ScheduledTripItemReader extends AbstractItemCountingItemStreamItemReader<Trip>
+        implements InitializingBean {
+
+    private ItemStreamReader<Trip> delegate;
+    private GtfsFeedIndex feedIndex;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    private List<LocalDate> dates;
+    private Deque<Trip> pending;
+
+    public ScheduledTripItemReader() {
+        setName(ClassUtils.getShortName(ScheduledTripItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(delegate, "The property 'delegate' is mandatory");
+        Assert.notNull(feedIndex, "The property 'feedIndex' is mandatory");
+        Assert.notNull(startDate, "The property 'startDate' is mandatory");
+        Assert.isTrue(endDate == null || !endDate.isBefore(startDate),
+                "The property 'endDate' must not be before 'startDate'");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        dates = new ArrayList<>();
+        pending = new ArrayDeque<>();
+
+        for (LocalDate date = startDate; !date.isAfter(getEndDate()); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+
+        delegate.open(new ExecutionContext());
+    }
+
+    @Override
+    protected Trip doRead() throws Exception {
+        while (pending.isEmpty()) {
+            Trip trip = delegate.read();
+
+            if (trip == null) {
+                return null;
+            }
+
+            for (LocalDate date : dates) {
+                if (feedIndex.isScheduled(trip.getServiceId(), date)) {
+                    pending.add(new Trip(trip, date));
+                }
+            }
+        }
+
+        return pending.poll();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            delegate.close();
+        } finally {
+            pending = null;
+            dates = null;
+        }
+    }
+
+    private LocalDate getEndDate() {
+        return endDate != null ? endDate : startDate;
+    }
+
+    public void setDelegate(ItemStreamReader<Trip> delegate) {
+        this.delegate = delegate;
+    }
+
+    public void setFeedIndex(GtfsFeedIndex feedIndex) {
+        this.feedIndex = feedIndex;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * @param endDate last date (inclusive) of the range. By default, the range is only made of the start date.
+     */
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+}
@@ -0,0 +1,66 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.StopTime;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.Comparator;
+
+/**
+ * External merge sort of {@link StopTime} by {@code trip_id} then {@code stop_sequence}.
+ * Only the fields mapped by the {@link be.raildelays.batch.gtfs.StopTimesFieldSetMapper} are kept.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+class StopTimesExternalSorter extends ExternalMergeSorter<StopTime> {
+
+    static final Comparator<StopTime> TRIP_ID_COMPARATOR = Comparator
+            .comparing(StopTime::getTripId, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(StopTime::getStopSequence, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * @param chunkSize maximum number of items kept in memory at once
+     * @param directory where to create the temporary run files
+     */
+    StopTimesExternalSorter(int chunkSize, Path directory) {
+        super(TRIP_ID_COMPARATOR, chunkSize, directory, "stop_times");
+    }
+
+    @Override
+    protected void writeItem(DataOutputStream output, StopTime stopTime) throws IOException {
+        writeString(output, stopTime.getTripId());
+        writeTime(output, stopTime.getArrivalTime());
+        writeTime(output, stopTime.getDepartureTime());
+        writeString(output, stopTime.getStopId());
+        output.writeInt(stopTime.getStopSequence() != null ? stopTime.getStopSequence() : -1);
+    }
+
+    @Override
+    protected StopTime readItem(DataInputStream input) throws IOException {
+        StopTime result = new StopTime();
+        int stopSequence;
+
+        result.setTripId(readString(input));
+        result.setArrivalTime(readTime(input));
+        result.setDepartureTime(readTime(input));
+        result.setStopId(readString(input));
+        stopSequence = input.readInt();
+        result.setStopSequence(stopSequence >= 0 ? stopSequence : null);
+
+        return result;
+    }
+
+    private static void writeTime(DataOutputStream output, LocalTime value) throws IOException {
+        output.writeLong(value != null ? value.toNanoOfDay() : -1L);
+    }
+
+    private static LocalTime readTime(DataInputStream input) throws IOException {
+        long value = input.readLong();
+
+        return value >= 0 ? LocalTime.ofNanoOfDay(value) : null;
+    }
+}
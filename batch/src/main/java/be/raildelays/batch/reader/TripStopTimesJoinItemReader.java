@@ -0,0 +1,245 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.StopTime;
+import be.raildelays.batch.gtfs.Trip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.util.*;
+
+/**
+ * Join GTFS trips.txt and stop_times.txt with a sort-merge join.
+ * <p>
+ * Both files are read as streams sorted by {@code trip_id} and merged side by side: each {@link #read()} return
+ * one {@link Trip} with all its {@link StopTime} attached, ordered by {@code stop_sequence}. So, only one trip
+ * and its stop times are kept in memory at once.
+ * </p>
+ * <p>
+ * With {@link Presort#ALWAYS} (the default), both files are first sorted via an external merge sort into
+ * temporary files (see {@link TripsExternalSorter} and {@link StopTimesExternalSorter}): each file is parsed
+ * once. With {@link Presort#NEVER}, both files must already be sorted by {@code trip_id} and reading a
+ * {@code trip_id} lower than or equal to the previous one throws an {@link IllegalStateException}.
+ * </p>
+ * <p>
+ * A {@link Trip} without any {@link StopTime} is not returned (inner join).
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class TripStopTimesJoinItemReader extends AbstractItemCountingItemStreamItemReader<Trip>
+        implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TripStopTimesJoinItemReader.class);
+
+    private static final Comparator<StopTime> STOP_SEQUENCE_COMPARATOR =
+            Comparator.comparing(StopTime::getStopSequence, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private ItemStreamReader<Trip> tripsReader;
+    private ItemStreamReader<StopTime> stopTimesReader;
+    private Presort presort = Presort.ALWAYS;
+    private int sortChunkSize = 100000;
+    private Resource tempDirectory = new FileSystemResource(System.getProperty("java.io.tmpdir"));
+
+    private ItemReader<Trip> trips;
+    private ItemReader<StopTime> stopTimes;
+    private TripsExternalSorter tripsSorter;
+    private StopTimesExternalSorter stopTimesSorter;
+    private Trip currentTrip;
+    private StopTime lookAhead;
+    private String previousTripId;
+
+    /**
+     * Define when the pre-sort stage of trips.txt and stop_times.txt must be done.
+     */
+    public enum Presort {
+        /**
+         * Always sort trips.txt and stop_times.txt by trip_id.
+         */
+        ALWAYS,
+        /**
+         * Never sort them: we trust the producer of the GTFS feed to deliver both files sorted by trip_id.
+         */
+        NEVER
+    }
+
+    public TripStopTimesJoinItemReader() {
+        setName(ClassUtils.getShortName(TripStopTimesJoinItemReader.class));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(tripsReader, "The property 'tripsReader' is mandatory");
+        Assert.notNull(stopTimesReader, "The property 'stopTimesReader' is mandatory");
+        Assert.notNull(presort, "The property 'presort' is mandatory");
+        Assert.isTrue(sortChunkSize > 0, "The property 'sortChunkSize' must be positive");
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        tripsReader.open(new ExecutionContext());
+        stopTimesReader.open(new ExecutionContext());
+
+        if (presort == Presort.ALWAYS) {
+            LOGGER.info("Pre-sorting trips and stop_times by trip_id...");
+
+            try {
+                tripsSorter = new TripsExternalSorter(sortChunkSize, tempDirectory.getFile().toPath());
+                tripsSorter.sort(tripsReader);
+                stopTimesSorter = new StopTimesExternalSorter(sortChunkSize, tempDirectory.getFile().toPath());
+                stopTimesSorter.sort(stopTimesReader);
+            } finally {
+                tripsReader.close();
+                stopTimesReader.close();
+            }
+
+            trips = tripsSorter;
+            stopTimes = stopTimesSorter;
+        } else {
+            trips = tripsReader;
+            stopTimes = stopTimesReader;
+        }
+
+        currentTrip = nextTrip();
+        lookAhead = nextStopTime();
+    }
+
+    @Override
+    protected Trip doRead() throws Exception {
+        Trip result = null;
+
+        while (result == null && lookAhead != null) {
+            String tripId = lookAhead.getTripId();
+            List<StopTime> group = new ArrayList<>();
+
+            for (; lookAhead != null && tripId.equals(lookAhead.getTripId()); lookAhead = nextStopTime()) {
+                group.add(lookAhead);
+            }
+
+            checkOrder("stop_times", previousTripId, tripId);
+            previousTripId = tripId;
+
+            while (currentTrip != null && currentTrip.getTripId().compareTo(tripId) < 0) {
+                LOGGER.debug("No stop times found for trip_id={}", currentTrip.getTripId());
+                currentTrip = nextTrip();
+            }
+
+            if (currentTrip != null && currentTrip.getTripId().equals(tripId)) {
+                group.sort(STOP_SEQUENCE_COMPARATOR);
+                currentTrip.setStopTimes(group);
+                result = currentTrip;
+                currentTrip = nextTrip();
+            } else {
+                LOGGER.debug("No trip found for trip_id={}", tripId);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            if (tripsSorter != null) {
+                tripsSorter.close();
+            } else if (trips != null) {
+                tripsReader.close();
+            }
+        } finally {
+            try {
+                if (stopTimesSorter != null) {
+                    stopTimesSorter.close();
+                } else if (stopTimes != null) {
+                    stopTimesReader.close();
+                }
+            } finally {
+                tripsSorter = null;
+                stopTimesSorter = null;
+                trips = null;
+                stopTimes = null;
+                currentTrip = null;
+                lookAhead = null;
+                previousTripId = null;
+            }
+        }
+    }
+
+    /**
+     * Skip rows without trip_id.
+     */
+    private Trip nextTrip() throws Exception {
+        Trip result;
+        String previous = currentTrip != null ? currentTrip.getTripId() : null;
+
+        do {
+            result = trips.read();
+        } while (result != null && result.getTripId() == null);
+
+        if (result != null) {
+            checkOrder("trips", previous, result.getTripId());
+        }
+
+        return result;
+    }
+
+    /**
+     * Skip rows without trip_id.
+     */
+    private StopTime nextStopTime() throws Exception {
+        StopTime result;
+
+        do {
+            result = stopTimes.read();
+        } while (result != null && result.getTripId() == null);
+
+        return result;
+    }
+
+    /**
+     * A merge join can only work on streams strictly ordered by trip_id (one group per trip_id).
+     */
+    private static void checkOrder(String file, String previous, String tripId) {
+        if (previous != null && previous.compareTo(tripId) >= 0) {
+            throw new IllegalStateException(file + " are not sorted by trip_id: trip_id=" + tripId
+                    + " found after trip_id=" + previous + ". You should enable the pre-sort stage.");
+        }
+    }
+
+    public void setTripsReader(ItemStreamReader<Trip> tripsReader) {
+        this.tripsReader = tripsReader;
+    }
+
+    public void setStopTimesReader(ItemStreamReader<StopTime> stopTimesReader) {
+        this.stopTimesReader = stopTimesReader;
+    }
+
+    public void setPresort(Presort presort) {
+        this.presort = presort;
+    }
+
+    /**
+     * @param sortChunkSize maximum number of {@link Trip} or {@link StopTime} kept in memory during the pre-sort
+     *                      stage.
+     *                      By default, we use 100 000.
+     */
+    public void setSortChunkSize(int sortChunkSize) {
+        this.sortChunkSize = sortChunkSize;
+    }
+
+    /**
+     * @param tempDirectory where the pre-sort stage write its temporary files. By default, we use
+     *                      {@code java.io.tmpdir}.
+     */
+    public void setTempDirectory(Resource tempDirectory) {
+        this.tempDirectory = tempDirectory;
+    }
+}
@@ -0,0 +1,48 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.Trip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * External merge sort of {@link Trip} by {@code trip_id}.
+ * Only the fields mapped by the {@link be.raildelays.batch.gtfs.TripsFieldSetMapper} are kept.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+class TripsExternalSorter extends ExternalMergeSorter<Trip> {
+
+    static final Comparator<Trip> TRIP_ID_COMPARATOR =
+            Comparator.comparing(Trip::getTripId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * @param chunkSize maximum number of items kept in memory at once
+     * @param directory where to create the temporary run files
+     */
+    TripsExternalSorter(int chunkSize, Path directory) {
+        super(TRIP_ID_COMPARATOR, chunkSize, directory, "trips");
+    }
+
+    @Override
+    protected void writeItem(DataOutputStream output, Trip trip) throws IOException {
+        writeString(output, trip.getRouteId());
+        writeString(output, trip.getServiceId());
+        writeString(output, trip.getTripId());
+    }
+
+    @Override
+    protected Trip readItem(DataInputStream input) throws IOException {
+        Trip result = new Trip();
+
+        result.setRouteId(readString(input));
+        result.setServiceId(readString(input));
+        result.setTripId(readString(input));
+
+        return result;
+    }
+}
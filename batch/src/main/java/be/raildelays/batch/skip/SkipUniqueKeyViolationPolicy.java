@@ -27,6 +27,7 @@ package be.raildelays.batch.skip;
 import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.batch.core.step.skip.SkipLimitExceededException;
 import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import javax.persistence.PersistenceException;
 import java.sql.SQLIntegrityConstraintViolationException;
@@ -38,7 +39,8 @@ import java.util.function.Function;
  * duplicate key exception coming from the database when we insert new {@code LineStop}.
  * The {@code Exception} that we should match would be the {@link org.hibernate.exception.ConstraintViolationException} or
  * the {@link java.sql.SQLIntegrityConstraintViolationException} but unfortunately Hibernate convert this {@code class} into
- * more generic one called {@link javax.persistence.PersistenceException}.
+ * more generic one called {@link javax.persistence.PersistenceException}. When writing with JDBC, Spring converts it
+ * into a {@link DataIntegrityViolationException} (e.g.: {@link org.springframework.dao.DuplicateKeyException}).
  *
  * @author Almex
  * @since 1.2
@@ -81,6 +83,8 @@ public class SkipUniqueKeyViolationPolicy implements SkipPolicy {
              * Then we must check recursively into causes.
              */
             violated = isExpectedViolation(e.getCause());
+        } else if (e instanceof DataIntegrityViolationException && e.getCause() != null) {
+            violated = isExpectedViolation(e.getCause());
         }
 
         return violated;
@@ -0,0 +1,74 @@
+package be.raildelays.batch.support;
+
+import be.raildelays.batch.bean.BatchExcelRow;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Index of the rows of every Excel file of one directory, files being ordered by name. It gives the first empty row
+ * and the content to search for duplicates without reading again each Excel file.
+ *
+ * @author Almex
+ * @since 2.0
+ * @see SidecarExcelRowIndex
+ */
+public interface ExcelRowIndex {
+
+    /**
+     * Give every row, file after file, until the first empty row. If there is such empty row it ends the list as
+     * {@link BatchExcelRow#EMPTY}.
+     *
+     * @return a new list of new rows, only their index, date, stations and delay are set
+     * @throws ItemStreamException if we cannot refresh the index
+     */
+    List<BatchExcelRow> getRows() throws ItemStreamException;
+
+    /**
+     * Give the first empty row among all files.
+     *
+     * @return the file and the index of the first empty row or {@code null} if every file is full
+     * @throws ItemStreamException if we cannot refresh the index
+     */
+    Slot findFirstEmptySlot() throws ItemStreamException;
+
+    /**
+     * @param listener notified each time the rows of one file change within this index
+     */
+    void addListener(Listener listener);
+
+    /**
+     * Callback to keep in sync a structure built from {@link #getRows()}.
+     */
+    interface Listener {
+
+        /**
+         * @param previousRows rows of the file before the change, empty if it is a new file
+         * @param rows         rows of the file after the change, empty if the file has been removed
+         */
+        void onChange(List<BatchExcelRow> previousRows, List<BatchExcelRow> rows);
+    }
+
+    /**
+     * Location of an empty row.
+     */
+    final class Slot {
+
+        private final File file;
+        private final int index;
+
+        public Slot(File file, int index) {
+            this.file = file;
+            this.index = index;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+}
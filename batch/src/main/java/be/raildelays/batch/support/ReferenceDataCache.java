@@ -0,0 +1,238 @@
+package be.raildelays.batch.support;
+
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.StationDao;
+import be.raildelays.repository.TrainLineDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the identifiers of our reference data: {@link Station}s keyed by each of their names and
+ * {@link TrainLine}s keyed by their {@code routeId}.
+ * <p>
+ * Only identifiers are kept: an entity cannot be shared between the transactions of concurrent steps, it must be
+ * attached to each one (e.g.: via {@code getOne()}). The whole reference data is read at once when the cache is
+ * warmed, then each look-up is counted as a hit or a miss. On a miss, the given supplier is called to retrieve or
+ * create the entity, one at a time for the whole cache: two concurrent steps cannot both create the same one.
+ * </p>
+ * <p>
+ * When registered as a {@link StepExecutionListener}, the cache is warmed before the step and the counters are
+ * stored into the {@link ExecutionContext} of the step under the keys {@link #STATION_HITS_KEY},
+ * {@link #STATION_MISSES_KEY}, {@link #TRAIN_LINE_HITS_KEY} and {@link #TRAIN_LINE_MISSES_KEY}. The cache is then
+ * released after the step. Otherwise, it is warmed on the first look-up.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class ReferenceDataCache implements StepExecutionListener, InitializingBean {
+
+    public static final String STATION_HITS_KEY = "reference.cache.station.hits";
+    public static final String STATION_MISSES_KEY = "reference.cache.station.misses";
+    public static final String TRAIN_LINE_HITS_KEY = "reference.cache.train.line.hits";
+    public static final String TRAIN_LINE_MISSES_KEY = "reference.cache.train.line.misses";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    private StationDao stationDao;
+    private TrainLineDao trainLineDao;
+
+    private volatile boolean warmed = false;
+    private final Map<String, Long> stationIds = new ConcurrentHashMap<>();
+    private final Map<Long, Long> trainLineIds = new ConcurrentHashMap<>();
+    private final AtomicLong stationHits = new AtomicLong();
+    private final AtomicLong stationMisses = new AtomicLong();
+    private final AtomicLong trainLineHits = new AtomicLong();
+    private final AtomicLong trainLineMisses = new AtomicLong();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(stationDao, "The property 'stationDao' is mandatory");
+        Assert.notNull(trainLineDao, "The property 'trainLineDao' is mandatory");
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        warm();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().putLong(STATION_HITS_KEY, stationHits.get());
+        stepExecution.getExecutionContext().putLong(STATION_MISSES_KEY, stationMisses.get());
+        stepExecution.getExecutionContext().putLong(TRAIN_LINE_HITS_KEY, trainLineHits.get());
+        stepExecution.getExecutionContext().putLong(TRAIN_LINE_MISSES_KEY, trainLineMisses.get());
+
+        LOGGER.info("Reference data cache: station hits={} misses={}, train line hits={} misses={}",
+                stationHits.get(), stationMisses.get(), trainLineHits.get(), trainLineMisses.get());
+
+        release();
+
+        return null;
+    }
+
+    /**
+     * Read all {@link Station}s and {@link TrainLine}s. Calling this method more than once has no effect.
+     */
+    public synchronized void warm() {
+        if (!warmed) {
+            long start = System.currentTimeMillis();
+
+            stationDao.findAll().forEach(this::put);
+            trainLineDao.findAll().forEach(this::put);
+            warmed = true;
+
+            LOGGER.info("Reference data cache warmed in {} ms: station names={} train lines={}",
+                    System.currentTimeMillis() - start, stationIds.size(), trainLineIds.size());
+        }
+    }
+
+    /**
+     * Empty the cache and reset the counters. The next look-up will warm it again.
+     */
+    public synchronized void release() {
+        stationIds.clear();
+        trainLineIds.clear();
+        stationHits.set(0);
+        stationMisses.set(0);
+        trainLineHits.set(0);
+        trainLineMisses.set(0);
+        warmed = false;
+    }
+
+    /**
+     * @param station  with at least one name. The look-up is done by French name, then by Dutch name and finally by
+     *                 English name, as the first non-empty one.
+     * @param supplier called on a miss to retrieve or create the {@link Station}, it must return a committed entity
+     * @return the identifier of the {@link Station}
+     */
+    public Long getStationId(Station station, Supplier<Station> supplier) {
+        String key = getKey(station);
+        Long result = get(stationIds, key);
+
+        if (result != null) {
+            stationHits.incrementAndGet();
+        } else {
+            stationMisses.incrementAndGet();
+
+            synchronized (this) {
+                result = key != null ? stationIds.get(key) : null;
+
+                if (result == null) {
+                    Station created = supplier.get();
+
+                    put(created);
+                    result = created.getId();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param trainLine with a {@code routeId}
+     * @param supplier  called on a miss to retrieve or create the {@link TrainLine}, it must return a committed entity
+     * @return the identifier of the {@link TrainLine}
+     */
+    public Long getTrainLineId(TrainLine trainLine, Supplier<TrainLine> supplier) {
+        Long result = get(trainLineIds, trainLine.getRouteId());
+
+        if (result != null) {
+            trainLineHits.incrementAndGet();
+        } else {
+            trainLineMisses.incrementAndGet();
+
+            synchronized (this) {
+                result = trainLine.getRouteId() != null ? trainLineIds.get(trainLine.getRouteId()) : null;
+
+                if (result == null) {
+                    TrainLine created = supplier.get();
+
+                    put(created);
+                    result = created.getId();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private <K> Long get(Map<K, Long> ids, K key) {
+        if (!warmed) {
+            warm();
+        }
+
+        return key != null ? ids.get(key) : null;
+    }
+
+    private void put(Station station) {
+        if (station.getId() != null) {
+            putIfNotEmpty("FR", station.getFrenchName(), station.getId());
+            putIfNotEmpty("NL", station.getDutchName(), station.getId());
+            putIfNotEmpty("EN", station.getEnglishName(), station.getId());
+        }
+    }
+
+    private void put(TrainLine trainLine) {
+        if (trainLine.getId() != null && trainLine.getRouteId() != null) {
+            trainLineIds.putIfAbsent(trainLine.getRouteId(), trainLine.getId());
+        }
+    }
+
+    private void putIfNotEmpty(String language, String name, Long id) {
+        if (name != null && !name.isEmpty()) {
+            stationIds.putIfAbsent(language + ':' + name, id);
+        }
+    }
+
+    private static String getKey(Station station) {
+        String result = null;
+
+        if (station.getFrenchName() != null && !station.getFrenchName().isEmpty()) {
+            result = "FR:" + station.getFrenchName();
+        } else if (station.getDutchName() != null && !station.getDutchName().isEmpty()) {
+            result = "NL:" + station.getDutchName();
+        } else if (station.getEnglishName() != null && !station.getEnglishName().isEmpty()) {
+            result = "EN:" + station.getEnglishName();
+        }
+
+        return result;
+    }
+
+    public long getStationHits() {
+        return stationHits.get();
+    }
+
+    public long getStationMisses() {
+        return stationMisses.get();
+    }
+
+    public long getTrainLineHits() {
+        return trainLineHits.get();
+    }
+
+    public long getTrainLineMisses() {
+        return trainLineMisses.get();
+    }
+
+    public void setStationDao(StationDao stationDao) {
+        this.stationDao = stationDao;
+    }
+
+    public void setTrainLineDao(TrainLineDao trainLineDao) {
+        this.trainLineDao = trainLineDao;
+    }
+}
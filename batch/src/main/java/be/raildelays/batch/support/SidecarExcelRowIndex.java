@@ -0,0 +1,415 @@
+package be.raildelays.batch.support;
+
+import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.batch.bean.ExcelRowComparator;
+import be.raildelays.domain.Language;
+import be.raildelays.domain.entities.Station;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.ExcelSheetItemWriter;
+import org.springframework.batch.item.resource.IndexedResourceAwareItemStreamReader;
+import org.springframework.batch.item.resource.ResourceItemSearch;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link ExcelRowIndex} stored as a sidecar file next to the Excel files of one directory.
+ * <p>
+ * For each file we keep its date of last modification, its size, the index of its first empty row and, for every
+ * row before it, the index, the date, the stations and the delay. The index is stored next to the Excel files
+ * (see {@link #setIndexFileName(String)}) and a file is only read again when its date of last modification or its
+ * size differ from the ones recorded. Files are ordered by name.
+ * </p>
+ * <p>
+ * As an {@link ItemStream} registered within a step, the index is refreshed and saved on {@link #update(ExecutionContext)}
+ * which is called before each chunk commit: what has been written by the chunk is part of the index once committed.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class SidecarExcelRowIndex implements ExcelRowIndex, ItemStream, InitializingBean {
+
+    public static final String DEFAULT_INDEX_FILE_NAME = ".excel-rows.idx";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SidecarExcelRowIndex.class);
+    private static final String HEADER = "#excel-rows 1";
+    private static final String SEPARATOR = "\t";
+    private static final String FILE_RECORD = "F";
+    private static final String ROW_RECORD = "R";
+
+    private final ExcelRowComparator<BatchExcelRow> emptyComparator = new ExcelRowComparator<>();
+    private Resource directory;
+    private IndexedResourceAwareItemStreamReader<BatchExcelRow> reader;
+    private String language = Language.EN.name();
+    private String indexFileName = DEFAULT_INDEX_FILE_NAME;
+    private Map<String, FileEntry> entries;
+    private final List<Listener> listeners = new ArrayList<>();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(directory, "The property 'directory' is mandatory");
+        Assert.notNull(reader, "The property 'reader' is mandatory");
+        Assert.hasText(indexFileName, "The property 'indexFileName' is mandatory");
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        refresh();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        refresh();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        entries = null;
+        listeners.clear();
+    }
+
+    @Override
+    public List<BatchExcelRow> getRows() throws ItemStreamException {
+        List<BatchExcelRow> result = new ArrayList<>();
+        Language lang = Language.valueOf(language.toUpperCase(Locale.US));
+
+        for (FileEntry entry : getEntries().values()) {
+            for (RowEntry row : entry.rows) {
+                result.add(row.toBatchExcelRow(lang));
+            }
+
+            if (entry.firstEmptyIndex != ResourceItemSearch.EOF) {
+                result.add(BatchExcelRow.EMPTY);
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Slot findFirstEmptySlot() throws ItemStreamException {
+        Slot result = null;
+
+        try {
+            for (FileEntry entry : getEntries().values()) {
+                if (entry.firstEmptyIndex != ResourceItemSearch.EOF) {
+                    result = new Slot(getDirectoryPath().resolve(entry.name).toFile(), entry.firstEmptyIndex);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("The directory cannot be resolved", e);
+        }
+
+        return result;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Validate the index against the content of the directory, read again any new or modified Excel file and save
+     * the index if something changed.
+     *
+     * @throws ItemStreamException if we cannot read an Excel file or save the index
+     */
+    public void refresh() throws ItemStreamException {
+        try {
+            Path directoryPath = getDirectoryPath();
+            Map<String, FileEntry> result = new TreeMap<>();
+            List<FileEntry[]> changes = new ArrayList<>();
+
+            if (Files.isDirectory(directoryPath)) {
+                Path indexPath = directoryPath.resolve(indexFileName);
+                Map<String, FileEntry> previous = entries != null ? entries : load(indexPath);
+
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directoryPath, this::isExcelFile)) {
+                    for (Path path : stream) {
+                        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        String name = path.getFileName().toString();
+                        FileEntry entry = previous.get(name);
+
+                        if (entry == null || entry.lastModified != attributes.lastModifiedTime().toMillis() ||
+                                entry.length != attributes.size()) {
+                            FileEntry previousEntry = entry;
+
+                            entry = index(path, attributes);
+                            changes.add(new FileEntry[]{previousEntry, entry});
+                        }
+
+                        result.put(name, entry);
+                    }
+                }
+
+                previous.forEach((name, entry) -> {
+                    if (!result.containsKey(name)) {
+                        changes.add(new FileEntry[]{entry, null});
+                    }
+                });
+
+                if (!changes.isEmpty()) {
+                    save(indexPath, result);
+                }
+            }
+
+            entries = result;
+            notifyListeners(changes);
+        } catch (ItemStreamException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ItemStreamException("Cannot refresh the index of the Excel files", e);
+        }
+    }
+
+    private void notifyListeners(List<FileEntry[]> changes) {
+        Language lang = Language.valueOf(language.toUpperCase(Locale.US));
+
+        for (FileEntry[] change : changes) {
+            List<BatchExcelRow> previousRows = toBatchExcelRows(change[0], lang);
+            List<BatchExcelRow> rows = toBatchExcelRows(change[1], lang);
+
+            for (Listener listener : listeners) {
+                listener.onChange(previousRows, rows);
+            }
+        }
+    }
+
+    private static List<BatchExcelRow> toBatchExcelRows(FileEntry entry, Language language) {
+        List<BatchExcelRow> result = new ArrayList<>();
+
+        if (entry != null) {
+            for (RowEntry row : entry.rows) {
+                result.add(row.toBatchExcelRow(language));
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, FileEntry> getEntries() {
+        if (entries == null) {
+            refresh();
+        }
+
+        return entries;
+    }
+
+    private Path getDirectoryPath() throws IOException {
+        return directory.getFile().toPath();
+    }
+
+    private boolean isExcelFile(Path path) {
+        String name = path.getFileName().toString();
+
+        return Files.isRegularFile(path) &&
+                (name.endsWith(ExcelSheetItemWriter.Format.OLE2.getFileExtension()) ||
+                        name.endsWith(ExcelSheetItemWriter.Format.OOXML.getFileExtension()));
+    }
+
+    private FileEntry index(Path path, BasicFileAttributes attributes) throws Exception {
+        FileEntry result = new FileEntry(path.getFileName().toString(),
+                attributes.lastModifiedTime().toMillis(), attributes.size());
+        Language lang = Language.valueOf(language.toUpperCase(Locale.US));
+
+        LOGGER.debug("Indexing {}", path);
+
+        reader.setResource(new FileSystemResource(path.toFile()));
+        reader.open(new ExecutionContext());
+
+        try {
+            for (BatchExcelRow row = reader.read(); row != null; row = reader.read()) {
+                if (emptyComparator.compare(BatchExcelRow.EMPTY, row) == 0) {
+                    result.firstEmptyIndex = reader.getCurrentIndex();
+                    break;
+                }
+
+                result.rows.add(RowEntry.of(row, lang));
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
+    private static Map<String, FileEntry> load(Path indexPath) {
+        Map<String, FileEntry> result = new TreeMap<>();
+
+        try (BufferedReader in = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            FileEntry current = null;
+
+            if (!HEADER.equals(in.readLine())) {
+                LOGGER.warn("Unknown format for {}, we ignore it", indexPath);
+                return result;
+            }
+
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] fields = line.split(SEPARATOR, -1);
+
+                if (FILE_RECORD.equals(fields[0])) {
+                    current = new FileEntry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+                    current.firstEmptyIndex = Integer.parseInt(fields[4]);
+                    result.put(current.name, current);
+                } else if (ROW_RECORD.equals(fields[0]) && current != null) {
+                    current.rows.add(new RowEntry(toLong(fields[1]),
+                            fields[2].isEmpty() ? null : LocalDate.parse(fields[2]),
+                            toString(fields[3]), toString(fields[4]), toLong(fields[5])));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            LOGGER.debug("No index yet in {}", indexPath.getParent());
+        } catch (Exception e) {
+            /*
+             * A corrupted index is not an issue: we can always rebuild it from the Excel files.
+             */
+            LOGGER.warn("Cannot load " + indexPath + ", we rebuild it", e);
+            result.clear();
+        }
+
+        return result;
+    }
+
+    private static void save(Path indexPath, Map<String, FileEntry> entries) throws IOException {
+        Path temporary = Files.createTempFile(indexPath.getParent(), indexPath.getFileName().toString(), ".tmp");
+
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                out.write(HEADER);
+                out.newLine();
+
+                for (FileEntry entry : entries.values()) {
+                    out.write(String.join(SEPARATOR, FILE_RECORD, entry.name, String.valueOf(entry.lastModified),
+                            String.valueOf(entry.length), String.valueOf(entry.firstEmptyIndex)));
+                    out.newLine();
+
+                    for (RowEntry row : entry.rows) {
+                        out.write(String.join(SEPARATOR, ROW_RECORD, toField(row.index), toField(row.date),
+                                toField(row.departure), toField(row.arrival), toField(row.delay)));
+                        out.newLine();
+                    }
+                }
+            }
+
+            try {
+                Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String toField(Object value) {
+        return value != null ? value.toString().replaceAll("[\\t\\r\\n]", " ") : "";
+    }
+
+    private static String toString(String field) {
+        return field.isEmpty() ? null : field;
+    }
+
+    private static Long toLong(String field) {
+        return field.isEmpty() ? null : Long.valueOf(field);
+    }
+
+    public void setDirectory(Resource directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param reader used to read an Excel file which is not yet indexed or which has been modified
+     */
+    public void setReader(IndexedResourceAwareItemStreamReader<BatchExcelRow> reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param language of the station names (by default {@code EN})
+     */
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /**
+     * @param indexFileName name of the index file within the directory (by default {@value #DEFAULT_INDEX_FILE_NAME})
+     */
+    public void setIndexFileName(String indexFileName) {
+        this.indexFileName = indexFileName;
+    }
+
+    private static final class FileEntry {
+
+        private final String name;
+        private final long lastModified;
+        private final long length;
+        private final List<RowEntry> rows = new ArrayList<>();
+        private int firstEmptyIndex = ResourceItemSearch.EOF;
+
+        FileEntry(String name, long lastModified, long length) {
+            this.name = name;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+
+    private static final class RowEntry {
+
+        private final Long index;
+        private final LocalDate date;
+        private final String departure;
+        private final String arrival;
+        private final Long delay;
+
+        RowEntry(Long index, LocalDate date, String departure, String arrival, Long delay) {
+            this.index = index;
+            this.date = date;
+            this.departure = departure;
+            this.arrival = arrival;
+            this.delay = delay;
+        }
+
+        static RowEntry of(BatchExcelRow row, Language language) {
+            return new RowEntry(row.getIndex(), row.getDate(),
+                    row.getDepartureStation() != null ? row.getDepartureStation().getName(language) : null,
+                    row.getArrivalStation() != null ? row.getArrivalStation().getName(language) : null,
+                    row.getDelay());
+        }
+
+        BatchExcelRow toBatchExcelRow(Language language) {
+            return new BatchExcelRow.Builder(date, null)
+                    .departureStation(departure != null ? new Station(departure, language) : null)
+                    .arrivalStation(arrival != null ? new Station(arrival, language) : null)
+                    .delay(delay)
+                    .index(index)
+                    .build(false);
+        }
+    }
+}
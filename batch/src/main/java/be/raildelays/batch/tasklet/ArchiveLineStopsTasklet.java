@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package be.raildelays.batch.tasklet;
+
+import be.raildelays.repository.LineStopDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Move the line stops older than a number of months into the archive, one day per execution. Each day is then
+ * archived within its own transaction and a failure only restarts from the first day not archived yet.
+ *
+ * @author Almex
+ * @see LineStopDao#archive(LocalDate)
+ * @since 2.0
+ */
+public class ArchiveLineStopsTasklet implements Tasklet, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveLineStopsTasklet.class);
+
+    private LineStopDao lineStopDao;
+    private LocalDate date;
+    private int maxNumberOfMonth;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(lineStopDao, "The 'lineStopDao' property must be provided");
+        Assert.notNull(date, "The 'date' property must be provided");
+        Assert.isTrue(maxNumberOfMonth > 0, "The 'maxNumberOfMonth' property must be greater than zero");
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        LocalDate horizon = date.minusMonths(maxNumberOfMonth);
+        List<LocalDate> dates = lineStopDao.findNotArchivedDates(horizon);
+        RepeatStatus result = RepeatStatus.FINISHED;
+
+        if (!dates.isEmpty()) {
+            int count = lineStopDao.archive(dates.get(0));
+
+            contribution.incrementWriteCount(count);
+            result = RepeatStatus.continueIf(dates.size() > 1);
+        } else {
+            LOGGER.info("No line stop to archive before {}", horizon);
+        }
+
+        return result;
+    }
+
+    public void setLineStopDao(LineStopDao lineStopDao) {
+        this.lineStopDao = lineStopDao;
+    }
+
+    /**
+     * @param date from which we count the number of months to keep
+     */
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * @param maxNumberOfMonth number of months of line stops kept out of the archive
+     */
+    public void setMaxNumberOfMonth(int maxNumberOfMonth) {
+        this.maxNumberOfMonth = maxNumberOfMonth;
+    }
+}
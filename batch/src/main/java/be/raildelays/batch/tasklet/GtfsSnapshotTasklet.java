@@ -0,0 +1,208 @@
+package be.raildelays.batch.tasklet;
+
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedSnapshot;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.Trip;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.HttpDownloadFileTasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Make sure that a {@link GtfsFeedSnapshot} of the GTFS feed exists next to it and store its URI into the
+ * {@link ExecutionContext} of the job under the key {@link #SNAPSHOT_KEY}.
+ * <p>
+ * The snapshot is keyed by the SHA-256 of the feed ({@code <feed>.<hash>.snapshot}): if it already exists, we
+ * simply reuse it. Otherwise, the feed is parsed once via the given readers and the snapshot is written into a
+ * temporary file which is then atomically moved. Snapshots of previous feeds are deleted.
+ * </p>
+ * <p>
+ * The SHA-256 of the feed is taken from the {@link ExecutionContext} of the job under the key {@code hashKey}, as
+ * computed by the {@link org.springframework.batch.item.file.HttpDownloadFileTasklet} while downloading it. Only
+ * if it is missing, the feed is hashed once more.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class GtfsSnapshotTasklet implements Tasklet, InitializingBean {
+
+    public static final String SNAPSHOT_KEY = "gtfs.snapshot.uri";
+
+    private static final String SUFFIX = ".snapshot";
+    private static final Logger LOGGER = LoggerFactory.getLogger(GtfsSnapshotTasklet.class);
+
+    private Resource feed;
+    private String hashKey = HttpDownloadFileTasklet.SHA256_KEY;
+    private ItemStreamReader<Trip> tripsReader;
+    private ItemStreamReader<Stop> stopsReader;
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(feed, "The 'feed' property must be provided");
+        Assert.notNull(tripsReader, "The 'tripsReader' property must be provided");
+        Assert.notNull(stopsReader, "The 'stopsReader' property must be provided");
+        Assert.notNull(calendarDatesReader, "The 'calendarDatesReader' property must be provided");
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Path feedPath = feed.getFile().toPath();
+        ExecutionContext jobExecutionContext = chunkContext.getStepContext().getStepExecution().getJobExecution()
+                .getExecutionContext();
+        String hash = jobExecutionContext.getString(hashKey, null);
+
+        if (hash == null) {
+            LOGGER.info("No SHA-256 of {} found in the job context, computing it", feedPath);
+            hash = hash(feedPath);
+        }
+
+        Path snapshotPath = feedPath.resolveSibling(feedPath.getFileName() + "." + hash.substring(0, 16) + SUFFIX);
+
+        if (isValid(snapshotPath, hash)) {
+            LOGGER.info("Reusing GTFS snapshot {}", snapshotPath);
+        } else {
+            long start = System.currentTimeMillis();
+            Path temporaryFile = Files.createTempFile(snapshotPath.getParent(), feedPath.getFileName().toString(),
+                    ".tmp");
+
+            try {
+                try (GtfsFeedSnapshot.Writer writer = new GtfsFeedSnapshot.Writer(temporaryFile, hash)) {
+                    writer.writeStops(readAll(stopsReader));
+                    writer.writeCalendarDates(readAll(calendarDatesReader));
+
+                    tripsReader.open(new ExecutionContext());
+
+                    try {
+                        for (Trip trip = tripsReader.read(); trip != null; trip = tripsReader.read()) {
+                            writer.writeTrip(trip);
+                        }
+                    } finally {
+                        tripsReader.close();
+                    }
+                }
+
+                Files.move(temporaryFile, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                contribution.incrementWriteCount(1);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+
+            LOGGER.info("GTFS snapshot {} written in {} ms", snapshotPath, System.currentTimeMillis() - start);
+
+            deleteOtherSnapshots(feedPath, snapshotPath);
+        }
+
+        jobExecutionContext.putString(SNAPSHOT_KEY, snapshotPath.toUri().toString());
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private static boolean isValid(Path snapshotPath, String hash) {
+        boolean result = false;
+
+        if (Files.exists(snapshotPath)) {
+            try {
+                result = hash.equals(GtfsFeedSnapshot.open(snapshotPath).getFeedHash());
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring GTFS snapshot {}: {}", snapshotPath, e.getMessage());
+            }
+        }
+
+        return result;
+    }
+
+    private static void deleteOtherSnapshots(Path feedPath, Path snapshotPath) throws IOException {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(feedPath.getParent(),
+                feedPath.getFileName() + ".*" + SUFFIX)) {
+            for (Path path : paths) {
+                if (!path.equals(snapshotPath)) {
+                    LOGGER.debug("Deleting previous GTFS snapshot {}", path);
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static String hash(Path path) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+            while (inputStream.read(buffer) != -1) {
+                // Only computing the digest
+            }
+        }
+
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private static <T> List<T> readAll(ItemStreamReader<T> reader) throws Exception {
+        List<T> result = new ArrayList<>();
+
+        reader.open(new ExecutionContext());
+
+        try {
+            for (T item = reader.read(); item != null; item = reader.read()) {
+                result.add(item);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * @param feed the GTFS zip archive
+     */
+    public void setFeed(Resource feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * @param hashKey key of the SHA-256 of the {@code feed} within the {@link ExecutionContext} of the job.
+     *                By default, the one of the {@link HttpDownloadFileTasklet}.
+     */
+    public void setHashKey(String hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * @param tripsReader reader returning each {@link Trip} with its {@link be.raildelays.batch.gtfs.StopTime}s
+     */
+    public void setTripsReader(ItemStreamReader<Trip> tripsReader) {
+        this.tripsReader = tripsReader;
+    }
+
+    public void setStopsReader(ItemStreamReader<Stop> stopsReader) {
+        this.stopsReader = stopsReader;
+    }
+
+    public void setCalendarDatesReader(ItemStreamReader<CalendarDate> calendarDatesReader) {
+        this.calendarDatesReader = calendarDatesReader;
+    }
+}
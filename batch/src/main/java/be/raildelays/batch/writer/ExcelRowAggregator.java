@@ -38,6 +38,8 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFFormulaEvaluator;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
@@ -171,6 +173,11 @@ public class ExcelRowAggregator implements RowAggregator<ExcelRow> {
                 protected FormulaEvaluator doWithXSSFWorkbook(XSSFWorkbook workbook) {
                     return new XSSFFormulaEvaluator(workbook);
                 }
+
+                @Override
+                protected FormulaEvaluator doWithSXSSFWorkbook(SXSSFWorkbook workbook) {
+                    return new SXSSFFormulaEvaluator(workbook);
+                }
             }.execute();
 
             if (cell != null) {
@@ -290,11 +297,20 @@ public class ExcelRowAggregator implements RowAggregator<ExcelRow> {
 
         protected abstract T doWithXSSFWorkbook(XSSFWorkbook workbook);
 
+        /**
+         * By default a streamed workbook is not supported.
+         */
+        protected T doWithSXSSFWorkbook(SXSSFWorkbook workbook) throws InvalidFormatException {
+            throw new InvalidFormatException("Format not supported!");
+        }
+
         public T execute() throws InvalidFormatException {
             if (internalWorkbook instanceof HSSFWorkbook) {
                 return doWithHSSFWorkbook((HSSFWorkbook) internalWorkbook);
             } else if (internalWorkbook instanceof XSSFWorkbook) {
                 return doWithXSSFWorkbook((XSSFWorkbook) internalWorkbook);
+            } else if (internalWorkbook instanceof SXSSFWorkbook) {
+                return doWithSXSSFWorkbook((SXSSFWorkbook) internalWorkbook);
             } else {
                 throw new InvalidFormatException("Format not supported!");
             }
@@ -0,0 +1,347 @@
+package be.raildelays.batch.writer;
+
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.LineStop;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Savepoint;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persist whole chunks of {@link LineStop} chains with JDBC batches instead of one {@code saveAndFlush()} per item.
+ * <p>
+ * Each item is a chain of {@link LineStop}s linked by their {@code previous}/{@code next} references. All nodes of
+ * all chains of a chunk are written with three batches: one to insert new rows, one to update existing rows and a
+ * last one to link them together. Identifiers of new rows come from the same generator than JPA (i.e.: the pooled
+ * optimizer of the entity sequence), then one database round-trip is done every
+ * {@link be.raildelays.domain.entities.AbstractEntity#ALLOCATION_SIZE} rows.
+ * </p>
+ * <p>
+ * The {@link be.raildelays.domain.entities.Station} and the {@link be.raildelays.domain.entities.TrainLine} of each
+ * node must already be persisted (see {@link be.raildelays.batch.processor.AggregateLineStopProcessor}).
+ * </p>
+ * <p>
+ * Before writing, the business keys (train, date and station) of all nodes of the chunk are resolved with one query:
+ * a node matching an existing row, or a node written earlier within the same chunk, is updated instead of inserted.
+ * A chain visiting twice the same station on the same day (e.g.: a loop line) keeps its first visit only: the later
+ * one is skipped and its neighbours are linked together.
+ * Only a row inserted by another transaction in the meantime can still hit a unique key violation. The chunk is then
+ * rolled back to a savepoint and we fall back to one item at a time. Such rollbacks are counted and stored, at the end
+ * of the step, into its {@link org.springframework.batch.item.ExecutionContext} under the key
+ * {@link #ROLLBACK_COUNT_KEY}.
+ * </p>
+ * <p>
+ * This writer must be called within a transaction managed by a
+ * {@link org.springframework.orm.jpa.JpaTransactionManager} sharing its connection with the {@code dataSource}.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class LineStopJdbcBatchItemWriter implements ItemWriter<LineStop>, StepExecutionListener, InitializingBean {
+
+    public static final String ROLLBACK_COUNT_KEY = "line.stop.writer.rollback.count";
+
+    private static final String INSERT_SQL = "INSERT INTO LINE_STOP (TRAIN_ID, STATION_ID, DATE, " +
+            "CANCELED_ARRIVAL, CANCELED_DEPARTURE, ARRIVAL_TIME_EXPECTED, ARRIVAL_TIME_DELAY, " +
+            "DEPARTURE_TIME_EXPECTED, DEPARTURE_TIME_DELAY, ID) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "UPDATE LINE_STOP SET TRAIN_ID = ?, STATION_ID = ?, DATE = ?, " +
+            "CANCELED_ARRIVAL = ?, CANCELED_DEPARTURE = ?, ARRIVAL_TIME_EXPECTED = ?, ARRIVAL_TIME_DELAY = ?, " +
+            "DEPARTURE_TIME_EXPECTED = ?, DEPARTURE_TIME_DELAY = ? WHERE ID = ?";
+
+    private static final String LINK_SQL = "UPDATE LINE_STOP SET PREVIOUS_ID = ?, NEXT_ID = ? WHERE ID = ?";
+
+    /**
+     * Superset of the keys we look for: the rows not matching any node are ignored.
+     */
+    private static final String FIND_IDS_SQL = "SELECT L.ID, L.TRAIN_ID, L.DATE, L.STATION_ID FROM LINE_STOP L " +
+            "WHERE L.TRAIN_ID IN (:trainIds) AND L.DATE IN (:dates) AND L.STATION_ID IN (:stationIds)";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LineStopJdbcBatchItemWriter.class);
+
+    private DataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AtomicInteger rollbackCount = new AtomicInteger();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(dataSource, "The property 'dataSource' is mandatory");
+        Assert.notNull(entityManagerFactory, "The property 'entityManagerFactory' is mandatory");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        rollbackCount.set(0);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().putInt(ROLLBACK_COUNT_KEY, rollbackCount.get());
+
+        LOGGER.info("{} chunks rolled back to a savepoint by the writer and {} rollbacks of the step {}",
+                rollbackCount.get(), stepExecution.getRollbackCount(), stepExecution.getStepName());
+
+        return null;
+    }
+
+    @Override
+    public void write(List<? extends LineStop> items) throws Exception {
+        EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+
+        Assert.state(entityManager != null, "This writer must be called within a transaction");
+
+        // Anything pending within the persistence context must be visible from JDBC
+        entityManager.flush();
+
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        IdentifierGenerator generator = session.getFactory().getIdentifierGenerator(LineStop.class.getName());
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            Savepoint savepoint = connection.setSavepoint();
+
+            try {
+                write(items, session, generator);
+                connection.releaseSavepoint(savepoint);
+            } catch (DuplicateKeyException e) {
+                connection.rollback(savepoint);
+                rollbackCount.incrementAndGet();
+
+                LOGGER.info("Unique key violation within a chunk of {} items, writing one item at a time: {}",
+                        items.size(), e.getMessage());
+
+                for (LineStop item : items) {
+                    write(Collections.singletonList(item), session, generator);
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void write(List<? extends LineStop> items, SessionImplementor session, IdentifierGenerator generator) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> links = new ArrayList<>();
+        Map<Key, Long> existingIds = findIds(items);
+
+        for (LineStop item : items) {
+            List<Long> ids = new ArrayList<>();
+            Set<Key> keys = new HashSet<>();
+
+            for (LineStop node = getHead(item); node != null; node = node.getNext()) {
+                Long id = node.getId();
+                Key key = new Key(node);
+
+                if (!keys.add(key)) {
+                    // Same row than a former node of this chain: linking it would loop on itself
+                    LOGGER.warn("Skipping the line stop {} already visited by its chain", node);
+                    continue;
+                }
+
+                if (id == null) {
+                    id = existingIds.get(key);
+                }
+
+                if (id == null) {
+                    id = (Long) generator.generate(session, node);
+                    inserts.add(toParameters(node, id));
+                    // A later node of this chunk having the same key must update this row
+                    existingIds.put(key, id);
+                } else {
+                    updates.add(toParameters(node, id));
+                }
+
+                ids.add(id);
+            }
+
+            for (int i = 0; i < ids.size(); i++) {
+                links.add(new Object[]{
+                        i > 0 ? ids.get(i - 1) : null,
+                        i < ids.size() - 1 ? ids.get(i + 1) : null,
+                        ids.get(i)
+                });
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+        }
+
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(LINK_SQL, links);
+        }
+
+        LOGGER.debug("{} line stops inserted and {} updated", inserts.size(), updates.size());
+    }
+
+    /**
+     * @return identifiers of the rows matching a node of those items, by business key
+     */
+    private Map<Key, Long> findIds(List<? extends LineStop> items) {
+        Set<Long> trainIds = new HashSet<>();
+        Set<Date> dates = new HashSet<>();
+        Set<Long> stationIds = new HashSet<>();
+        Map<Key, Long> result = new HashMap<>();
+
+        for (LineStop item : items) {
+            for (LineStop node = getHead(item); node != null; node = node.getNext()) {
+                trainIds.add(node.getTrainLine().getId());
+                dates.add(Date.valueOf(node.getDate()));
+                stationIds.add(node.getStation().getId());
+            }
+        }
+
+        if (!trainIds.isEmpty()) {
+            namedParameterJdbcTemplate.query(FIND_IDS_SQL, new MapSqlParameterSource()
+                    .addValue("trainIds", trainIds)
+                    .addValue("dates", dates)
+                    .addValue("stationIds", stationIds), resultSet -> {
+                result.put(new Key(resultSet.getLong(2), resultSet.getDate(3).toLocalDate(), resultSet.getLong(4)),
+                        resultSet.getLong(1));
+            });
+        }
+
+        return result;
+    }
+
+    private static LineStop getHead(LineStop lineStop) {
+        LineStop result = lineStop;
+
+        while (result.getPrevious() != null) {
+            result = result.getPrevious();
+        }
+
+        return result;
+    }
+
+    private static Object[] toParameters(LineStop lineStop, Long id) {
+        Assert.notNull(lineStop.getTrainLine().getId(), "The train line of a line stop must be persisted first");
+        Assert.notNull(lineStop.getStation().getId(), "The station of a line stop must be persisted first");
+
+        return new Object[]{
+                lineStop.getTrainLine().getId(),
+                lineStop.getStation().getId(),
+                Date.valueOf(lineStop.getDate()),
+                lineStop.isCanceledArrival(),
+                lineStop.isCanceledDeparture(),
+                toTime(lineStop.getArrivalTime()),
+                toDelay(lineStop.getArrivalTime()),
+                toTime(lineStop.getDepartureTime()),
+                toDelay(lineStop.getDepartureTime()),
+                id
+        };
+    }
+
+    private static Time toTime(TimeDelay timeDelay) {
+        return timeDelay != null && timeDelay.getExpectedTime() != null ?
+                Time.valueOf(timeDelay.getExpectedTime()) : null;
+    }
+
+    private static Long toDelay(TimeDelay timeDelay) {
+        return timeDelay != null ? timeDelay.getDelay() : null;
+    }
+
+    /**
+     * @return number of chunks rolled back to a savepoint, since the beginning of the step, because of a row inserted
+     * concurrently
+     */
+    public int getRollbackCount() {
+        return rollbackCount.get();
+    }
+
+    /**
+     * @param dataSource of the {@code LINE_STOP} table, the same one than the {@code entityManagerFactory}
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param entityManagerFactory used to flush the persistence context and to generate identifiers
+     */
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Business key of a line stop: the one of its unique constraint.
+     */
+    private static final class Key {
+
+        private final Long trainId;
+        private final LocalDate date;
+        private final Long stationId;
+
+        private Key(LineStop lineStop) {
+            this(lineStop.getTrainLine().getId(), lineStop.getDate(), lineStop.getStation().getId());
+        }
+
+        private Key(Long trainId, LocalDate date, Long stationId) {
+            this.trainId = trainId;
+            this.date = date;
+            this.stationId = stationId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            boolean result = false;
+
+            if (this == o) {
+                result = true;
+            } else if (o instanceof Key) {
+                Key key = (Key) o;
+
+                result = Objects.equals(trainId, key.trainId) && Objects.equals(date, key.date) &&
+                        Objects.equals(stationId, key.stationId);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(trainId, date, stationId);
+        }
+    }
+}
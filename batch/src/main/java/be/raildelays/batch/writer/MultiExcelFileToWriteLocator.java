@@ -26,6 +26,7 @@ package be.raildelays.batch.writer;
 
 import be.raildelays.batch.ExcelFileUtils;
 import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.batch.support.ExcelRowIndex;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.file.ExcelSheetItemWriter;
 import org.springframework.batch.item.resource.CountingItemResourceLocator;
@@ -41,6 +42,10 @@ import java.time.format.DateTimeFormatter;
 /**
  * We search into an Excel file the first empty row. If the index of the first empty row is greater than
  * {@code rowsToSkip} + {@code maxItemCount} then we create a new file based on the current item date.
+ * <p>
+ * If an {@link ExcelRowIndex} is set, the first empty row is looked up within it instead of searching every Excel
+ * file with the {@code resourceItemSearch}.
+ * </p>
  *
  * @author Almex
  */
@@ -50,6 +55,7 @@ public class MultiExcelFileToWriteLocator extends CountingItemResourceLocator<Ba
     protected String filePrefix;
     protected String fileExtension;
     protected ResourceItemSearch<BatchExcelRow> resourceItemSearch;
+    protected ExcelRowIndex rowIndex;
     protected boolean forceNewFile = false;
     protected boolean useItemIndex = true;
 
@@ -86,18 +92,27 @@ public class MultiExcelFileToWriteLocator extends CountingItemResourceLocator<Ba
     }
 
     private void findFirstEmptyRow(ResourceContext context) throws ItemStreamException {
-        try {
-            File[] files = directory.getFile().listFiles(pathname ->
-                    pathname.getName().endsWith(ExcelSheetItemWriter.Format.OLE2.getFileExtension()) ||
-                            pathname.getName().endsWith(ExcelSheetItemWriter.Format.OOXML.getFileExtension()));
+        if (rowIndex != null) {
+            ExcelRowIndex.Slot slot = rowIndex.findFirstEmptySlot();
 
-            if (files != null) {
-                findIndexOfFirstEmptyRow(context, files);
+            if (slot != null) {
+                context.changeResource(new FileSystemResource(slot.getFile()));
+                context.setCurrentIndex(slot.getIndex());
+            }
+        } else {
+            try {
+                File[] files = directory.getFile().listFiles(pathname ->
+                        pathname.getName().endsWith(ExcelSheetItemWriter.Format.OLE2.getFileExtension()) ||
+                                pathname.getName().endsWith(ExcelSheetItemWriter.Format.OOXML.getFileExtension()));
+
+                if (files != null) {
+                    findIndexOfFirstEmptyRow(context, files);
+                }
+            } catch (IOException e) {
+                throw new ItemStreamException("The directory cannot be resolved", e);
+            } catch (Exception e) {
+                throw new ItemStreamException("Cannot find content in your Excel file", e);
             }
-        } catch (IOException e) {
-            throw new ItemStreamException("The directory cannot be resolved", e);
-        } catch (Exception e) {
-            throw new ItemStreamException("Cannot find content in your Excel file", e);
         }
     }
 
@@ -130,6 +145,14 @@ public class MultiExcelFileToWriteLocator extends CountingItemResourceLocator<Ba
         this.resourceItemSearch = resourceItemSearch;
     }
 
+    /**
+     * @param rowIndex if set, we search the first empty row within this index instead of using the
+     *                 {@code resourceItemSearch}
+     */
+    public void setRowIndex(ExcelRowIndex rowIndex) {
+        this.rowIndex = rowIndex;
+    }
+
     /**
      * @param forceNewFile {@code true} if you want to force creation of a new file, {@code false} otherwise (by default
      *                     it's set to {@code false}).
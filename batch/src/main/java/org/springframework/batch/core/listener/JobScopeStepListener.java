@@ -0,0 +1,30 @@
+package org.springframework.batch.core.listener;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.JobSynchronizationManager;
+
+/**
+ * Make the job scope available to a step running within another thread than the job (e.g.: a partition of a
+ * partitioned step): the {@link org.springframework.batch.core.JobExecution} of the step is registered for the
+ * current thread before the step and released after. Beans of the job scope are then shared between the job and
+ * all its concurrent steps.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class JobScopeStepListener implements StepExecutionListener {
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        JobSynchronizationManager.register(stepExecution.getJobExecution());
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        JobSynchronizationManager.release();
+
+        return null;
+    }
+}
@@ -33,11 +33,18 @@ import java.io.*;
  * Note that the restartability of this reader is only based on
  * {@link AbstractItemCountingItemStreamItemReader}.
  * </p>
+ * <p>
+ * In {@link #setStreaming(boolean) streaming} mode, the workbook is not loaded in memory: the rows of the sheet are
+ * parsed one at a time on each {@link #read()} through the event API of Apache POI (see {@link StreamingRowReader}).
+ * The {@link Row} given to the {@link RowMapper} is then only valid during the call and its formula cells are
+ * replaced by their cached result.
+ * </p>
  *
  * @param <T> return type of a {@link #read()}
  * @author Almex
  * @see #setRowsToSkip(int)
  * @see #setSheetIndex(int)
+ * @see #setStreaming(boolean)
  * @implSpec This implementation is not thread-safe
  * @since 1.1
  */
@@ -54,6 +61,9 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
     private boolean noInput = false;
     private int rowsToSkip = 0;
     private int sheetIndex = 0;
+    private boolean streaming = false;
+    private StreamingRowReader rowReader;
+    private Row nextRow;
 
     /**
      * Validate if the {@link java.io.File} is of a supported format (i.e.: OLE2 or OOXML).
@@ -108,15 +118,17 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
     /**
      * @return next line (skipping the number of row specified by {@link #setRowsToSkip(int)}.
      */
-    private Row readRow() {
+    private Row readRow() throws IOException {
         Row result;
 
-        if (workbook == null) {
+        if (streaming) {
+            result = streamRow();
+        } else if (workbook == null) {
             throw new ReaderNotOpenException("Reader must be open before it can be read.");
+        } else {
+            result = workbook.getSheetAt(sheetIndex).getRow(getCurrentIndex());
         }
 
-        result = workbook.getSheetAt(sheetIndex).getRow(getCurrentIndex());
-
         if (result == null) {
             noInput = true;
         }
@@ -124,6 +136,33 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
         return result;
     }
 
+    /**
+     * We parse rows up to the current index. As without streaming, a missing row means that we have reached the end
+     * of the sheet.
+     */
+    private Row streamRow() throws IOException {
+        Row result = null;
+
+        if (rowReader == null) {
+            throw new ReaderNotOpenException("Reader must be open before it can be read.");
+        }
+
+        if (nextRow == null) {
+            nextRow = rowReader.next();
+        }
+
+        while (nextRow != null && nextRow.getRowNum() < getCurrentIndex()) {
+            nextRow = rowReader.next();
+        }
+
+        if (nextRow != null && nextRow.getRowNum() == getCurrentIndex()) {
+            result = nextRow;
+            nextRow = null;
+        }
+
+        return result;
+    }
+
     @Override
     protected void doOpen() throws Exception {
         Assert.notNull(resource, "Input resource must be set");
@@ -139,6 +178,14 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
             return;
         }
 
+        if (streaming) {
+            rowReader = StreamingRowReader.open(resource.getFile(), sheetIndex);
+            nextRow = null;
+            noInput = false;
+
+            return;
+        }
+
         /**
          * ATTENTION: if we use the resource.getFileInputStream() the stream is never released!
          * So, we create our own FileInputStream instead. Don't know why. Seems like a bug in Apache POI
@@ -158,6 +205,15 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
     @Override
     protected void doClose() throws Exception {
         this.noInput = true;
+
+        if (rowReader != null) {
+            try {
+                rowReader.close();
+            } finally {
+                rowReader = null;
+                nextRow = null;
+            }
+        }
     }
 
     @Override
@@ -219,6 +275,15 @@ public class ExcelSheetItemReader<T> extends AbstractItemCountingItemStreamItemR
         this.rowsToSkip = rowsToSkip;
     }
 
+    /**
+     * By default this value is initialized to {@code false}.
+     *
+     * @param streaming {@code true} to parse rows one at a time instead of loading the whole workbook in memory.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * By default this value is initialized to 0.
      *
@@ -5,9 +5,17 @@ import org.apache.poi.POIXMLDocument;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaShifter;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,11 +26,13 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.io.Resource;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.LinkOption;
-import java.nio.file.Path;
+import java.nio.file.*;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * <p>
@@ -38,11 +48,32 @@ import java.time.Instant;
  * Note that the restartability of this writer is only based on
  * {@link AbstractItemCountingItemStreamItemWriter}.
  * </p>
+ * <p>
+ * By default rows are only applied to the in-memory {@link Workbook} and the file is written once at the end of each
+ * {@link #write(List)} (i.e. once per chunk) and on {@link #close()}. The workbook is first written into a temporary
+ * file of the same directory which is then moved over the output file: a crash in the middle of a write never leaves
+ * a truncated Excel file behind.
+ * </p>
+ * <p>
+ * When creating a new OOXML file, you can choose to stream rows through a {@link SXSSFWorkbook} by setting a
+ * {@link #setRowAccessWindowSize(int) row access window size}: only the last rows are kept in memory whatever the
+ * number of rows written. The rows of the template coming after the rows to skip are held apart and written back at
+ * their place, so the file has the same layout as without streaming, merged regions included. Rows coming after the
+ * template are copies of its first row after the rows to skip: its cell styles and its formulas (shifted to the new
+ * row), but neither its values nor its merged regions.
+ * </p>
+ * <p>
+ * As rows flushed out of the window are no longer accessible, each item must be written after the previous one and
+ * the file is only written on {@link #close()}. A failure before that loses the rows of the previous chunks: such a
+ * step cannot be restarted, the writer then fails on {@link #open(ExecutionContext)}.
+ * </p>
  *
  * @param <T> parameter type of the method {@link #write(java.util.List)}
  * @author Almex
  * @see #setRowsToSkip(int)
  * @see #setSheetIndex(int)
+ * @see #setWriteBehind(boolean)
+ * @see #setRowAccessWindowSize(int)
  * @implSpec This implementation is not thread-safe
  * @since 1.1
  */
@@ -54,6 +85,7 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
     private static final Logger LOGGER = LoggerFactory.getLogger(ExcelSheetItemWriter.class);
     private static final String ROW_TO_SKIP_KEY = "row.to.skip.key";
     private static final String SHEET_INDEX_KEY = "sheet.index.key";
+    private static final String STREAMED_ROW_INDEX_KEY = "streamed.row.index.key";
     protected RowAggregator<T> rowAggregator;
     protected Resource resource;
     protected Resource template;
@@ -61,6 +93,12 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
     protected int rowsToSkip = 0;
     protected int sheetIndex = 0;
     private boolean shouldDeleteIfExists = false;
+    private boolean writeBehind = true;
+    private int rowAccessWindowSize = 0;
+    private boolean dirty = false;
+    private PrototypeRow prototype;
+    private SortedMap<Integer, PrototypeRow> templateRows;
+    private XSSFEvaluationWorkbook evaluationWorkbook;
 
     private static boolean isValidExcelFile(File file) throws IOException {
         try (InputStream inputStream = new PushbackInputStream(new FileInputStream(file), 8)) {
@@ -81,6 +119,12 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
 
     @Override
     public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (executionContext.containsKey(getExecutionContextKey(STREAMED_ROW_INDEX_KEY))) {
+            throw new ItemStreamException(String.format("Cannot restart writing '%s': the rows streamed until the " +
+                            "row %d were lost as a streamed file is only written on close()", resource,
+                    executionContext.getInt(getExecutionContextKey(STREAMED_ROW_INDEX_KEY))));
+        }
+
         super.open(executionContext);
 
         if (executionContext.containsKey(getExecutionContextKey(ROW_TO_SKIP_KEY))) {
@@ -126,7 +170,19 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
             /**
              * We write our first bytes after read the template or created the new Workbook.
              */
-            flush();
+            if (created) {
+                flush();
+            }
+
+            /**
+             * A streamed workbook can only be written once, i.e. on close().
+             */
+            if (created && rowAccessWindowSize > 0 && workbook instanceof XSSFWorkbook) {
+                workbook = stream((XSSFWorkbook) workbook);
+
+                LOGGER.debug("Streaming rows of '{}' with a window of {} rows", outputPath.toAbsolutePath(),
+                        rowAccessWindowSize);
+            }
         } catch (IOException e) {
             throw new ItemStreamException("I/O exception when opening the Excel file", e);
         } catch (InvalidFormatException e) {
@@ -139,9 +195,16 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
         T previousRow = null;
 
         if (item != null) {
+            if (templateRows != null) {
+                prepareRow(getCurrentItemIndex());
+            }
+
             previousRow = rowAggregator.aggregate(item, workbook, sheetIndex, getCurrentItemIndex());
+            dirty = true;
 
-            flush();
+            if (!writeBehind && templateRows == null) {
+                flush();
+            }
 
             LOGGER.trace("Previous row={}", previousRow);
         }
@@ -149,20 +212,138 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
         return previousRow == null;
     }
 
+    @Override
+    public void write(List<? extends T> items) throws Exception {
+        super.write(items);
+
+        if (dirty && templateRows == null) {
+            flush();
+        }
+    }
+
     @Override
     public void doClose() throws ItemStreamException {
         try {
-            if (workbook != null) {
+            if (workbook != null && dirty) {
+                if (templateRows != null) {
+                    writeTemplateRows(Integer.MAX_VALUE);
+                }
+
                 flush();
             }
         } catch (IOException e) {
             throw new ItemStreamException("I/O error when writing Excel outputDirectory file", e);
         } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+
             IOUtils.closeQuietly(workbook);
             workbook = null;
+            dirty = false;
+            prototype = null;
+            templateRows = null;
+            evaluationWorkbook = null;
+        }
+    }
+
+    /**
+     * Move the rows of the template coming after the rows to skip into memory, as a {@link SXSSFWorkbook} can only
+     * append rows to its template. The first of them is the prototype of the rows coming after the template.
+     */
+    private Workbook stream(XSSFWorkbook xssfWorkbook) {
+        templateRows = new TreeMap<>();
+        evaluationWorkbook = XSSFEvaluationWorkbook.create(xssfWorkbook);
+
+        if (sheetIndex < xssfWorkbook.getNumberOfSheets()) {
+            XSSFSheet sheet = xssfWorkbook.getSheetAt(sheetIndex);
+
+            for (int i = sheet.getLastRowNum(); i >= rowsToSkip; i--) {
+                XSSFRow row = sheet.getRow(i);
+
+                if (row != null) {
+                    templateRows.put(i, new PrototypeRow(row));
+                    sheet.removeRow(row);
+                }
+            }
+        }
+
+        prototype = templateRows.get(rowsToSkip);
+
+        return new SXSSFWorkbook(xssfWorkbook, rowAccessWindowSize);
+    }
+
+    /**
+     * Write back the rows of the template coming before the given row, then the given row from the template or, if
+     * the template does not contain it, from the prototype.
+     */
+    private void prepareRow(int rowIndex) {
+        Sheet sheet = workbook.getSheetAt(sheetIndex);
+
+        writeTemplateRows(rowIndex);
+
+        if (templateRows.containsKey(rowIndex)) {
+            createRow(sheet, rowIndex, templateRows.remove(rowIndex));
+        } else if (prototype != null && sheet.getRow(rowIndex) == null) {
+            createRow(sheet, rowIndex, prototype);
+        }
+    }
+
+    private void writeTemplateRows(int toRowIndex) {
+        while (!templateRows.isEmpty() && templateRows.firstKey() < toRowIndex) {
+            int rowIndex = templateRows.firstKey();
+
+            createRow(workbook.getSheetAt(sheetIndex), rowIndex, templateRows.remove(rowIndex));
+        }
+    }
+
+    /**
+     * Values are only copied when a row of the template is written back at its own place.
+     */
+    private void createRow(Sheet sheet, int rowIndex, PrototypeRow prototypeRow) {
+        Row row = sheet.createRow(rowIndex);
+        boolean sameRow = prototypeRow.rowIndex == rowIndex;
+
+        row.setHeight(prototypeRow.height);
+
+        for (PrototypeCell prototypeCell : prototypeRow.cells) {
+            if (prototypeCell.formula != null) {
+                Cell cell = row.createCell(prototypeCell.columnIndex, Cell.CELL_TYPE_FORMULA);
+
+                cell.setCellStyle(prototypeCell.cellStyle);
+                cell.setCellFormula(shiftFormula(prototypeCell.formula, sheet.getSheetName(),
+                        prototypeRow.rowIndex, rowIndex));
+            } else if (sameRow) {
+                Cell cell = row.createCell(prototypeCell.columnIndex, prototypeCell.cellType);
+
+                cell.setCellStyle(prototypeCell.cellStyle);
+
+                if (prototypeCell.value instanceof String) {
+                    cell.setCellValue((String) prototypeCell.value);
+                } else if (prototypeCell.value instanceof Double) {
+                    cell.setCellValue((Double) prototypeCell.value);
+                } else if (prototypeCell.value instanceof Boolean) {
+                    cell.setCellValue((Boolean) prototypeCell.value);
+                }
+            } else {
+                row.createCell(prototypeCell.columnIndex, Cell.CELL_TYPE_BLANK).setCellStyle(prototypeCell.cellStyle);
+            }
         }
     }
 
+    private String shiftFormula(String formula, String sheetName, int fromRowIndex, int toRowIndex) {
+        if (fromRowIndex == toRowIndex) {
+            return formula;
+        }
+
+        Ptg[] ptgs = FormulaParser.parse(formula, evaluationWorkbook, FormulaType.CELL, sheetIndex);
+
+        FormulaShifter.createForRowShift(sheetIndex, sheetName, fromRowIndex, fromRowIndex, toRowIndex - fromRowIndex)
+                .adjustFormula(ptgs, sheetIndex);
+
+        return FormulaRenderer.toFormulaString(evaluationWorkbook, ptgs);
+    }
+
     private Workbook openWorkbook(Path path) throws IOException, InvalidFormatException {
         try (InputStream inputStream = Files.newInputStream(path)) {
             return WorkbookFactory.create(inputStream);
@@ -188,10 +369,30 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
     }
 
     private void flush() throws IOException {
-        try (OutputStream output = Files.newOutputStream(resource.getFile().toPath())) {
-            workbook.write(output);
-            output.flush();
+        Path outputPath = resource.getFile().toPath().toAbsolutePath();
+        Path temporaryPath = Files.createTempFile(outputPath.getParent(), "." + outputPath.getFileName(), ".tmp");
+
+        try {
+            try (OutputStream output = Files.newOutputStream(temporaryPath)) {
+                workbook.write(output);
+                output.flush();
+            }
+
+            try {
+                Files.move(temporaryPath, outputPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                LOGGER.debug("Atomic move not supported, we fallback to a simple move: {}", e.getMessage());
+
+                Files.move(temporaryPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            dirty = false;
+        } finally {
+            Files.deleteIfExists(temporaryPath);
         }
+
+        LOGGER.trace("Flushed workbook into '{}'", outputPath);
     }
 
     @Override
@@ -203,6 +404,12 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
             }
 
             executionContext.putInt(getExecutionContextKey(SHEET_INDEX_KEY), sheetIndex);
+
+            if (templateRows != null && dirty) {
+                executionContext.putInt(getExecutionContextKey(STREAMED_ROW_INDEX_KEY), getCurrentItemIndex());
+            } else {
+                executionContext.remove(getExecutionContextKey(STREAMED_ROW_INDEX_KEY));
+            }
         }
     }
 
@@ -231,6 +438,73 @@ public class ExcelSheetItemWriter<T> extends AbstractItemCountingItemStreamItemW
         this.shouldDeleteIfExists = shouldDeleteIfExists;
     }
 
+    /**
+     * @param rowAccessWindowSize number of rows kept in memory when creating an OOXML file, the file being then only
+     *                            written on {@link #close()}, {@code 0} to keep the whole workbook in memory and write
+     *                            it once per chunk (default: {@code 0})
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @param writeBehind {@code true} to write the file once per {@link #write(List)} and on {@link #close()},
+     *                    {@code false} to write it after each row (default: {@code true})
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    /**
+     * What we copy from a row of the template into the streamed rows.
+     */
+    private static class PrototypeRow {
+        private final int rowIndex;
+        private final short height;
+        private final List<PrototypeCell> cells = new ArrayList<>();
+
+        PrototypeRow(Row row) {
+            this.rowIndex = row.getRowNum();
+            this.height = row.getHeight() == row.getSheet().getDefaultRowHeight() ? -1 : row.getHeight();
+
+            for (Cell cell : row) {
+                cells.add(new PrototypeCell(cell));
+            }
+        }
+    }
+
+    /**
+     * What we copy from a cell of the template: its style, its formula and its value.
+     */
+    private static class PrototypeCell {
+        private final int columnIndex;
+        private final int cellType;
+        private final CellStyle cellStyle;
+        private final String formula;
+        private final Object value;
+
+        PrototypeCell(Cell cell) {
+            this.columnIndex = cell.getColumnIndex();
+            this.cellType = cell.getCellType() == Cell.CELL_TYPE_ERROR ? Cell.CELL_TYPE_BLANK : cell.getCellType();
+            this.cellStyle = cell.getCellStyle();
+            this.formula = cell.getCellType() == Cell.CELL_TYPE_FORMULA ? cell.getCellFormula() : null;
+
+            switch (cell.getCellType()) {
+                case Cell.CELL_TYPE_STRING:
+                    this.value = cell.getStringCellValue();
+                    break;
+                case Cell.CELL_TYPE_NUMERIC:
+                    this.value = cell.getNumericCellValue();
+                    break;
+                case Cell.CELL_TYPE_BOOLEAN:
+                    this.value = cell.getBooleanCellValue();
+                    break;
+                default:
+                    this.value = null;
+            }
+        }
+    }
+
     public enum Format {
         OLE2(".xls") {
             @Override
@@ -0,0 +1,199 @@
+package org.springframework.batch.item.file;
+
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@link StreamingRowReader} pulling the BIFF8 records of an OLE2 workbook one by one.
+ * <p>
+ * Cells of a sheet are stored in blocks of rows, each block starting with the {@link RowRecord}s of its rows, so we
+ * only need to look one cell ahead to know that a row is complete.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+final class HSSFStreamingRowReader extends StreamingRowReader {
+
+    private final NPOIFSFileSystem fileSystem;
+    private final InputStream documentStream;
+    private final RecordFactoryInputStream records;
+    private final int sheetIndex;
+    private final Deque<CellValue> cells = new ArrayDeque<>();
+    private final SortedSet<Integer> declaredRows = new TreeSet<>();
+    private SSTRecord sstRecord;
+    private FormulaRecord stringFormulaRecord;
+    private int depth = 0;
+    private int currentSheetIndex = -2;
+    private boolean endOfSheet = false;
+
+    HSSFStreamingRowReader(File file, int sheetIndex) throws IOException {
+        super(new HSSFWorkbook());
+
+        this.fileSystem = new NPOIFSFileSystem(file, true);
+        this.documentStream = fileSystem.createDocumentInputStream(
+                fileSystem.getRoot().hasEntry("Workbook") ? "Workbook" : "Book");
+        this.records = new RecordFactoryInputStream(documentStream, false);
+        this.sheetIndex = sheetIndex;
+    }
+
+    @Override
+    public Row next() throws IOException {
+        Row result = null;
+
+        fill();
+
+        Integer rowNum = cells.isEmpty() ? null : cells.peek().row;
+
+        if (!declaredRows.isEmpty() && (rowNum == null || declaredRows.first() < rowNum)) {
+            rowNum = declaredRows.first();
+        }
+
+        if (rowNum != null) {
+            declaredRows.remove(rowNum);
+            result = newRow(rowNum);
+
+            while (fill() && cells.peek().row == rowNum) {
+                CellValue cell = cells.poll();
+
+                setCellValue(result, cell.column, cell.value);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read records until we get at least one cell or until the end of the sheet.
+     *
+     * @return {@code true} if there is a cell to consume
+     */
+    private boolean fill() {
+        while (cells.isEmpty() && !endOfSheet) {
+            Record record = records.nextRecord();
+
+            if (record == null) {
+                endOfSheet = true;
+            } else {
+                handle(record);
+            }
+        }
+
+        return !cells.isEmpty();
+    }
+
+    private void handle(Record record) {
+        if (record instanceof BOFRecord) {
+            // The first top-level stream contains the globals of the workbook, the following ones are sheets
+            if (++depth == 1) {
+                currentSheetIndex++;
+            }
+        } else if (record instanceof EOFRecord) {
+            if (--depth == 0 && currentSheetIndex == sheetIndex) {
+                endOfSheet = true;
+            }
+        } else if (record instanceof SSTRecord) {
+            sstRecord = (SSTRecord) record;
+        } else if (depth == 1 && currentSheetIndex == sheetIndex) {
+            handleSheetRecord(record);
+        }
+    }
+
+    private void handleSheetRecord(Record record) {
+        if (record instanceof RowRecord) {
+            declaredRows.add(((RowRecord) record).getRowNumber());
+        } else if (record instanceof NumberRecord) {
+            NumberRecord numberRecord = (NumberRecord) record;
+
+            addCell(numberRecord.getRow(), numberRecord.getColumn(), numberRecord.getValue());
+        } else if (record instanceof LabelSSTRecord) {
+            LabelSSTRecord labelSSTRecord = (LabelSSTRecord) record;
+
+            addCell(labelSSTRecord.getRow(), labelSSTRecord.getColumn(),
+                    sstRecord.getString(labelSSTRecord.getSSTIndex()).getString());
+        } else if (record instanceof LabelRecord) {
+            LabelRecord labelRecord = (LabelRecord) record;
+
+            addCell(labelRecord.getRow(), labelRecord.getColumn(), labelRecord.getValue());
+        } else if (record instanceof BoolErrRecord) {
+            BoolErrRecord boolErrRecord = (BoolErrRecord) record;
+
+            addCell(boolErrRecord.getRow(), boolErrRecord.getColumn(), boolErrRecord.isBoolean() ?
+                    boolErrRecord.getBooleanValue() : boolErrRecord.getErrorValue());
+        } else if (record instanceof BlankRecord) {
+            BlankRecord blankRecord = (BlankRecord) record;
+
+            addCell(blankRecord.getRow(), blankRecord.getColumn(), null);
+        } else if (record instanceof MulBlankRecord) {
+            MulBlankRecord mulBlankRecord = (MulBlankRecord) record;
+
+            for (int column = mulBlankRecord.getFirstColumn(); column <= mulBlankRecord.getLastColumn(); column++) {
+                addCell(mulBlankRecord.getRow(), column, null);
+            }
+        } else if (record instanceof FormulaRecord) {
+            handleFormulaRecord((FormulaRecord) record);
+        } else if (record instanceof StringRecord && stringFormulaRecord != null) {
+            addCell(stringFormulaRecord.getRow(), stringFormulaRecord.getColumn(), ((StringRecord) record).getString());
+            stringFormulaRecord = null;
+        }
+    }
+
+    private void handleFormulaRecord(FormulaRecord formulaRecord) {
+        switch (formulaRecord.getCachedResultType()) {
+            case Cell.CELL_TYPE_STRING:
+                if (formulaRecord.hasCachedResultString()) {
+                    // The cached result is in the following StringRecord
+                    stringFormulaRecord = formulaRecord;
+                } else {
+                    addCell(formulaRecord.getRow(), formulaRecord.getColumn(), "");
+                }
+                break;
+            case Cell.CELL_TYPE_BOOLEAN:
+                addCell(formulaRecord.getRow(), formulaRecord.getColumn(), formulaRecord.getCachedBooleanValue());
+                break;
+            case Cell.CELL_TYPE_ERROR:
+                addCell(formulaRecord.getRow(), formulaRecord.getColumn(), (byte) formulaRecord.getCachedErrorValue());
+                break;
+            case Cell.CELL_TYPE_NUMERIC:
+            default:
+                addCell(formulaRecord.getRow(), formulaRecord.getColumn(), formulaRecord.getValue());
+        }
+    }
+
+    private void addCell(int row, int column, Object value) {
+        cells.add(new CellValue(row, column, value));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            documentStream.close();
+            fileSystem.close();
+        } finally {
+            super.close();
+        }
+    }
+
+    private static final class CellValue {
+        private final int row;
+        private final int column;
+        private final Object value;
+
+        CellValue(int row, int column, Object value) {
+            this.row = row;
+            this.column = column;
+            this.value = value;
+        }
+    }
+}
@@ -1,43 +1,175 @@
 package org.springframework.batch.item.file;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.core.io.Resource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Properties;
 
 /**
  * Download a file into a destination folder via an  HTTP GET.
+ * <p>
+ * The {@code ETag}, {@code Last-Modified} and SHA-256 of the downloaded file are stored next to it into a
+ * {@value #METADATA_SUFFIX} file. The next download is then a conditional request ({@code If-None-Match} and
+ * {@code If-Modified-Since}). If the server answers {@code 304 Not Modified} or if the content we receive has
+ * the same SHA-256 than the previous one, the file is left untouched and the step ends with the exit status
+ * {@link #UNCHANGED}, so that the job can stop there.
+ * </p>
+ * <p>
+ * The content is first written into a temporary file which is then moved over the previous one, so that a
+ * failing download never corrupts the previous file.
+ * </p>
  *
  * @author Almex
  * @since 2.0
  */
 public class HttpDownloadFileTasklet implements Tasklet {
 
+    public static final ExitStatus UNCHANGED = new ExitStatus("FEED_UNCHANGED");
+
+    public static final String METADATA_SUFFIX = ".metadata";
+    public static final String ETAG_KEY = "etag";
+    public static final String LAST_MODIFIED_KEY = "last.modified";
+    public static final String SHA256_KEY = "sha256";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpDownloadFileTasklet.class);
+
     private Resource inputFile;
 
     private Resource destinationFolder;
 
+    private boolean force = false;
+
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
-        try (InputStream inputStream = inputFile.getInputStream()) {
-            Path destinationPath = destinationFolder.getFile().toPath();
-            Path outputFile = destinationPath.resolve(getFileName());
+        Path destinationPath = destinationFolder.getFile().toPath();
+        Path outputFile = destinationPath.resolve(getFileName());
+        Path metadataFile = destinationPath.resolve(getFileName() + METADATA_SUFFIX);
+        Properties previous = force || !Files.exists(outputFile) ? new Properties() : readMetadata(metadataFile);
+        Properties current = new Properties();
+        URLConnection connection = openConnection(previous, current);
+
+        if (!Files.exists(destinationPath)) {
+            Files.createDirectories(destinationPath);
+        }
+
+        if (connection instanceof HttpURLConnection
+                && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            LOGGER.info("{} has not been modified since the last download", inputFile);
+            contribution.setExitStatus(UNCHANGED);
+        } else {
+            Path temporaryFile = Files.createTempFile(destinationPath, getFileName(), ".part");
+
+            try {
+                current.setProperty(SHA256_KEY, copy(connection, temporaryFile));
+
+                if (current.getProperty(SHA256_KEY).equals(previous.getProperty(SHA256_KEY))) {
+                    LOGGER.info("{} has the same content than the last download", inputFile);
+                    contribution.setExitStatus(UNCHANGED);
+                } else {
+                    Files.move(temporaryFile, outputFile, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    contribution.incrementWriteCount(1);
+                }
+
+                writeMetadata(metadataFile, current);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        }
+
+        storeMetadata(chunkContext, Files.exists(metadataFile) ? readMetadata(metadataFile) : current);
+
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * Only HTTP(S) resources get a conditional request, others are simply opened.
+     */
+    private URLConnection openConnection(Properties previous, Properties current) throws IOException {
+        URLConnection result = null;
+
+        if (inputFile.getURL().getProtocol().startsWith("http")) {
+            result = inputFile.getURL().openConnection();
 
-            if (!Files.exists(destinationPath)) {
-                Files.createDirectories(destinationPath);
+            if (previous.getProperty(ETAG_KEY) != null) {
+                result.setRequestProperty("If-None-Match", previous.getProperty(ETAG_KEY));
             }
 
+            if (previous.getProperty(LAST_MODIFIED_KEY) != null) {
+                result.setRequestProperty("If-Modified-Since", previous.getProperty(LAST_MODIFIED_KEY));
+            }
+
+            result.connect();
+
+            if (result.getHeaderField("ETag") != null) {
+                current.setProperty(ETAG_KEY, result.getHeaderField("ETag"));
+            }
+
+            if (result.getHeaderField("Last-Modified") != null) {
+                current.setProperty(LAST_MODIFIED_KEY, result.getHeaderField("Last-Modified"));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the SHA-256 of the content as an hexadecimal string
+     */
+    private String copy(URLConnection connection, Path outputFile) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        try (InputStream inputStream = new DigestInputStream(
+                connection != null ? connection.getInputStream() : inputFile.getInputStream(), digest)) {
             Files.copy(inputStream, outputFile, StandardCopyOption.REPLACE_EXISTING);
-            contribution.incrementWriteCount(1);
         }
 
-        return RepeatStatus.FINISHED;
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private static Properties readMetadata(Path metadataFile) throws IOException {
+        Properties result = new Properties();
+
+        if (Files.exists(metadataFile)) {
+            try (Reader reader = Files.newBufferedReader(metadataFile, StandardCharsets.UTF_8)) {
+                result.load(reader);
+            }
+        }
+
+        return result;
+    }
+
+    private void writeMetadata(Path metadataFile, Properties metadata) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(metadataFile, StandardCharsets.UTF_8)) {
+            metadata.store(writer, "Metadata of the last download of " + inputFile.getDescription());
+        }
+    }
+
+    private static void storeMetadata(ChunkContext chunkContext, Properties metadata) {
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+
+        for (String key : metadata.stringPropertyNames()) {
+            executionContext.putString(key, metadata.getProperty(key));
+        }
     }
 
     private String getFileName() throws IOException {
@@ -63,5 +195,12 @@ public class HttpDownloadFileTasklet implements Tasklet {
         this.destinationFolder = destinationFolder;
     }
 
-}
+    /**
+     * @param force if {@code true} the file is always downloaded and replaced, even if it has not changed.
+     *              By default, it's {@code false}.
+     */
+    public void setForce(boolean force) {
+        this.force = force;
+    }
 
+}
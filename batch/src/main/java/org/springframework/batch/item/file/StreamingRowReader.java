@@ -0,0 +1,101 @@
+package org.springframework.batch.item.file;
+
+import org.apache.poi.POIXMLDocument;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.*;
+
+/**
+ * Read the rows of one sheet, one at a time, without loading the workbook in memory.
+ * <p>
+ * Each row is parsed from the file only when {@link #next()} is called and copied into a scratch {@link Row}, which
+ * is replaced by the following one: a {@link RowMapper} can use it as any other row as long as it does not keep a
+ * reference on it. A formula cell is exposed by its cached result.
+ * </p>
+ *
+ * @author Almex
+ * @see HSSFStreamingRowReader
+ * @see XSSFStreamingRowReader
+ * @since 2.0
+ */
+abstract class StreamingRowReader implements Closeable {
+
+    private final Workbook scratchWorkbook;
+    private final Sheet scratchSheet;
+    private Row scratchRow;
+
+    protected StreamingRowReader(Workbook scratchWorkbook) {
+        this.scratchWorkbook = scratchWorkbook;
+        this.scratchSheet = scratchWorkbook.createSheet();
+    }
+
+    /**
+     * Open a reader on the sheet according to the content of the file.
+     *
+     * @param file       OLE2 or OOXML Excel file
+     * @param sheetIndex zero-based index of the sheet to read
+     * @return a reader positioned before the first row of the sheet
+     * @throws IOException if an I/O error occurs or if the file is neither an OLE2 file, nor an OOXML file
+     */
+    public static StreamingRowReader open(File file, int sheetIndex) throws IOException {
+        StreamingRowReader result;
+
+        try (InputStream inputStream = new PushbackInputStream(new FileInputStream(file), 8)) {
+            if (POIFSFileSystem.hasPOIFSHeader(inputStream)) {
+                result = new HSSFStreamingRowReader(file, sheetIndex);
+            } else if (POIXMLDocument.hasOOXMLHeader(inputStream)) {
+                result = new XSSFStreamingRowReader(file, sheetIndex);
+            } else {
+                throw new IOException("The file is neither an OLE2 file, nor an OOXML file: " + file);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the next row of the sheet or {@code null} if we have reached the end of the sheet
+     * @throws IOException if an I/O error occurs
+     */
+    public abstract Row next() throws IOException;
+
+    /**
+     * Replace the previous scratch row by an empty one.
+     */
+    protected Row newRow(int rowNum) {
+        if (scratchRow != null) {
+            scratchSheet.removeRow(scratchRow);
+        }
+
+        scratchRow = scratchSheet.createRow(rowNum);
+
+        return scratchRow;
+    }
+
+    /**
+     * @param value {@code null} for a blank cell, otherwise a {@link Double}, a {@link String}, a {@link Boolean} or
+     *              a {@link Byte} for an error code
+     */
+    protected static void setCellValue(Row row, int columnIndex, Object value) {
+        Cell cell = row.createCell(columnIndex);
+
+        if (value instanceof Double) {
+            cell.setCellValue((Double) value);
+        } else if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Byte) {
+            cell.setCellErrorValue((Byte) value);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scratchWorkbook.close();
+    }
+}
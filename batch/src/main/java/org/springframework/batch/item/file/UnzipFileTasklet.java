@@ -1,5 +1,6 @@
 package org.springframework.batch.item.file;
 
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
@@ -14,7 +15,11 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
- * Unzip a file into a destination folder
+ * Unzip a file into a destination folder.
+ * <p>
+ * This tasklet can be disabled (the step then ends with {@link ExitStatus#NOOP}) when the files are read
+ * directly from the archive via a {@link ZipEntryResource}.
+ * </p>
  *
  * @author Almex
  * @since 2.0
@@ -25,7 +30,15 @@ public class UnzipFileTasklet implements Tasklet {
 
     private Resource destinationFolder;
 
+    private boolean enabled = true;
+
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        if (!enabled) {
+            contribution.setExitStatus(ExitStatus.NOOP);
+
+            return RepeatStatus.FINISHED;
+        }
+
         try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(inputFile.getInputStream()))) {
             Path destinationPath = destinationFolder.getFile().toPath();
 
@@ -52,5 +65,12 @@ public class UnzipFileTasklet implements Tasklet {
         this.destinationFolder = destinationFolder;
     }
 
+    /**
+     * @param enabled if {@code false} nothing is unzipped. By default, it's {@code true}.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
 }
 
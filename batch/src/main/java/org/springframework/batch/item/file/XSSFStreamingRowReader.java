@@ -0,0 +1,161 @@
+package org.springframework.batch.item.file;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * {@link StreamingRowReader} pulling the XML of one sheet of an OOXML workbook with a StAX parser.
+ * <p>
+ * Only the shared strings are loaded in memory, the sheet itself is parsed up to the end of the next row.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+final class XSSFStreamingRowReader extends StreamingRowReader {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    private final OPCPackage opcPackage;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader reader;
+    private int lastRowNum = -1;
+
+    XSSFStreamingRowReader(File file, int sheetIndex) throws IOException {
+        super(new XSSFWorkbook());
+
+        try {
+            this.opcPackage = OPCPackage.open(file, PackageAccess.READ);
+            this.sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+
+            Iterator<InputStream> sheets = new XSSFReader(opcPackage).getSheetsData();
+
+            for (int i = 0; i < sheetIndex && sheets.hasNext(); i++) {
+                sheets.next().close();
+            }
+
+            if (!sheets.hasNext()) {
+                throw new IOException("There is no sheet at index " + sheetIndex + " in " + file);
+            }
+
+            this.sheetStream = sheets.next();
+            this.reader = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+        } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+            throw new IOException("Cannot open the sheet " + sheetIndex + " of " + file, e);
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        Row result = null;
+
+        try {
+            while (result == null && reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+                    String reference = reader.getAttributeValue(null, "r");
+
+                    lastRowNum = reference != null ? Integer.parseInt(reference) - 1 : lastRowNum + 1;
+                    result = newRow(lastRowNum);
+
+                    readCells(result);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot parse the row following the row " + lastRowNum, e);
+        }
+
+        return result;
+    }
+
+    private void readCells(Row row) throws XMLStreamException {
+        int column = -1;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(reader.getLocalName())) {
+                String reference = reader.getAttributeValue(null, "r");
+
+                column = reference != null ? new CellReference(reference).getCol() : column + 1;
+
+                setCellValue(row, column, readValue(reader.getAttributeValue(null, "t")));
+            } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(reader.getLocalName())) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Read the content of a {@code <c>} element up to its end.
+     */
+    private Object readValue(String type) throws XMLStreamException {
+        String text = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.START_ELEMENT && "v".equals(reader.getLocalName())) {
+                text = reader.getElementText();
+            } else if (event == XMLStreamConstants.START_ELEMENT && "t".equals(reader.getLocalName())) {
+                // An inline string can be made of several runs
+                text = (text != null ? text : "") + reader.getElementText();
+            } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(reader.getLocalName())) {
+                break;
+            }
+        }
+
+        Object result = null;
+
+        if (text != null) {
+            if (type == null || "n".equals(type)) {
+                result = text.isEmpty() ? null : Double.valueOf(text);
+            } else if ("s".equals(type)) {
+                result = sharedStrings.getEntryAt(Integer.parseInt(text));
+            } else if ("b".equals(type)) {
+                result = "1".equals(text);
+            } else if ("e".equals(type)) {
+                result = FormulaError.forString(text).getCode();
+            } else {
+                // "str" for a formula result and "inlineStr" for an inline string
+                result = text;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+            sheetStream.close();
+            opcPackage.revert();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot close the sheet", e);
+        } finally {
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.springframework.batch.item.file;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * {@link Resource} implementation for one entry of a zip archive.
+ * <p>
+ * The entry is found by its name via the central directory of the archive thanks to {@link ZipFile}, so that
+ * we have random access to any entry without reading the previous ones. The content is streamed (and
+ * inflated) out of the archive: nothing is written to disk.
+ * </p>
+ * <p>
+ * Each call to {@link #getInputStream()} opens its own {@link ZipFile} which is closed with the returned
+ * {@link InputStream}.
+ * </p>
+ *
+ * @author Almex
+ * @see UnzipFileTasklet
+ * @since 2.0
+ */
+public class ZipEntryResource extends AbstractResource {
+
+    private final Resource archive;
+
+    private final String entryName;
+
+    /**
+     * @param archive   the zip archive, it must be available as a {@link java.io.File}
+     * @param entryName the name of the entry within the archive
+     */
+    public ZipEntryResource(Resource archive, String entryName) {
+        Assert.notNull(archive, "Archive must not be null");
+        Assert.hasText(entryName, "Entry name must not be empty");
+        this.archive = archive;
+        this.entryName = entryName;
+    }
+
+    @Override
+    public boolean exists() {
+        boolean result = false;
+
+        if (archive.exists()) {
+            try (ZipFile zipFile = new ZipFile(archive.getFile())) {
+                result = zipFile.getEntry(entryName) != null;
+            } catch (IOException e) {
+                result = false;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ZipFile zipFile = new ZipFile(archive.getFile());
+        ZipEntry entry = zipFile.getEntry(entryName);
+
+        if (entry == null) {
+            zipFile.close();
+            throw new FileNotFoundException(getDescription() + " cannot be opened because it does not exist");
+        }
+
+        return new FilterInputStream(zipFile.getInputStream(entry)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    zipFile.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        try (ZipFile zipFile = new ZipFile(archive.getFile())) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+
+            if (entry == null) {
+                throw new FileNotFoundException(getDescription() + " does not exist");
+            }
+
+            return entry.getSize();
+        }
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return archive.lastModified();
+    }
+
+    @Override
+    public String getFilename() {
+        int index = entryName.lastIndexOf('/');
+
+        return index > -1 ? entryName.substring(index + 1) : entryName;
+    }
+
+    @Override
+    public Resource createRelative(String relativePath) throws IOException {
+        return new ZipEntryResource(archive, relativePath);
+    }
+
+    @Override
+    public String getDescription() {
+        return "zip entry [" + entryName + "] of " + archive.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        boolean result = false;
+
+        if (obj == this) {
+            result = true;
+        } else if (obj instanceof ZipEntryResource) {
+            ZipEntryResource other = (ZipEntryResource) obj;
+
+            result = archive.equals(other.archive) && entryName.equals(other.entryName);
+        }
+
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return archive.hashCode() * 31 + entryName.hashCode();
+    }
+}
@@ -0,0 +1,75 @@
+package be.raildelays.batch.decider;
+
+import be.raildelays.batch.gtfs.GtfsFeedFingerprint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.item.file.HttpDownloadFileTasklet;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class LoadedDatesDeciderTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2015, 1, 5);
+    private static final Path FINGERPRINTS = Paths.get("./target/decider.fingerprints");
+    private LoadedDatesDecider decider;
+
+    @Before
+    public void setUp() throws Exception {
+        GtfsFeedFingerprint fingerprint = new GtfsFeedFingerprint();
+        GtfsFeedFingerprint loaded = new GtfsFeedFingerprint();
+
+        loaded.put(MONDAY, "1", "abc");
+        fingerprint.replace(MONDAY, loaded);
+        fingerprint.replace(MONDAY.plusDays(1), loaded); // Loaded without any trip
+        fingerprint.store(FINGERPRINTS);
+
+        decider = new LoadedDatesDecider();
+        decider.setFingerprintResource(new FileSystemResource(FINGERPRINTS.toFile()));
+        decider.setStartDate(MONDAY);
+    }
+
+    /**
+     * We expect that it decide FEED_UNCHANGED when all dates are loaded.
+     */
+    @Test
+    public void testLoaded() throws Exception {
+        decider.setEndDate(MONDAY.plusDays(1));
+        decider.afterPropertiesSet();
+
+        FlowExecutionStatus status = decider.decide(MetaDataInstanceFactory.createJobExecution(),
+                MetaDataInstanceFactory.createStepExecution());
+
+        Assert.assertEquals(HttpDownloadFileTasklet.UNCHANGED.getExitCode(), status.getName());
+    }
+
+    /**
+     * We expect that it decide COMPLETED when one date is not loaded.
+     */
+    @Test
+    public void testNotLoaded() throws Exception {
+        decider.setEndDate(MONDAY.plusDays(2));
+        decider.afterPropertiesSet();
+
+        FlowExecutionStatus status = decider.decide(MetaDataInstanceFactory.createJobExecution(),
+                MetaDataInstanceFactory.createStepExecution());
+
+        Assert.assertEquals(ExitStatus.COMPLETED.getExitCode(), status.getName());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(FINGERPRINTS);
+    }
+}
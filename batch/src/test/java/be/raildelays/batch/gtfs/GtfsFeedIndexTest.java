@@ -0,0 +1,113 @@
+package be.raildelays.batch.gtfs;
+
+import org.easymock.EasyMockRule;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.easymock.MockType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.time.LocalDate;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class GtfsFeedIndexTest extends EasyMockSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 1);
+
+    private GtfsFeedIndex feedIndex;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<StopTime> stopTimesReader;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<Stop> stopsReader;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        StopTime stopTime1 = new StopTime();
+        StopTime stopTime2 = new StopTime();
+        Stop stop = new Stop();
+        CalendarDate calendarDate = new CalendarDate();
+
+        stopTime1.setTripId("1");
+        stopTime1.setStopSequence(2);
+        stopTime2.setTripId("1");
+        stopTime2.setStopSequence(1);
+        stop.setStopId("2");
+        calendarDate.setServiceId("3");
+        calendarDate.setDate(DATE);
+        calendarDate.setExceptionType(CalendarDate.ExceptionType.ADDED);
+
+        expect(stopTimesReader.read()).andReturn(stopTime1).once();
+        expect(stopTimesReader.read()).andReturn(stopTime2).once();
+        expect(stopsReader.read()).andReturn(stop).once();
+        expect(calendarDatesReader.read()).andReturn(calendarDate).once();
+
+        feedIndex = new GtfsFeedIndex();
+        feedIndex.setStopTimesReader(stopTimesReader);
+        feedIndex.setStopsReader(stopsReader);
+        feedIndex.setCalendarDatesReader(calendarDatesReader);
+        feedIndex.afterPropertiesSet();
+    }
+
+    @Test
+    public void testFindStopTimes() throws Exception {
+        replayAll();
+
+        assertEquals(2, feedIndex.findStopTimes("1").size());
+        assertEquals(Integer.valueOf(1), feedIndex.findStopTimes("1").get(0).getStopSequence());
+        assertTrue(feedIndex.findStopTimes("2").isEmpty());
+        assertTrue(feedIndex.findStopTimes(null).isEmpty());
+    }
+
+    @Test
+    public void testFindStop() throws Exception {
+        replayAll();
+
+        assertNotNull(feedIndex.findStop("2"));
+        assertNull(feedIndex.findStop("1"));
+        assertNull(feedIndex.findStop(null));
+    }
+
+    @Test
+    public void testIsScheduled() throws Exception {
+        replayAll();
+
+        assertTrue(feedIndex.isScheduled("3", DATE));
+        assertFalse(feedIndex.isScheduled("3", DATE.plusDays(1)));
+        assertFalse(feedIndex.isScheduled(null, DATE));
+    }
+
+    /**
+     * We expect that the files are read only once and that statistics are stored into the step execution context.
+     */
+    @Test
+    public void testBeforeStep() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+        replayAll();
+
+        feedIndex.beforeStep(stepExecution);
+        feedIndex.build();
+
+        assertEquals(2, feedIndex.findStopTimes("1").size());
+        assertTrue(stepExecution.getExecutionContext().containsKey(GtfsFeedIndex.BUILD_TIME_KEY));
+        assertTrue(stepExecution.getExecutionContext().containsKey(GtfsFeedIndex.USED_MEMORY_KEY));
+        assertNull(feedIndex.afterStep(stepExecution));
+    }
+}
@@ -0,0 +1,171 @@
+package be.raildelays.batch.gtfs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class GtfsFeedSnapshotTest {
+
+    private static final Path SNAPSHOT = Paths.get("./target/feed.snapshot");
+
+    @Before
+    public void setUp() throws Exception {
+        Stop stop = new Stop();
+        CalendarDate calendarDate = new CalendarDate();
+
+        stop.setStopId("stops:007015400:0");
+        stop.setStopName("Bruxelles-Central/Brussel-Centraal");
+        stop.setLocationType(Stop.LocationType.NOT_PHYSICAL);
+        calendarDate.setServiceId("1");
+        calendarDate.setDate(LocalDate.of(2015, 1, 1));
+        calendarDate.setExceptionType(CalendarDate.ExceptionType.REMOVED);
+
+        try (GtfsFeedSnapshot.Writer writer = new GtfsFeedSnapshot.Writer(SNAPSHOT, "hash")) {
+            writer.writeStops(Collections.singletonList(stop));
+            writer.writeCalendarDates(Collections.singletonList(calendarDate));
+            writer.writeTrip(createTrip("1", LocalTime.of(10, 0), null));
+            writer.writeTrip(createTrip("2", LocalTime.of(23, 59, 59), 2));
+        }
+    }
+
+    /**
+     * We expect to read back what we have written.
+     */
+    @Test
+    public void testOpen() throws Exception {
+        GtfsFeedSnapshot snapshot = GtfsFeedSnapshot.open(SNAPSHOT);
+        Iterator<Trip> trips = snapshot.trips();
+        Trip first = trips.next();
+        Trip second = trips.next();
+
+        assertEquals("hash", snapshot.getFeedHash());
+        assertEquals(2, snapshot.getTripCount());
+        assertEquals("Bruxelles-Central/Brussel-Centraal", snapshot.getStops().get(0).getStopName());
+        assertEquals(Stop.LocationType.NOT_PHYSICAL, snapshot.getStops().get(0).getLocationType());
+        assertNull(snapshot.getStops().get(0).getParentStation());
+        assertEquals(LocalDate.of(2015, 1, 1), snapshot.getCalendarDates().get(0).getDate());
+        assertEquals(CalendarDate.ExceptionType.REMOVED, snapshot.getCalendarDates().get(0).getExceptionType());
+        assertEquals("1", first.getTripId());
+        assertEquals("routes:IC", first.getRouteId());
+        assertNull(first.getStopTimes().get(0).getStopSequence());
+        assertEquals(LocalTime.of(10, 0), first.getStopTimes().get(0).getDepartureTime());
+        assertNull(first.getStopTimes().get(0).getArrivalTime());
+        assertEquals("2", second.getStopTimes().get(0).getTripId());
+        assertEquals(LocalTime.of(23, 59, 59), second.getStopTimes().get(0).getDepartureTime());
+        assertEquals(Integer.valueOf(2), second.getStopTimes().get(0).getStopSequence());
+        assertFalse(trips.hasNext());
+    }
+
+    /**
+     * We expect a holder to open the snapshot once and to share it, each caller getting its own iterator.
+     */
+    @Test
+    public void testHolder() throws Exception {
+        GtfsFeedSnapshotHolder holder = new GtfsFeedSnapshotHolder();
+
+        holder.setResource(new FileSystemResource(SNAPSHOT.toFile()));
+        holder.afterPropertiesSet();
+
+        GtfsFeedSnapshot snapshot = holder.getSnapshot();
+        Iterator<Trip> first = snapshot.trips();
+        Iterator<Trip> second = holder.getSnapshot().trips();
+
+        assertSame(snapshot, holder.getSnapshot());
+        assertEquals("1", first.next().getTripId());
+        assertEquals("1", second.next().getTripId());
+        assertEquals("2", first.next().getTripId());
+    }
+
+    /**
+     * We expect to only read the accepted trips, the others being skipped.
+     */
+    @Test
+    public void testTripsFiltered() throws Exception {
+        Iterator<Trip> trips = GtfsFeedSnapshot.open(SNAPSHOT).trips((routeId, tripId) -> "2".equals(tripId));
+        Trip trip = trips.next();
+
+        assertEquals("2", trip.getTripId());
+        assertEquals(LocalTime.of(23, 59, 59), trip.getStopTimes().get(0).getDepartureTime());
+        assertFalse(trips.hasNext());
+        assertFalse(GtfsFeedSnapshot.open(SNAPSHOT).trips((routeId, tripId) -> false).hasNext());
+    }
+
+    /**
+     * We expect the stop times of a trip running past midnight to be counted from the beginning of its service
+     * day, while each {@link StopTime} still gives the time of the day.
+     */
+    @Test
+    public void testStopTimesPastMidnight() throws Exception {
+        Trip trip = createTrip("3", LocalTime.of(23, 50), 1);
+        StopTime next = new StopTime();
+
+        next.setTripId("3");
+        next.setStopId("stops:008814001:0");
+        next.setDepartureTime(LocalTime.of(0, 10)); // Parsed from 24:10:00
+        next.setStopSequence(2);
+        trip.setStopTimes(Arrays.asList(trip.getStopTimes().get(0), next));
+
+        try (GtfsFeedSnapshot.Writer writer = new GtfsFeedSnapshot.Writer(SNAPSHOT, "hash")) {
+            writer.writeStops(Collections.emptyList());
+            writer.writeCalendarDates(Collections.emptyList());
+            writer.writeTrip(trip);
+        }
+
+        GtfsFeedSnapshot snapshot = GtfsFeedSnapshot.open(SNAPSHOT);
+        StopTimeTable.Cursor cursor = snapshot.getStopTimeTable().cursor("3");
+
+        assertTrue(cursor.next());
+        assertEquals(23 * 3600 + 50 * 60, cursor.getDepartureSeconds());
+        assertTrue(cursor.next());
+        assertEquals(24 * 3600 + 10 * 60, cursor.getDepartureSeconds());
+        assertEquals("stops:008814001:0", cursor.getStopId());
+        assertEquals(LocalTime.of(0, 10), snapshot.trips().next().getStopTimes().get(1).getDepartureTime());
+    }
+
+    /**
+     * We expect a file which is not a snapshot to be refused.
+     */
+    @Test(expected = IOException.class)
+    public void testOpenInvalid() throws Exception {
+        Files.write(SNAPSHOT, Arrays.asList("trip_id,arrival_time", "1,10:00:00"));
+
+        GtfsFeedSnapshot.open(SNAPSHOT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(SNAPSHOT);
+    }
+
+    private static Trip createTrip(String tripId, LocalTime departureTime, Integer stopSequence) {
+        Trip result = new Trip();
+        StopTime stopTime = new StopTime();
+
+        stopTime.setTripId(tripId);
+        stopTime.setStopId("stops:007015400:0");
+        stopTime.setDepartureTime(departureTime);
+        stopTime.setStopSequence(stopSequence);
+        result.setTripId(tripId);
+        result.setRouteId("routes:IC");
+        result.setServiceId("1");
+        result.setStopTimes(Collections.singletonList(stopTime));
+
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package be.raildelays.batch.gtfs;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class StopTimeTableTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StopTimeTableTest.class);
+
+    private StopTimeTable table;
+
+    @Before
+    public void setUp() throws Exception {
+        table = new StopTimeTable.Builder()
+                .add(createStopTime("1", LocalTime.of(23, 50), 2, "B"))
+                .add(createStopTime("2", LocalTime.of(8, 0), 1, "A"))
+                .add(createStopTime("1", LocalTime.of(23, 40), 1, "A"))
+                .add(createStopTime("1", LocalTime.of(0, 10), 3, "C"))
+                .add("3", StopTimeTable.parseSeconds("24:05:00"), StopTimeTable.NULL, null, StopTimeTable.NULL)
+                .build();
+    }
+
+    /**
+     * We expect the stop times of a trip ordered by stop_sequence.
+     */
+    @Test
+    public void testFindStopTimes() throws Exception {
+        List<StopTime> stopTimes = table.findStopTimes("1");
+
+        assertEquals(5, table.size());
+        assertEquals(3, table.getTripCount());
+        assertEquals(3, stopTimes.size());
+        assertEquals("A", stopTimes.get(0).getStopId());
+        assertEquals(Integer.valueOf(3), stopTimes.get(2).getStopSequence());
+        assertEquals(LocalTime.of(0, 10), stopTimes.get(2).getDepartureTime());
+        assertEquals("1", stopTimes.get(2).getTripId());
+        assertEquals(1, table.findStopTimes("2").size());
+        assertTrue(table.findStopTimes("4").isEmpty());
+        assertTrue(table.findStopTimes(null).isEmpty());
+    }
+
+    /**
+     * We expect times past midnight to be counted from the beginning of the service day.
+     */
+    @Test
+    public void testCursor() throws Exception {
+        StopTimeTable.Cursor cursor = table.cursor("1");
+        List<Integer> departures = new ArrayList<>();
+
+        while (cursor.next()) {
+            departures.add(cursor.getDepartureSeconds());
+        }
+
+        assertEquals(3, departures.size());
+        assertEquals(Integer.valueOf(24 * 3600 + 600), departures.get(2));
+
+        cursor = table.cursor("3");
+
+        assertTrue(cursor.next());
+        assertEquals(24 * 3600 + 300, cursor.getArrivalSeconds());
+        assertEquals(StopTimeTable.NULL, cursor.getDepartureSeconds());
+        assertEquals(StopTimeTable.NULL, cursor.getStopSequence());
+        assertNull(cursor.getStopId());
+        assertFalse(cursor.next());
+        assertFalse(table.cursor("4").next());
+    }
+
+    @Test
+    public void testParseSeconds() throws Exception {
+        assertEquals(25 * 3600 + 1, StopTimeTable.parseSeconds("25:00:01"));
+        assertEquals(7 * 3600 + 5 * 60, StopTimeTable.parseSeconds("7:05:00"));
+        assertEquals(StopTimeTable.NULL, StopTimeTable.parseSeconds(""));
+        assertEquals(LocalTime.of(1, 0, 1), StopTimeTable.toLocalTime(25 * 3600 + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseSecondsInvalid() throws Exception {
+        StopTimeTable.parseSeconds("10h00");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddSequenceOutOfRange() throws Exception {
+        new StopTimeTable.Builder().add("1", 0, 0, "A", Short.MAX_VALUE + 1);
+    }
+
+    /**
+     * We expect the table to use far less heap than the same rows kept as objects.
+     */
+    @Test
+    public void testHeapUsage() throws Exception {
+        final int rows = 200_000;
+        long before = usedMemory();
+        List<StopTime> objects = new ArrayList<>(rows);
+
+        for (int i = 0; i < rows; i++) {
+            objects.add(createStopTime("trips:" + i / 20, LocalTime.ofSecondOfDay(i % 86400), i % 20,
+                    "stops:" + i % 600));
+        }
+
+        long objectsHeap = usedMemory() - before;
+        StopTimeTable.Builder builder = new StopTimeTable.Builder();
+
+        objects.forEach(builder::add);
+        objects = null;
+        table = builder.build();
+        builder = null;
+
+        long tableHeap = usedMemory() - before;
+
+        LOGGER.info("Heap used by {} stop times: objects={} KB table={} KB (estimated {} KB)", rows,
+                objectsHeap / 1024, tableHeap / 1024, table.getRetainedSize() / 1024);
+
+        assertEquals(rows, table.size());
+        assertTrue(table.getRetainedSize() < objectsHeap / 4);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static StopTime createStopTime(String tripId, LocalTime time, int stopSequence, String stopId) {
+        StopTime result = new StopTime();
+
+        result.setTripId(tripId);
+        result.setArrivalTime(time);
+        result.setDepartureTime(time);
+        result.setStopSequence(stopSequence);
+        result.setStopId(stopId);
+
+        return result;
+    }
+}
@@ -3,18 +3,26 @@ package be.raildelays.batch.processor;
 import be.raildelays.domain.entities.LineStop;
 import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
-import be.raildelays.repository.LineStopDao;
 import be.raildelays.repository.StationDao;
 import be.raildelays.repository.TrainLineDao;
 import org.easymock.*;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.easymock.EasyMock.*;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 /**
  * @author Almex
@@ -25,19 +33,18 @@ public class AggregateLineStopProcessorTest extends EasyMockSupport {
     @TestSubject
     public AggregateLineStopProcessor processor = new AggregateLineStopProcessor();
 
-    @Mock(type = MockType.NICE)
-    private LineStopDao lineStopDao;
     @Mock(type = MockType.NICE)
     private TrainLineDao trainLineDao;
     @Mock(type = MockType.NICE)
     private StationDao stationDao;
+    @Mock(type = MockType.NICE)
+    private PlatformTransactionManager transactionManager;
 
     @Rule
     public EasyMockRule easyMockRule = new EasyMockRule(this);
 
     @Before
     public void setUp() throws Exception {
-        processor.setLineStopDao(lineStopDao);
         processor.setStationDao(stationDao);
         processor.setTrainLineDao(trainLineDao);
         processor.afterPropertiesSet();
@@ -58,7 +65,6 @@ public class AggregateLineStopProcessorTest extends EasyMockSupport {
                 )
                 .build(false);
 
-        expect(lineStopDao.findByTrainLineAndDateAndStation(anyObject(), anyObject(), anyObject())).andReturn(null);
         expect(stationDao.findByEnglishName(anyString())).andReturn(station);
         expect(trainLineDao.findByRouteId(anyLong())).andReturn(trainLine);
 
@@ -67,26 +73,48 @@ public class AggregateLineStopProcessorTest extends EasyMockSupport {
         assertNotNull(processor.process(expected));
     }
 
-    @Test
-    public void testProcessMerge() throws Exception {
-        Station station = new Station("Liège-Guillemins");
+    /**
+     * We expect a missing station to be created only once even when several partitions look for it concurrently.
+     */
+    @Test(timeout = 10000)
+    public void testProcessConcurrentCreation() throws Exception {
+        AtomicReference<Station> saved = new AtomicReference<>();
+        AtomicInteger saveCount = new AtomicInteger();
         TrainLine trainLine = new TrainLine.Builder(1L).build(false);
-        LineStop expected = new LineStop.Builder()
-                .trainLine(trainLine)
-                .station(station)
-                .date(LocalDate.now())
-                .addNext(new LineStop.Builder()
-                        .trainLine(trainLine)
-                        .station(new Station("Bruxelles-central"))
-                        .date(LocalDate.now())
-                )
-                .build(false);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<LineStop>> futures = new ArrayList<>();
+
+        processor.setTransactionManager(transactionManager);
+        expect(stationDao.findByEnglishName(anyString())).andAnswer(saved::get).anyTimes();
+        expect(stationDao.save(anyObject(Station.class))).andAnswer(() -> {
+            Station station = (Station) getCurrentArguments()[0];
 
-        expect(lineStopDao.findByTrainLineAndDateAndStation(anyObject(), anyObject(), anyObject()))
-                .andReturn(expected);
+            Thread.sleep(50); // Give time to the other threads to look for the station
+            ReflectionTestUtils.setField(station, "id", 1L);
+            saved.set(station);
+            saveCount.incrementAndGet();
+
+            return station;
+        }).anyTimes();
+        expect(stationDao.findOne(1L)).andAnswer(saved::get).anyTimes();
+        expect(trainLineDao.findByRouteId(anyLong())).andReturn(trainLine).anyTimes();
 
         replayAll();
 
-        assertNotNull(processor.process(expected));
+        for (int i = 0; i < 4; i++) {
+            futures.add(executorService.submit(() -> processor.process(new LineStop.Builder()
+                    .trainLine(trainLine)
+                    .station(new Station("Liège-Guillemins"))
+                    .date(LocalDate.now())
+                    .build(false))));
+        }
+
+        for (Future<LineStop> future : futures) {
+            assertEquals(Long.valueOf(1L), future.get().getStation().getId());
+        }
+
+        executorService.shutdown();
+
+        assertEquals(1, saveCount.get());
     }
 }
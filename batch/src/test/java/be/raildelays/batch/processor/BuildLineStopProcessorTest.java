@@ -1,5 +1,7 @@
 package be.raildelays.batch.processor;
 
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
 import be.raildelays.batch.gtfs.Stop;
 import be.raildelays.batch.gtfs.StopTime;
 import be.raildelays.batch.gtfs.Trip;
@@ -23,10 +25,13 @@ public class BuildLineStopProcessorTest extends EasyMockSupport {
 
     private final Trip item = new Trip();
 
-    @TestSubject
-    public BuildLineStopProcessor processor = new BuildLineStopProcessor();
+    private BuildLineStopProcessor processor = new BuildLineStopProcessor();
     @Mock(type = MockType.NICE)
     private ItemStreamReader<Stop> stopsReader;
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<StopTime> stopTimesReader;
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
 
     @Rule
     public EasyMockRule easyMockRule = new EasyMockRule(this);
@@ -34,10 +39,14 @@ public class BuildLineStopProcessorTest extends EasyMockSupport {
     @Before
     public void setUp() throws Exception {
         StopTime stopTime = new StopTime();
+        GtfsFeedIndex feedIndex = new GtfsFeedIndex();
 
+        feedIndex.setStopsReader(stopsReader);
+        feedIndex.setStopTimesReader(stopTimesReader);
+        feedIndex.setCalendarDatesReader(calendarDatesReader);
         stopTime.setStopId("1");
         processor.setDate(LocalDate.now());
-        processor.setStopsReader(stopsReader);
+        processor.setFeedIndex(feedIndex);
         item.setStopTimes(Arrays.asList(stopTime, new StopTime()));
     }
 
@@ -2,6 +2,7 @@ package be.raildelays.batch.processor;
 
 import be.raildelays.batch.bean.BatchExcelRow;
 import be.raildelays.batch.bean.BatchExcelRow.Builder;
+import be.raildelays.batch.support.ExcelRowIndex;
 import be.raildelays.domain.Language;
 import be.raildelays.domain.Sens;
 import be.raildelays.domain.entities.Station;
@@ -17,13 +18,17 @@ import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
 import org.springframework.batch.item.support.AbstractItemStreamItemReader;
 import org.springframework.batch.test.MetaDataInstanceFactory;
 import org.springframework.core.io.Resource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import static org.springframework.transaction.support.TransactionSynchronization.STATUS_COMMITTED;
+
 @RunWith(value = BlockJUnit4ClassRunner.class)
 public class FilterTwoSensPerDayProcessorTest {
     private List<BatchExcelRow> list;
@@ -36,6 +41,8 @@ public class FilterTwoSensPerDayProcessorTest {
 
     private Station stationB;
 
+    private int openCount;
+
     @Before
     public void setUp() throws Exception {
         stationA = new Station("A");
@@ -57,6 +64,7 @@ public class FilterTwoSensPerDayProcessorTest {
             @Override
             public void open(ExecutionContext executionContext) throws ItemStreamException {
                 iterator = list.iterator();
+                openCount++;
             }
 
             @Override
@@ -278,4 +286,135 @@ public class FilterTwoSensPerDayProcessorTest {
         Assert.assertNotNull(excelRow);
     }
 
+    /**
+     * We expect the Excel files to be read only once for all items of a chunk and again for the next chunk.
+     */
+    @Test
+    public void testProcessReadOnce() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            Assert.assertNull(processor.process(createItem(LocalDate.parse("2000-01-02"), 0L)));
+            Assert.assertNotNull(processor.process(createItem(LocalDate.parse("2000-01-02"), 25L)));
+            Assert.assertNotNull(processor.process(createItem(LocalDate.parse("2000-01-05"), 5L)));
+            Assert.assertEquals(1, openCount);
+
+            // End of the transaction of the chunk
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(STATUS_COMMITTED));
+
+            Assert.assertNotNull(processor.process(createItem(LocalDate.parse("2000-01-05"), 5L)));
+            Assert.assertEquals(2, openCount);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Without any transaction, we cannot tell when a chunk is written: we expect the Excel files to be read again for
+     * each item.
+     */
+    @Test
+    public void testProcessReadWithoutTransaction() throws Exception {
+        Assert.assertNull(processor.process(createItem(LocalDate.parse("2000-01-02"), 0L)));
+        Assert.assertNotNull(processor.process(createItem(LocalDate.parse("2000-01-05"), 5L)));
+        Assert.assertEquals(2, openCount);
+    }
+
+    /**
+     * We expect rows to come from the index and to be kept in sync with what it records.
+     */
+    @Test
+    public void testProcessRowIndex() throws Exception {
+        List<ExcelRowIndex.Listener> listeners = new ArrayList<>();
+        BatchExcelRow written = createItem(LocalDate.parse("2000-01-05"), 30L);
+
+        written.setIndex(5L);
+        processor.setOutputReader(null);
+        processor.setRowIndex(new ExcelRowIndex() {
+            @Override
+            public List<BatchExcelRow> getRows() {
+                return new ArrayList<>(list);
+            }
+
+            @Override
+            public Slot findFirstEmptySlot() {
+                return new Slot(null, 0);
+            }
+
+            @Override
+            public void addListener(Listener listener) {
+                listeners.add(listener);
+            }
+        });
+        processor.afterPropertiesSet();
+
+        BatchExcelRow excelRow = processor.process(createItem(LocalDate.parse("2000-01-05"), 25L));
+
+        Assert.assertNotNull(excelRow);
+        Assert.assertNull(excelRow.getIndex());
+        Assert.assertEquals(1, listeners.size());
+
+        listeners.get(0).onChange(Collections.emptyList(), Collections.singletonList(written));
+
+        Assert.assertNull(processor.process(createItem(LocalDate.parse("2000-01-05"), 25L)));
+        Assert.assertEquals(Long.valueOf(5L), processor.process(createItem(LocalDate.parse("2000-01-05"), 35L)).getIndex());
+        Assert.assertEquals(0, openCount);
+    }
+
+    /**
+     * Two files hold a row for the same date and the same sens: we expect a change of one file to keep the row of the
+     * other one.
+     */
+    @Test
+    public void testProcessRowIndexSameKeyInTwoFiles() throws Exception {
+        List<ExcelRowIndex.Listener> listeners = new ArrayList<>();
+        BatchExcelRow otherFileRow = createItem(LocalDate.parse("2000-01-02"), 8L);
+        BatchExcelRow previousRow = createItem(LocalDate.parse("2000-01-02"), 5L);
+
+        otherFileRow.setIndex(3L); // Indexes are counted per file
+        previousRow.setIndex(3L);
+        list.add(list.size() - 1, otherFileRow);
+        processor.setOutputReader(null);
+        processor.setRowIndex(new ExcelRowIndex() {
+            @Override
+            public List<BatchExcelRow> getRows() {
+                return new ArrayList<>(list);
+            }
+
+            @Override
+            public Slot findFirstEmptySlot() {
+                return new Slot(null, 0);
+            }
+
+            @Override
+            public void addListener(Listener listener) {
+                listeners.add(listener);
+            }
+        });
+        processor.afterPropertiesSet();
+
+        Assert.assertNull(processor.process(createItem(LocalDate.parse("2000-01-02"), 5L)));
+
+        // The row of the first file is removed
+        listeners.get(0).onChange(Collections.singletonList(previousRow), Collections.emptyList());
+
+        Assert.assertNull(processor.process(createItem(LocalDate.parse("2000-01-02"), 7L)));
+        Assert.assertEquals(Long.valueOf(3L), processor.process(createItem(LocalDate.parse("2000-01-02"), 9L)).getIndex());
+    }
+
+    private BatchExcelRow createItem(LocalDate date, Long delay) {
+        return new Builder(date, Sens.ARRIVAL) //
+                .departureStation(stationB) //
+                .arrivalStation(stationA) //
+                .expectedTrain1(new TrainLine.Builder(578L).build()) //
+                .expectedArrivalTime(LocalTime.parse("17:00")) //
+                .expectedDepartureTime(LocalTime.parse("17:05")) //
+                .effectiveTrain1(new TrainLine.Builder(578L).build()) //
+                .effectiveDepartureTime(LocalTime.parse("16:03")) //
+                .effectiveArrivalTime(LocalTime.parse("16:10")) //
+                .delay(delay) //
+                .build();
+    }
+
 }
@@ -0,0 +1,231 @@
+package be.raildelays.batch.processor;
+
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedFingerprint;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.StopTime;
+import be.raildelays.batch.gtfs.Trip;
+import be.raildelays.batch.listener.TripFingerprintListener;
+import org.easymock.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class FilterUnchangedTripProcessorTest extends EasyMockSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 1);
+
+    private static final Path FINGERPRINTS = Paths.get("./target/trips.fingerprints");
+
+    private FilterUnchangedTripProcessor processor;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<Stop> stopsReader;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        Files.deleteIfExists(FINGERPRINTS);
+        processor = createProcessor();
+    }
+
+    /**
+     * We expect a trip unknown of the previous load to be kept.
+     */
+    @Test
+    public void testAdded() throws Exception {
+        replayAll();
+
+        StepExecution stepExecution = execute(processor, createTrip("1", LocalTime.of(10, 0)), true);
+
+        assertEquals(1, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.ADDED_KEY));
+        assertTrue(Files.exists(FINGERPRINTS));
+    }
+
+    /**
+     * We expect a trip identical to the previous load to be filtered and a modified one to be kept.
+     */
+    @Test
+    public void testUnchangedAndChanged() throws Exception {
+        replayAll();
+
+        StepExecution first = MetaDataInstanceFactory.createStepExecution();
+
+        processor.beforeStep(first);
+        write(processor, createTrip("1", LocalTime.of(10, 0)));
+        write(processor, createTrip("2", LocalTime.of(11, 0)));
+        first.setExitStatus(ExitStatus.COMPLETED);
+        processor.afterStep(first);
+
+        FilterUnchangedTripProcessor second = createProcessor();
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+        second.beforeStep(stepExecution);
+        assertNull(second.process(createTrip("1", LocalTime.of(10, 0))));
+        assertNotNull(second.process(createTrip("2", LocalTime.of(11, 5))));
+        stepExecution.setExitStatus(ExitStatus.COMPLETED);
+        second.afterStep(stepExecution);
+
+        assertEquals(0, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.ADDED_KEY));
+        assertEquals(1, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.CHANGED_KEY));
+        assertEquals(1, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.UNCHANGED_KEY));
+    }
+
+    /**
+     * We expect a trip processed but not written (e.g. skipped by the writer) to be loaded again by the next
+     * execution, while a written one is filtered.
+     */
+    @Test
+    public void testSkippedTripReloaded() throws Exception {
+        replayAll();
+
+        TripFingerprintListener listener = new TripFingerprintListener();
+        StepExecution first = MetaDataInstanceFactory.createStepExecution();
+        Trip written = createTrip("1", LocalTime.of(10, 0));
+        Trip skipped = createTrip("2", LocalTime.of(11, 0));
+
+        listener.setFilterProcessor(processor);
+        listener.afterPropertiesSet();
+        processor.beforeStep(first);
+        listener.afterProcess(written, processor.process(written));
+        listener.afterProcess(skipped, processor.process(skipped));
+        listener.afterWrite(Collections.singletonList(written));
+        first.setExitStatus(ExitStatus.COMPLETED);
+        processor.afterStep(first);
+
+        FilterUnchangedTripProcessor second = createProcessor();
+
+        second.beforeStep(MetaDataInstanceFactory.createStepExecution());
+
+        assertNull(second.process(createTrip("1", LocalTime.of(10, 0))));
+        assertNotNull(second.process(createTrip("2", LocalTime.of(11, 0))));
+    }
+
+    /**
+     * We expect a trip of the previous load not met anymore to be counted as removed.
+     */
+    @Test
+    public void testRemoved() throws Exception {
+        replayAll();
+
+        execute(processor, createTrip("1", LocalTime.of(10, 0)), true);
+
+        FilterUnchangedTripProcessor second = createProcessor();
+        StepExecution stepExecution = execute(second, createTrip("2", LocalTime.of(10, 0)), true);
+
+        assertEquals(1, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.ADDED_KEY));
+        assertEquals(1, stepExecution.getExecutionContext().getInt(FilterUnchangedTripProcessor.REMOVED_KEY));
+        assertEquals(Collections.singleton("2"), GtfsFeedFingerprint.load(FINGERPRINTS).getTripIds(DATE));
+    }
+
+    /**
+     * We expect fingerprints to be kept untouched when the step fails.
+     */
+    @Test
+    public void testFailedStep() throws Exception {
+        replayAll();
+
+        execute(processor, createTrip("1", LocalTime.of(10, 0)), false);
+
+        assertFalse(Files.exists(FINGERPRINTS));
+    }
+
+    /**
+     * We expect every trip to be kept when we force the load.
+     */
+    @Test
+    public void testForce() throws Exception {
+        replayAll();
+
+        execute(processor, createTrip("1", LocalTime.of(10, 0)), true);
+
+        FilterUnchangedTripProcessor second = createProcessor();
+
+        second.setForce(true);
+        second.beforeStep(MetaDataInstanceFactory.createStepExecution());
+
+        assertNotNull(second.process(createTrip("1", LocalTime.of(10, 0))));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(FINGERPRINTS);
+    }
+
+    private FilterUnchangedTripProcessor createProcessor() throws Exception {
+        FilterUnchangedTripProcessor result = new FilterUnchangedTripProcessor();
+        GtfsFeedIndex feedIndex = new GtfsFeedIndex();
+
+        feedIndex.setStopsReader(stopsReader);
+        feedIndex.setCalendarDatesReader(calendarDatesReader);
+        result.setFeedIndex(feedIndex);
+        result.setDate(DATE);
+        result.setFingerprintResource(new FileSystemResource(FINGERPRINTS.toFile()));
+        result.afterPropertiesSet();
+
+        return result;
+    }
+
+    private static StepExecution execute(FilterUnchangedTripProcessor processor, Trip trip, boolean success)
+            throws Exception {
+        StepExecution result = MetaDataInstanceFactory.createStepExecution();
+
+        processor.beforeStep(result);
+        write(processor, trip);
+        result.setExitStatus(success ? ExitStatus.COMPLETED : ExitStatus.FAILED);
+        processor.afterStep(result);
+
+        return result;
+    }
+
+    /**
+     * Process a trip and record it, as done by the {@link TripFingerprintListener} once written.
+     */
+    private static void write(FilterUnchangedTripProcessor processor, Trip trip) throws Exception {
+        processor.process(trip);
+        processor.record(trip);
+    }
+
+    private static Trip createTrip(String tripId, LocalTime departureTime) {
+        Trip result = new Trip();
+        StopTime stopTime = new StopTime();
+
+        stopTime.setTripId(tripId);
+        stopTime.setStopId("stops:007015400:0");
+        stopTime.setStopSequence(1);
+        stopTime.setDepartureTime(departureTime);
+        result.setTripId(tripId);
+        result.setRouteId("routes:IC");
+        result.setServiceId("1");
+        result.setStopTimes(Collections.singletonList(stopTime));
+
+        return result;
+    }
+}
@@ -1,15 +1,22 @@
 package be.raildelays.batch.processor;
 
 import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.StopTime;
 import be.raildelays.batch.gtfs.Trip;
 import org.easymock.*;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.springframework.batch.item.ItemStreamReader;
 
+import java.time.LocalDate;
+
 import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 /**
@@ -18,15 +25,34 @@ import static org.junit.Assert.assertNull;
 @RunWith(BlockJUnit4ClassRunner.class)
 public class FilterUnscheduledTripProcessorTest extends EasyMockSupport {
 
-    @TestSubject
-    public FilterUnscheduledTripProcessor processor = new FilterUnscheduledTripProcessor();
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 1);
+
+    private FilterUnscheduledTripProcessor processor = new FilterUnscheduledTripProcessor();
 
     @Mock(type = MockType.NICE)
     private ItemStreamReader<CalendarDate> reader;
 
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<StopTime> stopTimesReader;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<Stop> stopsReader;
+
     @Rule
     public EasyMockRule easyMockRule = new EasyMockRule(this);
 
+    @Before
+    public void setUp() throws Exception {
+        GtfsFeedIndex feedIndex = new GtfsFeedIndex();
+
+        feedIndex.setStopTimesReader(stopTimesReader);
+        feedIndex.setStopsReader(stopsReader);
+        feedIndex.setCalendarDatesReader(reader);
+        processor.setFeedIndex(feedIndex);
+        processor.setDate(DATE);
+        processor.afterPropertiesSet();
+    }
+
     /**
      * We expect that with no tripId the Trip is filtered.
      */
@@ -40,4 +66,25 @@ public class FilterUnscheduledTripProcessorTest extends EasyMockSupport {
 
         assertNull(processor.process(new Trip()));
     }
-}
\ No newline at end of file
+
+    /**
+     * We expect that a Trip with a service running at our date is kept.
+     */
+    @Test
+    public void testProcessScheduled() throws Exception {
+        CalendarDate calendarDate = new CalendarDate();
+        Trip trip = new Trip();
+
+        calendarDate.setServiceId("1");
+        calendarDate.setDate(DATE);
+        calendarDate.setExceptionType(CalendarDate.ExceptionType.ADDED);
+        trip.setServiceId("1");
+
+        expect(reader.read()).andReturn(calendarDate);
+        expect(reader.read()).andReturn(null);
+
+        replayAll();
+
+        assertNotNull(processor.process(trip));
+    }
+}
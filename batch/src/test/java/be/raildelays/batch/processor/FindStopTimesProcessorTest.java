@@ -1,8 +1,12 @@
 package be.raildelays.batch.processor;
 
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Stop;
 import be.raildelays.batch.gtfs.StopTime;
 import be.raildelays.batch.gtfs.Trip;
 import org.easymock.*;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,6 +14,7 @@ import org.junit.runners.BlockJUnit4ClassRunner;
 import org.springframework.batch.item.ItemStreamReader;
 
 import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -19,15 +24,31 @@ import static org.junit.Assert.assertTrue;
 @RunWith(BlockJUnit4ClassRunner.class)
 public class FindStopTimesProcessorTest extends EasyMockSupport {
 
-    @TestSubject
-    public FindStopTimesProcessor processor = new FindStopTimesProcessor();
+    private FindStopTimesProcessor processor = new FindStopTimesProcessor();
 
     @Mock(type = MockType.NICE)
     private ItemStreamReader<StopTime> reader;
 
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<Stop> stopsReader;
+
+    @Mock(type = MockType.NICE)
+    private ItemStreamReader<CalendarDate> calendarDatesReader;
+
     @Rule
     public EasyMockRule easyMockRule = new EasyMockRule(this);
 
+    @Before
+    public void setUp() throws Exception {
+        GtfsFeedIndex feedIndex = new GtfsFeedIndex();
+
+        feedIndex.setStopTimesReader(reader);
+        feedIndex.setStopsReader(stopsReader);
+        feedIndex.setCalendarDatesReader(calendarDatesReader);
+        processor.setFeedIndex(feedIndex);
+        processor.afterPropertiesSet();
+    }
+
     /**
      * We expect that with no tripId the StopTime list is empty.
      */
@@ -44,4 +65,35 @@ public class FindStopTimesProcessorTest extends EasyMockSupport {
         assertNotNull(trip);
         assertTrue(trip.getStopTimes().isEmpty());
     }
-}
\ No newline at end of file
+
+    /**
+     * We expect to retrieve only the StopTime of our trip ordered by stop sequence.
+     */
+    @Test
+    public void testProcessWithTripId() throws Exception {
+        Trip trip = new Trip();
+
+        trip.setTripId("1");
+        expect(reader.read()).andReturn(createStopTime("1", 2));
+        expect(reader.read()).andReturn(createStopTime("2", 1));
+        expect(reader.read()).andReturn(createStopTime("1", 1));
+        expect(reader.read()).andReturn(null);
+
+        replayAll();
+
+        Trip result = processor.process(trip);
+
+        assertEquals(2, result.getStopTimes().size());
+        assertEquals(Integer.valueOf(1), result.getStopTimes().get(0).getStopSequence());
+        assertEquals(Integer.valueOf(2), result.getStopTimes().get(1).getStopSequence());
+    }
+
+    private static StopTime createStopTime(String tripId, int stopSequence) {
+        StopTime result = new StopTime();
+
+        result.setTripId(tripId);
+        result.setStopSequence(stopSequence);
+
+        return result;
+    }
+}
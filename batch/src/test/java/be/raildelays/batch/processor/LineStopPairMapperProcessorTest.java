@@ -0,0 +1,92 @@
+package be.raildelays.batch.processor;
+
+import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.delays.Delays;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.Language;
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.Sens;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * @author Almex
+ */
+public class LineStopPairMapperProcessorTest {
+
+    private LineStopPair fromA;
+
+    /**
+     * S.U.T.
+     */
+    private LineStopPairMapperProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        // A -> B
+        // 12:20-12:25(10) -> 12:55-13:00(20)
+        fromA = new LineStopPair(LocalDate.now(), new TrainLine.Builder(466L).build(),
+                new Station("stationA", "stationA-nl", "stationA-fr"),
+                TimeDelay.of(LocalTime.parse("12:25"), Delays.toMillis(10L)), false,
+                new Station("stationB", "stationB-nl", "stationB-fr"),
+                TimeDelay.of(LocalTime.parse("12:55"), Delays.toMillis(20L)), false);
+
+        processor = new LineStopPairMapperProcessor();
+        processor.setStationAName("stationA");
+        processor.setStationBName("stationB");
+        processor.setLanguage(Language.EN.name());
+        processor.afterPropertiesSet();
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        BatchExcelRow excelRow = processor.process(fromA);
+
+        Assert.assertEquals(fromA.getDepartureStation(), excelRow.getDepartureStation());
+        Assert.assertEquals(fromA.getArrivalStation(), excelRow.getArrivalStation());
+        Assert.assertEquals(new TrainLine.Builder(466L).build(), excelRow.getExpectedTrainLine1());
+        Assert.assertEquals(new TrainLine.Builder(466L).build(), excelRow.getEffectiveTrainLine1());
+        Assert.assertEquals(LocalTime.parse("12:25"), excelRow.getExpectedDepartureTime());
+        Assert.assertEquals(LocalTime.parse("12:55"), excelRow.getExpectedArrivalTime());
+        Assert.assertEquals(LocalTime.parse("12:35"), excelRow.getEffectiveDepartureTime());
+        Assert.assertEquals(LocalTime.parse("13:15"), excelRow.getEffectiveArrivalTime());
+        Assert.assertEquals(20, excelRow.getDelay().longValue());
+        Assert.assertFalse(excelRow.isCanceled());
+    }
+
+    @Test
+    public void testProcessSensDeparture() throws Exception {
+        BatchExcelRow excelRow = processor.process(fromA);
+
+        Assert.assertEquals(Sens.DEPARTURE, excelRow.getSens());
+    }
+
+    /**
+     * We expect the station names to be matched in the language of the job whatever the case.
+     */
+    @Test
+    public void testProcessSensArrival() throws Exception {
+        processor.setStationAName("STATIONB-FR");
+        processor.setStationBName("stationa-fr");
+        processor.setLanguage(Language.FR.name());
+
+        BatchExcelRow excelRow = processor.process(fromA);
+
+        Assert.assertEquals(Sens.ARRIVAL, excelRow.getSens());
+    }
+
+    @Test
+    public void testProcessCanceled() throws Exception {
+        LineStopPair canceled = new LineStopPair(fromA.getDate(), fromA.getTrainLine(),
+                fromA.getDepartureStation(), fromA.getDepartureTime(), false,
+                fromA.getArrivalStation(), fromA.getArrivalTime(), true);
+
+        Assert.assertTrue(processor.process(canceled).isCanceled());
+    }
+}
@@ -0,0 +1,110 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import org.easymock.EasyMockRule;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Almex
+ */
+public class DelaysItemReaderTest extends EasyMockSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 1);
+    private static final Station STATION = new Station("Liège-Guillemins");
+    private static final long THRESHOLD = 15L;
+
+    private DelaysItemReader reader;
+
+    @Mock
+    private LineStopDao lineStopDao;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        reader = new DelaysItemReader();
+        reader.setLineStopDao(lineStopDao);
+        reader.setDate(DATE);
+        reader.setStation(STATION);
+        reader.setDelayThreshold(THRESHOLD);
+        reader.setPageSize(2);
+        reader.afterPropertiesSet();
+    }
+
+    /**
+     * We expect each slice to be searched from the last line stop read and no more query after the last slice.
+     */
+    @Test
+    public void testRead() throws Exception {
+        LineStop first = createLineStop(1L);
+        LineStop second = createLineStop(2L);
+        LineStop third = createLineStop(3L);
+
+        expect(lineStopDao.findArrivalDelaysAfter(DATE, STATION, THRESHOLD, null, 2))
+                .andReturn(new SliceImpl<>(Arrays.asList(first, second), null, true));
+        expect(lineStopDao.findArrivalDelaysAfter(DATE, STATION, THRESHOLD, second, 2))
+                .andReturn(new SliceImpl<>(Collections.singletonList(third), null, false));
+
+        replayAll();
+
+        reader.open(new ExecutionContext());
+
+        assertSame(first, reader.read());
+        assertSame(second, reader.read());
+        assertSame(third, reader.read());
+        assertNull(reader.read());
+        assertNull(reader.read());
+
+        reader.close();
+
+        verifyAll();
+    }
+
+    /**
+     * We expect departure delays to be searched instead of arrival delays.
+     */
+    @Test
+    public void testReadDeparture() throws Exception {
+        reader.setDeparture(true);
+
+        expect(lineStopDao.findDepartureDelaysAfter(DATE, STATION, THRESHOLD, null, 2))
+                .andReturn(new SliceImpl<>(Collections.emptyList(), null, false));
+
+        replayAll();
+
+        reader.open(new ExecutionContext());
+
+        assertNull(reader.read());
+
+        reader.close();
+
+        verifyAll();
+    }
+
+    private static LineStop createLineStop(Long id) {
+        return new LineStop.Builder()
+                .id(id)
+                .date(DATE)
+                .station(STATION)
+                .trainLine(new TrainLine.Builder(id).build(false))
+                .build(false);
+    }
+}
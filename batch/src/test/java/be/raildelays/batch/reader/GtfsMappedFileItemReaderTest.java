@@ -0,0 +1,167 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.StopTime;
+import be.raildelays.batch.gtfs.StopTimesFieldSetMapper;
+import be.raildelays.batch.gtfs.StopsFieldSetMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.ZipEntryResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class GtfsMappedFileItemReaderTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("gtfs", ".txt");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * We expect to map only requested columns, whatever their position in the file,
+     * even when a line overlaps two memory-mapped windows.
+     */
+    @Test
+    public void testReadStopTimes() throws Exception {
+        GtfsMappedFileItemReader<StopTime> reader = new GtfsMappedFileItemReader<>();
+
+        write("\uFEFFstop_headsign,trip_id,arrival_time,departure_time,stop_id,stop_sequence\r\n" +
+                "foo,IC10611,05:36:00,05:36:00,stops:007015400:0,1\r\n" +
+                "\"bar, \"\"baz\"\"\",IC10611,05:39:00,05:40:00,stops:007015440:0,2\r\n");
+
+        reader.setResource(new FileSystemResource(file.toFile()));
+        reader.setNames(new String[]{"trip_id", "arrival_time", "departure_time", "stop_id", "stop_sequence"});
+        reader.setFieldSetMapper(new StopTimesFieldSetMapper());
+        reader.setWindowSize(16);
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        try {
+            StopTime first = reader.read();
+            StopTime second = reader.read();
+
+            assertEquals("IC10611", first.getTripId());
+            assertEquals(LocalTime.of(5, 36), first.getArrivalTime());
+            assertEquals("stops:007015400:0", first.getStopId());
+            assertEquals(Integer.valueOf(1), first.getStopSequence());
+            assertEquals(LocalTime.of(5, 40), second.getDepartureTime());
+            assertEquals(Integer.valueOf(2), second.getStopSequence());
+            assertNull(second.getStopHeadsign());
+            assertNull(reader.read());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * We expect by default to decode all columns, quoted ones included and missing ones as empty.
+     */
+    @Test
+    public void testReadAllColumns() throws Exception {
+        GtfsMappedFileItemReader<Stop> reader = new GtfsMappedFileItemReader<>();
+
+        write("stop_id,stop_name,stop_lat,stop_lon,platform_code,parent_station,location_type\n" +
+                "stops:007015400,\"London, Saint Pancras\",51.5310399,-0.1260606,,,1\n" +
+                "\n");
+
+        reader.setResource(new FileSystemResource(file.toFile()));
+        reader.setFieldSetMapper(new StopsFieldSetMapper());
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        try {
+            Stop stop = reader.read();
+
+            assertEquals("stops:007015400", stop.getStopId());
+            assertEquals("London, Saint Pancras", stop.getStopName());
+            assertEquals(Stop.LocationType.PHYSICAL, stop.getLocationType());
+            assertNull(reader.read());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * We expect to extract an entry of a zip archive into a temporary file to memory-map it, and to delete
+     * that file on close.
+     */
+    @Test
+    public void testReadFromZip() throws Exception {
+        GtfsMappedFileItemReader<StopTime> reader = new GtfsMappedFileItemReader<>();
+        Path directory = Files.createTempDirectory("gtfs");
+        int count = 0;
+
+        reader.setResource(new ZipEntryResource(new ClassPathResource("nmbs-latest.zip"), "stop_times.txt"));
+        reader.setNames(new String[]{"trip_id", "arrival_time", "departure_time", "stop_id", "stop_sequence"});
+        reader.setFieldSetMapper(new StopTimesFieldSetMapper());
+        reader.setTempDirectory(new FileSystemResource(directory.toFile()));
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        try {
+            assertEquals(1, directory.toFile().list().length);
+
+            for (StopTime stopTime = reader.read(); stopTime != null; stopTime = reader.read()) {
+                assertNotNull(stopTime.getTripId());
+                assertNotNull(stopTime.getStopSequence());
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+
+        assertTrue(count > 1);
+        assertEquals(0, directory.toFile().list().length);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testNotStrict() throws Exception {
+        GtfsMappedFileItemReader<Stop> reader = new GtfsMappedFileItemReader<>();
+
+        reader.setResource(new FileSystemResource(new File(file.toFile(), "foo")));
+        reader.setFieldSetMapper(new StopsFieldSetMapper());
+        reader.setStrict(false);
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        assertNull(reader.read());
+
+        reader.close();
+    }
+
+    @Test(expected = ItemStreamException.class)
+    public void testStrict() throws Exception {
+        GtfsMappedFileItemReader<Stop> reader = new GtfsMappedFileItemReader<>();
+
+        reader.setResource(new FileSystemResource(new File(file.toFile(), "foo")));
+        reader.setFieldSetMapper(new StopsFieldSetMapper());
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+    }
+
+    private void write(String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
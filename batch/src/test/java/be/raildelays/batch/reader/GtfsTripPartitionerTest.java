@@ -0,0 +1,60 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.Trip;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * @author Almex
+ */
+public class GtfsTripPartitionerTest {
+
+    private GtfsTripPartitioner partitioner;
+
+    @Before
+    public void setUp() throws Exception {
+        partitioner = new GtfsTripPartitioner();
+        partitioner.afterPropertiesSet();
+    }
+
+    /**
+     * We expect one ExecutionContext per partition with its index, the number of partitions and the key.
+     */
+    @Test
+    public void testPartition() throws Exception {
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        Assert.assertEquals(4, partitions.size());
+        Assert.assertEquals(2, partitions.get("partition2").getInt(GtfsTripPartitioner.INDEX_KEY));
+        Assert.assertEquals(4, partitions.get("partition2").getInt(GtfsTripPartitioner.COUNT_KEY));
+        Assert.assertEquals("ROUTE_ID", partitions.get("partition2").getString(GtfsTripPartitioner.KEY_KEY));
+        Assert.assertEquals(1, partitioner.partition(0).size());
+    }
+
+    /**
+     * We expect each trip to belong to exactly one partition and trips of the same route to the same one.
+     */
+    @Test
+    public void testIsInPartition() throws Exception {
+        Trip trip = new Trip();
+        Trip sameRoute = new Trip();
+
+        trip.setRouteId("routes:IC");
+        trip.setTripId("1");
+        sameRoute.setRouteId("routes:IC");
+        sameRoute.setTripId("2");
+
+        Assert.assertEquals(1, IntStream.range(0, 4)
+                .filter(index -> GtfsTripPartitioner.isInPartition(trip, GtfsTripPartitioner.Key.TRIP_ID, index, 4))
+                .count());
+        Assert.assertTrue(IntStream.range(0, 4)
+                .allMatch(index -> GtfsTripPartitioner.isInPartition(trip, GtfsTripPartitioner.Key.ROUTE_ID, index, 4)
+                        == GtfsTripPartitioner.isInPartition(sameRoute, GtfsTripPartitioner.Key.ROUTE_ID, index, 4)));
+        Assert.assertTrue(GtfsTripPartitioner.isInPartition(trip, GtfsTripPartitioner.Key.ROUTE_ID, 0, 1));
+    }
+}
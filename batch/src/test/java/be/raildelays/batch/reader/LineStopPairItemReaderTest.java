@@ -0,0 +1,82 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import org.easymock.EasyMockRule;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Almex
+ */
+public class LineStopPairItemReaderTest extends EasyMockSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2000, 1, 1);
+    private static final Station STATION_A = new Station("Liège-Guillemins");
+    private static final Station STATION_B = new Station("Bruxelles-Central");
+    private static final long THRESHOLD = 15L;
+
+    private LineStopPairItemReader reader;
+
+    @Mock
+    private LineStopDao lineStopDao;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        reader = new LineStopPairItemReader();
+        reader.setLineStopDao(lineStopDao);
+        reader.setDate(DATE);
+        reader.setStationA(STATION_A);
+        reader.setStationB(STATION_B);
+        reader.setDelayThreshold(THRESHOLD);
+        reader.afterPropertiesSet();
+    }
+
+    /**
+     * We expect a single query when the stream is opened.
+     */
+    @Test
+    public void testRead() throws Exception {
+        LineStopPair first = createLineStopPair(466L);
+        LineStopPair second = createLineStopPair(477L);
+
+        expect(lineStopDao.findDelayedPairs(DATE, STATION_A, STATION_B, THRESHOLD))
+                .andReturn(Arrays.asList(first, second));
+
+        replayAll();
+
+        reader.open(new ExecutionContext());
+
+        assertSame(first, reader.read());
+        assertSame(second, reader.read());
+        assertNull(reader.read());
+
+        reader.close();
+
+        verifyAll();
+    }
+
+    private static LineStopPair createLineStopPair(Long routeId) {
+        return new LineStopPair(DATE, new TrainLine.Builder(routeId).build(false),
+                STATION_A, TimeDelay.of(LocalTime.of(12, 0)), false,
+                STATION_B, TimeDelay.of(LocalTime.of(13, 0)), false);
+    }
+}
@@ -0,0 +1,126 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedIndex;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.Trip;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.ItemStreamItemReaderDelegator;
+import org.springframework.batch.item.support.IteratorItemReader;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Almex
+ */
+public class ScheduledTripItemReaderTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2015, 1, 5);
+
+    private ScheduledTripItemReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        GtfsFeedIndex feedIndex = new GtfsFeedIndex();
+
+        feedIndex.setStopsReader(new ItemStreamItemReaderDelegator<>(
+                new IteratorItemReader<>(Collections.<Stop>emptyList())));
+        feedIndex.setCalendarDatesReader(new ItemStreamItemReaderDelegator<>(new IteratorItemReader<>(Arrays.asList(
+                createCalendarDate("weekday", MONDAY),
+                createCalendarDate("weekday", MONDAY.plusDays(1)),
+                createCalendarDate("weekday", MONDAY.plusDays(4)),
+                createCalendarDate("sunday", MONDAY.minusDays(1))
+        ))));
+
+        reader = new ScheduledTripItemReader();
+        reader.setDelegate(new ItemStreamItemReaderDelegator<>(new IteratorItemReader<>(Arrays.asList(
+                createTrip("1", "weekday"),
+                createTrip("2", "sunday"),
+                createTrip("3", "weekday")
+        ))));
+        reader.setFeedIndex(feedIndex);
+        reader.setStartDate(MONDAY);
+        reader.setEndDate(MONDAY.plusDays(4));
+        reader.afterPropertiesSet();
+    }
+
+    /**
+     * We expect one copy of each trip per date of the range at which it runs.
+     */
+    @Test
+    public void testRead() throws Exception {
+        List<Trip> trips = readAll();
+
+        assertEquals(6, trips.size());
+        assertEquals("1", trips.get(0).getTripId());
+        assertEquals(MONDAY, trips.get(0).getServiceDate());
+        assertEquals(MONDAY.plusDays(1), trips.get(1).getServiceDate());
+        assertEquals(MONDAY.plusDays(4), trips.get(2).getServiceDate());
+        assertEquals("3", trips.get(3).getTripId());
+        assertSame(trips.get(0).getStopTimes(), trips.get(1).getStopTimes());
+    }
+
+    /**
+     * We expect only one date without end date.
+     */
+    @Test
+    public void testReadWithoutEndDate() throws Exception {
+        reader.setEndDate(null);
+
+        assertEquals(2, readAll().size());
+    }
+
+    /**
+     * We expect an end date before the start date to be refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAfterPropertiesSet() throws Exception {
+        reader.setEndDate(MONDAY.minusDays(1));
+        reader.afterPropertiesSet();
+    }
+
+    private List<Trip> readAll() throws Exception {
+        List<Trip> result = new ArrayList<>();
+
+        reader.open(new ExecutionContext());
+
+        try {
+            for (Trip trip = reader.read(); trip != null; trip = reader.read()) {
+                result.add(trip);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
+    private static Trip createTrip(String tripId, String serviceId) {
+        Trip result = new Trip();
+
+        result.setTripId(tripId);
+        result.setServiceId(serviceId);
+        result.setStopTimes(new ArrayList<>());
+
+        return result;
+    }
+
+    private static CalendarDate createCalendarDate(String serviceId, LocalDate date) {
+        CalendarDate result = new CalendarDate();
+
+        result.setServiceId(serviceId);
+        result.setDate(date);
+        result.setExceptionType(CalendarDate.ExceptionType.ADDED);
+
+        return result;
+    }
+}
@@ -0,0 +1,178 @@
+package be.raildelays.batch.reader;
+
+import be.raildelays.batch.gtfs.StopTime;
+import be.raildelays.batch.gtfs.Trip;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class TripStopTimesJoinItemReaderTest {
+
+    private TripStopTimesJoinItemReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        reader = new TripStopTimesJoinItemReader();
+        reader.setTripsReader(new ListItemStreamReader<>(Arrays.asList(
+                createTrip("3"),
+                createTrip("1"),
+                createTrip("2")
+        )));
+        reader.setSortChunkSize(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+    }
+
+    /**
+     * We expect that the pre-sort stage re-group stop times per trip and return trips ordered by trip_id,
+     * each with its stop times ordered by stop sequence.
+     */
+    @Test
+    public void testReadNotSorted() throws Exception {
+        reader.setStopTimesReader(new ListItemStreamReader<>(Arrays.asList(
+                createStopTime("2", 2),
+                createStopTime("1", 1),
+                createStopTime("3", 1),
+                createStopTime("2", 1),
+                createStopTime("1", 2)
+        )));
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        for (String tripId : Arrays.asList("1", "2")) {
+            Trip trip = reader.read();
+
+            assertEquals(tripId, trip.getTripId());
+            assertEquals(2, trip.getStopTimes().size());
+            assertEquals(Integer.valueOf(1), trip.getStopTimes().get(0).getStopSequence());
+            assertEquals(Integer.valueOf(2), trip.getStopTimes().get(1).getStopSequence());
+        }
+
+        assertEquals("3", reader.read().getTripId());
+        assertNull(reader.read());
+    }
+
+    /**
+     * We expect to skip trips without stop times and stop times without trip (inner join).
+     */
+    @Test
+    public void testReadInnerJoin() throws Exception {
+        reader.setStopTimesReader(new ListItemStreamReader<>(Arrays.asList(
+                createStopTime("4", 1),
+                createStopTime("2", 2),
+                createStopTime("0", 1),
+                createStopTime("2", 1)
+        )));
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        Trip trip = reader.read();
+
+        assertEquals("2", trip.getTripId());
+        assertEquals(2, trip.getStopTimes().size());
+        assertEquals(Integer.valueOf(1), trip.getStopTimes().get(0).getStopSequence());
+        assertNull(reader.read());
+    }
+
+    /**
+     * We expect to merge both files as is when they are already sorted by trip_id.
+     */
+    @Test
+    public void testReadSortedWithoutPresort() throws Exception {
+        reader.setPresort(TripStopTimesJoinItemReader.Presort.NEVER);
+        reader.setTripsReader(new ListItemStreamReader<>(Arrays.asList(
+                createTrip("1"),
+                createTrip("2"),
+                createTrip("3")
+        )));
+        reader.setStopTimesReader(new ListItemStreamReader<>(Arrays.asList(
+                createStopTime("1", 2),
+                createStopTime("1", 1),
+                createStopTime("3", 1)
+        )));
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        Trip trip = reader.read();
+
+        assertEquals("1", trip.getTripId());
+        assertEquals(Integer.valueOf(1), trip.getStopTimes().get(0).getStopSequence());
+        assertEquals("3", reader.read().getTripId());
+        assertNull(reader.read());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadNotSortedWithoutPresort() throws Exception {
+        reader.setPresort(TripStopTimesJoinItemReader.Presort.NEVER);
+        reader.setTripsReader(new ListItemStreamReader<>(Arrays.asList(
+                createTrip("1"),
+                createTrip("2")
+        )));
+        reader.setStopTimesReader(new ListItemStreamReader<>(Arrays.asList(
+                createStopTime("2", 1),
+                createStopTime("1", 1)
+        )));
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+
+        for (Trip trip = reader.read(); trip != null; trip = reader.read()) {
+            assertNotNull(trip.getTripId());
+        }
+    }
+
+    private static Trip createTrip(String tripId) {
+        Trip result = new Trip();
+
+        result.setTripId(tripId);
+
+        return result;
+    }
+
+    private static StopTime createStopTime(String tripId, int stopSequence) {
+        StopTime result = new StopTime();
+
+        result.setTripId(tripId);
+        result.setStopSequence(stopSequence);
+
+        return result;
+    }
+
+    /**
+     * Re-start from the beginning of the list at each opening.
+     */
+    private static class ListItemStreamReader<T> extends AbstractItemStreamItemReader<T>
+            implements ItemStreamReader<T> {
+
+        private final List<T> items;
+        private Iterator<T> iterator;
+
+        ListItemStreamReader(List<T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void open(ExecutionContext executionContext) {
+            iterator = items.iterator();
+        }
+
+        @Override
+        public T read() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+}
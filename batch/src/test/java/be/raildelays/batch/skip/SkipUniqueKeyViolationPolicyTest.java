@@ -4,6 +4,7 @@ import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
 
 import javax.persistence.PersistenceException;
 import java.sql.SQLException;
@@ -63,6 +64,18 @@ public class SkipUniqueKeyViolationPolicyTest {
         );
     }
 
+    @Test
+    public void testSkipDuplicateKeyException() throws Exception {
+        Assert.assertTrue(skipPolicy.shouldSkip(new DuplicateKeyException("foo",
+                        new SQLIntegrityConstraintViolationException(
+                                SkipUniqueKeyViolationPolicy.CONSTRAINT_NAMES[0]
+                        )
+                        ),
+                        0
+                )
+        );
+    }
+
     @Test
     public void testNotSkipException() throws Exception {
         Assert.assertFalse(skipPolicy.shouldSkip(new Exception(), 0));
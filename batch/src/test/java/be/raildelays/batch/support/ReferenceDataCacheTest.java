@@ -0,0 +1,139 @@
+package be.raildelays.batch.support;
+
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.StationDao;
+import be.raildelays.repository.TrainLineDao;
+import org.easymock.EasyMockRule;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.easymock.TestSubject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Almex
+ */
+@SuppressWarnings("unused") // Mocks are injected via EasyMockRule
+public class ReferenceDataCacheTest extends EasyMockSupport {
+
+    @TestSubject
+    private ReferenceDataCache cache = new ReferenceDataCache();
+
+    @Mock
+    private StationDao stationDao;
+    @Mock
+    private TrainLineDao trainLineDao;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        cache.setStationDao(stationDao);
+        cache.setTrainLineDao(trainLineDao);
+        cache.afterPropertiesSet();
+    }
+
+    /**
+     * We expect the cache to be warmed once and to count hits and misses into the step execution context.
+     */
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+        expect(stationDao.findAll()).andReturn(Collections.singletonList(createStation(1L, "Liège-Guillemins")));
+        expect(trainLineDao.findAll()).andReturn(Collections.singletonList(createTrainLine(2L, 466L)));
+
+        replayAll();
+
+        cache.beforeStep(stepExecution);
+        cache.warm();
+
+        assertEquals(Long.valueOf(1L), cache.getStationId(new Station("Liège-Guillemins", null, null),
+                this::unexpected));
+        assertEquals(Long.valueOf(1L), cache.getStationId(new Station(null, null, "Liège-Guillemins"),
+                this::unexpected));
+        assertEquals(Long.valueOf(3L), cache.getStationId(new Station("Namur"), () -> createStation(3L, "Namur")));
+        assertEquals(Long.valueOf(3L), cache.getStationId(new Station("Namur"), this::unexpected));
+        assertEquals(Long.valueOf(2L), cache.getTrainLineId(new TrainLine.Builder(466L).build(false),
+                this::unexpected));
+
+        cache.afterStep(stepExecution);
+
+        assertEquals(3L, stepExecution.getExecutionContext().getLong(ReferenceDataCache.STATION_HITS_KEY));
+        assertEquals(1L, stepExecution.getExecutionContext().getLong(ReferenceDataCache.STATION_MISSES_KEY));
+        assertEquals(1L, stepExecution.getExecutionContext().getLong(ReferenceDataCache.TRAIN_LINE_HITS_KEY));
+        assertEquals(0L, stepExecution.getExecutionContext().getLong(ReferenceDataCache.TRAIN_LINE_MISSES_KEY));
+        assertEquals(0L, cache.getStationHits());
+        verifyAll();
+    }
+
+    /**
+     * We expect concurrent misses on the same key to call the supplier only once.
+     */
+    @Test
+    public void testConcurrentMisses() throws Exception {
+        final int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger created = new AtomicInteger();
+        Future<?>[] futures = new Future<?>[threads];
+
+        expect(stationDao.findAll()).andReturn(Collections.emptyList());
+        expect(trainLineDao.findAll()).andReturn(Collections.emptyList());
+
+        replayAll();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> cache.getTrainLineId(new TrainLine.Builder(466L).build(false),
+                        () -> {
+                            created.incrementAndGet();
+                            return createTrainLine(2L, 466L);
+                        }));
+            }
+
+            for (Future<?> future : futures) {
+                assertEquals(2L, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(threads, cache.getTrainLineHits() + cache.getTrainLineMisses());
+        verifyAll();
+    }
+
+    private <T> T unexpected() {
+        fail("The supplier should not be called on a hit");
+
+        return null;
+    }
+
+    private static Station createStation(Long id, String name) {
+        Station result = new Station(name, null, name);
+
+        ReflectionTestUtils.setField(result, "id", id);
+
+        return result;
+    }
+
+    private static TrainLine createTrainLine(Long id, Long routeId) {
+        return new TrainLine.Builder(routeId).id(id).build(false);
+    }
+}
@@ -0,0 +1,163 @@
+package be.raildelays.batch.support;
+
+import be.raildelays.batch.AbstractFileTest;
+import be.raildelays.batch.bean.BatchExcelRow;
+import be.raildelays.batch.bean.ExcelRowComparator;
+import be.raildelays.batch.reader.BatchExcelRowMapper;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.ExcelSheetItemReader;
+import org.springframework.batch.item.resource.IndexedResourceAwareItemStreamReader;
+import org.springframework.batch.item.resource.SimpleResourceItemSearch;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Almex
+ */
+public class SidecarExcelRowIndexTest extends AbstractFileTest {
+
+    private static final Path INDEX_PATH = Paths.get(CURRENT_PATH, SidecarExcelRowIndex.DEFAULT_INDEX_FILE_NAME);
+
+    private ExcelSheetItemReader<BatchExcelRow> reader;
+
+    private SidecarExcelRowIndex rowIndex;
+
+    @Before
+    public void setUp() throws Exception {
+        BatchExcelRowMapper rowMapper = new BatchExcelRowMapper();
+
+        Files.createDirectories(Paths.get(CURRENT_PATH));
+        cleanUp();
+        Files.deleteIfExists(INDEX_PATH);
+        copyFile();
+
+        reader = new ExcelSheetItemReader<>();
+        reader.setName("test");
+        reader.setRowsToSkip(21);
+        reader.setMaxItemCount(40);
+        reader.setStreaming(true);
+        reader.setRowMapper(rowMapper);
+        reader.afterPropertiesSet();
+
+        rowIndex = createIndex(reader);
+    }
+
+    /**
+     * We expect to find the same first empty row than a full search and to save the index next to the Excel file.
+     */
+    @Test
+    public void testFirstEmptySlot() throws Exception {
+        SimpleResourceItemSearch<BatchExcelRow> resourceItemSearch = new SimpleResourceItemSearch<>();
+
+        resourceItemSearch.setReader(reader);
+        resourceItemSearch.setComparator(new ExcelRowComparator<>());
+
+        rowIndex.open(new ExecutionContext());
+
+        ExcelRowIndex.Slot slot = rowIndex.findFirstEmptySlot();
+        List<BatchExcelRow> rows = rowIndex.getRows();
+
+        Assert.assertNotNull(slot);
+        Assert.assertEquals(EXCEL_FILE_NAME, slot.getFile().getName());
+        Assert.assertEquals(resourceItemSearch.indexOf(BatchExcelRow.EMPTY, new FileSystemResource(slot.getFile())),
+                slot.getIndex());
+        Assert.assertFalse(rows.isEmpty());
+        Assert.assertSame(BatchExcelRow.EMPTY, rows.get(rows.size() - 1));
+        Assert.assertTrue(Files.exists(INDEX_PATH));
+
+        rowIndex.close();
+    }
+
+    /**
+     * We expect an unmodified Excel file to never be read again: rows come from the saved index.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        IndexedResourceAwareItemStreamReader<BatchExcelRow> unusedReader = EasyMock.createMock(
+                IndexedResourceAwareItemStreamReader.class);
+        List<BatchExcelRow> expected = rowIndex.getRows();
+        ExcelRowIndex.Slot expectedSlot = rowIndex.findFirstEmptySlot();
+
+        EasyMock.replay(unusedReader);
+
+        SidecarExcelRowIndex loaded = createIndex(unusedReader);
+
+        loaded.open(new ExecutionContext());
+
+        List<BatchExcelRow> actual = loaded.getRows();
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(expected.get(i).getIndex(), actual.get(i).getIndex());
+            Assert.assertEquals(expected.get(i).getDate(), actual.get(i).getDate());
+            Assert.assertEquals(expected.get(i).getDepartureStation(), actual.get(i).getDepartureStation());
+            Assert.assertEquals(expected.get(i).getArrivalStation(), actual.get(i).getArrivalStation());
+            Assert.assertEquals(expected.get(i).getDelay(), actual.get(i).getDelay());
+        }
+        Assert.assertEquals(expectedSlot.getIndex(), loaded.findFirstEmptySlot().getIndex());
+
+        loaded.close();
+
+        EasyMock.verify(unusedReader);
+    }
+
+    /**
+     * We expect a modified Excel file to be read again and a removed one to be dropped from the index, listeners
+     * being notified of both.
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        File file = new File(CURRENT_PATH + EXCEL_FILE_NAME);
+        List<BatchExcelRow> expected = rowIndex.getRows();
+        List<Integer[]> changes = new ArrayList<>();
+
+        rowIndex.addListener((previousRows, rows) -> changes.add(new Integer[]{previousRows.size(), rows.size()}));
+
+        Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+
+        rowIndex.update(new ExecutionContext());
+
+        Assert.assertEquals(expected.size(), rowIndex.getRows().size());
+        Assert.assertTrue(new String(Files.readAllBytes(INDEX_PATH), StandardCharsets.UTF_8)
+                .contains(String.valueOf(Files.getLastModifiedTime(file.toPath()).toMillis())));
+
+        Assert.assertTrue(file.delete());
+
+        rowIndex.update(new ExecutionContext());
+
+        Assert.assertTrue(rowIndex.getRows().isEmpty());
+        Assert.assertNull(rowIndex.findFirstEmptySlot());
+        Assert.assertEquals(2, changes.size());
+        Assert.assertArrayEquals(new Integer[]{expected.size() - 1, expected.size() - 1}, changes.get(0));
+        Assert.assertArrayEquals(new Integer[]{expected.size() - 1, 0}, changes.get(1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cleanUp();
+        Files.deleteIfExists(INDEX_PATH);
+    }
+
+    private static SidecarExcelRowIndex createIndex(IndexedResourceAwareItemStreamReader<BatchExcelRow> reader)
+            throws Exception {
+        SidecarExcelRowIndex result = new SidecarExcelRowIndex();
+
+        result.setDirectory(new FileSystemResource(CURRENT_PATH));
+        result.setReader(reader);
+        result.afterPropertiesSet();
+
+        return result;
+    }
+}
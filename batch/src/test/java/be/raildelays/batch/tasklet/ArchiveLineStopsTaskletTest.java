@@ -0,0 +1,89 @@
+package be.raildelays.batch.tasklet;
+
+import be.raildelays.repository.LineStopDao;
+import org.easymock.EasyMockRule;
+import org.easymock.EasyMockSupport;
+import org.easymock.Mock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.easymock.EasyMock.expect;
+
+/**
+ * @author Almex
+ */
+public class ArchiveLineStopsTaskletTest extends EasyMockSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2000, 7, 15);
+    private static final LocalDate HORIZON = LocalDate.of(2000, 1, 15);
+
+    private ArchiveLineStopsTasklet tasklet;
+
+    private StepContribution contribution;
+
+    private ChunkContext chunkContext;
+
+    @Mock
+    private LineStopDao lineStopDao;
+
+    @Rule
+    public EasyMockRule easyMockRule = new EasyMockRule(this);
+
+    @Before
+    public void setUp() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+
+        tasklet = new ArchiveLineStopsTasklet();
+        tasklet.setLineStopDao(lineStopDao);
+        tasklet.setDate(DATE);
+        tasklet.setMaxNumberOfMonth(6);
+        tasklet.afterPropertiesSet();
+        contribution = new StepContribution(stepExecution);
+        chunkContext = new ChunkContext(new StepContext(stepExecution));
+    }
+
+    /**
+     * We expect the oldest day to be archived first and to be called again for the next one.
+     */
+    @Test
+    public void testExecute() throws Exception {
+        expect(lineStopDao.findNotArchivedDates(HORIZON))
+                .andReturn(Arrays.asList(LocalDate.of(1999, 12, 31), LocalDate.of(2000, 1, 1)));
+        expect(lineStopDao.archive(LocalDate.of(1999, 12, 31))).andReturn(42);
+        expect(lineStopDao.findNotArchivedDates(HORIZON))
+                .andReturn(Collections.singletonList(LocalDate.of(2000, 1, 1)));
+        expect(lineStopDao.archive(LocalDate.of(2000, 1, 1))).andReturn(8);
+
+        replayAll();
+
+        Assert.assertEquals(RepeatStatus.CONTINUABLE, tasklet.execute(contribution, chunkContext));
+        Assert.assertEquals(RepeatStatus.FINISHED, tasklet.execute(contribution, chunkContext));
+        Assert.assertEquals(50, contribution.getWriteCount());
+
+        verifyAll();
+    }
+
+    @Test
+    public void testExecuteNothingToArchive() throws Exception {
+        expect(lineStopDao.findNotArchivedDates(HORIZON)).andReturn(Collections.emptyList());
+
+        replayAll();
+
+        Assert.assertEquals(RepeatStatus.FINISHED, tasklet.execute(contribution, chunkContext));
+        Assert.assertEquals(0, contribution.getWriteCount());
+
+        verifyAll();
+    }
+}
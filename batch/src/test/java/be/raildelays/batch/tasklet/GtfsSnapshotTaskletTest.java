@@ -0,0 +1,128 @@
+package be.raildelays.batch.tasklet;
+
+import be.raildelays.batch.gtfs.CalendarDate;
+import be.raildelays.batch.gtfs.GtfsFeedSnapshot;
+import be.raildelays.batch.gtfs.Stop;
+import be.raildelays.batch.gtfs.Trip;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.file.HttpDownloadFileTasklet;
+import org.springframework.batch.item.support.ItemStreamItemReaderDelegator;
+import org.springframework.batch.item.support.IteratorItemReader;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Almex
+ */
+public class GtfsSnapshotTaskletTest {
+
+    private static final Path DIRECTORY = Paths.get("./target/snapshot");
+
+    private static final Path FEED = DIRECTORY.resolve("feed.zip");
+
+    private GtfsSnapshotTasklet tasklet;
+
+    @Before
+    public void setUp() throws Exception {
+        cleanUp();
+        Files.createDirectories(DIRECTORY);
+        Files.write(FEED, new byte[]{1, 2, 3});
+
+        tasklet = new GtfsSnapshotTasklet();
+        tasklet.setFeed(new FileSystemResource(FEED.toFile()));
+        tasklet.setStopsReader(new ItemStreamItemReaderDelegator<>(
+                new IteratorItemReader<>(Collections.singletonList(new Stop()))));
+        tasklet.setCalendarDatesReader(new ItemStreamItemReaderDelegator<>(
+                new IteratorItemReader<>(Collections.<CalendarDate>emptyList())));
+        tasklet.setTripsReader(new ItemStreamItemReaderDelegator<>(
+                new IteratorItemReader<>(Arrays.asList(new Trip(), new Trip()))));
+        tasklet.afterPropertiesSet();
+    }
+
+    /**
+     * We expect the snapshot to be written the first time, stored into the job context and then reused.
+     */
+    @Test
+    public void testExecute() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        StepContribution first = execute(stepExecution);
+        String uri = stepExecution.getJobExecution().getExecutionContext().getString(GtfsSnapshotTasklet.SNAPSHOT_KEY);
+        GtfsFeedSnapshot snapshot = GtfsFeedSnapshot.open(Paths.get(new java.net.URI(uri)));
+
+        assertEquals(1, first.getWriteCount());
+        assertEquals(2, snapshot.getTripCount());
+        assertEquals(1, snapshot.getStops().size());
+        assertEquals(0, execute(MetaDataInstanceFactory.createStepExecution()).getWriteCount());
+    }
+
+    /**
+     * We expect to key the snapshot by the SHA-256 given by the download step, without hashing the feed again.
+     */
+    @Test
+    public void testExecuteWithDownloadHash() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        String hash = String.format("%064x", 42);
+
+        stepExecution.getJobExecution().getExecutionContext().putString(HttpDownloadFileTasklet.SHA256_KEY, hash);
+        execute(stepExecution);
+
+        String uri = stepExecution.getJobExecution().getExecutionContext().getString(GtfsSnapshotTasklet.SNAPSHOT_KEY);
+
+        assertEquals(hash, GtfsFeedSnapshot.open(Paths.get(new java.net.URI(uri))).getFeedHash());
+    }
+
+    /**
+     * We expect a new feed to replace the snapshot of the previous one.
+     */
+    @Test
+    public void testExecuteNewFeed() throws Exception {
+        execute(MetaDataInstanceFactory.createStepExecution());
+        Files.write(FEED, new byte[]{4, 5, 6});
+
+        assertEquals(1, execute(MetaDataInstanceFactory.createStepExecution()).getWriteCount());
+
+        try (Stream<Path> paths = Files.list(DIRECTORY)) {
+            assertEquals(2, paths.count()); // The feed and its snapshot
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cleanUp();
+    }
+
+    private StepContribution execute(StepExecution stepExecution) throws Exception {
+        StepContribution result = new StepContribution(stepExecution);
+
+        tasklet.execute(result, new ChunkContext(new StepContext(stepExecution)));
+
+        return result;
+    }
+
+    private static void cleanUp() throws Exception {
+        if (Files.exists(DIRECTORY)) {
+            try (Stream<Path> paths = Files.list(DIRECTORY)) {
+                for (Path path : new ArrayList<>(Arrays.asList(paths.toArray(Path[]::new)))) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.springframework.batch.item.file;
 
 import be.raildelays.batch.bean.BatchExcelRow;
 import be.raildelays.batch.reader.BatchExcelRowMapper;
+import be.raildelays.batch.writer.ExcelRowAggregator;
 import be.raildelays.domain.xls.ExcelRow;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.junit.Assert;
@@ -20,8 +21,12 @@ import org.springframework.core.io.FileSystemResource;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author Almex
@@ -130,4 +135,89 @@ public class ExcelSheetItemReaderTest {
         reader.read();
     }
 
+    /**
+     * We expect to read the same rows from an OLE2 file with and without streaming.
+     */
+    @Test
+    public void testStreamingOLE2() throws Exception {
+        List<BatchExcelRow> expected = readAll(reader);
+
+        reader.setStreaming(true);
+
+        assertSameRows(expected, readAll(reader));
+    }
+
+    /**
+     * We expect to read the same rows from an OOXML file with and without streaming.
+     */
+    @Test
+    public void testStreamingOOXML() throws Exception {
+        Path path = Paths.get("target", "ExcelSheetItemReaderTest.xlsx");
+        ExcelSheetItemWriter<ExcelRow> writer = new ExcelSheetItemWriter<>();
+        ExecutionContext executionContext = new ExecutionContext();
+
+        Files.deleteIfExists(path);
+
+        writer.setTemplate(new ClassPathResource("template.xlsx"));
+        writer.setResource(new FileSystemResource(path.toFile()));
+        writer.setRowAggregator(new ExcelRowAggregator());
+        writer.setRowsToSkip(21);
+        writer.setName("test");
+        writer.afterPropertiesSet();
+        writer.open(executionContext);
+        writer.write(readAll(reader));
+        writer.close();
+
+        try {
+            reader.setResource(new FileSystemResource(path.toFile()));
+
+            List<BatchExcelRow> expected = readAll(reader);
+
+            reader.setStreaming(true);
+
+            assertSameRows(expected, readAll(reader));
+            Assert.assertTrue(expected.stream().anyMatch(row -> row.getDelay() > 0));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * We expect to stop streaming after maxItemCount rows.
+     */
+    @Test
+    public void testStreamingMaxItemCount() throws Exception {
+        reader.setMaxItemCount(5);
+
+        List<BatchExcelRow> expected = readAll(reader);
+
+        reader.setStreaming(true);
+
+        Assert.assertEquals(5, expected.size());
+        assertSameRows(expected, readAll(reader));
+    }
+
+    private static List<BatchExcelRow> readAll(ExcelSheetItemReader<BatchExcelRow> reader) throws Exception {
+        List<BatchExcelRow> result = new ArrayList<>();
+
+        reader.open(new ExecutionContext());
+
+        try {
+            for (BatchExcelRow row = reader.read(); row != null; row = reader.read()) {
+                result.add(row);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
+    private static void assertSameRows(List<BatchExcelRow> expected, List<BatchExcelRow> actual) {
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.stream().map(BatchExcelRow::getIndex).collect(Collectors.toList()),
+                actual.stream().map(BatchExcelRow::getIndex).collect(Collectors.toList()));
+        Assert.assertEquals(expected.stream().map(BatchExcelRow::getDelay).collect(Collectors.toList()),
+                actual.stream().map(BatchExcelRow::getDelay).collect(Collectors.toList()));
+    }
 }
@@ -7,6 +7,9 @@ import be.raildelays.domain.Sens;
 import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
 import be.raildelays.domain.xls.ExcelRow;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.BlockJUnit4ClassRunner;
@@ -240,6 +243,90 @@ public class ExcelSheetItemWriterTest extends AbstractFileTest {
         Assert.assertEquals(124416, getExcelFiles()[0].length());
     }
 
+    /**
+     * We expect to get the same file when we write it after each row.
+     */
+    @Test
+    public void testNoWriteBehind() throws Exception {
+        writer.setWriteBehind(false);
+        writer.open(executionContext);
+        writer.write(items.subList(0, 40));
+        writer.update(executionContext);
+        writer.close();
+
+        Assert.assertEquals(1, getExcelFiles().length);
+        Assert.assertEquals(124416, getExcelFiles()[0].length());
+    }
+
+    /**
+     * We expect the file to be written at the end of each chunk without leaving any temporary file behind.
+     */
+    @Test
+    public void testWriteBehind() throws Exception {
+        writer.open(executionContext);
+        writer.write(items.subList(0, 40));
+
+        Assert.assertEquals(124416, getExcelFiles()[0].length());
+
+        writer.update(executionContext);
+        writer.close();
+
+        File[] files = new File(CURRENT_PATH).listFiles((dir, name) -> name.endsWith(".tmp"));
+
+        Assert.assertNotNull(files);
+        Assert.assertEquals(0, files.length);
+        Assert.assertEquals(1, getExcelFiles().length);
+        Assert.assertEquals(124416, getExcelFiles()[0].length());
+    }
+
+    /**
+     * We expect to stream more rows than the template contains while keeping its values, its merged regions, its
+     * styles and its formulas.
+     */
+    @Test
+    public void testStreaming() throws Exception {
+        writer.setTemplate(new ClassPathResource("template.xlsx"));
+        writer.setResource(new FileSystemResource(CURRENT_PATH + "output.xlsx"));
+        writer.setRowAccessWindowSize(10);
+        writer.setMaxItemCount(80);
+        writer.open(executionContext);
+        writer.write(items.subList(0, 40));
+        writer.write(items.subList(40, 80));
+        writer.update(executionContext);
+        writer.close();
+
+        Assert.assertEquals(1, getExcelFiles().length);
+
+        try (Workbook template = WorkbookFactory.create(new ClassPathResource("template.xlsx").getInputStream());
+             Workbook workbook = WorkbookFactory.create(getExcelFiles()[0])) {
+            Row expected = template.getSheetAt(0).getRow(21);
+            Row actual = workbook.getSheetAt(0).getRow(100);
+
+            Assert.assertEquals(expected.getCell(2).getCellStyle().getIndex(), actual.getCell(2).getCellStyle().getIndex());
+            Assert.assertEquals("$BF101-$BH101", actual.getCell(54).getCellFormula());
+            Assert.assertEquals(15, actual.getCell(54).getNumericCellValue(), 0);
+            Assert.assertNull(workbook.getSheetAt(0).getRow(101));
+            Assert.assertEquals(":", workbook.getSheetAt(0).getRow(21).getCell(31).getStringCellValue());
+            Assert.assertEquals("END C282", workbook.getSheetAt(0).getRow(62).getCell(1).getStringCellValue());
+            Assert.assertEquals(template.getSheetAt(0).getNumMergedRegions(),
+                    workbook.getSheetAt(0).getNumMergedRegions());
+        }
+    }
+
+    /**
+     * We expect a failure when restarting a streamed file as the rows of the previous chunks were never written.
+     */
+    @Test(expected = ItemStreamException.class)
+    public void testStreamingRestart() throws Exception {
+        writer.setTemplate(new ClassPathResource("template.xlsx"));
+        writer.setResource(new FileSystemResource(CURRENT_PATH + "output.xlsx"));
+        writer.setRowAccessWindowSize(10);
+        writer.open(executionContext);
+        writer.write(items.subList(0, 10));
+        writer.update(executionContext);
+        writer.open(executionContext); //-- We restart without having closed the writer
+    }
+
     /**
      * We expect that upon a restart, the writer start from where it left.
      */
@@ -1,8 +1,10 @@
 package org.springframework.batch.item.file;
 
+import com.sun.net.httpserver.HttpServer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.scope.context.ChunkContext;
@@ -14,12 +16,16 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.UrlResource;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Almex
@@ -30,11 +36,47 @@ public class HttpDownloadFileTaskletTest {
 
     private static final String DIRECTORY = "./download";
 
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+
+    private byte[] content;
+
+    private boolean supportConditionalRequest;
+
+    private List<String> ifNoneMatchHeaders;
+
     @Before
     public void setUp() throws Exception {
         tasklet = new HttpDownloadFileTasklet();
         tasklet.setInputFile(new ClassPathResource("/nmbs-latest.zip"));
         tasklet.setDestinationFolder(new FileSystemResource(DIRECTORY));
+        content = Files.readAllBytes(new ClassPathResource("/nmbs-latest.zip").getFile().toPath());
+        supportConditionalRequest = true;
+        ifNoneMatchHeaders = new ArrayList<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/nmbs-latest.zip", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+            ifNoneMatchHeaders.add(ifNoneMatch);
+
+            if (supportConditionalRequest) {
+                exchange.getResponseHeaders().add("ETag", ETAG);
+            }
+
+            if (supportConditionalRequest && ETAG.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.sendResponseHeaders(200, content.length);
+
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(content);
+                }
+            }
+
+            exchange.close();
+        });
+        server.start();
         cleanUp();
     }
 
@@ -51,14 +93,98 @@ public class HttpDownloadFileTaskletTest {
 
         assertEquals(RepeatStatus.FINISHED, repeatStatus);
         assertEquals(1, stepContribution.getWriteCount());
-        assertEquals(1, getFiles().count());
+        assertTrue(Files.exists(Paths.get(DIRECTORY, "nmbs-latest.zip")));
+        assertTrue(Files.exists(Paths.get(DIRECTORY, "nmbs-latest.zip" + HttpDownloadFileTasklet.METADATA_SUFFIX)));
+    }
+
+    /**
+     * We expect the second download to be a conditional request answered by '304 Not Modified'.
+     */
+    @Test
+    public void testNotModified() throws Exception {
+        tasklet.setInputFile(new UrlResource(getUrl()));
+
+        StepContribution first = execute();
+        StepContribution second = execute();
+
+        assertEquals(1, first.getWriteCount());
+        assertEquals(ExitStatus.EXECUTING, first.getExitStatus());
+        assertEquals(0, second.getWriteCount());
+        assertEquals(HttpDownloadFileTasklet.UNCHANGED, second.getExitStatus());
+        assertNull(ifNoneMatchHeaders.get(0));
+        assertEquals(ETAG, ifNoneMatchHeaders.get(1));
+    }
+
+    /**
+     * We expect the SHA-256 to detect an unchanged content when the server ignores conditional requests.
+     */
+    @Test
+    public void testSameContent() throws Exception {
+        tasklet.setInputFile(new UrlResource(getUrl()));
+        supportConditionalRequest = false;
+
+        StepContribution first = execute();
+        StepContribution second = execute();
+
+        assertEquals(1, first.getWriteCount());
+        assertEquals(0, second.getWriteCount());
+        assertEquals(HttpDownloadFileTasklet.UNCHANGED, second.getExitStatus());
+        assertEquals(2, getFiles().count());
+    }
+
+    /**
+     * We expect a modified content to replace the previous file.
+     */
+    @Test
+    public void testModifiedContent() throws Exception {
+        tasklet.setInputFile(new UrlResource(getUrl()));
+        supportConditionalRequest = false;
+
+        execute();
+        content = new byte[]{1, 2, 3};
+
+        StepContribution second = execute();
+
+        assertEquals(1, second.getWriteCount());
+        assertEquals(ExitStatus.EXECUTING, second.getExitStatus());
+        assertArrayEquals(content, Files.readAllBytes(Paths.get(DIRECTORY, "nmbs-latest.zip")));
+    }
+
+    /**
+     * We expect the file to be downloaded again when we force it.
+     */
+    @Test
+    public void testForce() throws Exception {
+        tasklet.setInputFile(new UrlResource(getUrl()));
+        tasklet.setForce(true);
+
+        execute();
+
+        StepContribution second = execute();
+
+        assertEquals(1, second.getWriteCount());
+        assertNull(ifNoneMatchHeaders.get(1));
     }
 
     @After
     public void tearDown() throws IOException {
+        server.stop(0);
         cleanUp();
     }
 
+    private StepContribution execute() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        StepContribution result = new StepContribution(stepExecution);
+
+        tasklet.execute(result, new ChunkContext(new StepContext(stepExecution)));
+
+        return result;
+    }
+
+    private String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/nmbs-latest.zip";
+    }
+
     private void cleanUp() throws IOException {
         getFiles().forEach((path) -> {
             try {
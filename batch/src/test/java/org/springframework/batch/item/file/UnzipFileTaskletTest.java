@@ -3,6 +3,7 @@ package org.springframework.batch.item.file;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.scope.context.ChunkContext;
@@ -52,6 +53,24 @@ public class UnzipFileTaskletTest {
         assertEquals(7, getFiles().count());
     }
 
+    /**
+     * We expect that nothing is unzipped when the tasklet is disabled.
+     */
+    @Test
+    public void testExecuteDisabled() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        StepContribution stepContribution = new StepContribution(stepExecution);
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        tasklet.setEnabled(false);
+
+        RepeatStatus repeatStatus = tasklet.execute(stepContribution, chunkContext);
+
+        assertEquals(RepeatStatus.FINISHED, repeatStatus);
+        assertEquals(ExitStatus.NOOP, stepContribution.getExitStatus());
+        assertEquals(0, getFiles().count());
+    }
+
     @After
     public void tearDown() throws IOException {
         cleanUp();
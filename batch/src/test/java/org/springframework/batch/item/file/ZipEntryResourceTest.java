@@ -0,0 +1,53 @@
+package org.springframework.batch.item.file;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Almex
+ */
+public class ZipEntryResourceTest {
+
+    private Resource archive;
+
+    @Before
+    public void setUp() throws Exception {
+        archive = new ClassPathResource("nmbs-latest.zip");
+    }
+
+    /**
+     * We expect to read the header of trips.txt straight out of the archive.
+     */
+    @Test
+    public void testGetInputStream() throws Exception {
+        ZipEntryResource resource = new ZipEntryResource(archive, "trips.txt");
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            assertEquals("route_id,service_id,trip_id", reader.readLine());
+        }
+
+        assertTrue(resource.exists());
+        assertTrue(resource.contentLength() > 0);
+        assertEquals("trips.txt", resource.getFilename());
+        assertEquals(new ZipEntryResource(archive, "stops.txt"), resource.createRelative("stops.txt"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testNotExists() throws Exception {
+        ZipEntryResource resource = new ZipEntryResource(archive, "foo.txt");
+
+        assertFalse(resource.exists());
+
+        resource.getInputStream();
+    }
+}
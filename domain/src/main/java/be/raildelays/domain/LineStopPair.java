@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+
+package be.raildelays.domain;
+
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Flat and read-only projection of the two stops of a train between a departure and an arrival station.
+ * <p>
+ * Unlike a {@link be.raildelays.domain.entities.LineStop} it holds no link to the rest of the route and its
+ * {@link Station}s and {@link TrainLine} are plain values: it can be used outside of any persistence context.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class LineStopPair implements Serializable {
+
+    private static final long serialVersionUID = 5398614542379735178L;
+
+    private final LocalDate date;
+    private final TrainLine trainLine;
+    private final Station departureStation;
+    private final TimeDelay departureTime;
+    private final boolean departureCanceled;
+    private final Station arrivalStation;
+    private final TimeDelay arrivalTime;
+    private final boolean arrivalCanceled;
+
+    /**
+     * Initialization constructor.
+     *
+     * @param date              day of the trip
+     * @param trainLine         train stopping at both stations
+     * @param departureStation  station we leave
+     * @param departureTime     departure time from the {@code departureStation}
+     * @param departureCanceled {@code true} if the stop at the {@code departureStation} is canceled
+     * @param arrivalStation    station we reach
+     * @param arrivalTime       arrival time at the {@code arrivalStation}
+     * @param arrivalCanceled   {@code true} if the stop at the {@code arrivalStation} is canceled
+     */
+    public LineStopPair(LocalDate date, TrainLine trainLine,
+                        Station departureStation, TimeDelay departureTime, boolean departureCanceled,
+                        Station arrivalStation, TimeDelay arrivalTime, boolean arrivalCanceled) {
+        this.date = date;
+        this.trainLine = trainLine;
+        this.departureStation = departureStation;
+        this.departureTime = departureTime;
+        this.departureCanceled = departureCanceled;
+        this.arrivalStation = arrivalStation;
+        this.arrivalTime = arrivalTime;
+        this.arrivalCanceled = arrivalCanceled;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("LineStopPair: ") //
+                .append("{ ") //
+                .append("date: ").append(date).append(", ") //
+                .append("trainLine: ").append(trainLine != null ? trainLine.getRouteId() : "N/A").append(", ") //
+                .append("departureStation: ").append(departureStation).append(", ") //
+                .append("departureTime: ").append(departureTime).append(", ") //
+                .append("departureCanceled: ").append(departureCanceled).append(", ") //
+                .append("arrivalStation: ").append(arrivalStation).append(", ") //
+                .append("arrivalTime: ").append(arrivalTime).append(", ") //
+                .append("arrivalCanceled: ").append(arrivalCanceled) //
+                .append(" }").toString();
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public TrainLine getTrainLine() {
+        return trainLine;
+    }
+
+    public Station getDepartureStation() {
+        return departureStation;
+    }
+
+    public TimeDelay getDepartureTime() {
+        return departureTime;
+    }
+
+    public boolean isDepartureCanceled() {
+        return departureCanceled;
+    }
+
+    public Station getArrivalStation() {
+        return arrivalStation;
+    }
+
+    public TimeDelay getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public boolean isArrivalCanceled() {
+        return arrivalCanceled;
+    }
+}
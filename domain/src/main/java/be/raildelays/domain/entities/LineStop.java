@@ -146,9 +146,9 @@ public class LineStop extends AbstractEntity implements Comparable<LineStop> {
                 LineStop lineStop = (LineStop) obj;
 
                 result = new EqualsBuilder() //
-                        .append(trainLine, lineStop.trainLine) //
-                        .append(station, lineStop.station) //
-                        .append(date, lineStop.date) //
+                        .append(trainLine, lineStop.getTrainLine()) //
+                        .append(station, lineStop.getStation()) //
+                        .append(date, lineStop.getDate()) //
                         .isEquals();
             }
         }
@@ -273,52 +273,53 @@ public class LineStop extends AbstractEntity implements Comparable<LineStop> {
          * @param copyNext     enable copying of forwards links
          */
         public Builder(LineStop lineStop, boolean copyPrevious, boolean copyNext) {
+            // Linked line stops can be proxies (e.g.: from EntityManager#getReference()): we must only use getters
             if (lineStop != null) {
-                this.id = lineStop.id;
-                this.date = lineStop.date;
-                this.trainLine = lineStop.trainLine;
-                this.station = lineStop.station;
-                this.arrivalTime = lineStop.arrivalTime;
-                this.departureTime = lineStop.departureTime;
-                this.canceledDeparture = lineStop.canceledDeparture;
-                this.canceledArrival = lineStop.canceledArrival;
+                this.id = lineStop.getId();
+                this.date = lineStop.getDate();
+                this.trainLine = lineStop.getTrainLine();
+                this.station = lineStop.getStation();
+                this.arrivalTime = lineStop.getArrivalTime();
+                this.departureTime = lineStop.getDepartureTime();
+                this.canceledDeparture = lineStop.isCanceledDeparture();
+                this.canceledArrival = lineStop.isCanceledArrival();
 
                 //-- Copy backward
-                LineStop previousLineStop = lineStop.previous;
+                LineStop previousLineStop = lineStop.getPrevious();
                 Builder backwardBuilder = this;
                 while (previousLineStop != null && copyPrevious) {
                     backwardBuilder.previous = new Builder()
-                            .id(previousLineStop.id)
-                            .date(previousLineStop.date)
-                            .trainLine(previousLineStop.trainLine)
-                            .station(previousLineStop.station)
-                            .arrivalTime(previousLineStop.arrivalTime)
-                            .departureTime(previousLineStop.departureTime)
-                            .canceledDeparture(previousLineStop.canceledDeparture)
-                            .canceledArrival(previousLineStop.canceledArrival)
+                            .id(previousLineStop.getId())
+                            .date(previousLineStop.getDate())
+                            .trainLine(previousLineStop.getTrainLine())
+                            .station(previousLineStop.getStation())
+                            .arrivalTime(previousLineStop.getArrivalTime())
+                            .departureTime(previousLineStop.getDepartureTime())
+                            .canceledDeparture(previousLineStop.isCanceledDeparture())
+                            .canceledArrival(previousLineStop.isCanceledArrival())
                             .addNext(backwardBuilder);
 
                     backwardBuilder = backwardBuilder.previous;
-                    previousLineStop = previousLineStop.previous;
+                    previousLineStop = previousLineStop.getPrevious();
                 }
 
                 //-- Copy forward
-                LineStop nextLineStop = lineStop.next;
+                LineStop nextLineStop = lineStop.getNext();
                 Builder forwardBuilder = this;
                 while (nextLineStop != null && copyNext) {
                     forwardBuilder.next = new Builder()
-                            .id(nextLineStop.id)
-                            .date(nextLineStop.date)
-                            .trainLine(nextLineStop.trainLine)
-                            .station(nextLineStop.station)
-                            .arrivalTime(nextLineStop.arrivalTime)
-                            .departureTime(nextLineStop.departureTime)
-                            .canceledDeparture(nextLineStop.canceledDeparture)
-                            .canceledArrival(nextLineStop.canceledArrival)
+                            .id(nextLineStop.getId())
+                            .date(nextLineStop.getDate())
+                            .trainLine(nextLineStop.getTrainLine())
+                            .station(nextLineStop.getStation())
+                            .arrivalTime(nextLineStop.getArrivalTime())
+                            .departureTime(nextLineStop.getDepartureTime())
+                            .canceledDeparture(nextLineStop.isCanceledDeparture())
+                            .canceledArrival(nextLineStop.isCanceledArrival())
                             .addPrevious(forwardBuilder);
 
                     forwardBuilder = forwardBuilder.next;
-                    nextLineStop = nextLineStop.next;
+                    nextLineStop = nextLineStop.getNext();
                 }
             }
         }
@@ -27,6 +27,7 @@ package be.raildelays.domain.entities;
 import be.raildelays.domain.Language;
 import be.raildelays.location.Location;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
@@ -36,11 +37,13 @@ import javax.persistence.Table;
  * Immutable entity defining a trainLine station.
  * <p>
  * Uniqueness of a Station is done on the English name.
+ * Being reference data, stations are kept in the second-level cache.
  *
  * @author Almex
  * @see AbstractEntity
  */
 @Entity
+@Cacheable
 @Table(name = "STATION")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 public class Station extends I18nEntity implements Location {
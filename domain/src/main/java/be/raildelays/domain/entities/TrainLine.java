@@ -43,6 +43,7 @@ import static java.util.Comparator.*;
  * @see AbstractEntity
  */
 @Entity
+@Cacheable
 @Table(
         name = "TRAIN_LINE",
         uniqueConstraints = @UniqueConstraint(columnNames = {"ROUTE_ID"}, name = "TrainLineUniqueBusinessKeyConstraint")
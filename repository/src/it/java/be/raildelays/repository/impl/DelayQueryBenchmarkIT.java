@@ -0,0 +1,419 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.Delays;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.LineStop_;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import com.sun.management.ThreadMXBean;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specifications;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static be.raildelays.repository.specification.LineStopSpecifications.*;
+import static org.springframework.data.jpa.domain.Specifications.where;
+
+/**
+ * Compare the delay query we used to have (two sub-queries and a count query) with the single scan of
+ * {@link LineStopDaoCustomJpa#findArrivalDelays(LocalDate, Station, long, Pageable)} and with its keyset variant
+ * {@link LineStopDaoCustomJpa#findArrivalDelaysAfter(LocalDate, Station, long, LineStop, int)} on a year of synthetic
+ * data, as well as the routes of those delays with the projection of
+ * {@link LineStopDaoCustomJpa#findDelayedPairs(LocalDate, Station, Station, long)}.
+ *
+ * @author Almex
+ */
+public class DelayQueryBenchmarkIT extends AbstractIT {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2001, 1, 1);
+    private static final int DAYS = 365;
+    private static final int TRAINS = 20;
+    private static final int STOPS = 10;
+    private static final long FIRST_ID = 50_000_000L;
+    private static final int PAGE_SIZE = 5;
+    private static final int DEEP = 4000;
+    private static final Station STATION = new Station("DelayQueryBenchmarkIT-5");
+    private static final Station OTHER_STATION = new Station("DelayQueryBenchmarkIT-2");
+    private static final long THRESHOLD = Delays.toMillis(15L);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DelayQueryBenchmarkIT.class);
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    @Resource
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        Station[] stations = new Station[STOPS];
+        TrainLine[] trainLines = new TrainLine[TRAINS];
+        Random random = new Random(42);
+
+        for (int i = 0; i < STOPS; i++) {
+            stations[i] = new Station("DelayQueryBenchmarkIT-" + i);
+            entityManager.persist(stations[i]);
+        }
+
+        for (int i = 0; i < TRAINS; i++) {
+            trainLines[i] = new TrainLine.Builder(770000L + i).build(false);
+            entityManager.persist(trainLines[i]);
+        }
+
+        entityManager.flush();
+
+        for (int day = 0; day < DAYS; day++) {
+            for (int train = 0; train < TRAINS; train++) {
+                for (int stop = 0; stop < STOPS; stop++) {
+                    long id = FIRST_ID + ((long) day * TRAINS + train) * STOPS + stop;
+                    // Each train of the day arrives at a different time: the order of a sort is then unique
+                    Time expected = Time.valueOf(LocalTime.of(6, 0).plusMinutes(train * 40 + stop * 3));
+                    boolean canceled = random.nextInt(50) == 0;
+
+                    rows.add(new Object[]{
+                            id, trainLines[train].getId(), stations[stop].getId(), Date.valueOf(FIRST_DAY.plusDays(day)),
+                            canceled, canceled,
+                            expected, canceled ? null : Delays.toMillis((long) random.nextInt(30)),
+                            expected, canceled ? null : Delays.toMillis((long) random.nextInt(30)),
+                            stop > 0 ? id - 1 : null
+                    });
+                }
+            }
+        }
+
+        new JdbcTemplate(dataSource).batchUpdate("INSERT INTO LINE_STOP (ID, TRAIN_ID, STATION_ID, DATE, " +
+                "CANCELED_ARRIVAL, CANCELED_DEPARTURE, ARRIVAL_TIME_EXPECTED, ARRIVAL_TIME_DELAY, " +
+                "DEPARTURE_TIME_EXPECTED, DEPARTURE_TIME_DELAY, PREVIOUS_ID) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+
+        entityManager.clear();
+    }
+
+    @Test
+    public void testFindArrivalDelays() throws Exception {
+        // Warm-up
+        readYear(this::findArrivalDelaysWithSubQueries, 30);
+        readYear(this::findArrivalDelays, 30);
+
+        long start = System.nanoTime();
+        List<List<Long>> expected = readYear(this::findArrivalDelaysWithSubQueries, DAYS);
+        long subQueries = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<List<Long>> actual = readYear(this::findArrivalDelays, DAYS);
+        long singleScan = System.nanoTime() - start;
+
+        LOGGER.info("{} delays over {} days: sub-queries and count {} ms, single scan {} ms ({}x)",
+                actual.stream().mapToInt(List::size).sum(), DAYS,
+                subQueries / 1_000_000, singleScan / 1_000_000,
+                String.format("%.2f", (double) subQueries / singleScan));
+
+        Assert.assertEquals(expected, actual);
+        Assert.assertTrue(actual.stream().mapToInt(List::size).sum() > DAYS);
+    }
+
+    /**
+     * Build the same trips between two stations, either from the line stops delayed at each station and their routes
+     * (as the Excel generation used to do) or from the flat projection, and compare the time and the memory allocated
+     * per trip.
+     */
+    @Test
+    public void testFindDelayedPairs() throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Warm-up
+        readPairsFromEntities(30);
+        readPairs(30);
+
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        List<Set<Long>> expected = readPairsFromEntities(DAYS);
+        long entities = System.nanoTime() - start;
+        long entitiesAllocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        allocated = threads.getThreadAllocatedBytes(threadId);
+        start = System.nanoTime();
+        List<Set<Long>> actual = readPairs(DAYS);
+        long projection = System.nanoTime() - start;
+        long projectionAllocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+        int trips = actual.stream().mapToInt(Set::size).sum();
+
+        LOGGER.info("{} trips over {} days: entities {} us and {} KB per trip, projection {} us and {} KB per trip",
+                trips, DAYS, entities / 1_000 / trips, entitiesAllocated / 1_024 / trips,
+                projection / 1_000 / trips, projectionAllocated / 1_024 / trips);
+
+        Assert.assertEquals(expected, actual);
+        Assert.assertTrue(trips > DAYS);
+    }
+
+    /**
+     * @return train line identifiers of the trips of each day
+     */
+    private List<Set<Long>> readPairs(int days) {
+        List<Set<Long>> result = new ArrayList<>();
+
+        for (int day = 0; day < days; day++) {
+            result.add(lineStopDao.findDelayedPairs(FIRST_DAY.plusDays(day), STATION, OTHER_STATION, THRESHOLD)
+                    .stream()
+                    .map(pair -> pair.getTrainLine().getId())
+                    .collect(Collectors.toSet()));
+            entityManager.clear();
+        }
+
+        return result;
+    }
+
+    /**
+     * Walk through the route of each delayed line stop until the other station like the
+     * {@code BatchExcelRowMapperProcessor} does.
+     *
+     * @return train line identifiers of the trips of each day
+     */
+    private List<Set<Long>> readPairsFromEntities(int days) {
+        List<Set<Long>> result = new ArrayList<>();
+
+        for (int day = 0; day < days; day++) {
+            LocalDate date = FIRST_DAY.plusDays(day);
+            Set<Long> trainLineIds = new HashSet<>();
+            List<LineStop> lineStops = new ArrayList<>();
+
+            lineStops.addAll(lineStopDao.findArrivalDelays(date, STATION, THRESHOLD));
+            lineStops.addAll(lineStopDao.findArrivalDelays(date, OTHER_STATION, THRESHOLD));
+
+            for (LineStop lineStop : lineStops) {
+                Station other = STATION.getName().equals(lineStop.getStation().getName()) ? OTHER_STATION : STATION;
+                LineStop stop = walk(lineStop, other, LineStop::getPrevious);
+
+                if (stop == null) {
+                    stop = walk(lineStop, other, LineStop::getNext);
+                }
+
+                if (stop != null) {
+                    trainLineIds.add(stop.getTrainLine().getId());
+                }
+            }
+
+            entityManager.clear();
+            result.add(trainLineIds);
+        }
+
+        return result;
+    }
+
+    private static LineStop walk(LineStop from, Station station, UnaryOperator<LineStop> step) {
+        LineStop result = from;
+
+        while (result != null && !station.getName().equals(result.getStation().getName())) {
+            result = step.apply(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * One day with {@value #DEEP} delays at the same station read one at a time, as the job does with a commit interval
+     * of one and a persistence context cleared at each chunk: each offset page scans again all the previous ones while
+     * each keyset slice starts where the last one stopped.
+     */
+    @Test
+    public void testFindArrivalDelaysAfter() throws Exception {
+        LocalDate date = FIRST_DAY.minusDays(1);
+        Station station = lineStopDao.findArrivalDelays(FIRST_DAY, STATION, 0L, new PageRequest(0, 1))
+                .getContent().get(0).getStation();
+        List<Object[]> rows = new ArrayList<>();
+
+        for (int i = 0; i < DEEP; i++) {
+            TrainLine trainLine = new TrainLine.Builder(880000L + i).build(false);
+            Time expected = Time.valueOf(LocalTime.of(0, 0).plusSeconds(i * 20));
+
+            entityManager.persist(trainLine);
+            rows.add(new Object[]{
+                    FIRST_ID + DAYS * TRAINS * STOPS + i, trainLine.getId(), station.getId(), Date.valueOf(date),
+                    false, false, expected, Delays.toMillis(20L), expected, Delays.toMillis(20L)
+            });
+        }
+
+        entityManager.flush();
+        new JdbcTemplate(dataSource).batchUpdate("INSERT INTO LINE_STOP (ID, TRAIN_ID, STATION_ID, DATE, " +
+                "CANCELED_ARRIVAL, CANCELED_DEPARTURE, ARRIVAL_TIME_EXPECTED, ARRIVAL_TIME_DELAY, " +
+                "DEPARTURE_TIME_EXPECTED, DEPARTURE_TIME_DELAY) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        entityManager.clear();
+
+        // Warm-up
+        readYear(this::findArrivalDelays, 30);
+        readYearAfter(30);
+
+        long start = System.nanoTime();
+        List<Long> expected = readDay(this::findArrivalDelays, date, 1);
+        long offset = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Long> actual = readDayAfter(date, 1);
+        long keyset = System.nanoTime() - start;
+
+        LOGGER.info("{} delays on a single day read one by one: offset {} ms, keyset {} ms ({}x)",
+                actual.size(), offset / 1_000_000, keyset / 1_000_000,
+                String.format("%.2f", (double) offset / keyset));
+
+        Assert.assertEquals(DEEP, actual.size());
+        // The offset variant sorts on the whole embedded time, we only compare the content
+        Assert.assertEquals(expected.stream().sorted().collect(Collectors.toList()),
+                actual.stream().sorted().collect(Collectors.toList()));
+    }
+
+    /**
+     * Read all slices of each day like the {@code DelaysItemReader} does.
+     *
+     * @return identifiers of the delays of each day
+     */
+    private List<List<Long>> readYearAfter(int days) {
+        List<List<Long>> result = new ArrayList<>();
+
+        for (int day = 0; day < days; day++) {
+            result.add(readDayAfter(FIRST_DAY.plusDays(day), PAGE_SIZE));
+        }
+
+        return result;
+    }
+
+    private List<Long> readDayAfter(LocalDate date, int pageSize) {
+        List<Long> result = new ArrayList<>();
+        LineStop lastSeen = null;
+        Slice<LineStop> slice;
+
+        do {
+            slice = lineStopDao.findArrivalDelaysAfter(date, STATION, THRESHOLD, lastSeen, pageSize);
+
+            for (LineStop lineStop : slice.getContent()) {
+                result.add(lineStop.getId());
+                lastSeen = lineStop;
+            }
+
+            entityManager.clear();
+        } while (slice.hasNext());
+
+        return result;
+    }
+
+    /**
+     * Read all pages of each day like the {@link org.springframework.batch.item.data.RepositoryItemReader} does.
+     *
+     * @return identifiers of the delays of each day
+     */
+    private List<List<Long>> readYear(Function<Pageable, Function<LocalDate, Page<LineStop>>> finder, int days) {
+        List<List<Long>> result = new ArrayList<>();
+
+        for (int day = 0; day < days; day++) {
+            result.add(readDay(finder, FIRST_DAY.plusDays(day), PAGE_SIZE));
+        }
+
+        return result;
+    }
+
+    private List<Long> readDay(Function<Pageable, Function<LocalDate, Page<LineStop>>> finder, LocalDate date,
+                               int pageSize) {
+        List<Long> result = new ArrayList<>();
+        Page<LineStop> page;
+        int number = 0;
+
+        do {
+            page = finder.apply(new PageRequest(number++, pageSize, Sort.Direction.ASC, "arrivalTime")).apply(date);
+            result.addAll(page.getContent().stream().map(LineStop::getId).collect(Collectors.toList()));
+            entityManager.clear();
+        } while (!page.getContent().isEmpty());
+
+        return result;
+    }
+
+    private Function<LocalDate, Page<LineStop>> findArrivalDelays(Pageable pageable) {
+        return date -> lineStopDao.findArrivalDelays(date, STATION, THRESHOLD, pageable);
+    }
+
+    /**
+     * The query we used to have: two sub-queries of identifiers and a count query for each page.
+     */
+    private Function<LocalDate, Page<LineStop>> findArrivalDelaysWithSubQueries(Pageable pageable) {
+        return date -> {
+            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
+            Subquery<Long> canceled = query.subquery(Long.class);
+            Subquery<Long> notCanceled = query.subquery(Long.class);
+            Root<LineStop> canceledRoot = canceled.from(LineStop.class);
+            Root<LineStop> notCanceledRoot = notCanceled.from(LineStop.class);
+
+            canceled.select(canceledRoot.get(LineStop_.id))
+                    .where(where(dateEquals(date))
+                            .and(stationEquals(STATION))
+                            .and(isCanceledArrival())
+                            .toPredicate(canceledRoot, query, builder));
+
+            notCanceled.select(notCanceledRoot.get(LineStop_.id))
+                    .where(where(dateEquals(date))
+                            .and(stationEquals(STATION))
+                            .and(arrivalDelayIsNotNull())
+                            .and(arrivalDelayGreaterThanOrEqualTo(THRESHOLD))
+                            .toPredicate(notCanceledRoot, query, builder));
+
+            Specifications<LineStop> specifications = where(idsIn(canceled)).or(idsIn(notCanceled));
+            Root<LineStop> root = query.from(LineStop.class);
+
+            root.fetch(LineStop_.station);
+            root.fetch(LineStop_.trainLine);
+            query.where(specifications.toPredicate(root, query, builder))
+                    .orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+
+            CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+            Root<LineStop> countRoot = countQuery.from(LineStop.class);
+            Long total = entityManager.createQuery(countQuery
+                    .select(builder.count(countRoot))
+                    .where(specifications.toPredicate(countRoot, countQuery, builder)))
+                    .getSingleResult();
+
+            List<LineStop> content = total > pageable.getOffset() ? entityManager.createQuery(query)
+                    .setFirstResult(pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize())
+                    .getResultList() : new ArrayList<>();
+
+            return new PageImpl<>(lineStopDao.fetchRoutes(content), pageable, total);
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package be.raildelays.repository.impl;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Same checks as {@link RestartSequenceMigrationIT} on Derby, which cannot restart a sequence: it is dropped and
+ * created again.
+ *
+ * @author Almex
+ */
+public class DerbyRestartSequenceMigrationIT extends RestartSequenceMigrationIT {
+
+    @Override
+    protected EmbeddedDatabaseType getDatabaseType() {
+        return EmbeddedDatabaseType.DERBY;
+    }
+
+    @Override
+    protected String getNextValueQuery(String sequenceName) {
+        return "VALUES NEXT VALUE FOR " + sequenceName;
+    }
+}
@@ -0,0 +1,103 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.Delays;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Slice;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author Almex
+ */
+public class FindArrivalDelaysAfterIT extends AbstractIT {
+
+    private static final LocalDate DATE = LocalDate.parse("2000-03-01");
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private List<Long> expected;
+
+    @Before
+    public void setUp() throws Exception {
+        Station station = new Station("FindArrivalDelaysAfterIT");
+
+        entityManager.persist(station);
+        expected = new ArrayList<>(Arrays.asList(
+                // Canceled without any expected time: they come first ordered by id
+                persist(station, 1, null, true),
+                persist(station, 2, null, true),
+                persist(station, 3, TimeDelay.of(LocalTime.of(10, 0), Delays.toMillis(20L)), false),
+                persist(station, 4, TimeDelay.of(LocalTime.of(10, 0), Delays.toMillis(30L)), false),
+                persist(station, 5, TimeDelay.of(LocalTime.of(10, 5)), true),
+                persist(station, 7, TimeDelay.of(LocalTime.of(12, 0), Delays.toMillis(16L)), false)
+        ));
+        // Under the threshold
+        persist(station, 6, TimeDelay.of(LocalTime.of(11, 0), Delays.toMillis(5L)), false);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void testReadAllSlices() throws Exception {
+        List<Long> actual = new ArrayList<>();
+        LineStop lastSeen = null;
+        Slice<LineStop> slice;
+
+        do {
+            slice = lineStopDao.findArrivalDelaysAfter(DATE, new Station("FindArrivalDelaysAfterIT"),
+                    Delays.toMillis(15L), lastSeen, 2);
+
+            for (LineStop lineStop : slice.getContent()) {
+                actual.add(lineStop.getId());
+                lastSeen = lineStop;
+            }
+        } while (slice.hasNext());
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testLastSlice() throws Exception {
+        Slice<LineStop> slice = lineStopDao.findArrivalDelaysAfter(DATE, new Station("FindArrivalDelaysAfterIT"),
+                Delays.toMillis(15L), entityManager.find(LineStop.class, expected.get(4)), 2);
+
+        Assert.assertEquals(1, slice.getNumberOfElements());
+        Assert.assertEquals(expected.get(5), slice.getContent().get(0).getId());
+        Assert.assertFalse(slice.hasNext());
+    }
+
+    private Long persist(Station station, long train, TimeDelay arrivalTime, boolean canceled) {
+        TrainLine trainLine = new TrainLine.Builder(660000L + train).build(false);
+        LineStop lineStop = new LineStop.Builder()
+                .date(DATE)
+                .trainLine(trainLine)
+                .station(station)
+                .arrivalTime(arrivalTime)
+                .canceledArrival(canceled)
+                .build(false);
+
+        entityManager.persist(trainLine);
+        entityManager.persist(lineStop);
+
+        return lineStop.getId();
+    }
+}
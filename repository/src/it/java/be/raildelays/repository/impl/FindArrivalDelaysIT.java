@@ -9,6 +9,7 @@ import com.excilys.ebi.spring.dbunit.config.DBOperation;
 import com.excilys.ebi.spring.dbunit.test.DataSet;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 
@@ -50,6 +51,24 @@ public class FindArrivalDelaysIT extends AbstractIT {
         );
     }
 
+    /**
+     * We expect the same total on every page, whether or not it is the last one.
+     */
+    @Test
+    public void testFindArrivalDelaysTotal() throws ParseException {
+        Station station = new Station("Bruxelles-Central");
+        LocalDate date = LocalDate.parse("2000-01-01");
+
+        for (int page = 0; page < 4; page++) {
+            Page<LineStop> result = lineStopDao.findArrivalDelays(date, station, Delays.toMillis(15L),
+                    new PageRequest(page, 1, new Sort(Sort.Direction.ASC, "arrivalTime")));
+
+            Assert.assertEquals(3L, result.getTotalElements());
+            Assert.assertEquals(3, result.getTotalPages());
+            Assert.assertEquals(page < 2, result.hasNext());
+        }
+    }
+
     @Test
     public void testFindArrivalDelays() throws ParseException {
         Station station = new Station("Bruxelles-Central");
@@ -0,0 +1,71 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.Delays;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.repository.LineStopDao;
+import com.excilys.ebi.spring.dbunit.config.DBOperation;
+import com.excilys.ebi.spring.dbunit.test.DataSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author Almex
+ */
+@DataSet(value = "classpath:FindArrivalDelaysIT.xml",
+        tearDownOperation = DBOperation.DELETE_ALL, dataSourceSpringName = "dataSource")
+public class FindDelayedPairsIT extends AbstractIT {
+
+    private static final LocalDate DATE = LocalDate.parse("2000-01-01");
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    /**
+     * We expect 1715 to be excluded as none of its two stops is delayed by 15 minutes.
+     */
+    @Test
+    public void testFindDelayedPairs() throws Exception {
+        List<LineStopPair> pairs = lineStopDao.findDelayedPairs(DATE, new Station("Liège-Guillemins"),
+                new Station("Bruxelles-Central"), Delays.toMillis(15L));
+
+        Assert.assertEquals(Arrays.asList(466L, 515L, 477L), extractTrainIds(pairs));
+
+        LineStopPair pair = pairs.get(0);
+
+        Assert.assertEquals(DATE, pair.getDate());
+        Assert.assertEquals("Bruxelles-Central", pair.getDepartureStation().getEnglishName());
+        Assert.assertEquals("Liège-Guillemins", pair.getArrivalStation().getEnglishName());
+        Assert.assertEquals(TimeDelay.of(LocalTime.parse("16:28"), 4600000L), pair.getDepartureTime());
+        Assert.assertEquals(TimeDelay.of(LocalTime.parse("17:22"), 490000L), pair.getArrivalTime());
+        Assert.assertFalse(pair.isDepartureCanceled());
+        Assert.assertFalse(pair.isArrivalCanceled());
+        Assert.assertTrue(pairs.get(2).isArrivalCanceled());
+    }
+
+    /**
+     * We expect the orientation of a pair to depend on the route and not on the order of the stations.
+     */
+    @Test
+    public void testFindDelayedPairsSwapped() throws Exception {
+        List<LineStopPair> pairs = lineStopDao.findDelayedPairs(DATE, new Station("Bruxelles-Central"),
+                new Station("Liège-Guillemins"), Delays.toMillis(15L));
+
+        Assert.assertEquals(Arrays.asList(466L, 515L, 477L), extractTrainIds(pairs));
+        Assert.assertEquals("Bruxelles-Central", pairs.get(0).getDepartureStation().getEnglishName());
+    }
+
+    private static List<Long> extractTrainIds(List<LineStopPair> pairs) {
+        return pairs.stream()
+                .map(pair -> pair.getTrainLine().getRouteId())
+                .collect(Collectors.toList());
+    }
+}
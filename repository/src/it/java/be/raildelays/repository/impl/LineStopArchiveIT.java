@@ -0,0 +1,83 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.Delays;
+import be.raildelays.domain.LineStopPair;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import com.excilys.ebi.spring.dbunit.config.DBOperation;
+import com.excilys.ebi.spring.dbunit.test.DataSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @author Almex
+ */
+@DataSet(value = "classpath:FindArrivalDelaysIT.xml",
+        tearDownOperation = DBOperation.DELETE_ALL, dataSourceSpringName = "dataSource")
+public class LineStopArchiveIT extends AbstractIT {
+
+    private static final LocalDate DATE = LocalDate.parse("2000-01-01");
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    public void testCatalog() throws Exception {
+        LocalDate date = LocalDate.parse("1999-12-31");
+        TrainLine trainLine = new TrainLine.Builder(880001L).build(false);
+        Station station = new Station("LineStopArchiveIT");
+
+        Assert.assertFalse(lineStopDao.findAllUniqueDates().contains(date));
+
+        entityManager.persist(trainLine);
+        entityManager.persist(station);
+        lineStopDao.saveAndFlush(new LineStop.Builder()
+                .date(date)
+                .trainLine(trainLine)
+                .station(station)
+                .build(false));
+
+        Assert.assertEquals(date, lineStopDao.findAllUniqueDates().get(0));
+        Assert.assertEquals(2, lineStopDao.findAllUniqueDates(date, DATE).size());
+        Assert.assertEquals(1, lineStopDao.findAllUniqueDates(date).size());
+    }
+
+    /**
+     * We expect the same pairs before and after archiving their day, while queries of entities no longer find it.
+     */
+    @Test
+    public void testArchive() throws Exception {
+        List<String> expected = findDelayedPairs();
+
+        Assert.assertEquals(3, expected.size());
+        Assert.assertEquals(DATE, lineStopDao.findNotArchivedDates(DATE.plusDays(1)).get(0));
+
+        Assert.assertTrue(lineStopDao.archive(DATE) > 0);
+
+        Assert.assertTrue(lineStopDao.findAll().stream().noneMatch(lineStop -> DATE.equals(lineStop.getDate())));
+        Assert.assertTrue(lineStopDao.findAllUniqueDates().contains(DATE));
+        Assert.assertFalse(lineStopDao.findNotArchivedDates(DATE.plusDays(1)).contains(DATE));
+        Assert.assertEquals(expected, findDelayedPairs());
+        Assert.assertTrue(lineStopDao.findNextExpectedArrivalTime(new Station("Bruxelles-Central"),
+                DATE.atStartOfDay()).isEmpty());
+    }
+
+    private List<String> findDelayedPairs() {
+        return lineStopDao.findDelayedPairs(DATE, new Station("Liège-Guillemins"), new Station("Bruxelles-Central"),
+                Delays.toMillis(15L)).stream()
+                .map(LineStopPair::toString)
+                .collect(Collectors.toList());
+    }
+}
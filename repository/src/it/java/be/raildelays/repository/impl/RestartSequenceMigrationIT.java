@@ -0,0 +1,107 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.repository.support.RestartSequenceMigration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Arrays;
+
+/**
+ * Check on a database of its own that the sequence is moved past the identifiers of the tables.
+ *
+ * @author Almex
+ */
+@RunWith(BlockJUnit4ClassRunner.class)
+public class RestartSequenceMigrationIT {
+
+    private static final String SEQUENCE_NAME = "TEST_SEQUENCE";
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private RestartSequenceMigration migration;
+
+    @Before
+    public void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(getDatabaseType())
+                .setName(getClass().getSimpleName())
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE STATION (ID BIGINT NOT NULL PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE LINE_STOP (ID BIGINT NOT NULL PRIMARY KEY)");
+        // Same DDL as Hibernate for an allocation size of 50
+        jdbcTemplate.execute("CREATE SEQUENCE " + SEQUENCE_NAME + " START WITH 1 INCREMENT BY 50");
+
+        migration = new RestartSequenceMigration();
+        migration.setVersion(1);
+        migration.setSequenceName(SEQUENCE_NAME);
+        migration.setAllocationSize(50);
+        migration.setTables(Arrays.asList("STATION", "LINE_STOP"));
+        migration.afterPropertiesSet();
+    }
+
+    /**
+     * We expect the first block of identifiers given by the pooled optimizer to start right after the highest
+     * identifier of all tables.
+     */
+    @Test
+    public void testRestart() throws Exception {
+        jdbcTemplate.update("INSERT INTO STATION (ID) VALUES (7), (120)");
+        jdbcTemplate.update("INSERT INTO LINE_STOP (ID) VALUES (75)");
+
+        migrate();
+
+        // The block of identifiers is then [121, 170]
+        Assert.assertEquals(170L, nextValue());
+    }
+
+    /**
+     * We expect the sequence to be left as is when there is nothing to skip.
+     */
+    @Test
+    public void testEmptyTables() throws Exception {
+        migrate();
+
+        Assert.assertEquals(1L, nextValue());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        database.shutdown();
+    }
+
+    protected EmbeddedDatabaseType getDatabaseType() {
+        return EmbeddedDatabaseType.HSQL;
+    }
+
+    protected String getNextValueQuery(String sequenceName) {
+        return "CALL NEXT VALUE FOR " + sequenceName;
+    }
+
+    private void migrate() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try {
+                migration.migrate(connection);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+
+            return null;
+        });
+    }
+
+    private long nextValue() {
+        return jdbcTemplate.queryForObject(getNextValueQuery(SEQUENCE_NAME), Long.class);
+    }
+}
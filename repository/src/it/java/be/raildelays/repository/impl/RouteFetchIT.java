@@ -0,0 +1,168 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.Delays;
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.repository.LineStopDao;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Count the SQL statements needed to read line stops and to walk through their routes.
+ *
+ * @author Almex
+ */
+public class RouteFetchIT extends AbstractIT {
+
+    private static final LocalDate DATE = LocalDate.parse("2000-02-01");
+    private static final int TRAINS = 5;
+    private static final int STOPS = 8;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouteFetchIT.class);
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private TrainLine firstTrainLine;
+
+    @Before
+    public void setUp() throws Exception {
+        Station[] stations = new Station[STOPS];
+
+        for (int i = 0; i < STOPS; i++) {
+            stations[i] = new Station("RouteFetchIT-" + i);
+            entityManager.persist(stations[i]);
+        }
+
+        for (int train = 0; train < TRAINS; train++) {
+            TrainLine trainLine = new TrainLine.Builder(880000L + train).build(false);
+            LineStop.Builder first = null;
+
+            entityManager.persist(trainLine);
+
+            if (firstTrainLine == null) {
+                firstTrainLine = trainLine;
+            }
+
+            for (int i = 0; i < STOPS; i++) {
+                // Each train is delayed by 20 minutes
+                LineStop.Builder builder = new LineStop.Builder()
+                        .date(DATE)
+                        .trainLine(trainLine)
+                        .station(stations[i])
+                        .arrivalTime(TimeDelay.of(LocalTime.of(10 + train, i), Delays.toMillis(20L)))
+                        .departureTime(TimeDelay.of(LocalTime.of(10 + train, i, 30), Delays.toMillis(20L)));
+
+                if (first == null) {
+                    first = builder;
+                } else {
+                    first.addNext(builder);
+                }
+            }
+
+            entityManager.persist(first.build(false));
+        }
+
+        entityManager.flush();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testFindArrivalDelays() throws Exception {
+        List<LineStop> lineStops = lineStopDao.findArrivalDelays(DATE, new Station("RouteFetchIT-3"),
+                Delays.toMillis(15L));
+        long count = walk(lineStops);
+
+        LOGGER.info("findArrivalDelays: {} SQL statements for {} stops", statistics.getPrepareStatementCount(), count);
+
+        Assert.assertEquals(TRAINS, lineStops.size());
+        Assert.assertEquals(TRAINS * STOPS, count);
+        Assert.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindNextExpectedArrivalTime() throws Exception {
+        List<LineStop> lineStops = lineStopDao.findNextExpectedArrivalTime(new Station("RouteFetchIT-3"),
+                DATE.atTime(12, 0));
+        long count = walk(lineStops);
+
+        LOGGER.info("findNextExpectedArrivalTime: {} SQL statements for {} stops",
+                statistics.getPrepareStatementCount(), count);
+
+        Assert.assertEquals((TRAINS - 2) * STOPS, count);
+        Assert.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindFistScheduledLine() throws Exception {
+        LineStop lineStop = lineStopDao.findFistScheduledLine(firstTrainLine, new Station("RouteFetchIT-3"));
+        long count = walk(Collections.singletonList(lineStop));
+
+        LOGGER.info("findFistScheduledLine: {} SQL statements for {} stops",
+                statistics.getPrepareStatementCount(), count);
+
+        Assert.assertEquals(STOPS, count);
+        Assert.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindByTrainLineAndDate() throws Exception {
+        List<LineStop> lineStops = lineStopDao.findByTrainLineAndDate(firstTrainLine, DATE);
+        long count = walk(lineStops);
+
+        LOGGER.info("findByTrainLineAndDate: {} SQL statements for {} stops",
+                statistics.getPrepareStatementCount(), count);
+
+        Assert.assertEquals(STOPS * STOPS, count);
+        Assert.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Walk through the whole route of each line stop out of the persistence context.
+     *
+     * @return number of line stops visited
+     */
+    private long walk(List<LineStop> lineStops) {
+        long result = 0;
+
+        entityManager.clear();
+
+        for (LineStop lineStop : lineStops) {
+            LineStop first = lineStop;
+
+            while (first.getPrevious() != null) {
+                first = first.getPrevious();
+            }
+
+            for (LineStop node = first; node != null; node = node.getNext()) {
+                node.getStation().getEnglishName();
+                result++;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.domain.entities.LineStop;
+import be.raildelays.domain.entities.Station;
+import be.raildelays.repository.LineStopDao;
+import be.raildelays.repository.support.RecordingStatementInspector;
+import be.raildelays.repository.support.SchemaMigration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Check that the migration scripts were applied and that the hot queries of {@link LineStopDaoCustomJpa} use the
+ * indexes they create on HSQLDB. We explain the statements generated by Hibernate, as recorded by
+ * {@link RecordingStatementInspector}.
+ *
+ * @author Almex
+ */
+public class SchemaMigrationIT extends AbstractIT {
+
+    private static final LocalDate DATE = LocalDate.parse("2000-01-01");
+    private static final Station STATION = new Station("Bruxelles-Central");
+
+    @Resource
+    private LineStopDao lineStopDao;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private SchemaMigration schemaMigration;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    public void testMigrate() throws Exception {
+        Assert.assertTrue(jdbcTemplate.queryForList("SELECT VERSION FROM " + SchemaMigration.VERSION_TABLE,
+                Integer.class).containsAll(Arrays.asList(1, 2, 3)));
+        Assert.assertEquals(0, schemaMigration.migrate());
+    }
+
+    @Test
+    public void testArrivalDelaysPlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findArrivalDelays(DATE, STATION, 15L, new PageRequest(0, 10, new Sort("arrivalTime")));
+
+        assertPlanUses("LINE_STOP_STATION_IDX", lineStopStatement(RecordingStatementInspector.stop()));
+    }
+
+    @Test
+    public void testDepartureDelaysPlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findDepartureDelays(DATE, STATION, 15L, new PageRequest(0, 10, new Sort("departureTime")));
+
+        String plan = explain(lineStopStatement(RecordingStatementInspector.stop()));
+
+        // Both indexes start with DATE and STATION_ID: HSQLDB may narrow the day and the station with either of them
+        Assert.assertTrue("Expected an index on the day and the station within the plan: " + plan,
+                plan.contains("LINE_STOP_DEPARTURE_IDX") || plan.contains("LINE_STOP_STATION_IDX"));
+    }
+
+    @Test
+    public void testArrivalDelaysAfterPlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findArrivalDelaysAfter(DATE, STATION, 15L, lastSeen(), 10);
+
+        assertPlanUses("LINE_STOP_STATION_IDX", lineStopStatement(RecordingStatementInspector.stop()));
+    }
+
+    @Test
+    public void testDepartureDelaysAfterPlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findDepartureDelaysAfter(DATE, STATION, 15L, lastSeen(), 10);
+
+        String plan = explain(lineStopStatement(RecordingStatementInspector.stop()));
+
+        Assert.assertTrue("Expected an index on the day and the station within the plan: " + plan,
+                plan.contains("LINE_STOP_DEPARTURE_IDX") || plan.contains("LINE_STOP_STATION_IDX"));
+    }
+
+    @Test
+    public void testNextExpectedArrivalTimePlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findNextExpectedArrivalTime(STATION, DATE.atTime(12, 0));
+
+        assertPlanUses("LINE_STOP_STATION_IDX", lineStopStatement(RecordingStatementInspector.stop()));
+    }
+
+    @Test
+    public void testDelayedPairsPlan() throws Exception {
+        RecordingStatementInspector.start();
+        lineStopDao.findDelayedPairs(DATE, STATION, new Station("Liege-Guillemins"), 15L);
+
+        assertPlanUses("LINE_STOP_STATION_IDX", lineStopStatement(RecordingStatementInspector.stop()));
+    }
+
+    @Test
+    public void testMergePlan() throws Exception {
+        assertPlanUses("LINESTOPUNIQUEBUSINESSKEYCONSTRAINT", "SELECT L.ID FROM LINE_STOP L " +
+                "WHERE L.TRAIN_ID = 1 AND L.DATE = DATE '2000-01-01'");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RecordingStatementInspector.stop();
+    }
+
+    /**
+     * @return a line stop to search after, in the middle of the day
+     */
+    private static LineStop lastSeen() {
+        return new LineStop.Builder()
+                .id(1L)
+                .arrivalTime(TimeDelay.of(LocalTime.NOON))
+                .departureTime(TimeDelay.of(LocalTime.NOON))
+                .build(false);
+    }
+
+    /**
+     * @return the first recorded statement reading {@code LINE_STOP}, other look-ups (archived dates) go before it
+     */
+    private static String lineStopStatement(List<String> statements) {
+        return statements.stream()
+                .filter(sql -> sql.toUpperCase().contains(" FROM LINE_STOP "))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Expected a statement reading LINE_STOP: " + statements));
+    }
+
+    private void assertPlanUses(String index, String sql) {
+        String plan = explain(sql);
+
+        Assert.assertTrue("Expected the index " + index + " within the plan of " + sql + ": " + plan,
+                plan.contains(index));
+    }
+
+    /**
+     * Explain a statement as it was prepared, binding {@code null} to each of its parameters: HSQLDB builds the plan
+     * without their values.
+     */
+    private String explain(String sql) {
+        List<String> plan = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN PLAN FOR " + sql)) {
+                List<String> result = new ArrayList<>();
+                ParameterMetaData metaData = statement.getParameterMetaData();
+
+                for (int i = 1; i <= metaData.getParameterCount(); i++) {
+                    statement.setNull(i, metaData.getParameterType(i));
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        result.add(resultSet.getString(1));
+                    }
+                }
+
+                return result;
+            }
+        });
+
+        return String.join("\n", plan);
+    }
+}
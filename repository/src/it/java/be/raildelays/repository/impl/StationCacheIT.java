@@ -0,0 +1,133 @@
+package be.raildelays.repository.impl;
+
+import be.raildelays.domain.entities.Station;
+import be.raildelays.repository.StationDao;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Check that stations come from the second-level cache and that the cache never returns a stale station once it has
+ * been written to the database. Each step is executed within its own transaction, as a job would.
+ *
+ * @author Almex
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StationCacheIT extends AbstractIT {
+
+    private static final String NAME = "StationCacheIT";
+
+    private static final String NEW_NAME = "StationCacheIT (renamed)";
+
+    @Resource
+    private StationDao stationDao;
+
+    @Resource(name = "raildelaysEntityManagerFactory")
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Resource(name = "raildelaysTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() throws Exception {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        transactionTemplate.execute(status -> {
+            Station station = stationDao.findByEnglishName(NAME);
+
+            if (station == null) {
+                station = stationDao.findByEnglishName(NEW_NAME);
+            }
+            if (station != null) {
+                stationDao.delete(station);
+            }
+
+            return null;
+        });
+    }
+
+    @Test
+    public void testFindOneFromCache() throws Exception {
+        Long id = transactionTemplate.execute(status -> stationDao.save(new Station(NAME)).getId());
+
+        transactionTemplate.execute(status -> stationDao.findOne(id));
+
+        long hits = statistics.getSecondLevelCacheHitCount();
+        Station station = transactionTemplate.execute(status -> stationDao.findOne(id));
+
+        Assert.assertEquals(NAME, station.getEnglishName());
+        Assert.assertEquals(hits + 1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void testFindByNameFromQueryCache() throws Exception {
+        transactionTemplate.execute(status -> stationDao.save(new Station(NAME)));
+        transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME));
+
+        long hits = statistics.getQueryCacheHitCount();
+        Station station = transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME));
+
+        Assert.assertNotNull(station);
+        Assert.assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+    }
+
+    /**
+     * The GTFS job first searches a station by its name and creates it when it is not found: the next search must not
+     * return the cached absence of this station.
+     */
+    @Test
+    public void testSaveInvalidatesQueryCache() throws Exception {
+        Assert.assertNull(transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME)));
+        Assert.assertNull(transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME)));
+
+        transactionTemplate.execute(status -> stationDao.save(new Station(NAME)));
+
+        Assert.assertNotNull(transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME)));
+    }
+
+    /**
+     * A station being immutable, it can only be updated by a bulk update: this one must evict the station from the
+     * cache as well as the results of queries on stations.
+     */
+    @Test
+    public void testBulkUpdateInvalidatesCache() throws Exception {
+        Long id = transactionTemplate.execute(status -> stationDao.save(new Station(NAME)).getId());
+
+        transactionTemplate.execute(status -> stationDao.findOne(id));
+        transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME));
+
+        transactionTemplate.execute(status -> entityManager
+                .createQuery("UPDATE Station s SET s.englishName = :name WHERE s.id = :id")
+                .setParameter("name", NEW_NAME)
+                .setParameter("id", id)
+                .executeUpdate());
+
+        Assert.assertEquals(NEW_NAME, transactionTemplate.execute(status -> stationDao.findOne(id)).getEnglishName());
+        Assert.assertNull(transactionTemplate.execute(status -> stationDao.findByEnglishName(NAME)));
+        Assert.assertNotNull(transactionTemplate.execute(status -> stationDao.findByEnglishName(NEW_NAME)));
+    }
+}
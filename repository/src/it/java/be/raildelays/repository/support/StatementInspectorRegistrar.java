@@ -0,0 +1,33 @@
+package be.raildelays.repository.support;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+/**
+ * Register {@link RecordingStatementInspector} with each {@link LocalContainerEntityManagerFactoryBean} of an
+ * integration test context, before it builds its entity manager factory. The shared test context of the repository
+ * stays free of any test-only class.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class StatementInspectorRegistrar implements BeanPostProcessor {
+
+    private static final String STATEMENT_INSPECTOR = "hibernate.session_factory.statement_inspector";
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+            ((LocalContainerEntityManagerFactoryBean) bean).getJpaPropertyMap()
+                    .put(STATEMENT_INSPECTOR, RecordingStatementInspector.class.getName());
+        }
+
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+}
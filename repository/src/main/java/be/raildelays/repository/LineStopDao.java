@@ -28,6 +28,7 @@ package be.raildelays.repository;
 import be.raildelays.domain.entities.LineStop;
 import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -66,47 +67,13 @@ public interface LineStopDao extends JpaRepository<LineStop, Long>, LineStopDaoC
     LineStop findByTrainLineIdAndDate(@Param("trainId") Long trainId, @Param("date") LocalDate date);
 
     /**
-     * Search a list of line stops that belong to a trainLine for a certain day.
+     * Search a list of line stops that belong to a trainLine for a certain day. The result holds the whole route:
+     * previous and next stops are linked without any other select.
      *
      * @param trainLine for which we match its names.
      * @param date      day of the year for which you do the search
      * @return a list of line stop
      */
+    @EntityGraph(attributePaths = {"station", "trainLine"})
     List<LineStop> findByTrainLineAndDate(TrainLine trainLine, LocalDate date);
-
-    /**
-     * Search all dates containing a line stop already stored in the database.
-     *
-     * @param after  all dates returned must be greater or equals than after
-     * @param before all dates returned must be smaller or equals than before
-     * @return a list of {@link LocalDate}
-     */
-    @Query("SELECT DISTINCT o.date "
-            + "FROM LineStop o "
-            + "WHERE o.date >= :after "
-            + "AND o.date <= :before "
-            + "ORDER BY o.date ASC")
-    List<LocalDate> findAllUniqueDates(@Param("after") LocalDate after, @Param("before") LocalDate before);
-
-    /**
-     * Search all dates containing a line stop already stored in the database.
-     *
-     * @return a list of {@link LocalDate}
-     */
-    @Query("SELECT DISTINCT o.date "
-            + "FROM LineStop o "
-            + "ORDER BY o.date ASC")
-    List<LocalDate> findAllUniqueDates();
-
-    /**
-     * Search all dates containing a line stop already stored in the database.
-     *
-     * @param lastDate all dates returned must be smaller or equals than last date
-     * @return a list of {@link LocalDate}
-     */
-    @Query("SELECT DISTINCT o.date "
-            + "FROM LineStop o "
-            + "WHERE o.date <= :before "
-            + "ORDER BY o.date ASC")
-    List<LocalDate> findAllUniqueDates(@Param("before") LocalDate lastDate);
-}
\ No newline at end of file
+}
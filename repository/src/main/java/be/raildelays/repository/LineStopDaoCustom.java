@@ -24,16 +24,25 @@
 
 package be.raildelays.repository;
 
+import be.raildelays.domain.LineStopPair;
 import be.raildelays.domain.entities.LineStop;
 import be.raildelays.domain.entities.Station;
 import be.raildelays.domain.entities.TrainLine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Methods returning {@link LineStop} entities load the whole route of each of them with a second query and return
+ * detached copies linked to their previous and next stops (see {@link #fetchRoutes(List)}). Selecting the entities
+ * directly would load their eager previous and next stops one select at a time.
+ *
+ * @author Almex
+ */
 public interface LineStopDaoCustom {
 
     /**
@@ -45,6 +54,7 @@ public interface LineStopDaoCustom {
      * @param delayThreshold minimum delay (in milliseconds)
      * @param request        define the paging
      * @return a sub-list (called a {@link Page}) of {@link LineStop} belonging to departure
+     *         (the count query is skipped when this page is the last one)
      */
     Page<LineStop> findDepartureDelays(LocalDate date, Station station, long delayThreshold, Pageable request);
 
@@ -68,6 +78,7 @@ public interface LineStopDaoCustom {
      * @param delayThreshold minimum delay (in milliseconds)
      * @param request        define the paging
      * @return a sub-list (called a {@link Page}) of {@link LineStop} belonging to arrival
+     *         (the count query is skipped when this page is the last one)
      */
     Page<LineStop> findArrivalDelays(LocalDate date, Station station, long delayThreshold, Pageable request);
 
@@ -82,6 +93,36 @@ public interface LineStopDaoCustom {
      */
     List<LineStop> findArrivalDelays(LocalDate date, Station station, long delayThreshold);
 
+    /**
+     * Search the next slice of delayed or canceled departure {@link LineStop}s of a station for a certain day, ordered
+     * by expected departure time and identifier. Unlike an offset, this key costs the same for any slice.
+     *
+     * @param date           date for which you do the search
+     * @param station        departure station
+     * @param delayThreshold minimum delay (in milliseconds)
+     * @param lastSeen       last line stop of the previous slice (only its expected departure time and its id are
+     *                       used) or {@code null} for the first slice
+     * @param size           maximum number of line stops to return
+     * @return the line stops following {@code lastSeen}
+     */
+    Slice<LineStop> findDepartureDelaysAfter(LocalDate date, Station station, long delayThreshold, LineStop lastSeen,
+                                             int size);
+
+    /**
+     * Search the next slice of delayed or canceled arrival {@link LineStop}s of a station for a certain day, ordered by
+     * expected arrival time and identifier. Unlike an offset, this key costs the same for any slice.
+     *
+     * @param date           date for which you do the search
+     * @param station        arrival station
+     * @param delayThreshold minimum delay (in milliseconds)
+     * @param lastSeen       last line stop of the previous slice (only its expected arrival time and its id are
+     *                       used) or {@code null} for the first slice
+     * @param size           maximum number of line stops to return
+     * @return the line stops following {@code lastSeen}
+     */
+    Slice<LineStop> findArrivalDelaysAfter(LocalDate date, Station station, long delayThreshold, LineStop lastSeen,
+                                           int size);
+
     /**
      * Search a the next trains which is expectedTime to arrive after a certain
      * time.
@@ -91,7 +132,7 @@ public interface LineStopDaoCustom {
      *                 and must have the expectedTime departure time greater than the the
      *                 hour specified into that dateTime
      * @return a list of line stops of the same day in order of expectedTime arrival
-     * time
+     * time (empty for an archived day, see {@link #archive(LocalDate)})
      */
     List<LineStop> findNextExpectedArrivalTime(Station station, LocalDateTime dateTime);
 
@@ -101,7 +142,7 @@ public interface LineStopDaoCustom {
      *
      * @param trainLine which stop the the <code>station</code>
      * @param station   representing the stop of the line
-     * @return the first line stop from a list ascending ordered by expectedTime arrival time
+     * @return the first line stop from a list ascending ordered by expectedTime arrival time, with its route
      */
     LineStop findFistScheduledLine(TrainLine trainLine, Station station);
 
@@ -111,9 +152,81 @@ public interface LineStopDaoCustom {
      * @param trainLine train line coming from our internal repository (we match only the routId).
      * @param station   station we are searching for based on the name given in any language
      * @param date      day of the year for which you do the search
-     * @return a list of line stop
+     * @return the line stop with its route
      */
     LineStop findByTrainLineAndDateAndStation(TrainLine trainLine, LocalDate date, Station station);
 
+    /**
+     * Load the whole route of each line stop with one query per distinct date and return detached copies of them.
+     * Each copy is linked to its previous and next stops without any further access to the database, even out of a
+     * transaction.
+     *
+     * @param lineStops for which we fetch the route
+     * @return copies of {@code lineStops} in the same order (a line stop we cannot find is returned as is)
+     */
+    List<LineStop> fetchRoutes(List<LineStop> lineStops);
+
+    /**
+     * Search, as flat rows, the stops of each train going from one station to the other (in both directions) for
+     * which one of the two stops is canceled or has an arrival delay greater or equal to the threshold. Neither the
+     * routes nor any entity are loaded. An archived day (see {@link #archive(LocalDate)}) is searched into the
+     * archive.
+     *
+     * @param date           day of the trips
+     * @param stationA       one end of the trips
+     * @param stationB       other end of the trips
+     * @param delayThreshold minimum delay (in milliseconds)
+     * @return pairs of stops ordered by expected departure time
+     */
+    List<LineStopPair> findDelayedPairs(LocalDate date, Station stationA, Station stationB, long delayThreshold);
+
+    /**
+     * Search all dates containing a line stop already stored in the database, archived or not.
+     *
+     * @param after  all dates returned must be greater or equals than after
+     * @param before all dates returned must be smaller or equals than before
+     * @return a list of {@link LocalDate}
+     */
+    List<LocalDate> findAllUniqueDates(LocalDate after, LocalDate before);
+
+    /**
+     * Search all dates containing a line stop already stored in the database, archived or not.
+     *
+     * @return a list of {@link LocalDate}
+     */
+    List<LocalDate> findAllUniqueDates();
+
+    /**
+     * Search all dates containing a line stop already stored in the database, archived or not.
+     *
+     * @param lastDate all dates returned must be smaller or equals than last date
+     * @return a list of {@link LocalDate}
+     */
+    List<LocalDate> findAllUniqueDates(LocalDate lastDate);
+
+    /**
+     * Search the dates whose line stops have not been archived yet.
+     *
+     * @param before all dates returned must be strictly smaller than before
+     * @return a list of {@link LocalDate} in ascending order
+     */
+    List<LocalDate> findNotArchivedDates(LocalDate before);
+
+    /**
+     * Move all line stops of a day from {@code LINE_STOP} into {@code LINE_STOP_ARCHIVE}. Afterwards,
+     * {@link #findDelayedPairs(LocalDate, Station, Station, long)} searches this day into the archive and
+     * {@link #findAllUniqueDates()} still returns it.
+     * <p>
+     * Queries returning {@link LineStop} entities (e.g.: {@link #findArrivalDelays(LocalDate, Station, long)},
+     * {@link #findDepartureDelays(LocalDate, Station, long)} or
+     * {@link #findNextExpectedArrivalTime(Station, LocalDateTime)}) only search {@code LINE_STOP}: an archived line
+     * stop has no route anymore. Days are archived once older than {@code excel.max.months} months while the jobs
+     * search the last days only, so those queries never search an archived day.
+     * </p>
+     *
+     * @param date day to archive
+     * @return number of line stops archived
+     */
+    int archive(LocalDate date);
 
 }
\ No newline at end of file
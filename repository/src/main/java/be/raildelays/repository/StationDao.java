@@ -26,6 +26,9 @@ package be.raildelays.repository;
 
 import be.raildelays.domain.entities.Station;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 /**
  * Repository that manage storing a {@link Station}.
@@ -41,6 +44,7 @@ public interface StationDao extends JpaRepository<Station, Long> {
      * @param language in which you want to do the search.
      * @return a {@link Station}
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Station findByEnglishName(String englishName);
 
 
@@ -51,6 +55,7 @@ public interface StationDao extends JpaRepository<Station, Long> {
      * @param language in which you want to do the search.
      * @return a {@link Station}
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Station findByFrenchName(String frenchName);
 
 
@@ -61,5 +66,6 @@ public interface StationDao extends JpaRepository<Station, Long> {
      * @param language in which you want to do the search.
      * @return a {@link Station}
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Station findByDutchName(String dutchName);
 }
@@ -26,6 +26,9 @@ package be.raildelays.repository;
 
 import be.raildelays.domain.entities.TrainLine;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 /**
  * Repository that manage storing a {@link TrainLine}.
@@ -40,6 +43,7 @@ public interface TrainLineDao extends JpaRepository<TrainLine, Long> {
      * @param routeId     strict name that should match to find a TrainLine.
      * @return a {@link TrainLine}
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     TrainLine findByRouteId(Long routeId);
 
 }
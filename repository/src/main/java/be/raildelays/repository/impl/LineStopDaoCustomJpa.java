@@ -24,31 +24,44 @@
 
 package be.raildelays.repository.impl;
 
+import be.raildelays.delays.TimeDelay;
+import be.raildelays.delays.TimeDelay_;
+import be.raildelays.domain.LineStopPair;
 import be.raildelays.domain.entities.LineStop;
 import be.raildelays.domain.entities.LineStop_;
 import be.raildelays.domain.entities.Station;
+import be.raildelays.domain.entities.Station_;
 import be.raildelays.domain.entities.TrainLine;
+import be.raildelays.domain.entities.TrainLine_;
 import be.raildelays.repository.LineStopDaoCustom;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.SQLQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.data.jpa.repository.query.QueryUtils;
-import org.springframework.util.Assert;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import javax.persistence.metamodel.SingularAttribute;
+import java.sql.Date;
+import java.sql.Time;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.List;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import static be.raildelays.repository.specification.LineStopSpecifications.*;
 import static org.springframework.data.jpa.domain.Specifications.where;
@@ -57,41 +70,56 @@ import static org.springframework.data.jpa.domain.Specifications.where;
 public class LineStopDaoCustomJpa implements LineStopDaoCustom {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LineStopDaoCustomJpa.class);
+
+    /**
+     * Columns of {@code LINE_STOP} copied into {@code LINE_STOP_ARCHIVE}.
+     */
+    private static final String LINE_STOP_COLUMNS = "ID, TRAIN_ID, STATION_ID, DATE, CANCELED_ARRIVAL, " +
+            "CANCELED_DEPARTURE, ARRIVAL_TIME_EXPECTED, ARRIVAL_TIME_DELAY, DEPARTURE_TIME_EXPECTED, " +
+            "DEPARTURE_TIME_DELAY, PREVIOUS_ID, NEXT_ID";
+
+    /**
+     * Same pairs as {@link #findDelayedPairs(LocalDate, Station, Station, long)} out of the archive. The name column
+     * compared to station A replaces {@code %1$s} and the one compared to station B replaces {@code %2$s}.
+     */
+    private static final String FIND_ARCHIVED_PAIRS_SQL = "SELECT D.DATE, T.ID, T.ROUTE_ID, T.SHORT_NAME, " +
+            "T.LONG_NAME, SD.ENGLISH_NAME AS D_ENGLISH_NAME, SD.DUTCH_NAME AS D_DUTCH_NAME, " +
+            "SD.FRENCH_NAME AS D_FRENCH_NAME, D.DEPARTURE_TIME_EXPECTED, D.DEPARTURE_TIME_DELAY, " +
+            "D.CANCELED_DEPARTURE AS D_CANCELED_DEPARTURE, D.CANCELED_ARRIVAL AS D_CANCELED_ARRIVAL, " +
+            "SA.ENGLISH_NAME AS A_ENGLISH_NAME, SA.DUTCH_NAME AS A_DUTCH_NAME, SA.FRENCH_NAME AS A_FRENCH_NAME, " +
+            "A.ARRIVAL_TIME_EXPECTED, A.ARRIVAL_TIME_DELAY, " +
+            "A.CANCELED_DEPARTURE AS A_CANCELED_DEPARTURE, A.CANCELED_ARRIVAL AS A_CANCELED_ARRIVAL " +
+            "FROM LINE_STOP_ARCHIVE D " +
+            "JOIN LINE_STOP_ARCHIVE A ON A.DATE = D.DATE AND A.TRAIN_ID = D.TRAIN_ID " +
+            "JOIN TRAIN_LINE T ON T.ID = D.TRAIN_ID " +
+            "JOIN STATION SD ON SD.ID = D.STATION_ID " +
+            "JOIN STATION SA ON SA.ID = A.STATION_ID " +
+            "WHERE D.DATE = :date " +
+            "AND ((UPPER(SD.%1$s) = :stationA AND UPPER(SA.%2$s) = :stationB) " +
+            "OR (UPPER(SD.%2$s) = :stationB AND UPPER(SA.%1$s) = :stationA)) " +
+            "AND D.DEPARTURE_TIME_EXPECTED < A.ARRIVAL_TIME_EXPECTED " +
+            "AND (D.CANCELED_ARRIVAL = TRUE OR D.ARRIVAL_TIME_DELAY >= :delay " +
+            "OR A.CANCELED_ARRIVAL = TRUE OR A.ARRIVAL_TIME_DELAY >= :delay) " +
+            "ORDER BY D.DEPARTURE_TIME_EXPECTED, T.ID";
+
+    private static final String ARCHIVE_SQL = "INSERT INTO LINE_STOP_ARCHIVE (" + LINE_STOP_COLUMNS + ") " +
+            "SELECT " + LINE_STOP_COLUMNS + " FROM LINE_STOP WHERE DATE = :date";
+
     @PersistenceContext
     @SuppressWarnings("unused") // Injected via CDI
     private EntityManager entityManager;
 
     @Override
     public Page<LineStop> findDepartureDelays(LocalDate date, Station station, long delayThreshold, Pageable pageable) {
-        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
-        Subquery<Long> canceled = query.subquery(Long.class);
-        Subquery<Long> notCanceled = query.subquery(Long.class);
-        Root<LineStop> canceledRoot = canceled.from(LineStop.class);
-        Root<LineStop> notCanceledRoot = notCanceled.from(LineStop.class);
-
         LOGGER.debug("Searching delays for : date={} station={} threshold={}",
                 date, station, delayThreshold);
 
-        canceled.select(canceledRoot.get(LineStop_.id))
-                .where(where(dateEquals(date))
-                        .and(stationEquals(station))
-                        .and(isCanceledDeparture())
-                        .toPredicate(canceledRoot, query, builder));
-
-        notCanceled.select(notCanceledRoot.get(LineStop_.id))
-                .where(where(dateEquals(date))
-                        .and(stationEquals(station))
-                        .and(departureDelayIsNotNull())
-                        .and(departureDelayGreaterThanOrEqualTo(delayThreshold))
-                        .toPredicate(notCanceledRoot, query, builder));
-
-        Page<LineStop> all = findAll(where(idsIn(canceled)).or(idsIn(notCanceled)), pageable);
+        Page<LineStop> all = findRoutes(where(dateEquals(date))
+                .and(stationEquals(station))
+                .and(departureCanceledOrDelayed(delayThreshold)), pageable);
 
-        LOGGER.debug("Retrieved delays : size={}/{} elements={}/{} pages={}/{}",
-                all.getContent().size(), all.getSize(),
-                all.getNumberOfElements(), all.getTotalElements(),
-                all.getNumber(), all.getTotalPages());
+        LOGGER.debug("Retrieved delays : size={}/{} page={} hasNext={}",
+                all.getNumberOfElements(), all.getSize(), all.getNumber(), all.hasNext());
 
         return all;
     }
@@ -103,35 +131,15 @@ public class LineStopDaoCustomJpa implements LineStopDaoCustom {
 
     @Override
     public Page<LineStop> findArrivalDelays(LocalDate date, Station station, long delayThreshold, Pageable pageable) {
-        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
-        Subquery<Long> canceled = query.subquery(Long.class);
-        Subquery<Long> notCanceled = query.subquery(Long.class);
-        Root<LineStop> canceledRoot = canceled.from(LineStop.class);
-        Root<LineStop> notCanceledRoot = notCanceled.from(LineStop.class);
-
         LOGGER.debug("Searching delays for : date={} station={} threshold={}",
                 date, station, delayThreshold);
 
-        canceled.select(canceledRoot.get(LineStop_.id))
-                .where(where(dateEquals(date))
-                        .and(stationEquals(station))
-                        .and(isCanceledArrival())
-                        .toPredicate(canceledRoot, query, builder));
-
-        notCanceled.select(notCanceledRoot.get(LineStop_.id))
-                .where(where(dateEquals(date))
-                        .and(stationEquals(station))
-                        .and(arrivalDelayIsNotNull())
-                        .and(arrivalDelayGreaterThanOrEqualTo(delayThreshold))
-                        .toPredicate(notCanceledRoot, query, builder));
-
-        Page<LineStop> all = findAll(where(idsIn(canceled)).or(idsIn(notCanceled)), pageable);
+        Page<LineStop> all = findRoutes(where(dateEquals(date))
+                .and(stationEquals(station))
+                .and(arrivalCanceledOrDelayed(delayThreshold)), pageable);
 
-        LOGGER.debug("Retrieved delays : size={}/{} elements={}/{} pages={}/{}",
-                all.getContent().size(), all.getSize(),
-                all.getNumberOfElements(), all.getTotalElements(),
-                all.getNumber(), all.getTotalPages());
+        LOGGER.debug("Retrieved delays : size={}/{} page={} hasNext={}",
+                all.getNumberOfElements(), all.getSize(), all.getNumber(), all.hasNext());
 
         return all;
     }
@@ -141,14 +149,32 @@ public class LineStopDaoCustomJpa implements LineStopDaoCustom {
         return findArrivalDelays(date, station, delayThreshold, null).getContent();
     }
 
+    @Override
+    public Slice<LineStop> findDepartureDelaysAfter(LocalDate date, Station station, long delayThreshold,
+                                                    LineStop lastSeen, int size) {
+        return findAllAfter(where(dateEquals(date))
+                        .and(stationEquals(station))
+                        .and(departureCanceledOrDelayed(delayThreshold)),
+                LineStop_.departureTime, lastSeen != null ? lastSeen.getDepartureTime() : null, lastSeen, size);
+    }
+
+    @Override
+    public Slice<LineStop> findArrivalDelaysAfter(LocalDate date, Station station, long delayThreshold,
+                                                  LineStop lastSeen, int size) {
+        return findAllAfter(where(dateEquals(date))
+                        .and(stationEquals(station))
+                        .and(arrivalCanceledOrDelayed(delayThreshold)),
+                LineStop_.arrivalTime, lastSeen != null ? lastSeen.getArrivalTime() : null, lastSeen, size);
+    }
+
     @Override
     public List<LineStop> findNextExpectedArrivalTime(Station station, LocalDateTime dateTime) {
-        return findAll(where(dateEquals(dateTime.toLocalDate()))
+        return toRoutes(createKeyQuery(where(dateEquals(dateTime.toLocalDate()))
                         .and(arrivalTimeIsNotNull())
                         .and(arrivalTimeGreaterThan(dateTime.toLocalTime()))
                         .and(stationEquals(station)),
                 new Sort(Sort.Direction.ASC, "arrivalTime.expectedTime")
-        );
+        ).getResultList());
     }
 
     @Override
@@ -167,109 +193,485 @@ public class LineStopDaoCustomJpa implements LineStopDaoCustom {
                 .and(trainEquals(trainLine)));
     }
 
-    private Page<LineStop> findAll(Specifications<LineStop> specifications, Pageable pageable) {
+    @Override
+    public List<LineStop> fetchRoutes(List<LineStop> lineStops) {
+        Map<Long, LineStop> copies = fetchRoutes(lineStops.stream()
+                .map(lineStop -> new RouteKey(lineStop.getId(), lineStop.getDate(), lineStop.getTrainLine().getId()))
+                .collect(Collectors.toList()));
+
+        return lineStops.stream()
+                .map(lineStop -> copies.getOrDefault(lineStop.getId(), lineStop))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Join the line stops of both stations on their train line with a single query of scalar values. A pair is
+     * oriented by the expected times of its stops: we leave the first station before reaching the second one.
+     */
+    @Override
+    public List<LineStopPair> findDelayedPairs(LocalDate date, Station stationA, Station stationB,
+                                               long delayThreshold) {
+        if (isArchived(date)) {
+            return findArchivedPairs(date, stationA, stationB, delayThreshold);
+        }
+
         CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
-        Root<LineStop> root = query.from(LineStop.class);
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<LineStop> departure = query.from(LineStop.class);
+        Root<LineStop> arrival = query.from(LineStop.class);
+        Path<TrainLine> trainLine = departure.get(LineStop_.trainLine);
+        Path<LocalTime> expectedDepartureTime = departure.get(LineStop_.departureTime).get(TimeDelay_.expectedTime);
+        Path<LocalTime> expectedArrivalTime = arrival.get(LineStop_.arrivalTime).get(TimeDelay_.expectedTime);
+        List<Selection<?>> trainLineColumns = Arrays.asList(trainLine.get(TrainLine_.id),
+                trainLine.get(TrainLine_.routeId),
+                trainLine.get(TrainLine_.shortName),
+                trainLine.get(TrainLine_.longName));
+        List<Selection<?>> departureColumns = stopColumns(departure, expectedDepartureTime,
+                departure.get(LineStop_.departureTime).get(TimeDelay_.delay));
+        List<Selection<?>> arrivalColumns = stopColumns(arrival, expectedArrivalTime,
+                arrival.get(LineStop_.arrivalTime).get(TimeDelay_.delay));
+        List<Selection<?>> columns = new ArrayList<>();
+
+        columns.add(departure.get(LineStop_.date));
+        columns.addAll(trainLineColumns);
+        columns.addAll(departureColumns);
+        columns.addAll(arrivalColumns);
+
+        query.multiselect(columns)
+                .where(builder.equal(departure.get(LineStop_.date), date),
+                        builder.equal(arrival.get(LineStop_.date), date),
+                        builder.equal(arrival.get(LineStop_.trainLine), trainLine),
+                        builder.or(
+                                builder.and(stationEquals(stationA).toPredicate(departure, query, builder),
+                                        stationEquals(stationB).toPredicate(arrival, query, builder)),
+                                builder.and(stationEquals(stationB).toPredicate(departure, query, builder),
+                                        stationEquals(stationA).toPredicate(arrival, query, builder))),
+                        builder.lessThan(expectedDepartureTime, expectedArrivalTime),
+                        builder.or(
+                                arrivalCanceledOrDelayed(delayThreshold).toPredicate(departure, query, builder),
+                                arrivalCanceledOrDelayed(delayThreshold).toPredicate(arrival, query, builder)))
+                .orderBy(builder.asc(expectedDepartureTime), builder.asc(trainLine.get(TrainLine_.id)));
+
+        List<LineStopPair> result = entityManager.createQuery(query)
+                .getResultList()
+                .stream()
+                .map(tuple -> new LineStopPair((LocalDate) tuple.get(columns.get(0)),
+                        new TrainLine.Builder((Long) tuple.get(trainLineColumns.get(1)))
+                                .id((Long) tuple.get(trainLineColumns.get(0)))
+                                .shortName((String) tuple.get(trainLineColumns.get(2)))
+                                .longName((String) tuple.get(trainLineColumns.get(3)))
+                                .build(false),
+                        toStation(tuple, departureColumns),
+                        toTimeDelay(tuple, departureColumns),
+                        isCanceled(tuple, departureColumns),
+                        toStation(tuple, arrivalColumns),
+                        toTimeDelay(tuple, arrivalColumns),
+                        isCanceled(tuple, arrivalColumns)))
+                .collect(Collectors.toList());
+
+        LOGGER.debug("Retrieved {} delayed pairs between {} and {} for {}", result.size(), stationA, stationB, date);
+
+        return result;
+    }
+
+    private List<LineStopPair> findArchivedPairs(LocalDate date, Station stationA, Station stationB,
+                                                 long delayThreshold) {
+        String sql = String.format(FIND_ARCHIVED_PAIRS_SQL, nameColumn(stationA), nameColumn(stationB));
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(sql)
+                .setParameter("date", Date.valueOf(date))
+                .setParameter("stationA", nameValue(stationA))
+                .setParameter("stationB", nameValue(stationB))
+                .setParameter("delay", delayThreshold)
+                .getResultList();
+        List<LineStopPair> result = rows.stream()
+                .map(row -> new LineStopPair(((Date) row[0]).toLocalDate(),
+                        new TrainLine.Builder(toLong(row[2]))
+                                .id(toLong(row[1]))
+                                .shortName((String) row[3])
+                                .longName((String) row[4])
+                                .build(false),
+                        new Station((String) row[5], (String) row[6], (String) row[7]),
+                        toTimeDelay(row[8], row[9]),
+                        Boolean.TRUE.equals(row[10]) || Boolean.TRUE.equals(row[11]),
+                        new Station((String) row[12], (String) row[13], (String) row[14]),
+                        toTimeDelay(row[15], row[16]),
+                        Boolean.TRUE.equals(row[17]) || Boolean.TRUE.equals(row[18])))
+                .collect(Collectors.toList());
+
+        LOGGER.debug("Retrieved {} archived delayed pairs between {} and {} for {}", result.size(), stationA,
+                stationB, date);
+
+        return result;
+    }
 
-        query = query.where(specifications.toPredicate(root, query, builder));
+    /**
+     * @return the column matched by {@link be.raildelays.repository.specification.LineStopSpecifications#stationEquals}
+     */
+    private static String nameColumn(Station station) {
+        String result = "DUTCH_NAME";
 
-        if (pageable != null && pageable.getSort() != null) {
-            query = query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        if (StringUtils.isNotBlank(station.getEnglishName())) {
+            result = "ENGLISH_NAME";
+        } else if (StringUtils.isNotBlank(station.getFrenchName())) {
+            result = "FRENCH_NAME";
         }
 
-        TypedQuery<LineStop> typedQuery = entityManager.createQuery(query);
+        return result;
+    }
+
+    private static String nameValue(Station station) {
+        String result = station.getDutchName();
+
+        if (StringUtils.isNotBlank(station.getEnglishName())) {
+            result = station.getEnglishName();
+        } else if (StringUtils.isNotBlank(station.getFrenchName())) {
+            result = station.getFrenchName();
+        }
 
-        return pageable == null ? new PageImpl<>(typedQuery.getResultList()) : readPage(typedQuery, pageable, specifications);
+        return result != null ? result.toUpperCase(Locale.ENGLISH) : null;
     }
 
-    protected Page<LineStop> readPage(TypedQuery<LineStop> query, Pageable pageable, Specification<LineStop> specifications) {
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
 
-        query.setFirstResult(pageable.getOffset());
-        query.setMaxResults(pageable.getPageSize());
+    private static TimeDelay toTimeDelay(Object expectedTime, Object delay) {
+        return TimeDelay.of(expectedTime != null ? ((Time) expectedTime).toLocalTime() : null, toLong(delay));
+    }
 
-        Long total = executeCountQuery(getCountQuery(specifications));
-        List<LineStop> content = total > pageable.getOffset() ? query.getResultList() : Collections.emptyList();
+    private boolean isArchived(LocalDate date) {
+        List<?> result = entityManager
+                .createNativeQuery("SELECT D.ARCHIVED FROM LINE_STOP_DATES D WHERE D.DATE = :date")
+                .setParameter("date", Date.valueOf(date))
+                .getResultList();
 
-        return new PageImpl<>(content, pageable, total);
+        return !result.isEmpty() && Boolean.TRUE.equals(result.get(0));
+    }
+
+    @Override
+    public List<LocalDate> findAllUniqueDates(LocalDate after, LocalDate before) {
+        return findDates("SELECT D.DATE FROM LINE_STOP_DATES D WHERE D.DATE >= :after AND D.DATE <= :before " +
+                "ORDER BY D.DATE", query -> query
+                .setParameter("after", Date.valueOf(after))
+                .setParameter("before", Date.valueOf(before)));
+    }
+
+    @Override
+    public List<LocalDate> findAllUniqueDates() {
+        return findDates("SELECT D.DATE FROM LINE_STOP_DATES D ORDER BY D.DATE", query -> query);
+    }
+
+    @Override
+    public List<LocalDate> findAllUniqueDates(LocalDate lastDate) {
+        return findDates("SELECT D.DATE FROM LINE_STOP_DATES D WHERE D.DATE <= :before ORDER BY D.DATE",
+                query -> query.setParameter("before", Date.valueOf(lastDate)));
+    }
+
+    @Override
+    public List<LocalDate> findNotArchivedDates(LocalDate before) {
+        return findDates("SELECT D.DATE FROM LINE_STOP_DATES D WHERE D.ARCHIVED = FALSE AND D.DATE < :before " +
+                "ORDER BY D.DATE", query -> query.setParameter("before", Date.valueOf(before)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LocalDate> findDates(String sql, UnaryOperator<Query> parameters) {
+        List<Date> result = parameters.apply(entityManager.createNativeQuery(sql)).getResultList();
+
+        return result.stream().map(Date::toLocalDate).collect(Collectors.toList());
+    }
+
+    /**
+     * Rows are copied column by column: a column added later to {@code LINE_STOP} by the schema update does not exist
+     * within the archive. The day is flagged as archived before deleting its line stops: the catalog keeps it.
+     */
+    @Override
+    public int archive(LocalDate date) {
+        executeUpdate("UPDATE LINE_STOP_DATES SET ARCHIVED = TRUE WHERE DATE = :date", date);
+
+        int result = executeUpdate(ARCHIVE_SQL, date);
+
+        // Line stops of a day only reference each other
+        executeUpdate("UPDATE LINE_STOP SET PREVIOUS_ID = NULL, NEXT_ID = NULL WHERE DATE = :date", date);
+        executeUpdate("DELETE FROM LINE_STOP WHERE DATE = :date", date);
+
+        LOGGER.info("Archived {} line stops of {}", result, date);
+
+        return result;
+    }
+
+    /**
+     * Only line stops are touched: the second-level cache of other entities is kept.
+     */
+    private int executeUpdate(String sql, LocalDate date) {
+        return entityManager.createNativeQuery(sql)
+                .setParameter("date", Date.valueOf(date))
+                .unwrap(SQLQuery.class)
+                .addSynchronizedEntityClass(LineStop.class)
+                .executeUpdate();
+    }
+
+    /**
+     * @return in this order: English, Dutch and French name of the station, expected time, delay, canceled departure
+     * and canceled arrival
+     */
+    private static List<Selection<?>> stopColumns(Root<LineStop> root, Path<LocalTime> expectedTime,
+                                                  Path<Long> delay) {
+        Path<Station> station = root.get(LineStop_.station);
+
+        return Arrays.asList(station.get(Station_.englishName),
+                station.get(Station_.dutchName),
+                station.get(Station_.frenchName),
+                expectedTime,
+                delay,
+                root.get(LineStop_.canceledDeparture),
+                root.get(LineStop_.canceledArrival));
+    }
+
+    private static Station toStation(Tuple tuple, List<Selection<?>> columns) {
+        return new Station((String) tuple.get(columns.get(0)),
+                (String) tuple.get(columns.get(1)),
+                (String) tuple.get(columns.get(2)));
+    }
+
+    private static TimeDelay toTimeDelay(Tuple tuple, List<Selection<?>> columns) {
+        return TimeDelay.of((LocalTime) tuple.get(columns.get(3)), (Long) tuple.get(columns.get(4)));
+    }
+
+    private static boolean isCanceled(Tuple tuple, List<Selection<?>> columns) {
+        return Boolean.TRUE.equals(tuple.get(columns.get(5))) || Boolean.TRUE.equals(tuple.get(columns.get(6)));
     }
 
-    private static Long executeCountQuery(TypedQuery<Long> query) {
-        Assert.notNull(query);
+    /**
+     * @return copies of the line stops of all those routes indexed by their identifier
+     */
+    private Map<Long, LineStop> fetchRoutes(List<RouteKey> keys) {
+        Map<LocalDate, Set<Long>> trainLineIds = new HashMap<>();
+        Map<Long, LineStop> result = new HashMap<>();
+
+        for (RouteKey key : keys) {
+            trainLineIds.computeIfAbsent(key.date, date -> new HashSet<>()).add(key.trainLineId);
+        }
+
+        trainLineIds.forEach((date, ids) -> result.putAll(fetchRoutes(date, ids)));
 
-        List<Long> totals = query.getResultList();
-        Long total = 0L;
+        return result;
+    }
+
+    /**
+     * Retrieve all line stops of some train lines for a certain day with their links and rebuild each route from its
+     * first stop. The previous and next stops of a line stop belong to the same result: Hibernate finds them within
+     * the persistence context instead of loading them one select at a time.
+     *
+     * @return copies of the line stops indexed by their identifier
+     */
+    private Map<Long, LineStop> fetchRoutes(LocalDate date, Set<Long> trainLineIds) {
+        Map<Long, LineStop> result = new HashMap<>();
+        Map<Long, LineStop> lineStops = new HashMap<>();
+        Map<Long, Long> previousIds = new HashMap<>();
+        Map<Long, Long> nextIds = new HashMap<>();
+        List<Object[]> rows = entityManager
+                .createQuery("SELECT o, p.id, n.id FROM LineStop o " +
+                        "JOIN FETCH o.station JOIN FETCH o.trainLine " +
+                        "LEFT JOIN o.previous p LEFT JOIN o.next n " +
+                        "WHERE o.date = :date AND o.trainLine.id IN :trainLineIds", Object[].class)
+                .setParameter("date", date)
+                .setParameter("trainLineIds", trainLineIds)
+                .getResultList();
+
+        for (Object[] row : rows) {
+            LineStop lineStop = (LineStop) row[0];
+
+            lineStops.put(lineStop.getId(), lineStop);
+
+            // Our data sets do not always store both sides of a link
+            if (row[1] != null) {
+                previousIds.put(lineStop.getId(), (Long) row[1]);
+                nextIds.putIfAbsent((Long) row[1], lineStop.getId());
+            }
+
+            if (row[2] != null) {
+                nextIds.put(lineStop.getId(), (Long) row[2]);
+                previousIds.putIfAbsent((Long) row[2], lineStop.getId());
+            }
+        }
 
-        for (Long element : totals) {
-            total += element == null ? 0 : element;
+        for (LineStop lineStop : lineStops.values()) {
+            if (!lineStops.containsKey(previousIds.get(lineStop.getId()))) {
+                Set<Long> visited = new HashSet<>();
+                LineStop.Builder builder = new LineStop.Builder(lineStop, false, false);
+
+                for (Long id = nextIds.get(lineStop.getId());
+                     lineStops.containsKey(id) && visited.add(id);
+                     id = nextIds.get(id)) {
+                    builder.addNext(new LineStop.Builder(lineStops.get(id), false, false));
+                }
+
+                for (LineStop copy = builder.build(false); copy != null; copy = copy.getNext()) {
+                    result.put(copy.getId(), copy);
+                }
+            }
         }
 
-        return total;
+        LOGGER.debug("Fetched {} line stops of {} train lines for {}", rows.size(), trainLineIds.size(), date);
+
+        return result;
+    }
+
+    /**
+     * Select the key of each line stop rather than the line stop itself, which would load its eager previous and next
+     * stops one select at a time, and then fetch their routes.
+     *
+     * @return copies of the line stops linked to their whole route
+     */
+    private Page<LineStop> findRoutes(Specifications<LineStop> specifications, Pageable pageable) {
+        TypedQuery<Tuple> query = createKeyQuery(specifications, pageable != null ? pageable.getSort() : null);
+        Page<Tuple> keys = pageable == null ? new PageImpl<>(query.getResultList()) :
+                readPage(query, pageable, specifications);
+        List<LineStop> content = toRoutes(keys.getContent());
+
+        return pageable == null ? new PageImpl<>(content) : new PageImpl<>(content, pageable, keys.getTotalElements());
     }
 
-    private List<LineStop> findAll(Specifications<LineStop> specifications, Sort sort) {
+    /**
+     * Seek the line stops following a key made of an expected time and an identifier. Line stops without expected
+     * time come first, whatever the default null ordering of the database. Once we are past them, the range on the
+     * expected time starts within the index on (DATE, STATION_ID, expected time, ID) and, as we also order by date and
+     * station, the index can give the order: the database then stops after {@code size + 1} rows instead of sorting
+     * the rest of the day. As {@link #findRoutes(Specifications, Pageable)}, we only select the key of each line stop.
+     */
+    private Slice<LineStop> findAllAfter(Specifications<LineStop> specifications,
+                                         SingularAttribute<LineStop, TimeDelay> timeDelay,
+                                         TimeDelay lastTimeDelay, LineStop lastSeen, int size) {
         CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
         Root<LineStop> root = query.from(LineStop.class);
+        Path<LocalTime> time = root.get(timeDelay).get(TimeDelay_.expectedTime);
+        Path<Long> id = root.get(LineStop_.id);
+        Path<LocalDate> date = root.get(LineStop_.date);
+        Path<Long> stationId = root.get(LineStop_.station).get(Station_.id);
+        LocalTime lastTime = lastTimeDelay != null ? lastTimeDelay.getExpectedTime() : null;
+        Predicate predicate = specifications.toPredicate(root, query, builder);
+
+        if (lastTime != null) {
+            predicate = builder.and(predicate,
+                    builder.greaterThanOrEqualTo(time, lastTime),
+                    builder.or(builder.greaterThan(time, lastTime), builder.greaterThan(id, lastSeen.getId())));
+            query.orderBy(builder.asc(date), builder.asc(stationId), builder.asc(time), builder.asc(id));
+        } else {
+            if (lastSeen != null) {
+                predicate = builder.and(predicate,
+                        builder.or(builder.isNotNull(time), builder.greaterThan(id, lastSeen.getId())));
+            }
+
+            query.orderBy(builder.asc(builder.selectCase().when(builder.isNull(time), 0).otherwise(1)),
+                    builder.asc(time),
+                    builder.asc(id));
+        }
 
-        return entityManager
-                .createQuery(query
-                        .where(specifications.toPredicate(root, query, builder))
-                        .orderBy(QueryUtils.toOrders(sort, root, builder))
-                ).getResultList();
+        List<Tuple> content = entityManager.createQuery(query
+                .multiselect(id, date, root.get(LineStop_.trainLine).get(TrainLine_.id))
+                .where(predicate))
+                .setMaxResults(size + 1)
+                .getResultList();
+        boolean hasNext = content.size() > size;
+
+        if (hasNext) {
+            content = new ArrayList<>(content.subList(0, size));
+        }
+
+        return new SliceImpl<>(toRoutes(content), null, hasNext);
     }
 
-    protected TypedQuery<Long> getCountQuery(Specification<LineStop> specification) {
+    private TypedQuery<Tuple> createKeyQuery(Specifications<LineStop> specifications, Sort sort) {
         CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<LineStop> root = query.from(LineStop.class);
 
-        Root<LineStop> root = applySpecificationToCriteria(specification, query);
+        query.multiselect(root.get(LineStop_.id),
+                root.get(LineStop_.date),
+                root.get(LineStop_.trainLine).get(TrainLine_.id))
+                .where(specifications.toPredicate(root, query, builder));
 
-        if (query.isDistinct()) {
-            query.select(builder.countDistinct(root));
-        } else {
-            query.select(builder.count(root));
+        if (sort != null) {
+            query.orderBy(QueryUtils.toOrders(sort, root, builder));
         }
 
         return entityManager.createQuery(query);
     }
 
-    private <S> Root<LineStop> applySpecificationToCriteria(Specification<LineStop> specification, CriteriaQuery<S> query) {
-        Assert.notNull(query);
-        Root<LineStop> root = query.from(LineStop.class);
+    /**
+     * @param tuples identifier, date and train line identifier of each line stop
+     * @return copies of the line stops linked to their whole route, in the same order
+     */
+    private List<LineStop> toRoutes(List<Tuple> tuples) {
+        List<RouteKey> keys = tuples.stream()
+                .map(tuple -> new RouteKey(tuple.get(0, Long.class), tuple.get(1, LocalDate.class),
+                        tuple.get(2, Long.class)))
+                .collect(Collectors.toList());
+        Map<Long, LineStop> copies = fetchRoutes(keys);
+
+        // A route looping on itself has no first stop to be rebuilt from
+        return keys.stream()
+                .map(key -> copies.containsKey(key.id) ? copies.get(key.id) :
+                        entityManager.find(LineStop.class, key.id))
+                .collect(Collectors.toList());
+    }
 
-        if (specification == null) {
-            return root;
-        }
+    /**
+     * The total of the returned {@link Page} is always exact. We only count the elements when the page does not
+     * tell it: a page which is not full and not past the last element is the last one.
+     */
+    protected <T> Page<T> readPage(TypedQuery<T> query, Pageable pageable, Specifications<LineStop> specifications) {
+        List<T> content;
+        long total;
 
-        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        Predicate predicate = specification.toPredicate(root, query, builder);
+        query.setFirstResult(pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+
+        content = query.getResultList();
 
-        if (predicate != null) {
-            query.where(predicate);
+        if (content.size() < pageable.getPageSize() && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            total = pageable.getOffset() + content.size();
+        } else {
+            total = count(specifications);
         }
 
-        return root;
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private long count(Specifications<LineStop> specifications) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<LineStop> root = query.from(LineStop.class);
+
+        return entityManager
+                .createQuery(query
+                        .select(builder.count(root))
+                        .where(specifications.toPredicate(root, query, builder))
+                ).getSingleResult();
     }
 
     private LineStop findFirstOne(Specifications<LineStop> specification) {
-        LineStop result = null;
-
-        try {
-            CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-            CriteriaQuery<LineStop> query = builder.createQuery(LineStop.class);
-            Root<LineStop> root = query.from(LineStop.class);
-
-            result = entityManager
-                    .createQuery(query.where(specification.toPredicate(root, query, builder)))
-                    .setMaxResults(1)
-                    .setFirstResult(0)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            LOGGER.trace("We have no result to return.", e);
-        }
+        List<LineStop> result = toRoutes(createKeyQuery(specification, null).setMaxResults(1).getResultList());
 
-        return result;
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Identify a line stop and its route: a train line for a certain day.
+     */
+    private static final class RouteKey {
+
+        private final Long id;
+        private final LocalDate date;
+        private final Long trainLineId;
+
+        RouteKey(Long id, LocalDate date, Long trainLineId) {
+            this.id = id;
+            this.date = date;
+            this.trainLineId = trainLineId;
+        }
     }
 
 }
@@ -197,6 +197,32 @@ public class LineStopSpecifications {
         );
     }
 
+    /**
+     * Creates a specification used to find LineStop whose arrival is canceled or delayed by at least a threshold.
+     *
+     * @param delay minimum delay (in milliseconds)
+     * @return a predicate
+     */
+    public static Specification<LineStop> arrivalCanceledOrDelayed(final Long delay) {
+        return (root, query, builder) -> builder.or(
+                isCanceledArrival().toPredicate(root, query, builder),
+                arrivalDelayGreaterThanOrEqualTo(delay).toPredicate(root, query, builder)
+        );
+    }
+
+    /**
+     * Creates a specification used to find LineStop whose departure is canceled or delayed by at least a threshold.
+     *
+     * @param delay minimum delay (in milliseconds)
+     * @return a predicate
+     */
+    public static Specification<LineStop> departureCanceledOrDelayed(final Long delay) {
+        return (root, query, builder) -> builder.or(
+                isCanceledDeparture().toPredicate(root, query, builder),
+                departureDelayGreaterThanOrEqualTo(delay).toPredicate(root, query, builder)
+        );
+    }
+
     /**
      * Creates a specification where {@link LineStop#id} must be in a list provided by a sub-query.
      *
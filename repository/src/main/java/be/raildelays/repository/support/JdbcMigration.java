@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package be.raildelays.repository.support;
+
+import java.sql.Connection;
+
+/**
+ * Versioned migration written in Java, for what a SQL script cannot express (e.g.: a value computed from the data).
+ * It is applied by {@link SchemaMigration} in the same order and within the same kind of transaction as the
+ * scripts.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public interface JdbcMigration {
+
+    /**
+     * @return version of this migration, it must not be used by any script of the same location
+     */
+    int getVersion();
+
+    /**
+     * @return description recorded into the {@value SchemaMigration#VERSION_TABLE} table
+     */
+    String getDescription();
+
+    /**
+     * @param connection bound to the transaction of this migration
+     * @throws Exception in case of error, the migration is then rolled back and not recorded
+     */
+    void migrate(Connection connection) throws Exception;
+}
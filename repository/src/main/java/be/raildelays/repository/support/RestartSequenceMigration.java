@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package be.raildelays.repository.support;
+
+import be.raildelays.domain.entities.AbstractEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Move a sequence past the identifiers already stored within some tables.
+ * <p>
+ * Hibernate creates a missing sequence starting at 1, even when the tables already hold rows whose identifiers came
+ * from another generator. As Hibernate uses a pooled optimizer, the value returned by the sequence is the last
+ * identifier of a block of {@code allocationSize} identifiers. We then restart the sequence at
+ * {@code MAX(ID) + allocationSize} so that the first block starts at {@code MAX(ID) + 1}. Nothing is done if all
+ * tables are empty.
+ * </p>
+ * <p>
+ * HSQLDB can restart a sequence but Derby cannot: the sequence is then dropped and created again with the same
+ * increment.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class RestartSequenceMigration implements JdbcMigration, InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestartSequenceMigration.class);
+
+    private int version;
+    private String sequenceName = AbstractEntity.SEQUENCE_NAME;
+    private int allocationSize = AbstractEntity.ALLOCATION_SIZE;
+    private List<String> tables;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.isTrue(version > 0, "The property 'version' must be positive");
+        Assert.hasText(sequenceName, "The property 'sequenceName' is mandatory");
+        Assert.isTrue(allocationSize > 0, "The property 'allocationSize' must be positive");
+        Assert.notEmpty(tables, "The property 'tables' is mandatory");
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return "restart " + sequenceName.toLowerCase();
+    }
+
+    @Override
+    public void migrate(Connection connection) throws Exception {
+        String product = connection.getMetaData().getDatabaseProductName();
+
+        try (Statement statement = connection.createStatement()) {
+            long maxId = 0;
+
+            for (String table : tables) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT MAX(ID) FROM " + table)) {
+                    if (resultSet.next()) {
+                        maxId = Math.max(maxId, resultSet.getLong(1));
+                    }
+                }
+            }
+
+            if (maxId > 0) {
+                long restartWith = maxId + allocationSize;
+
+                LOGGER.info("Restarting {} with {} (highest identifier is {})", sequenceName, restartWith, maxId);
+
+                if (product.startsWith("HSQL")) {
+                    statement.execute("ALTER SEQUENCE " + sequenceName + " RESTART WITH " + restartWith);
+                } else if (product.startsWith("Apache Derby")) {
+                    statement.execute("DROP SEQUENCE " + sequenceName + " RESTRICT");
+                    statement.execute("CREATE SEQUENCE " + sequenceName + " START WITH " + restartWith +
+                            " INCREMENT BY " + allocationSize);
+                } else {
+                    throw new IllegalStateException("Cannot restart a sequence on " + product);
+                }
+            } else {
+                LOGGER.info("No identifier stored yet, {} is left as is", sequenceName);
+            }
+        }
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * @param sequenceName by default {@link AbstractEntity#SEQUENCE_NAME}
+     */
+    public void setSequenceName(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    /**
+     * @param allocationSize increment of the sequence, by default {@link AbstractEntity#ALLOCATION_SIZE}
+     */
+    public void setAllocationSize(int allocationSize) {
+        this.allocationSize = allocationSize;
+    }
+
+    /**
+     * @param tables whose {@code ID} column is filled by the sequence
+     */
+    public void setTables(List<String> tables) {
+        this.tables = tables;
+    }
+}
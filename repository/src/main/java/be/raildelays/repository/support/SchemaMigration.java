@@ -0,0 +1,230 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Almex
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a
+ * copy of this software and associated documentation files (the "Software"),
+ * to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+
+package be.raildelays.repository.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Apply versioned SQL scripts on top of the schema generated by Hibernate ({@code hibernate.hbm2ddl.auto=update}).
+ * <p>
+ * Scripts are searched within {@link #setLocation(String) location} and must be named
+ * {@code V<version>__<description>.sql}. Each script is executed once, in ascending order of version, within its own
+ * transaction and then recorded into the {@value #VERSION_TABLE} table. As the tables must exist first, this bean
+ * must be created after the {@link javax.persistence.EntityManagerFactory} (e.g.: with {@code depends-on}).
+ * </p>
+ * <p>
+ * {@link #setMigrations(List) Java migrations} are applied the same way, in order of version among the scripts.
+ * </p>
+ *
+ * @author Almex
+ * @since 2.0
+ */
+public class SchemaMigration implements InitializingBean {
+
+    public static final String VERSION_TABLE = "SCHEMA_VERSION";
+
+    private static final String CREATE_VERSION_TABLE_SQL = "CREATE TABLE " + VERSION_TABLE + " (" +
+            "VERSION INTEGER NOT NULL PRIMARY KEY, " +
+            "DESCRIPTION VARCHAR(255), " +
+            "INSTALLED_ON TIMESTAMP)";
+
+    private static final String INSERT_VERSION_SQL = "INSERT INTO " + VERSION_TABLE +
+            " (VERSION, DESCRIPTION, INSTALLED_ON) VALUES (?, ?, ?)";
+
+    private static final String SELECT_VERSIONS_SQL = "SELECT VERSION FROM " + VERSION_TABLE;
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigration.class);
+
+    private DataSource dataSource;
+
+    private String location;
+
+    private List<JdbcMigration> migrations = Collections.emptyList();
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Assert.notNull(dataSource, "The property 'dataSource' is mandatory");
+        Assert.notNull(location, "The property 'location' is mandatory");
+
+        migrate();
+    }
+
+    /**
+     * Execute all scripts and Java migrations not yet recorded into the {@value #VERSION_TABLE} table.
+     *
+     * @return number of migrations executed
+     * @throws Exception in case of a migration we cannot read or execute
+     */
+    public int migrate() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        Map<Integer, JdbcMigration> all = findMigrations();
+        Set<Integer> installed;
+        int result = 0;
+
+        if (!hasVersionTable()) {
+            jdbcTemplate.execute(CREATE_VERSION_TABLE_SQL);
+        }
+
+        installed = new HashSet<>(jdbcTemplate.queryForList(SELECT_VERSIONS_SQL, Integer.class));
+
+        for (Map.Entry<Integer, JdbcMigration> entry : all.entrySet()) {
+            Integer version = entry.getKey();
+            JdbcMigration migration = entry.getValue();
+
+            if (!installed.contains(version)) {
+                LOGGER.info("Migrating schema to version {}: {}", version, migration.getDescription());
+
+                transactionTemplate.execute(status -> {
+                    try {
+                        migration.migrate(DataSourceUtils.getConnection(dataSource));
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Cannot migrate schema to version " + version, e);
+                    }
+
+                    jdbcTemplate.update(INSERT_VERSION_SQL, version, migration.getDescription(),
+                            new Timestamp(System.currentTimeMillis()));
+
+                    return null;
+                });
+
+                result++;
+            }
+        }
+
+        LOGGER.info("Schema is up to date: {} migration(s) applied out of {}", result, all.size());
+
+        return result;
+    }
+
+    private Map<Integer, JdbcMigration> findMigrations() throws Exception {
+        Map<Integer, JdbcMigration> result = new TreeMap<>();
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(location + "/V*__*.sql");
+
+        for (Resource resource : resources) {
+            Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+
+            Assert.state(matcher.matches(), "Invalid migration script name: " + resource.getFilename());
+            Assert.state(result.put(Integer.valueOf(matcher.group(1)), new ScriptMigration(resource)) == null,
+                    "Two migration scripts have the same version: " + resource.getFilename());
+        }
+
+        for (JdbcMigration migration : migrations) {
+            Assert.state(result.put(migration.getVersion(), migration) == null,
+                    "Two migrations have the same version: " + migration.getVersion());
+        }
+
+        return result;
+    }
+
+    private boolean hasVersionTable() {
+        return new JdbcTemplate(dataSource).execute((ConnectionCallback<Boolean>) connection -> {
+            // Unquoted identifiers are stored in upper case by HSQLDB and Derby
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, VERSION_TABLE, null)) {
+                return tables.next();
+            }
+        });
+    }
+
+    /**
+     * A migration script seen as a {@link JdbcMigration}.
+     */
+    private static class ScriptMigration implements JdbcMigration {
+
+        private final Resource script;
+
+        ScriptMigration(Resource script) {
+            this.script = script;
+        }
+
+        @Override
+        public int getVersion() {
+            Matcher matcher = SCRIPT_NAME.matcher(script.getFilename());
+
+            return matcher.matches() ? Integer.parseInt(matcher.group(1)) : 0;
+        }
+
+        @Override
+        public String getDescription() {
+            Matcher matcher = SCRIPT_NAME.matcher(script.getFilename());
+
+            return matcher.matches() ? matcher.group(2).replace('_', ' ') : script.getFilename();
+        }
+
+        @Override
+        public void migrate(Connection connection) throws Exception {
+            ScriptUtils.executeSqlScript(connection, script);
+        }
+    }
+
+    /**
+     * @param dataSource on which we apply the migration scripts
+     */
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param location of the migration scripts of our database vendor (e.g.: {@code classpath:/db/migration/hsqldb})
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * @param migrations written in Java, their versions must differ from the ones of the scripts
+     */
+    public void setMigrations(List<JdbcMigration> migrations) {
+        this.migrations = migrations;
+    }
+}
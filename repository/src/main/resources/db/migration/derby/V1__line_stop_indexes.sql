@@ -0,0 +1,9 @@
+-- Access paths of LineStopDaoCustomJpa not served by LineStopUniqueBusinessKeyConstraint (TRAIN_ID, DATE, STATION_ID).
+-- The merge look-up (TRAIN_ID, DATE) and the route fetch (DATE, TRAIN_ID IN ...) already use a prefix of that one.
+
+-- findArrivalDelays(), findArrivalDelaysAfter() and findNextExpectedArrivalTime(): equality on DATE and STATION_ID,
+-- then the key (expected time, ID) to be read in order. The delays remain covered behind it.
+CREATE INDEX LINE_STOP_ARRIVAL_IDX ON LINE_STOP (DATE, STATION_ID, ARRIVAL_TIME_EXPECTED, ID, ARRIVAL_TIME_DELAY, CANCELED_ARRIVAL);
+
+-- findDepartureDelays() and findDepartureDelaysAfter(): same access path in departure order
+CREATE INDEX LINE_STOP_DEPARTURE_IDX ON LINE_STOP (DATE, STATION_ID, DEPARTURE_TIME_EXPECTED, ID, DEPARTURE_TIME_DELAY, CANCELED_DEPARTURE);
@@ -0,0 +1,10 @@
+-- Access paths of LineStopDaoCustomJpa not served by LineStopUniqueBusinessKeyConstraint (TRAIN_ID, DATE, STATION_ID).
+-- The merge look-up (TRAIN_ID, DATE) and the route fetch (DATE, TRAIN_ID IN ...) already use a prefix of that one.
+
+-- findArrivalDelays(), findArrivalDelaysAfter() and findNextExpectedArrivalTime(): equality on DATE and STATION_ID, in
+-- arrival order. HSQLDB only reads an index in order when the ORDER BY starts with its leading columns: the keyset
+-- (expected time, ID) of findArrivalDelaysAfter() must directly follow them.
+CREATE INDEX LINE_STOP_STATION_IDX ON LINE_STOP (DATE, STATION_ID, ARRIVAL_TIME_EXPECTED, ID);
+
+-- findDepartureDelays() and findDepartureDelaysAfter(): same access path in departure order.
+CREATE INDEX LINE_STOP_DEPARTURE_IDX ON LINE_STOP (DATE, STATION_ID, DEPARTURE_TIME_EXPECTED, ID);
@@ -0,0 +1,17 @@
+-- Catalog of the days having line stops: findAllUniqueDates() reads it instead of a DISTINCT over LINE_STOP.
+-- ARCHIVED tells that the line stops of this day were moved into LINE_STOP_ARCHIVE.
+CREATE TABLE LINE_STOP_DATES (DATE DATE NOT NULL PRIMARY KEY, ARCHIVED BOOLEAN DEFAULT FALSE NOT NULL);
+INSERT INTO LINE_STOP_DATES (DATE) SELECT DISTINCT DATE FROM LINE_STOP;
+
+-- Same columns as LINE_STOP without any constraint: rows are only moved there, one day at a time
+CREATE TABLE LINE_STOP_ARCHIVE AS (SELECT * FROM LINE_STOP) WITH NO DATA;
+CREATE INDEX LINE_STOP_ARCHIVE_DATE_IDX ON LINE_STOP_ARCHIVE (DATE, STATION_ID, TRAIN_ID);
+
+-- Whatever writes into LINE_STOP (JPA or JDBC), its days are registered within the catalog
+CREATE TRIGGER LINE_STOP_DATES_INSERT_TRG AFTER INSERT ON LINE_STOP REFERENCING NEW ROW AS N FOR EACH ROW
+    MERGE INTO LINE_STOP_DATES D USING (VALUES (N.DATE)) AS I (DATE) ON D.DATE = I.DATE
+    WHEN NOT MATCHED THEN INSERT (DATE) VALUES (I.DATE);
+-- A day is forgotten once its last line stop is deleted, unless it has been archived
+CREATE TRIGGER LINE_STOP_DATES_DELETE_TRG AFTER DELETE ON LINE_STOP REFERENCING OLD ROW AS O FOR EACH ROW
+    DELETE FROM LINE_STOP_DATES D WHERE D.DATE = O.DATE AND D.ARCHIVED = FALSE
+    AND NOT EXISTS (SELECT L.ID FROM LINE_STOP L WHERE L.DATE = O.DATE);
@@ -0,0 +1,44 @@
+package be.raildelays.server.scheduler;
+
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Archive the line stops older than the number of months we keep, counted from today.
+ *
+ * @author Almex
+ * @since 2.0
+ */
+@DisallowConcurrentExecution
+public class ArchiveLineStopsJob extends AbstractJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveLineStopsJob.class);
+
+    @Override
+    public void execute(JobExecutionContext context) throws JobExecutionException {
+        try {
+            JobParameters jobParameters = jobParametersExtractor.getJobParameters(null, null);
+            JobParametersBuilder builder = new JobParametersBuilder(jobParameters);
+
+            builder.addDate("date", Date.from(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant()));
+
+            JobExecution jobExecution = service.startNewInstance("archiveLineStopsJob", builder.toJobParameters());
+
+            if (jobExecution.getStatus().isUnsuccessful()) {
+                throw new JobExecutionException("Job 'archiveLineStopsJob' has FAILED!");
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error when starting the job: ", e);
+        }
+    }
+}
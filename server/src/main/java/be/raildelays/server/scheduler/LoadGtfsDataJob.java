@@ -12,6 +12,7 @@ import org.springframework.batch.core.JobParametersBuilder;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -28,22 +29,25 @@ public class LoadGtfsDataJob extends AbstractJob {
     public void execute(JobExecutionContext context) throws JobExecutionException {
         try {
             List<LocalDate> dates = ExcelFileUtils.generateListOfDates();
+            JobParameters jobParameters = jobParametersExtractor.getJobParameters(null, null);
+            JobParametersBuilder builder = new JobParametersBuilder(jobParameters);
 
-            for (LocalDate date : dates) {
-                JobParameters jobParameters = jobParametersExtractor.getJobParameters(null, null);
-                JobParametersBuilder builder = new JobParametersBuilder(jobParameters);
+            // One job for the whole range of dates: the GTFS feed is parsed only once
+            builder.addDate("date", toDate(Collections.min(dates)));
+            builder.addDate("endDate", toDate(Collections.max(dates)));
 
-                builder.addDate("date", Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            JobExecution jobExecution = service.startNewInstance("loadGtfsIntoDatabaseJob", builder.toJobParameters());
 
-                JobExecution jobExecution = service.startNewInstance("loadGtfsIntoDatabaseJob", builder.toJobParameters());
-
-                if (jobExecution.getStatus().isUnsuccessful()) {
-                    throw new JobExecutionException("Job 'mainJob' has FAILED!");
-                }
+            if (jobExecution.getStatus().isUnsuccessful()) {
+                throw new JobExecutionException("Job 'loadGtfsIntoDatabaseJob' has FAILED!");
             }
         } catch (Exception e) {
             LOGGER.error("Error when starting the job: ", e);
         }
     }
 
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
 }
@@ -22,7 +22,8 @@ public class RaildelaysWebApplicationInitializer implements WebApplicationInitia
                 "classpath:/jobs/main-job-context.xml",
                 "classpath:/jobs/steps/handle-max-months-job-context.xml",
                 "classpath:/jobs/steps/handle-more-than-one-hour-delays-job-context.xml",
-                "classpath:/jobs/steps/load-gtfs-into-database-job-context.xml");
+                "classpath:/jobs/steps/load-gtfs-into-database-job-context.xml",
+                "classpath:/jobs/steps/archive-line-stops-job-context.xml");
 
         servletContext.addListener(new ContextLoaderListener(appContext));
     }